@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.util.Map;
 
+import org.apache.jmeter.extractor.json.jsonpath.JSONManager;
 import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.AbstractTestElement;
@@ -106,8 +107,8 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
         return getPropertyAsBoolean(ISREGEX, true);
     }
 
-    private void doAssert(String jsonString) {
-        Object value = JsonPath.read(jsonString, getJsonPath());
+    private void doAssert(Object jsonDocument) {
+        Object value = JsonPath.read(jsonDocument, getJsonPath());
 
         if (isJsonValidationBool()) {
             if (value instanceof JSONArray) {
@@ -174,7 +175,7 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
 
         if (!isInvert()) {
             try {
-                doAssert(responseData);
+                doAssert(JSONManager.getResponseDocument(samplerResult));
             } catch (Exception e) {
                 if (log.isDebugEnabled()) {
                     log.debug("Assertion failed", e);
@@ -184,7 +185,7 @@ public class JSONPathAssertion extends AbstractTestElement implements Serializab
             }
         } else {
             try {
-                doAssert(responseData);
+                doAssert(JSONManager.getResponseDocument(samplerResult));
                 result.setFailure(true);
                 if (isJsonValidationBool()) {
                     if (isExpectNull()) {
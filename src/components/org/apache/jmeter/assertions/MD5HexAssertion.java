@@ -69,7 +69,12 @@ public class MD5HexAssertion extends AbstractTestElement implements Serializable
             return result;
         }
 
-        String md5Result = md5Hex(resultData);
+        // computed while reading the response, or by another MD5Hex Assertion
+        String md5Result = (String) response.getParsedResponse(SampleResult.RESPONSE_DATA_MD5_HEX_KEY);
+        if (md5Result == null) {
+            md5Result = md5Hex(resultData);
+            response.setParsedResponse(SampleResult.RESPONSE_DATA_MD5_HEX_KEY, md5Result);
+        }
 
         if (!md5Result.equalsIgnoreCase(getAllowedMD5Hex())) {
             result.setFailure(true);
@@ -21,7 +21,10 @@ package org.apache.jmeter.assertions;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -35,6 +38,7 @@ import org.apache.jmeter.testelement.property.NullProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.util.Document;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.apache.oro.text.MalformedCachePatternException;
 import org.apache.oro.text.regex.Pattern;
 import org.apache.oro.text.regex.Perl5Compiler;
@@ -95,10 +99,23 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
     private static final String DIFF_DELTA_END
             = JMeterUtils.getPropDefault("assertion.equals_diff_delta_end", "]]]");
 
+    /** Characters making a pattern more than a literal string */
+    private static final String REGEX_SPECIAL_CHARS = "\\^$.|?*+()[]{}"; // $NON-NLS-1$
+
+    // jmeter.regex.engine, read on first use as property lookups lock
+    private transient Boolean javaRegex;
+
     public ResponseAssertion() {
         setProperty(new CollectionProperty(TEST_STRINGS, new ArrayList<String>()));
     }
 
+    private boolean useJavaRegex() {
+        if (javaRegex == null) {
+            javaRegex = Boolean.valueOf(JMeterUtils.useJavaRegex());
+        }
+        return javaRegex.booleanValue();
+    }
+
     @Override
     public void clear() {
         super.clear();
@@ -296,7 +313,10 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
             response.setSuccessful(true);// Allow testing of failure codes
         }
 
-        String toCheck = getStringToCheck(response);
+        // searched without being decoded when possible
+        byte[] bytesToCheck = !isScopeVariable() && isTestFieldResponseData()
+                && response.getResponseDataSearchCharset() != null ? response.getResponseData() : null;
+        String toCheck = bytesToCheck == null ? getStringToCheck(response) : null;
 
         result.setFailure(false);
         result.setError(false); 
@@ -305,11 +325,10 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
         boolean contains = isContainsType(); // do it once outside loop
         boolean equals = isEqualsType();
         boolean substring = isSubstringType();
-        boolean matches = isMatchType();
 
         log.debug("Test Type Info: contains={}, notTest={}, orTest={}", contains, notTest, orTest);
 
-        if (StringUtils.isEmpty(toCheck)) {
+        if (bytesToCheck == null ? StringUtils.isEmpty(toCheck) : bytesToCheck.length == 0) {
             if (notTest) { // Not should always succeed against an empty result
                 return result;
             }
@@ -322,29 +341,43 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
         try {
             // Get the Matcher for this thread
             Perl5Matcher localMatcher = JMeterUtils.getMatcher();
+            boolean useJavaRegex = useJavaRegex();
             boolean hasTrue = false;
             List<String> allCheckMessage = new ArrayList<>();
             for (JMeterProperty jMeterProperty : getTestStrings()) {
                 String stringPattern = jMeterProperty.getStringValue();
-                Pattern pattern = null;
-                if (contains || matches) {
-                    pattern = JMeterUtils.getPatternCache().getPattern(stringPattern, Perl5Compiler.READ_ONLY_MASK);
-                }
                 boolean found;
-                if (contains) {
-                    found = localMatcher.contains(toCheck, pattern);
-                } else if (equals) {
-                    found = toCheck.equals(stringPattern);
-                } else if (substring) {
-                    found = toCheck.contains(stringPattern);
+                byte[] bytesPattern = bytesToCheck != null && (equals || substring || isLiteral(stringPattern))
+                        ? response.encodeForResponseDataSearch(stringPattern) : null;
+                if (bytesPattern != null) {
+                    // a literal pattern contains or matches like a substring or equals
+                    found = equals || !(contains || substring)
+                            ? Arrays.equals(bytesToCheck, bytesPattern)
+                            : JOrphanUtils.indexOf(bytesToCheck, bytesPattern, 0) >= 0;
                 } else {
-                    found = localMatcher.matches(toCheck, pattern);
+                    if (toCheck == null) {
+                        toCheck = response.getResponseDataAsString();
+                    }
+                    if (contains || !(equals || substring)) {
+                        if (useJavaRegex) {
+                            Matcher javaMatcher = JMeterUtils.compilePattern(stringPattern).matcher(toCheck);
+                            found = contains ? javaMatcher.find() : javaMatcher.matches();
+                        } else {
+                            Pattern pattern = JMeterUtils.getPatternCache().getPattern(stringPattern, Perl5Compiler.READ_ONLY_MASK);
+                            found = contains ? localMatcher.contains(toCheck, pattern) : localMatcher.matches(toCheck, pattern);
+                        }
+                    } else if (equals) {
+                        found = toCheck.equals(stringPattern);
+                    } else {
+                        found = toCheck.contains(stringPattern);
+                    }
                 }
                 boolean pass = notTest ? !found : found;
                 if (orTest) {
                     if (!pass) {
                         log.debug("Failed: {}", stringPattern);
-                        allCheckMessage.add(getFailText(stringPattern, toCheck));
+                        allCheckMessage.add(getFailText(stringPattern,
+                                toCheck == null ? response.getResponseDataAsString() : toCheck));
                     } else {
                         hasTrue=true;
                         break;
@@ -355,7 +388,8 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
                         result.setFailure(true);
                         String customMsg = getCustomFailureMessage();
                         if (StringUtils.isEmpty(customMsg)) {
-                            result.setFailureMessage(getFailText(stringPattern, toCheck));
+                            result.setFailureMessage(getFailText(stringPattern,
+                                    toCheck == null ? response.getResponseDataAsString() : toCheck));
                         } else {
                             result.setFailureMessage(customMsg);
                         }
@@ -373,7 +407,7 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
                     result.setFailureMessage(customMsg);
                 }
             }
-        } catch (MalformedCachePatternException e) {
+        } catch (MalformedCachePatternException | PatternSyntaxException e) {
             result.setError(true);
             result.setFailure(false);
             result.setFailureMessage("Bad test configuration " + e);
@@ -381,6 +415,15 @@ public class ResponseAssertion extends AbstractScopedAssertion implements Serial
         return result;
     }
 
+    /**
+     * @param pattern regular expression
+     * @return true if the pattern has no special characters, in ORO and in
+     *         java.util.regex
+     */
+    private static boolean isLiteral(String pattern) {
+        return StringUtils.containsNone(pattern, REGEX_SPECIAL_CHARS);
+    }
+
     private String getStringToCheck(SampleResult response) {
         String toCheck; // The string to check (Url or data)
         // What are we testing against?
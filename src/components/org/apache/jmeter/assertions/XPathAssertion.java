@@ -96,11 +96,17 @@ public class XPathAssertion extends AbstractScopedAssertion implements Serializa
                 log.debug("Validation is set to {}, Whitespace is set to {}, Tolerant is set to {}", isValidating(),
                     isWhitespace(), isTolerant());
             }
-            boolean isXML = JOrphanUtils.isXML(responseData);
-
-            doc = XPathUtil.makeDocument(new ByteArrayInputStream(responseData), isValidating(),
-                    isWhitespace(), isNamespace(), isTolerant(), isQuiet(), showWarnings() , reportErrors(), isXML
-                    , isDownloadDTDs());
+            if (isScopeVariable()) {
+                boolean isXML = JOrphanUtils.isXML(responseData);
+                doc = XPathUtil.makeDocument(new ByteArrayInputStream(responseData), isValidating(),
+                        isWhitespace(), isNamespace(), isTolerant(), isQuiet(), showWarnings() , reportErrors(), isXML
+                        , isDownloadDTDs());
+            } else {
+                // parsed once for all the elements of the sample using the same options
+                doc = XPathUtil.getResponseDocument(response, false, isValidating(),
+                        isWhitespace(), isNamespace(), isTolerant(), isQuiet(), showWarnings(), reportErrors(),
+                        isDownloadDTDs());
+            }
         } catch (SAXException e) {
             log.debug("Caught sax exception.", e);
             result.setError(true);
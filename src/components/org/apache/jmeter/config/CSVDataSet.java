@@ -30,6 +30,7 @@ import org.apache.jmeter.engine.event.LoopIterationListener;
 import org.apache.jmeter.engine.util.NoConfigMerge;
 import org.apache.jmeter.gui.GUIMenuSortOrder;
 import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.services.CSVDataTable;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testbeans.gui.GenericTestBeanCustomizer;
@@ -67,6 +68,9 @@ import org.slf4j.LoggerFactory;
  * Or the user can provide their own suffix, in which case the file is shared between all
  * threads with the same suffix.
  *
+ * When preload is set, the file is read and split once by the FileServer, and each alias
+ * gets an atomic cursor on the rows, so rows are handed out without locking.
+ *
  */
 @GUIMenuSortOrder(1)
 public class CSVDataSet extends ConfigTestElement 
@@ -97,6 +101,10 @@ public class CSVDataSet extends ConfigTestElement
     private transient String alias;
 
     private transient String shareMode;
+
+    private transient boolean preload;
+
+    private transient CSVDataTable.Cursor cursor;
     
     private boolean firstLineIsNames = false;
 
@@ -179,14 +187,21 @@ public class CSVDataSet extends ConfigTestElement
                     break;
             }
             final String names = getVariableNames();
-            if (StringUtils.isEmpty(names)) {
-                String header = server.reserveFile(fileName, getFileEncoding(), alias, true);
-                try {
-                    vars = CSVSaveService.csvSplitString(header, delim.charAt(0));
-                    firstLineIsNames = true;
-                } catch (IOException e) {
-                    throw new IllegalArgumentException("Could not split CSV header line from file:" + fileName,e);
+            if (getPreload()) {
+                boolean hasHeader = StringUtils.isEmpty(names) || ignoreFirstLine;
+                cursor = server.reserveTable(fileName, getFileEncoding(), alias, hasHeader, delim, getQuotedData());
+                if (StringUtils.isEmpty(names)) {
+                    String header = cursor.getTable().getHeaderLine();
+                    if (header == null) {
+                        throw new IllegalArgumentException("Could not read file header line for file " + fileName);
+                    }
+                    vars = splitHeader(header, delim, fileName);
+                } else {
+                    vars = JOrphanUtils.split(names, ","); // $NON-NLS-1$
                 }
+            } else if (StringUtils.isEmpty(names)) {
+                String header = server.reserveFile(fileName, getFileEncoding(), alias, true);
+                vars = splitHeader(header, delim, fileName);
             } else {
                 server.reserveFile(fileName, getFileEncoding(), alias, ignoreFirstLine);
                 vars = JOrphanUtils.split(names, ","); // $NON-NLS-1$
@@ -198,7 +213,10 @@ public class CSVDataSet extends ConfigTestElement
         JMeterVariables threadVars = context.getVariables();
         String[] lineValues = {};
         try {
-            if (getQuotedData()) {
+            if (cursor != null) {
+                // No need to lock the FileServer, the rows are already split
+                lineValues = cursor.next(recycle);
+            } else if (getQuotedData()) {
                 lineValues = server.getParsedLine(alias, recycle, 
                         firstLineIsNames || ignoreFirstLine, delim.charAt(0));
             } else {
@@ -223,6 +241,16 @@ public class CSVDataSet extends ConfigTestElement
         }
     }
 
+    private String[] splitHeader(String header, String delim, String fileName) {
+        try {
+            String[] names = CSVSaveService.csvSplitString(header, delim.charAt(0));
+            firstLineIsNames = true;
+            return names;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not split CSV header line from file:" + fileName,e);
+        }
+    }
+
     /**
      * trim content of array varNames
      * @param varsNames
@@ -310,6 +338,22 @@ public class CSVDataSet extends ConfigTestElement
         this.stopThread = value;
     }
 
+    /**
+     * @return true if the file is loaded in memory and split once for all the threads
+     * @since 5.1
+     */
+    public boolean getPreload() {
+        return preload;
+    }
+
+    /**
+     * @param preload true to load the file in memory and split it once for all the threads
+     * @since 5.1
+     */
+    public void setPreload(boolean preload) {
+        this.preload = preload;
+    }
+
     public String getShareMode() {
         return shareMode;
     }
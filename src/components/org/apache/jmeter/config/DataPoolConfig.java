@@ -0,0 +1,436 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.jmeter.engine.event.LoopIterationEvent;
+import org.apache.jmeter.engine.event.LoopIterationListener;
+import org.apache.jmeter.engine.util.NoConfigMerge;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.gui.GUIMenuSortOrder;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.testbeans.TestBean;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JMeterStopThreadException;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets variables from the rows of a file too large to be read by
+ * {@link CSVDataSet}.
+ * <p>
+ * The file is memory mapped and the offsets of its rows are indexed on first
+ * use, so any row is read in constant time without loading the file in the
+ * heap. Rows are handed out according to the access mode:
+ * </p>
+ * <ul>
+ * <li>Sequential - all threads share the position in the file</li>
+ * <li>Random - each iteration gets any row, rows may be repeated</li>
+ * <li>Unique - each row is used once, in a random order</li>
+ * <li>Partitioned - each thread of the test reads its own slice of the rows</li>
+ * </ul>
+ * Values are split on the delimiter without support for quoted values.
+ * <p>
+ * The element is shared by all threads.
+ * </p>
+ * @since 5.1
+ */
+@GUIMenuSortOrder(2)
+public class DataPoolConfig extends ConfigTestElement
+    implements TestBean, LoopIterationListener, TestStateListener, NoThreadClone, NoConfigMerge {
+
+    private static final Logger log = LoggerFactory.getLogger(DataPoolConfig.class);
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String EOFVALUE = // value to return at EOF
+        JMeterUtils.getPropDefault("csvdataset.eofstring", "<EOF>"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    /*
+     *  N.B. this class is shared between threads (NoThreadClone) so all access to variables
+     *  needs to be protected by a lock (either sync. or volatile) to ensure safe publication.
+     */
+
+    private String filename;
+
+    private String fileEncoding;
+
+    private String variableNames;
+
+    private boolean ignoreFirstLine;
+
+    private String delimiter;
+
+    private String accessMode;
+
+    private boolean recycle = true;
+
+    private boolean stopThread;
+
+    private String randomSeed;
+
+    private transient volatile Pool pool;
+
+    /** Mapped file and its cursors, created on first use */
+    private static final class Pool {
+        private final MappedDataFile file;
+        private final String[] names;
+        private final String delimiter;
+        private final int mode;
+        /** First row, after the header if any */
+        private final long firstLine;
+        private final long rowCount;
+        private final long seed;
+        private final boolean recycle;
+        private final boolean stopThread;
+        private final AtomicLong next = new AtomicLong();
+        private final ThreadLocal<long[]> threadNext = new ThreadLocal<>();
+        private final ThreadLocal<SplittableRandom> threadRandom = new ThreadLocal<>();
+        /** Number of threads of the test when the pool was opened, 0 if unknown */
+        private final int totalThreads;
+        /** Index of the first thread of each thread group in the test */
+        private final ConcurrentMap<AbstractThreadGroup, Integer> groupOffsets = new ConcurrentHashMap<>();
+        private final AtomicInteger nextGroupOffset = new AtomicInteger();
+
+        private Pool(MappedDataFile file, String[] names, String delimiter, int mode,
+                long firstLine, long seed, boolean recycle, boolean stopThread) {
+            this.file = file;
+            this.names = names;
+            this.delimiter = delimiter;
+            this.mode = mode;
+            this.firstLine = firstLine;
+            this.rowCount = Math.max(0, file.getLineCount() - firstLine);
+            this.seed = seed;
+            this.recycle = recycle;
+            this.stopThread = stopThread;
+            this.totalThreads = JMeterContextService.getTotalThreads();
+        }
+    }
+
+    @Override
+    public void iterationStart(LoopIterationEvent iterEvent) {
+        Pool p = getPool();
+        // Cannot use getThreadContext() as we are not cloned per thread
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables threadVars = context.getVariables();
+        long row = nextRow(p, context);
+        if (row < 0) { // i.e. EOF
+            if (p.stopThread) {
+                throw new JMeterStopThreadException("End of file:" + getFilename() + " detected for Data Pool Config:"
+                        + getName() + " configured with stopThread:" + p.stopThread + ", recycle:" + p.recycle);
+            }
+            for (String var : p.names) {
+                threadVars.put(var, EOFVALUE);
+            }
+            return;
+        }
+        String[] values = JOrphanUtils.split(p.file.getLine(p.firstLine + row), p.delimiter, false);
+        for (int a = 0; a < p.names.length && a < values.length; a++) {
+            threadVars.put(p.names[a], values[a]);
+        }
+    }
+
+    /**
+     * @return the index of the next row for the current thread, -1 at EOF
+     */
+    private long nextRow(Pool p, JMeterContext context) {
+        long count = p.rowCount;
+        if (count == 0) {
+            return -1;
+        }
+        switch (p.mode) {
+            case DataPoolConfigBeanInfo.MODE_RANDOM: {
+                SplittableRandom random = p.threadRandom.get();
+                if (random == null) {
+                    // Same rows for the same thread when the seed is set
+                    random = new SplittableRandom(mix(p.seed + threadIndex(p, context) * 0x9E3779B97F4A7C15L));
+                    p.threadRandom.set(random);
+                }
+                return random.nextLong(count);
+            }
+            case DataPoolConfigBeanInfo.MODE_UNIQUE: {
+                long n = p.next.getAndIncrement();
+                long pass = n / count;
+                if (pass > 0 && !p.recycle) {
+                    return -1;
+                }
+                // Each pass uses another permutation
+                return permute(n % count, count, p.seed + pass);
+            }
+            case DataPoolConfigBeanInfo.MODE_PARTITIONED: {
+                long[] position = p.threadNext.get();
+                if (position == null) {
+                    AbstractThreadGroup group = context.getThreadGroup();
+                    int threads = p.totalThreads > 0 ? p.totalThreads
+                            : group == null ? 1 : Math.max(1, group.getNumThreads());
+                    int thread = threadIndex(p, context) % threads;
+                    // start and end of the slice of this thread, and number of rows read
+                    position = new long[] { count * thread / threads, count * (thread + 1) / threads, 0 };
+                    p.threadNext.set(position);
+                }
+                return nextInRange(position[2]++, position[0], position[1], p.recycle);
+            }
+            default: // sequential
+                return nextInRange(p.next.getAndIncrement(), 0, count, p.recycle);
+        }
+    }
+
+    /**
+     * Index of the current thread among the threads of all the thread groups:
+     * thread groups get consecutive ranges of indexes, in the order they first
+     * read a row.
+     */
+    private static int threadIndex(Pool p, JMeterContext context) {
+        AbstractThreadGroup group = context.getThreadGroup();
+        if (group == null) {
+            return context.getThreadNum();
+        }
+        int offset = p.groupOffsets.computeIfAbsent(group,
+                g -> p.nextGroupOffset.getAndAdd(Math.max(1, g.getNumThreads())));
+        return offset + context.getThreadNum();
+    }
+
+    private static long nextInRange(long n, long start, long end, boolean recycle) {
+        long size = end - start;
+        if (size <= 0 || (n >= size && !recycle)) {
+            return -1;
+        }
+        return start + n % size;
+    }
+
+    /**
+     * Bijection of [0, count) computed with a Feistel network and cycle
+     * walking, so that rows can be drawn without replacement without storing
+     * which rows were used.
+     *
+     * @param n value to permute, lower than count
+     * @param count size of the domain
+     * @param key key of the permutation
+     * @return the permuted value, lower than count
+     */
+    static long permute(long n, long count, long key) {
+        // Smallest even number of bits covering the domain
+        int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(count - 1));
+        bits += bits & 1;
+        int halfBits = bits / 2;
+        long halfMask = (1L << halfBits) - 1;
+        long x = n;
+        do {
+            long left = x >>> halfBits;
+            long right = x & halfMask;
+            for (int round = 0; round < 4; round++) {
+                long f = mix(right ^ (key + round * 0x9E3779B97F4A7C15L)) & halfMask;
+                long newRight = left ^ f;
+                left = right;
+                right = newRight;
+            }
+            x = (left << halfBits) | right;
+        } while (x >= count);
+        return x;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private Pool getPool() {
+        Pool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                p = pool;
+                if (p == null) {
+                    p = openPool();
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    private Pool openPool() {
+        String delim = getDelimiter();
+        if ("\\t".equals(delim)) { // $NON-NLS-1$
+            delim = "\t";// Make it easier to enter a Tab // $NON-NLS-1$
+        } else if (StringUtils.isEmpty(delim)) {
+            log.debug("Empty delimiter, will use ','");
+            delim = ",";
+        }
+        File file = FileServer.getFileServer().getResolvedFile(getFilename().trim());
+        String encoding = getFileEncoding();
+        Charset charset = StringUtils.isBlank(encoding) ? Charset.defaultCharset() : Charset.forName(encoding.trim());
+        MappedDataFile mapped;
+        try {
+            mapped = MappedDataFile.open(file, charset);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not map file " + getFilename(), e);
+        }
+        String names = getVariableNames();
+        String[] vars;
+        long firstLine = 0;
+        if (StringUtils.isEmpty(names)) {
+            if (mapped.getLineCount() == 0) {
+                mapped.close();
+                throw new IllegalArgumentException("Could not read file header line for file " + getFilename());
+            }
+            try {
+                vars = CSVSaveService.csvSplitString(mapped.getLine(0), delim.charAt(0));
+            } catch (IOException e) {
+                mapped.close();
+                throw new IllegalArgumentException("Could not split CSV header line from file:" + getFilename(), e);
+            }
+            firstLine = 1;
+        } else {
+            vars = JOrphanUtils.split(names, ","); // $NON-NLS-1$
+            if (getIgnoreFirstLine()) {
+                firstLine = 1;
+            }
+        }
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = vars[i].trim();
+        }
+        int mode = DataPoolConfigBeanInfo.getAccessModeAsInt(getAccessMode());
+        if (mode < 0) {
+            log.warn("Unknown access mode {} of {}, using sequential access", getAccessMode(), getName());
+        }
+        String seedAsString = getRandomSeed();
+        long seed = StringUtils.isBlank(seedAsString)
+                ? ThreadLocalRandom.current().nextLong()
+                : NumberUtils.toLong(seedAsString.trim(), seedAsString.hashCode());
+        return new Pool(mapped, vars, delim, mode, firstLine, seed, getRecycle(), getStopThread());
+    }
+
+    @Override
+    public void testStarted() {
+        // NOOP, the pool is opened on first use
+    }
+
+    @Override
+    public void testStarted(String host) {
+        testStarted();
+    }
+
+    @Override
+    public void testEnded() {
+        Pool p;
+        synchronized (this) {
+            p = pool;
+            pool = null;
+        }
+        if (p != null) {
+            p.file.close();
+        }
+    }
+
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
+    public synchronized String getFilename() {
+        return filename;
+    }
+
+    public synchronized void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public synchronized String getFileEncoding() {
+        return fileEncoding;
+    }
+
+    public synchronized void setFileEncoding(String fileEncoding) {
+        this.fileEncoding = fileEncoding;
+    }
+
+    public synchronized String getVariableNames() {
+        return variableNames;
+    }
+
+    public synchronized void setVariableNames(String variableNames) {
+        this.variableNames = variableNames;
+    }
+
+    public synchronized boolean getIgnoreFirstLine() {
+        return ignoreFirstLine;
+    }
+
+    public synchronized void setIgnoreFirstLine(boolean ignoreFirstLine) {
+        this.ignoreFirstLine = ignoreFirstLine;
+    }
+
+    public synchronized String getDelimiter() {
+        return delimiter;
+    }
+
+    public synchronized void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public synchronized String getAccessMode() {
+        return accessMode;
+    }
+
+    public synchronized void setAccessMode(String accessMode) {
+        this.accessMode = accessMode;
+    }
+
+    public synchronized boolean getRecycle() {
+        return recycle;
+    }
+
+    public synchronized void setRecycle(boolean recycle) {
+        this.recycle = recycle;
+    }
+
+    public synchronized boolean getStopThread() {
+        return stopThread;
+    }
+
+    public synchronized void setStopThread(boolean stopThread) {
+        this.stopThread = stopThread;
+    }
+
+    public synchronized String getRandomSeed() {
+        return randomSeed;
+    }
+
+    public synchronized void setRandomSeed(String randomSeed) {
+        this.randomSeed = randomSeed;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.config;
+
+import java.beans.PropertyDescriptor;
+
+import org.apache.jmeter.testbeans.BeanInfoSupport;
+import org.apache.jmeter.testbeans.gui.FileEditor;
+import org.apache.jmeter.testbeans.gui.TypeEditor;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * @since 5.1
+ */
+public class DataPoolConfigBeanInfo extends BeanInfoSupport {
+
+    // These group names must have .displayName properties
+    private static final String DATA_GROUP = "data_pool";            //$NON-NLS-1$
+    private static final String ACCESS_GROUP = "access";             //$NON-NLS-1$
+
+    // These names must agree case-wise with the variable and property names
+    private static final String FILENAME = "filename";               //$NON-NLS-1$
+    private static final String FILE_ENCODING = "fileEncoding";      //$NON-NLS-1$
+    private static final String VARIABLE_NAMES = "variableNames";    //$NON-NLS-1$
+    private static final String IGNORE_FIRST_LINE = "ignoreFirstLine"; //$NON-NLS-1$
+    private static final String DELIMITER = "delimiter";             //$NON-NLS-1$
+    private static final String ACCESS_MODE = "accessMode";          //$NON-NLS-1$
+    private static final String RECYCLE = "recycle";                 //$NON-NLS-1$
+    private static final String STOPTHREAD = "stopThread";           //$NON-NLS-1$
+    private static final String RANDOM_SEED = "randomSeed";          //$NON-NLS-1$
+
+    // Access needed from DataPoolConfig
+    private static final String[] ACCESS_TAGS = new String[4];
+    static final int MODE_SEQUENTIAL  = 0;
+    static final int MODE_RANDOM      = 1;
+    static final int MODE_UNIQUE      = 2;
+    static final int MODE_PARTITIONED = 3;
+
+    // Store the resource keys
+    static {
+        ACCESS_TAGS[MODE_SEQUENTIAL]  = "accessMode.sequential"; //$NON-NLS-1$
+        ACCESS_TAGS[MODE_RANDOM]      = "accessMode.random"; //$NON-NLS-1$
+        ACCESS_TAGS[MODE_UNIQUE]      = "accessMode.unique"; //$NON-NLS-1$
+        ACCESS_TAGS[MODE_PARTITIONED] = "accessMode.partitioned"; //$NON-NLS-1$
+    }
+
+    public DataPoolConfigBeanInfo() {
+        super(DataPoolConfig.class);
+
+        createPropertyGroup(DATA_GROUP,
+                new String[] { FILENAME, FILE_ENCODING, VARIABLE_NAMES,
+                        IGNORE_FIRST_LINE, DELIMITER });
+
+        PropertyDescriptor p = property(FILENAME);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");        //$NON-NLS-1$
+        p.setValue(NOT_EXPRESSION, Boolean.TRUE);
+        p.setPropertyEditorClass(FileEditor.class);
+
+        p = property(FILE_ENCODING, TypeEditor.ComboStringEditor);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");        //$NON-NLS-1$
+        p.setValue(TAGS, JOrphanUtils.split(
+                JMeterUtils.getPropDefault("csvdataset.file.encoding_list", ""), "|")); //$NON-NLS-1$
+
+        p = property(VARIABLE_NAMES);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");        //$NON-NLS-1$
+        p.setValue(NOT_EXPRESSION, Boolean.TRUE);
+
+        p = property(IGNORE_FIRST_LINE);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.FALSE);
+
+        p = property(DELIMITER);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ",");        //$NON-NLS-1$
+        p.setValue(NOT_EXPRESSION, Boolean.TRUE);
+
+        createPropertyGroup(ACCESS_GROUP,
+                new String[] { ACCESS_MODE, RECYCLE, STOPTHREAD, RANDOM_SEED });
+
+        p = property(ACCESS_MODE, TypeEditor.ComboStringEditor);
+        p.setValue(RESOURCE_BUNDLE, getBeanDescriptor().getValue(RESOURCE_BUNDLE));
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ACCESS_TAGS[MODE_SEQUENTIAL]);
+        p.setValue(NOT_OTHER, Boolean.TRUE);
+        p.setValue(NOT_EXPRESSION, Boolean.TRUE);
+        p.setValue(TAGS, ACCESS_TAGS);
+
+        p = property(RECYCLE);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.TRUE);
+
+        p = property(STOPTHREAD);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, Boolean.FALSE);
+
+        p = property(RANDOM_SEED);
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, "");        //$NON-NLS-1$
+    }
+
+    /**
+     * @param mode the resource key of an access mode
+     * @return the index of the mode, {@link #MODE_SEQUENTIAL} if
+     *         <code>null</code> or empty, -1 if unknown
+     */
+    public static int getAccessModeAsInt(String mode) {
+        if (mode == null || mode.length() == 0) {
+            return MODE_SEQUENTIAL;
+        }
+        for (int i = 0; i < ACCESS_TAGS.length; i++) {
+            if (ACCESS_TAGS[i].equals(mode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
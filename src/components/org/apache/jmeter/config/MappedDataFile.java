@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.config;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read only access to the lines of a file of any size, by line number.
+ * <p>
+ * The file is memory mapped, and the offsets of the lines are written once to
+ * a temporary index file, which is also memory mapped. So neither the file nor
+ * its index are loaded into the heap, and any line is read in constant time.
+ * Instances are thread safe.
+ * </p>
+ * Only charsets encoding line feeds as single bytes, like UTF-8 or the
+ * ISO-8859 family, are supported.
+ * @since 5.1
+ */
+final class MappedDataFile implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedDataFile.class);
+
+    /** Size of the mappings of the file */
+    private static final int SEGMENT_BITS = 30;
+
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    /** Number of offsets per mapping of the index */
+    private static final int INDEX_SEGMENT_BITS = 27;
+
+    private static final long INDEX_SEGMENT_MASK = (1L << INDEX_SEGMENT_BITS) - 1;
+
+    private final File file;
+
+    private final Charset charset;
+
+    private final MappedByteBuffer[] segments;
+
+    private final File indexFile;
+
+    private final LongBuffer[] indexSegments;
+
+    /** Number of lines of the file */
+    private final long lineCount;
+
+    private MappedDataFile(File file, Charset charset, MappedByteBuffer[] segments,
+            File indexFile, LongBuffer[] indexSegments, long lineCount) {
+        this.file = file;
+        this.charset = charset;
+        this.segments = segments;
+        this.indexFile = indexFile;
+        this.indexSegments = indexSegments;
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Map a file and build the index of its lines
+     *
+     * @param file the file to map
+     * @param charset the encoding of the file
+     * @return the mapped file
+     * @throws IOException when the file or its index can't be mapped
+     * @throws IllegalArgumentException when the file can't be read or the
+     *             charset is not supported
+     */
+    static MappedDataFile open(File file, Charset charset) throws IOException {
+        if (!file.canRead() || !file.isFile()) {
+            throw new IllegalArgumentException("File " + file.getName() + " must exist and be readable");
+        }
+        if (!Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' })) {
+            throw new IllegalArgumentException("Encoding " + charset + " is not supported, line feeds must be single bytes");
+        }
+        long start = System.currentTimeMillis();
+        MappedByteBuffer[] segments;
+        long size;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            size = raf.length();
+            segments = map(raf.getChannel(), size, SEGMENT_BITS);
+        }
+        File indexFile = File.createTempFile("jmeter-datapool", ".idx");
+        indexFile.deleteOnExit();
+        long lineCount = 0;
+        try (DataOutputStream index = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(indexFile), 65536))) {
+            if (size > 0) {
+                index.writeLong(0);
+            }
+            long offset = 0;
+            for (MappedByteBuffer segment : segments) {
+                ByteBuffer buffer = segment.duplicate();
+                int limit = buffer.limit();
+                for (int i = 0; i < limit; i++) {
+                    if (buffer.get(i) == '\n') {
+                        index.writeLong(offset + i + 1);
+                        lineCount++;
+                    }
+                }
+                offset += limit;
+            }
+            if (size > 0 && get(segments, size - 1) != '\n') {
+                // last line without line feed
+                index.writeLong(size);
+                lineCount++;
+            }
+        }
+        LongBuffer[] indexSegments;
+        try (RandomAccessFile raf = new RandomAccessFile(indexFile, "r")) {
+            MappedByteBuffer[] mapped = map(raf.getChannel(), raf.length(), INDEX_SEGMENT_BITS + 3);
+            indexSegments = new LongBuffer[mapped.length];
+            for (int i = 0; i < mapped.length; i++) {
+                indexSegments[i] = mapped[i].asLongBuffer();
+            }
+        }
+        log.info("Indexed {} lines of {} in {} ms", lineCount, file, System.currentTimeMillis() - start);
+        return new MappedDataFile(file, charset, segments, indexFile, indexSegments, lineCount);
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, long size, int segmentBits) throws IOException {
+        long segmentSize = 1L << segmentBits;
+        MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((size + segmentSize - 1) >>> segmentBits)];
+        for (int i = 0; i < mapped.length; i++) {
+            long position = i * segmentSize;
+            mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(segmentSize, size - position));
+        }
+        return mapped;
+    }
+
+    private static byte get(MappedByteBuffer[] segments, long offset) {
+        return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    private long offsetOf(long line) {
+        return indexSegments[(int) (line >>> INDEX_SEGMENT_BITS)].get((int) (line & INDEX_SEGMENT_MASK));
+    }
+
+    /**
+     * @return the number of lines of the file
+     */
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Read a line
+     *
+     * @param line number of the line, from 0
+     * @return the line without its line terminator
+     */
+    String getLine(long line) {
+        long start = offsetOf(line);
+        long end = offsetOf(line + 1);
+        // Remove the line terminator
+        if (end > start && get(segments, end - 1) == '\n') {
+            end--;
+            if (end > start && get(segments, end - 1) == '\r') {
+                end--;
+            }
+        }
+        byte[] bytes = new byte[(int) (end - start)];
+        int copied = 0;
+        while (copied < bytes.length) {
+            long offset = start + copied;
+            ByteBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)].duplicate();
+            segment.position((int) (offset & SEGMENT_MASK));
+            int length = Math.min(bytes.length - copied, segment.remaining());
+            segment.get(bytes, copied, length);
+            copied += length;
+        }
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Delete the index. Mappings are released once garbage collected.
+     */
+    @Override
+    public void close() {
+        if (!indexFile.delete()) {
+            log.debug("Could not delete index {} of {}, it will be deleted on exit", indexFile, file);
+        }
+    }
+}
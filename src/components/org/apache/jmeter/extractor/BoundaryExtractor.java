@@ -19,6 +19,7 @@
 package org.apache.jmeter.extractor;
 
 import java.io.Serializable;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -36,6 +37,7 @@ import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.Document;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -152,8 +154,9 @@ public class BoundaryExtractor extends AbstractScopedTestElement implements Post
             }
             return extract(getLeftBoundary(), getRightBoundary(), matchNumber, inputString);
         } else {
-            Stream<String> inputs = getSampleList(previousResult).stream().map(this::getInputString);
-            return extract(getLeftBoundary(), getRightBoundary(), matchNumber, inputs);
+            Stream<List<String>> inputs = getSampleList(previousResult).stream()
+                    .map(result -> extractAll(getLeftBoundary(), getRightBoundary(), result));
+            return extract(matchNumber, inputs);
         }
     }
 
@@ -218,11 +221,53 @@ public class BoundaryExtractor extends AbstractScopedTestElement implements Post
         return inputString;
     }
 
+    private List<String> extractAll(String leftBoundary, String rightBoundary, SampleResult result) {
+        if (useBody() && (!StringUtils.isBlank(leftBoundary) || !StringUtils.isBlank(rightBoundary))) {
+            // Boundaries which are not blank can't be found in a blank input
+            byte[] leftBytes = result.encodeForResponseDataSearch(leftBoundary);
+            byte[] rightBytes = result.encodeForResponseDataSearch(rightBoundary);
+            if (leftBytes != null && rightBytes != null) {
+                return extract(leftBytes, rightBytes, result.getResponseData(), result.getResponseDataSearchCharset());
+            }
+        }
+        return extractAll(leftBoundary, rightBoundary, getInputString(result));
+    }
+
+    /**
+     * Extracts all the text fragments that are between the boundaries, by
+     * searching the bytes of the text instead of the decoded text.
+     *
+     * @param leftBoundary  encoded left boundary of the searched text
+     * @param rightBoundary encoded right boundary of the searched text
+     * @param input         encoded text in which to look for the fragments
+     * @param charset       encoding of the text, as returned by
+     *                      {@link SampleResult#getResponseDataSearchCharset()}
+     * @return list where the found text fragments will be placed
+     */
+    private static List<String> extract(byte[] leftBoundary, byte[] rightBoundary, byte[] input, Charset charset) {
+        List<String> matches = new ArrayList<>();
+        int leftBoundaryLen = leftBoundary.length;
+        for (int startIndex = 0;
+             (startIndex = JOrphanUtils.indexOf(input, leftBoundary, startIndex)) != -1;
+             startIndex += leftBoundaryLen) {
+            int endIndex = JOrphanUtils.indexOf(input, rightBoundary, startIndex + leftBoundaryLen);
+            if (endIndex < 0) {
+                break;
+            }
+            matches.add(new String(input, startIndex + leftBoundaryLen, endIndex - startIndex - leftBoundaryLen, charset));
+        }
+        return matches;
+    }
+
     private List<String> extract(
             String leftBoundary, String rightBoundary, int matchNumber, Stream<String> previousResults) {
+        return extract(matchNumber, previousResults.map(input -> extractAll(leftBoundary, rightBoundary, input)));
+    }
+
+    private List<String> extract(int matchNumber, Stream<List<String>> previousResults) {
         boolean allItems = matchNumber <= 0;
         return previousResults
-                .flatMap(input -> extractAll(leftBoundary, rightBoundary, input).stream())
+                .flatMap(List::stream)
                 .skip(allItems ? 0L : matchNumber - 1)
                 .limit(allItems ? Long.MAX_VALUE : 1L)
                 .collect(Collectors.toList());
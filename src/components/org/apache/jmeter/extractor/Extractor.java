@@ -21,6 +21,8 @@ package org.apache.jmeter.extractor;
 import java.io.Serializable;
 import java.util.List;
 
+import org.apache.jmeter.samplers.SampleResult;
+
 /**
  * CSS/JQuery based extractor for HTML pages
  * @since 2.9
@@ -45,4 +47,30 @@ public interface Extractor extends Serializable {
             List<String> result,
             int found,
             String cacheKey);
+
+    /**
+     * Same as {@link #extract(String, String, int, String, List, int, String)}
+     * on the response of a sample, which implementations are encouraged to
+     * parse only once for all the extractors of the sample, see
+     * {@link SampleResult#getParsedResponse(String)}
+     *
+     * @param expression Expression used for extraction of nodes
+     * @param attribute Attribute name to return 
+     * @param matchNumber Match number
+     * @param sampleResult Sample whose response is used
+     * @param result List of results
+     * @param found current matches found
+     * @return match found updated
+     * @since 5.1
+     */
+    default int extract(
+            String expression,
+            String attribute,
+            int matchNumber,
+            SampleResult sampleResult,
+            List<String> result,
+            int found) {
+        return extract(expression, attribute, matchNumber, sampleResult.getResponseDataAsString(),
+                result, found, null);
+    }
 }
@@ -178,12 +178,8 @@ public class HtmlExtractor extends AbstractScopedTestElement implements PostProc
             } 
         } else {
             List<SampleResult> sampleList = getSampleList(previousResult);
-            int i=0;
             for (SampleResult sr : sampleList) {
-                String inputString = sr.getResponseDataAsString();
-                found = getExtractorImpl().extract(expression, attribute, matchNumber, inputString, result, found,
-                        i>0 ? null : Integer.toString(i));
-                i++;
+                found = getExtractorImpl().extract(expression, attribute, matchNumber, sr, result, found);
                 if (matchNumber > 0 && found == matchNumber){// no need to process further
                     break;
                 }
@@ -20,6 +20,7 @@ package org.apache.jmeter.extractor;
 
 import java.util.List;
 
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.jsoup.Jsoup;
@@ -38,6 +39,8 @@ public class JSoupExtractor implements Extractor {
 
     private static final String CACHE_KEY_PREFIX = JSoupExtractor.class.getName()+"_PARSED_BODY";
 
+    private static final String PARSED_RESPONSE_KEY = JSoupExtractor.class.getName()+"_DOCUMENT";
+
     public JSoupExtractor() {
         super();
     }
@@ -60,6 +63,25 @@ public class JSoupExtractor implements Extractor {
         } else {
             document = Jsoup.parse(inputString);
         }
+        return extract(document, expression, attribute, matchNumber, result, found);
+    }
+
+    /**
+     * @see Extractor#extract(String, String, int, SampleResult, List, int)
+     */
+    @Override
+    public int extract(String expression, String attribute, int matchNumber,
+            SampleResult sampleResult, List<String> result, int found) {
+        Document document = (Document) sampleResult.getParsedResponse(PARSED_RESPONSE_KEY);
+        if (document == null) {
+            document = Jsoup.parse(sampleResult.getResponseDataAsString());
+            sampleResult.setParsedResponse(PARSED_RESPONSE_KEY, document);
+        }
+        return extract(document, expression, attribute, matchNumber, result, found);
+    }
+
+    private int extract(Document document, String expression, String attribute, int matchNumber,
+            List<String> result, int found) {
         Elements elements = document.select(expression);
         for (Element element : elements) {
             if (matchNumber <= 0 || found != matchNumber) {
@@ -20,6 +20,7 @@ package org.apache.jmeter.extractor;
 
 import java.util.List;
 
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jorphan.util.JOrphanUtils;
 
@@ -39,6 +40,8 @@ public class JoddExtractor implements Extractor {
     private static final long serialVersionUID = -7235814605293262972L;
 
     private static final String CACHE_KEY_PREFIX = JoddExtractor.class.getName()+"_PARSED_BODY";
+
+    private static final String PARSED_RESPONSE_KEY = JoddExtractor.class.getName()+"_NODE_SELECTOR";
     
     static {
         LoggerFactory.setLoggerProvider(Slf4jLogger.PROVIDER);
@@ -70,6 +73,27 @@ public class JoddExtractor implements Extractor {
             jodd.lagarto.dom.Document doc = domBuilder.parse(inputString);
             nodeSelector = new NodeSelector(doc);
         }
+        return extract(nodeSelector, expression, attribute, matchNumber, result, found);
+    }
+
+    /**
+     * @see org.apache.jmeter.extractor.Extractor#extract(String, String, int, SampleResult, List, int)
+     */
+    @Override
+    public int extract(String expression, String attribute, int matchNumber,
+            SampleResult sampleResult, List<String> result, int found) {
+        NodeSelector nodeSelector = (NodeSelector) sampleResult.getParsedResponse(PARSED_RESPONSE_KEY);
+        if (nodeSelector == null) {
+            LagartoDOMBuilder domBuilder = new LagartoDOMBuilder();
+            jodd.lagarto.dom.Document doc = domBuilder.parse(sampleResult.getResponseDataAsString());
+            nodeSelector = new NodeSelector(doc);
+            sampleResult.setParsedResponse(PARSED_RESPONSE_KEY, nodeSelector);
+        }
+        return extract(nodeSelector, expression, attribute, matchNumber, result, found);
+    }
+
+    private int extract(NodeSelector nodeSelector, String expression, String attribute, int matchNumber,
+            List<String> result, int found) {
         List<Node> elements = nodeSelector.select(expression);
         for (Node element : elements) {
             if (matchNumber <= 0 || found != matchNumber) {
@@ -22,6 +22,8 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.jmeter.processor.PostProcessor;
@@ -31,6 +33,7 @@ import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.Document;
+import org.apache.jmeter.util.JavaMatchResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.oro.text.MalformedCachePatternException;
 import org.apache.oro.text.regex.MatchResult;
@@ -91,6 +94,9 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
 
     private transient List<Object> template;
 
+    /** Engine read on first use, so that elements cloned for a new run see property changes */
+    private transient Boolean javaRegex;
+
     /**
      * Parses the response data using regular expressions and saving the results
      * into variables for use later in the test.
@@ -121,8 +127,18 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
         String regex = getRegex();
         Pattern pattern = null;
         try {
-            pattern = JMeterUtils.getPatternCache().getPattern(regex, Perl5Compiler.READ_ONLY_MASK);
-            List<MatchResult> matches = processMatches(pattern, regex, previousResult, matchNumber, vars);
+            MatchCollector collector;
+            if (useJavaRegex()) {
+                java.util.regex.Pattern javaPattern = JMeterUtils.compilePattern(regex);
+                collector = (inputString, matches, found) ->
+                        matchStrings(matchNumber, javaPattern, matches, found, inputString);
+            } else {
+                pattern = JMeterUtils.getPatternCache().getPattern(regex, Perl5Compiler.READ_ONLY_MASK);
+                Pattern oroPattern = pattern;
+                collector = (inputString, matches, found) ->
+                        matchStrings(matchNumber, matcher, oroPattern, matches, found, inputString);
+            }
+            List<MatchResult> matches = processMatches(collector, regex, previousResult, matchNumber, vars);
             int prevCount = 0;
             String prevString = vars.get(refName + REF_MATCH_NR);
             if (prevString != null) {
@@ -168,13 +184,20 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
             } catch (RuntimeException e) {
                 log.warn("Error while generating result");
             }
-        } catch (MalformedCachePatternException e) {
+        } catch (MalformedCachePatternException | PatternSyntaxException e) {
             log.error("Error in pattern: '{}'", regex);
         } finally {
             JMeterUtils.clearMatcherMemory(matcher, pattern);
         }
     }
 
+    private boolean useJavaRegex() {
+        if (javaRegex == null) {
+            javaRegex = Boolean.valueOf(JMeterUtils.useJavaRegex());
+        }
+        return javaRegex.booleanValue();
+    }
+
     private String getInputString(SampleResult result) {
         String inputString = useUrl() ? result.getUrlAsString() // Bug 39707
                 : useHeaders() ? result.getResponseHeaders()
@@ -189,10 +212,20 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
        return inputString;
     }
 
-    private List<MatchResult> processMatches(Pattern pattern, String regex, SampleResult result, int matchNumber, JMeterVariables vars) {
+    /**
+     * Adds the matches of the regular expression found in an input to a list
+     */
+    @FunctionalInterface
+    private interface MatchCollector {
+        /**
+         * @return the number of matches found so far
+         */
+        int collect(String inputString, List<MatchResult> matches, int found);
+    }
+
+    private List<MatchResult> processMatches(MatchCollector collector, String regex, SampleResult result, int matchNumber, JMeterVariables vars) {
         log.debug("Regex = '{}'", regex);
 
-        Perl5Matcher matcher = JMeterUtils.getMatcher();
         List<MatchResult> matches = new ArrayList<>();
         int found = 0;
 
@@ -205,14 +238,12 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
                 }
                 return Collections.emptyList();
             }
-            matchStrings(matchNumber, matcher, pattern, matches, found,
-                    inputString);
+            collector.collect(inputString, matches, found);
         } else {
             List<SampleResult> sampleList = getSampleList(result);
             for (SampleResult sr : sampleList) {
                 String inputString = getInputString(sr);
-                found = matchStrings(matchNumber, matcher, pattern, matches, found,
-                        inputString);
+                found = collector.collect(inputString, matches, found);
                 if (matchNumber > 0 && found == matchNumber){// no need to process further
                     break;
                 }
@@ -237,6 +268,25 @@ public class RegexExtractor extends AbstractScopedTestElement implements PostPro
         return found;
     }
 
+    /**
+     * Same as {@link #matchStrings(int, Perl5Matcher, Pattern, List, int, String)}
+     * with {@link java.util.regex}, which matches the input without copying it
+     */
+    private int matchStrings(int matchNumber, java.util.regex.Pattern pattern,
+            List<MatchResult> matches, int found, String inputString) {
+        Matcher matcher = pattern.matcher(inputString);
+        while (matchNumber <=0 || found != matchNumber) {
+            if (matcher.find()) {
+                log.debug("RegexExtractor: Match found!");
+                matches.add(new JavaMatchResult(matcher.toMatchResult()));
+                found++;
+            } else {
+                break;
+            }
+        }
+        return found;
+    }
+
     /**
      * Creates the variables:<br/>
      * basename_gn, where n=0...# of groups<br/>
@@ -126,9 +126,13 @@ PostProcessor, Serializable {
                 }
             } else {
                 List<SampleResult> samples = getSampleList(previousResult);
-                int size = samples.size();
-                for(int i = 0;i<size;i++) {
-                    getValuesForXPath(getXPathQuery(), matches, matchNumber,previousResult.getResponseDataAsString());
+                for (SampleResult res : samples) {
+                    if (getFragment() || !XPathUtil.putValuesForXPathInListUsingStreaming(res, getXPathQuery(),
+                            matches, matchNumber, getNamespaces())) {
+                        // parsed once for all the elements of the sample
+                        XPathUtil.putValuesForXPathInListUsingSaxon(XPathUtil.getResponseXdmNode(res), getXPathQuery(),
+                                matches, getFragment(), matchNumber, getNamespaces());
+                    }
                 }
             }
             final int matchCount = matches.size();
@@ -142,7 +142,8 @@ public class XPathExtractor extends AbstractScopedTestElement implements
             } else {
                 List<SampleResult> samples = getSampleList(previousResult);
                 for (SampleResult res : samples) {
-                    Document d = parseResponse(res.getResponseDataAsString());
+                    Document d = XPathUtil.getResponseDocument(res, true, false, false, useNameSpace(), isTolerant(),
+                            isQuiet(), showWarnings(), reportErrors(), isDownloadDTDs());
                     getValuesForXPath(d,getXPathQuery(), matches, matchNumber);
                 }
             }
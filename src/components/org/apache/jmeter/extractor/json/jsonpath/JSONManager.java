@@ -24,7 +24,10 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +35,7 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
 import com.jayway.jsonpath.PathNotFoundException;
@@ -46,6 +50,11 @@ public class JSONManager {
     private static final Logger log = LoggerFactory.getLogger(JSONManager.class);
     private static final Configuration DEFAULT_CONFIGURATION =
             Configuration.defaultConfiguration().addOptions(Option.ALWAYS_RETURN_LIST);
+
+    /** Key of the responses parsed as JSON documents */
+    private static final String DOCUMENT_KEY =
+            JSONManager.class.getName() + "_" + DEFAULT_CONFIGURATION.jsonProvider().getClass().getName(); // $NON-NLS-1$
+
     /**
      * This Map can hardly grow above 10 elements as it is used within JSONPostProcessor to 
      * store the computed JsonPath for the set of JSON Path Expressions.
@@ -62,13 +71,98 @@ public class JSONManager {
 
         return jsonPath;
     }
-    
+
+    /**
+     * Same as {@link #expressionToJsonPath}, empty for the expressions which
+     * can't be streamed
+     */
+    private final Map<String, Optional<JSONStreamingPath>> expressionToStreamingPath = new HashMap<>(2);
+
+    private JSONStreamingPath getStreamingPath(String jsonPathExpression) {
+        return expressionToStreamingPath
+                .computeIfAbsent(jsonPathExpression, e -> Optional.ofNullable(JSONStreamingPath.compile(e)))
+                .orElse(null);
+    }
+
+    /**
+     * Tells whether JSON Strings should be scanned instead of parsed when the
+     * expression allows it, as set by property <code>jmeter.jsonpath.streaming</code>.
+     * The property is read on each call, so callers on hot paths should keep
+     * the value for the life of their element.
+     *
+     * @return <code>true</code> if streamable expressions should be scanned
+     * @since 5.1
+     */
+    public static boolean isStreamingEnabled() {
+        return JMeterUtils.getPropDefault("jmeter.jsonpath.streaming", true); // $NON-NLS-1$
+    }
+
     public void reset() {
         expressionToJsonPath.clear();
+        expressionToStreamingPath.clear();
     }
 
     /**
-     * 
+     * Can {@link #extractWithJsonPath(String, String)} scan a JSON String for
+     * an expression, instead of parsing the whole String
+     *
+     * @param jsonPath JSON-PATH expression
+     * @return true if the JSON-PATH expression can be evaluated by streaming
+     * @see #isStreamingEnabled()
+     * @since 5.1
+     */
+    public boolean isStreamable(String jsonPath) {
+        return getStreamingPath(jsonPath) != null;
+    }
+
+    /**
+     * Parse a JSON String once, to extract several JSON-PATH expressions
+     * with {@link #extractWithJsonPath(Object, String)}
+     *
+     * @param jsonString JSON String to parse
+     * @return the parsed JSON document
+     * @throws InvalidJsonException when parsing fails
+     * @since 5.1
+     */
+    public static Object parse(String jsonString) {
+        return DEFAULT_CONFIGURATION.jsonProvider().parse(jsonString);
+    }
+
+    /**
+     * Get the response of a sample as a JSON document, which is parsed only
+     * once for all the JSON Extractors and Assertions of this sample.
+     *
+     * @param result sample whose response data is parsed
+     * @return the parsed JSON document, not to be modified
+     * @throws InvalidJsonException when parsing fails
+     * @see SampleResult#getParsedResponse(String)
+     * @since 5.1
+     */
+    public static Object getResponseDocument(SampleResult result) {
+        Object document = result.getParsedResponse(DOCUMENT_KEY);
+        if (document == null) {
+            document = parse(result.getResponseDataAsString());
+            result.setParsedResponse(DOCUMENT_KEY, document);
+        }
+        return document;
+    }
+
+    /**
+     * Get the response of a sample as a JSON document, if it has already been
+     * parsed by {@link #getResponseDocument(SampleResult)}
+     *
+     * @param result sample whose response data may have been parsed
+     * @return the parsed JSON document, or <code>null</code>
+     */
+    static Object getParsedResponseDocument(SampleResult result) {
+        return result.getParsedResponse(DOCUMENT_KEY);
+    }
+
+    /**
+     * Extract data from a JSON String. When the JSON-PATH expression
+     * {@link #isStreamable(String) is streamable}, the String is scanned and
+     * only the extracted data is parsed.
+     *
      * @param jsonString JSON String from which data is extracted
      * @param jsonPath JSON-PATH expression
      * @return List of JSON Strings of the extracted data
@@ -76,14 +170,34 @@ public class JSONManager {
      */
     public List<Object> extractWithJsonPath(String jsonString, String jsonPath)
             throws ParseException {
+        JSONStreamingPath streamingPath = getStreamingPath(jsonPath);
+        if (streamingPath != null) {
+            List<Object> results = streamingPath.read(jsonString);
+            if (results != null) {
+                return results;
+            }
+            log.debug("JSON Path {} could not be streamed, parsing the JSON String", jsonPath);
+        }
+        return extractWithJsonPath(parse(jsonString), jsonPath);
+    }
+
+    /**
+     * 
+     * @param jsonDocument JSON document from which data is extracted, as
+     *            returned by {@link #parse(String)}
+     * @param jsonPath JSON-PATH expression
+     * @return List of JSON Strings of the extracted data
+     * @since 5.1
+     */
+    public List<Object> extractWithJsonPath(Object jsonDocument, String jsonPath) {
         JsonPath jsonPathParser = getJsonPath(jsonPath);
         List<Object> extractedObjects;
         try {
-            extractedObjects = jsonPathParser.read(jsonString,
+            extractedObjects = jsonPathParser.read(jsonDocument,
                     DEFAULT_CONFIGURATION);
         } catch (PathNotFoundException e) {
             if(log.isDebugEnabled()) {
-                log.debug("Could not find JSON Path {} in [{}]: {}", jsonPath, jsonString, e.getLocalizedMessage());
+                log.debug("Could not find JSON Path {} in [{}]: {}", jsonPath, jsonDocument, e.getLocalizedMessage());
             }
             return Collections.emptyList();
         }
@@ -95,7 +209,7 @@ public class JSONManager {
     }
 
     @SuppressWarnings("unchecked")
-    private String stringifyJSONObject(Object obj) {
+    static String stringifyJSONObject(Object obj) {
         if (obj instanceof Map) {
             return new JSONObject((Map<String, ?>) obj).toJSONString();
         }
@@ -62,18 +62,22 @@ public class JSONPostProcessor extends AbstractScopedTestElement implements Seri
         }
     };
 
+    // Read on first use, for the life of the element
+    private transient Boolean streaming;
+
     @Override
     public void process() {
         JMeterContext context = getThreadContext();
         JMeterVariables vars = context.getVariables();
         String jsonResponse;
+        SampleResult previousResult = null;
         if (isScopeVariable()) {
             jsonResponse = vars.get(getVariableName());
             if (log.isDebugEnabled()) {
                 log.debug("JSON Extractor is using variable: {}, which content is: {}", getVariableName(), jsonResponse);
             }
         } else {
-            SampleResult previousResult = context.getPreviousResult();
+            previousResult = context.getPreviousResult();
             if (previousResult == null) {
                 return;
             }
@@ -96,6 +100,7 @@ public class JSONPostProcessor extends AbstractScopedTestElement implements Seri
                     .getResString("jsonpp_error_number_arguments_mismatch_error")); // $NON-NLS-1$
         }
 
+        Object jsonDocument = null; // parsed once for all the expressions
         for (int i = 0; i < jsonPathExpressions.length; i++) {
             int matchNumber = matchNumbers[i];
             String currentRefName = refNames[i].trim();
@@ -108,8 +113,23 @@ public class JSONPostProcessor extends AbstractScopedTestElement implements Seri
                     }
                     vars.put(currentRefName, defaultValues[i]);
                 } else {
-                    List<Object> extractedValues = localMatcher.get()
-                            .extractWithJsonPath(jsonResponse, currentJsonPath);
+                    JSONManager matcher = localMatcher.get();
+                    if (jsonDocument == null && previousResult != null) {
+                        jsonDocument = JSONManager.getParsedResponseDocument(previousResult);
+                    }
+                    List<Object> extractedValues;
+                    if (jsonDocument == null && useStreaming() && matcher.isStreamable(currentJsonPath)) {
+                        // scan the response instead of parsing all of it
+                        extractedValues = matcher.extractWithJsonPath(jsonResponse, currentJsonPath);
+                    } else {
+                        if (jsonDocument == null) {
+                            jsonDocument = previousResult == null
+                                    ? JSONManager.parse(jsonResponse)
+                                    // shared with the other JSON elements of the sample
+                                    : JSONManager.getResponseDocument(previousResult);
+                        }
+                        extractedValues = matcher.extractWithJsonPath(jsonDocument, currentJsonPath);
+                    }
                     // if no values extracted, default value added
                     if (extractedValues.isEmpty()) {
                         vars.put(currentRefName, defaultValues[i]);
@@ -235,6 +255,13 @@ public class JSONPostProcessor extends AbstractScopedTestElement implements Seri
         setProperty(COMPUTE_CONCATENATION, computeConcatenation, COMPUTE_CONCATENATION_DEFAULT_VALUE); 
     }
     
+    private boolean useStreaming() {
+        if (streaming == null) {
+            streaming = Boolean.valueOf(JSONManager.isStreamingEnabled());
+        }
+        return streaming.booleanValue();
+    }
+
     @Override
     public void threadStarted() {
         // NOOP
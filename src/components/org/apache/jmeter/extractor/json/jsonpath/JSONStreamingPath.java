@@ -0,0 +1,656 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.extractor.json.jsonpath;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates the common subset of JSON-PATH by scanning the JSON text, without
+ * building its object tree:
+ * <ul>
+ * <li><code>.name</code>, <code>['name']</code> and <code>[n]</code></li>
+ * <li>wildcards <code>.*</code> and <code>[*]</code> on arrays</li>
+ * <li>filters on arrays like <code>[?(@.a.b &lt; 10)]</code> comparing a
+ * member with a number, a string, <code>true</code>, <code>false</code> or
+ * <code>null</code>, or <code>[?(@.a)]</code> checking a member exists</li>
+ * </ul>
+ * Only the matched values are parsed, when they are read, and the scan stops
+ * at the first match of a definite path. Results are the same as the ones of
+ * {@link JSONManager#extractWithJsonPath(Object, String)}: when the text
+ * contains something whose result could differ, like a wildcard on an object
+ * (whose members have no order once parsed), {@link #read(String)} gives up
+ * and returns <code>null</code> so that the tree is used.
+ * <p>
+ * The parts of the text which are skipped, or after the match of a definite
+ * path, are not validated. So for a definite path, the first one of
+ * duplicated members is used, where the tree would use the last one.
+ * </p>
+ * @since 5.1
+ */
+final class JSONStreamingPath {
+
+    private enum Kind {
+        PROPERTY, INDEX, WILDCARD, FILTER
+    }
+
+    private enum Operator {
+        EXISTS, EQ, NE, LT, LTE, GT, GTE
+    }
+
+    /** Step of a path */
+    private static final class Step {
+        private final Kind kind;
+        private final String name;
+        private final int index;
+        // filter
+        private final String[] members;
+        private final Operator operator;
+        private final Object value;
+
+        private Step(Kind kind, String name, int index, String[] members, Operator operator, Object value) {
+            this.kind = kind;
+            this.name = name;
+            this.index = index;
+            this.members = members;
+            this.operator = operator;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Thrown when the text can't be handled without its tree, it has no
+     * stack trace as it is not an error
+     */
+    private static final class UnsupportedJsonException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private UnsupportedJsonException() {
+            super("Not supported by streaming", null, false, false);
+        }
+    }
+
+    private static final UnsupportedJsonException UNSUPPORTED = new UnsupportedJsonException();
+
+    /** Value of a JSON null in filters */
+    private static final Object NULL = new Object();
+
+    private final Step[] steps;
+
+    /** true if the path has at most one match */
+    private final boolean definite;
+
+    private JSONStreamingPath(Step[] steps) {
+        this.steps = steps;
+        this.definite = Arrays.stream(steps).allMatch(s -> s.kind == Kind.PROPERTY || s.kind == Kind.INDEX);
+    }
+
+    /**
+     * Compile a JSON-PATH expression
+     *
+     * @param expression JSON-PATH expression
+     * @return the compiled path, or <code>null</code> if the expression is
+     *         not supported (or not valid)
+     */
+    static JSONStreamingPath compile(String expression) {
+        String path = expression.trim();
+        if (!path.startsWith("$")) {
+            return null;
+        }
+        List<Step> steps = new ArrayList<>();
+        int pos = 1;
+        while (pos < path.length()) {
+            char c = path.charAt(pos);
+            if (c == '.') {
+                pos++;
+                if (pos < path.length() && path.charAt(pos) == '*') {
+                    steps.add(new Step(Kind.WILDCARD, null, 0, null, null, null));
+                    pos++;
+                } else {
+                    int end = endOfName(path, pos);
+                    if (end == pos) { // deep scan or invalid
+                        return null;
+                    }
+                    steps.add(new Step(Kind.PROPERTY, path.substring(pos, end), 0, null, null, null));
+                    pos = end;
+                }
+            } else if (c == '[') {
+                int end = path.indexOf(']', pos);
+                if (end < 0) {
+                    return null;
+                }
+                Step step;
+                if (path.startsWith("[?(", pos)) {
+                    int close = path.indexOf(")]", pos);
+                    if (close < 0) {
+                        return null;
+                    }
+                    step = compileFilter(path.substring(pos + 3, close).trim());
+                    end = close + 1;
+                } else {
+                    step = compileBracket(path.substring(pos + 1, end).trim());
+                }
+                if (step == null) {
+                    return null;
+                }
+                steps.add(step);
+                pos = end + 1;
+            } else {
+                return null;
+            }
+        }
+        return new JSONStreamingPath(steps.toArray(new Step[steps.size()]));
+    }
+
+    private static int endOfName(String path, int pos) {
+        int end = pos;
+        while (end < path.length() && isNameChar(path.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    private static Step compileBracket(String content) {
+        if ("*".equals(content)) {
+            return new Step(Kind.WILDCARD, null, 0, null, null, null);
+        }
+        if (content.length() >= 2) {
+            char quote = content.charAt(0);
+            if ((quote == '\'' || quote == '"') && content.charAt(content.length() - 1) == quote) {
+                String name = content.substring(1, content.length() - 1);
+                if (name.indexOf('\'') >= 0 || name.indexOf('"') >= 0 || name.indexOf('\\') >= 0) {
+                    return null;
+                }
+                return new Step(Kind.PROPERTY, name, 0, null, null, null);
+            }
+        }
+        if (content.isEmpty() || content.length() > 9) {
+            return null;
+        }
+        for (int i = 0; i < content.length(); i++) {
+            if (!Character.isDigit(content.charAt(i))) { // negative, slices and lists
+                return null;
+            }
+        }
+        return new Step(Kind.INDEX, null, Integer.parseInt(content), null, null, null);
+    }
+
+    private static Step compileFilter(String filter) {
+        if (!filter.startsWith("@.")) {
+            return null;
+        }
+        int pos = 1;
+        List<String> members = new ArrayList<>();
+        while (pos < filter.length() && filter.charAt(pos) == '.') {
+            int end = endOfName(filter, pos + 1);
+            if (end == pos + 1) {
+                return null;
+            }
+            members.add(filter.substring(pos + 1, end));
+            pos = end;
+        }
+        String[] memberPath = members.toArray(new String[members.size()]);
+        String rest = filter.substring(pos).trim();
+        if (rest.isEmpty()) {
+            return new Step(Kind.FILTER, null, 0, memberPath, Operator.EXISTS, null);
+        }
+        Operator operator;
+        int length = 2;
+        if (rest.startsWith("==")) {
+            operator = Operator.EQ;
+        } else if (rest.startsWith("!=")) {
+            operator = Operator.NE;
+        } else if (rest.startsWith("<=")) {
+            operator = Operator.LTE;
+        } else if (rest.startsWith(">=")) {
+            operator = Operator.GTE;
+        } else if (rest.startsWith("<")) {
+            operator = Operator.LT;
+            length = 1;
+        } else if (rest.startsWith(">")) {
+            operator = Operator.GT;
+            length = 1;
+        } else {
+            return null;
+        }
+        Object value = compileLiteral(rest.substring(length).trim());
+        if (value == null) {
+            return null;
+        }
+        return new Step(Kind.FILTER, null, 0, memberPath, operator, value);
+    }
+
+    private static Object compileLiteral(String literal) {
+        if (literal.isEmpty()) {
+            return null;
+        }
+        char first = literal.charAt(0);
+        if (first == '\'' || first == '"') {
+            if (literal.length() < 2 || literal.charAt(literal.length() - 1) != first) {
+                return null;
+            }
+            String value = literal.substring(1, literal.length() - 1);
+            if (value.indexOf('\'') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\\') >= 0) {
+                return null;
+            }
+            return value;
+        }
+        switch (literal) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return NULL;
+            default:
+                if (first != '-' && !Character.isDigit(first)) {
+                    return null;
+                }
+                try {
+                    return new BigDecimal(literal);
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+        }
+    }
+
+    /**
+     * Evaluate the path
+     *
+     * @param json JSON text
+     * @return the JSON Strings of the matches, parsed when they are read, or
+     *         <code>null</code> if the text has to be handled with its tree
+     */
+    List<Object> read(String json) {
+        try {
+            Scanner scanner = new Scanner(json);
+            int pos = scanner.skipWhitespace(0);
+            int end = scanner.match(pos, 0);
+            if (!scanner.done && scanner.skipWhitespace(end) != json.length()) {
+                return null;
+            }
+            return new Matches(json, Arrays.copyOf(scanner.spans, scanner.count * 2));
+        } catch (UnsupportedJsonException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private final class Scanner {
+        private final String json;
+        /** start and end of each match */
+        private int[] spans = new int[8];
+        private int count;
+        /** true once the match of a definite path is found */
+        private boolean done;
+
+        private Scanner(String json) {
+            this.json = json;
+        }
+
+        /**
+         * Match a value with the steps
+         *
+         * @param pos start of the value
+         * @param step first step to match
+         * @return end of the value
+         */
+        private int match(int pos, int step) {
+            if (step == steps.length) {
+                int end = skipValue(pos);
+                if (count * 2 == spans.length) {
+                    spans = Arrays.copyOf(spans, spans.length * 2);
+                }
+                spans[count * 2] = pos;
+                spans[count * 2 + 1] = end;
+                count++;
+                done = definite;
+                return end;
+            }
+            Step current = steps[step];
+            char c = json.charAt(pos);
+            if (c == '{') {
+                if (current.kind == Kind.PROPERTY) {
+                    return matchMember(pos, current.name, step);
+                }
+                if (current.kind == Kind.INDEX) {
+                    return skipValue(pos);
+                }
+                throw UNSUPPORTED;
+            }
+            if (c == '[') {
+                if (current.kind == Kind.PROPERTY) {
+                    return skipValue(pos);
+                }
+                return matchElements(pos, current, step);
+            }
+            if (current.kind == Kind.FILTER) {
+                throw UNSUPPORTED;
+            }
+            return skipValue(pos);
+        }
+
+        private int matchMember(int pos, String name, int step) {
+            boolean matched = false;
+            pos = skipWhitespace(pos + 1);
+            if (json.charAt(pos) == '}') {
+                return pos + 1;
+            }
+            while (true) {
+                int nameEnd = skipName(pos);
+                int valueStart = skipWhitespace(expect(skipWhitespace(nameEnd), ':'));
+                int end;
+                if (isName(pos, nameEnd, name)) {
+                    if (matched) { // duplicated member, the last one wins once parsed
+                        throw UNSUPPORTED;
+                    }
+                    matched = true;
+                    end = match(valueStart, step + 1);
+                    if (done) {
+                        return end;
+                    }
+                } else {
+                    end = skipValue(valueStart);
+                }
+                pos = skipWhitespace(end);
+                char c = json.charAt(pos);
+                if (c == '}') {
+                    return pos + 1;
+                }
+                if (c != ',') {
+                    throw UNSUPPORTED;
+                }
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+
+        private int matchElements(int pos, Step current, int step) {
+            int index = 0;
+            pos = skipWhitespace(pos + 1);
+            if (json.charAt(pos) == ']') {
+                return pos + 1;
+            }
+            while (true) {
+                int end;
+                if (current.kind == Kind.WILDCARD
+                        || current.kind == Kind.INDEX && current.index == index) {
+                    end = match(pos, step + 1);
+                    if (done) {
+                        return end;
+                    }
+                } else if (current.kind == Kind.FILTER) {
+                    end = skipValue(pos);
+                    if (test(pos, current)) {
+                        match(pos, step + 1);
+                        if (done) {
+                            return end;
+                        }
+                    }
+                } else {
+                    end = skipValue(pos);
+                }
+                index++;
+                pos = skipWhitespace(end);
+                char c = json.charAt(pos);
+                if (c == ']') {
+                    return pos + 1;
+                }
+                if (c != ',') {
+                    throw UNSUPPORTED;
+                }
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+
+        private boolean test(int pos, Step filter) {
+            for (String member : filter.members) {
+                if (pos < 0 || json.charAt(pos) != '{') {
+                    pos = -1;
+                    break;
+                }
+                pos = findMember(pos, member);
+            }
+            if (filter.operator == Operator.EXISTS) {
+                return pos >= 0;
+            }
+            if (pos < 0) {
+                return filter.operator == Operator.NE;
+            }
+            Object value = valueAt(pos);
+            Object expected = filter.value;
+            int comparison;
+            if (value instanceof BigDecimal && expected instanceof BigDecimal) {
+                comparison = ((BigDecimal) value).compareTo((BigDecimal) expected);
+            } else if (value instanceof String && expected instanceof String) {
+                comparison = ((String) value).compareTo((String) expected);
+            } else if ((value == NULL || expected == NULL || value instanceof Boolean && expected instanceof Boolean)
+                    && (filter.operator == Operator.EQ || filter.operator == Operator.NE)) {
+                comparison = value == expected ? 0 : 1;
+            } else { // conversions of the tree
+                throw UNSUPPORTED;
+            }
+            switch (filter.operator) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LTE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        /**
+         * @return start of the value of the member, -1 if not found
+         */
+        private int findMember(int pos, String name) {
+            int found = -1;
+            pos = skipWhitespace(pos + 1);
+            if (json.charAt(pos) == '}') {
+                return found;
+            }
+            while (true) {
+                int nameEnd = skipName(pos);
+                int valueStart = skipWhitespace(expect(skipWhitespace(nameEnd), ':'));
+                if (isName(pos, nameEnd, name)) {
+                    found = valueStart;
+                }
+                pos = skipWhitespace(skipValue(valueStart));
+                char c = json.charAt(pos);
+                if (c == '}') {
+                    return found;
+                }
+                if (c != ',') {
+                    throw UNSUPPORTED;
+                }
+                pos = skipWhitespace(pos + 1);
+            }
+        }
+
+        private Object valueAt(int pos) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return stringAt(json, pos, skipString(pos));
+            }
+            if (c == '-' || c >= '0' && c <= '9') {
+                try {
+                    return new BigDecimal(json.substring(pos, skipValue(pos)));
+                } catch (NumberFormatException e) {
+                    throw UNSUPPORTED;
+                }
+            }
+            if (json.startsWith("true", pos)) {
+                return Boolean.TRUE;
+            }
+            if (json.startsWith("false", pos)) {
+                return Boolean.FALSE;
+            }
+            if (json.startsWith("null", pos)) {
+                return NULL;
+            }
+            throw UNSUPPORTED;
+        }
+
+        private boolean isName(int pos, int end, String name) {
+            return end - pos - 2 == name.length()
+                    && json.regionMatches(pos + 1, name, 0, name.length());
+        }
+
+        private int skipName(int pos) {
+            if (json.charAt(pos) != '"') {
+                throw UNSUPPORTED;
+            }
+            int i = pos + 1;
+            while (true) {
+                char c = json.charAt(i++);
+                if (c == '"') {
+                    return i;
+                }
+                if (c == '\\') { // escaped names
+                    throw UNSUPPORTED;
+                }
+            }
+        }
+
+        private int expect(int pos, char c) {
+            if (json.charAt(pos) != c) {
+                throw UNSUPPORTED;
+            }
+            return pos + 1;
+        }
+
+        private int skipWhitespace(int pos) {
+            int length = json.length();
+            while (pos < length) {
+                char c = json.charAt(pos);
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+
+        private int skipString(int pos) {
+            int i = pos + 1;
+            while (true) {
+                char c = json.charAt(i);
+                if (c == '"') {
+                    return i + 1;
+                }
+                i += c == '\\' ? 2 : 1;
+            }
+        }
+
+        private int skipValue(int pos) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return skipString(pos);
+            }
+            if (c == '{' || c == '[') {
+                int depth = 0;
+                int i = pos;
+                while (true) {
+                    c = json.charAt(i);
+                    if (c == '"') {
+                        i = skipString(i);
+                        continue;
+                    }
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if ((c == '}' || c == ']') && --depth == 0) {
+                        return i + 1;
+                    }
+                    i++;
+                }
+            }
+            if (c != '-' && (c < '0' || c > '9') && c != 't' && c != 'f' && c != 'n') {
+                throw UNSUPPORTED;
+            }
+            int i = pos + 1;
+            int length = json.length();
+            while (i < length) {
+                c = json.charAt(i);
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private static String stringAt(String json, int start, int end) {
+        String value = json.substring(start + 1, end - 1);
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        return (String) JSONManager.parse(json.substring(start, end));
+    }
+
+    /** Matches, parsed the first time they are read */
+    private static final class Matches extends AbstractList<Object> {
+        private final String json;
+        private final int[] spans;
+        private final Object[] values;
+
+        private Matches(String json, int[] spans) {
+            this.json = json;
+            this.spans = spans;
+            this.values = new Object[spans.length / 2];
+        }
+
+        @Override
+        public Object get(int index) {
+            Object value = values[index];
+            if (value == null) {
+                int start = spans[index * 2];
+                int end = spans[index * 2 + 1];
+                String text = json.substring(start, end);
+                if (json.charAt(start) == '"') {
+                    value = stringAt(json, start, end);
+                } else if ("null".equals(text)) {
+                    value = "";
+                } else if ("true".equals(text) || "false".equals(text)) {
+                    value = text;
+                } else {
+                    value = JSONManager.stringifyJSONObject(JSONManager.parse(text));
+                }
+                values[index] = value;
+            }
+            return value;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
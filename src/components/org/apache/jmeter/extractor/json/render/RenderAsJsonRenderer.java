@@ -143,7 +143,10 @@ public class RenderAsJsonRenderer implements ResultRenderer, ActionListener {
     
     private List<Object> extractWithJSonPath(String textToParse, String expression) throws ParseException {
         JSONManager jsonManager = new JSONManager();
-        return jsonManager.extractWithJsonPath(textToParse, expression);
+        if (JSONManager.isStreamingEnabled()) {
+            return jsonManager.extractWithJsonPath(textToParse, expression);
+        }
+        return jsonManager.extractWithJsonPath(JSONManager.parse(textToParse), expression);
     }
 
     /*================= internal business =================*/
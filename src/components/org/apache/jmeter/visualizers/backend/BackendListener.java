@@ -26,7 +26,6 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.LockSupport;
 
 import org.apache.jmeter.config.Arguments;
@@ -39,6 +38,7 @@ import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.graphite.GraphiteBackendListenerClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,12 +53,24 @@ public class BackendListener extends AbstractTestElement
 
     private static final class ListenerClientData {
         private BackendListenerClient client;
-        private BlockingQueue<SampleResult> queue;
-        private LongAdder queueWaits; // how many times we had to wait to queue a SampleResult        
-        private LongAdder queueWaitTime; // how long we had to wait (nanoSeconds)
+        private BlockingQueue<SampleResult>[] queues; // one per worker
+        private BackendQueueMetrics queueMetrics;
         // @GuardedBy("LOCK")
         private int instanceCount; // number of active tests
         private CountDownLatch latch;
+
+        /**
+         * Samples are partitioned by label, so that the samples of one label
+         * are handled in order by the same worker
+         */
+        private BlockingQueue<SampleResult> getQueue(SampleResult result) {
+            if (queues.length == 1) {
+                return queues[0];
+            }
+            String label = result.getSampleLabel();
+            int hash = label == null ? 0 : label.hashCode();
+            return queues[(hash & Integer.MAX_VALUE) % queues.length];
+        }
     }
 
     private static final long serialVersionUID = 1L;
@@ -93,6 +105,11 @@ public class BackendListener extends AbstractTestElement
 
     public static final String DEFAULT_QUEUE_SIZE = "5000";
 
+    /**
+     * Drop samples instead of blocking the sampler threads when the queue is full
+     */
+    private static final boolean DROP_WHEN_FULL = JMeterUtils.getPropDefault("backend_queue_drop_when_full", false);
+
     // Create unique object as marker for end of queue
     private static final transient SampleResult FINAL_SAMPLE_RESULT = new SampleResult();
 
@@ -109,6 +126,9 @@ public class BackendListener extends AbstractTestElement
     // Holds listenerClientData for this test element
     private transient ListenerClientData listenerClientData;
 
+    // Context passed to createSampleResult. Set up by testStarted().
+    private transient BackendListenerContext sampleContext;
+
     /**
      * Create a BackendListener.
      */
@@ -158,23 +178,24 @@ public class BackendListener extends AbstractTestElement
      */
     @Override
     public void sampleOccurred(SampleEvent event) {
-        Arguments args = getArguments();
-        BackendListenerContext context = new BackendListenerContext(args);
-
-        SampleResult sr = listenerClientData.client.createSampleResult(context, event.getResult());
+        SampleResult sr = listenerClientData.client.createSampleResult(sampleContext, event.getResult());
         if(sr == null) {
             if (log.isDebugEnabled()) {
                 log.debug("{} => Dropping SampleResult: {}", getName(), event.getResult());
             }
             return;
         }
+        BlockingQueue<SampleResult> queue = listenerClientData.getQueue(sr);
         try {
-            if (!listenerClientData.queue.offer(sr)){ // we failed to add the element first time
-                listenerClientData.queueWaits.add(1L);
+            if (!queue.offer(sr)){ // we failed to add the element first time
+                if (DROP_WHEN_FULL) {
+                    listenerClientData.queueMetrics.addDroppedSample();
+                    return;
+                }
                 long t1 = System.nanoTime();
-                listenerClientData.queue.put(sr);
+                queue.put(sr);
                 long t2 = System.nanoTime();
-                listenerClientData.queueWaitTime.add(t2-t1);
+                listenerClientData.queueMetrics.addWait(t2-t1);
             }
         } catch (Exception err) {
             log.error("sampleOccurred, failed to queue the sample", err);
@@ -186,21 +207,25 @@ public class BackendListener extends AbstractTestElement
      */
     private static final class Worker extends Thread {
 
-        private final ListenerClientData listenerClientData;
+        private final BlockingQueue<SampleResult> queue;
+        private final CountDownLatch latch;
         private final BackendListenerContext context;
         private final BackendListenerClient backendListenerClient;
-        private Worker(BackendListenerClient backendListenerClient, Arguments arguments, ListenerClientData listenerClientData){
-            this.listenerClientData = listenerClientData;
+        private Worker(BackendListenerClient backendListenerClient, Arguments arguments,
+                ListenerClientData listenerClientData, BlockingQueue<SampleResult> queue){
+            this.queue = queue;
+            this.latch = listenerClientData.latch;
             // Allow BackendListenerClient implementations to get access to test element name
             arguments.addArgument(TestElement.NAME, getName());
-            context = new BackendListenerContext(arguments);
+            context = new BackendListenerContext(arguments, listenerClientData.queueMetrics);
             this.backendListenerClient = backendListenerClient;
         }
 
         @Override
         public void run() {
             final boolean isDebugEnabled = log.isDebugEnabled();
-            List<SampleResult> sampleResults = new ArrayList<>(listenerClientData.queue.size());
+            // Reused for each batch
+            List<SampleResult> sampleResults = new ArrayList<>(queue.size());
             try {
                 try {
 
@@ -208,33 +233,15 @@ public class BackendListener extends AbstractTestElement
                     while (!endOfLoop) {
                         if (isDebugEnabled) {
                             log.debug("Thread: {} taking SampleResult from queue: {}", Thread.currentThread().getName(),
-                                    listenerClientData.queue.size());
-                        }
-                        SampleResult sampleResult = listenerClientData.queue.take();
-                        if (isDebugEnabled) {
-                            log.debug("Thread: {} took SampleResult: {}, isFinal: {}",
-                                    Thread.currentThread().getName(),
-                                    sampleResult,
-                                    sampleResult == FINAL_SAMPLE_RESULT);
+                                    queue.size());
                         }
+                        sampleResults.add(queue.take());
                         // try to process as many as possible
-                        // The == comparison is not a mistake
-                        while (!(endOfLoop = sampleResult == FINAL_SAMPLE_RESULT) && sampleResult != null ) { 
-                            sampleResults.add(sampleResult);
-                            if (isDebugEnabled) {
-                                log.debug("Thread: {} polling from queue: {}", Thread.currentThread().getName(),
-                                        listenerClientData.queue.size());
-                            }
-                            sampleResult = listenerClientData.queue.poll(); // returns null if nothing on queue currently
-                            if (isDebugEnabled) {
-                                log.debug("Thread: {} took from queue: {}, isFinal: {}", Thread.currentThread().getName(),
-                                        sampleResult, sampleResult == FINAL_SAMPLE_RESULT);
-                            }
-                        }
+                        queue.drainTo(sampleResults);
+                        endOfLoop = removeFinalSampleResult(sampleResults);
                         if (isDebugEnabled) {
-                            log.debug("Thread: {} exiting with FINAL EVENT: {}, null: {}",
-                                    Thread.currentThread().getName(), sampleResult == FINAL_SAMPLE_RESULT,
-                                    sampleResult == null);
+                            log.debug("Thread: {} took {} SampleResults, isFinal: {}",
+                                    Thread.currentThread().getName(), sampleResults.size(), endOfLoop);
                         }
                         sendToListener(backendListenerClient, context, sampleResults);
                         if(!endOfLoop) {
@@ -245,12 +252,29 @@ public class BackendListener extends AbstractTestElement
                     Thread.currentThread().interrupt();
                 }
                 // We may have been interrupted
+                removeFinalSampleResult(sampleResults);
                 sendToListener(backendListenerClient, context, sampleResults);
                 log.info("Worker ended");
             } finally {
-                listenerClientData.latch.countDown();
+                latch.countDown();
+            }
+        }
+    }
+
+    /**
+     * Remove the end of queue marker and the samples following it
+     * @param sampleResults List of {@link SampleResult}
+     * @return true if the end of queue marker was found
+     */
+    static boolean removeFinalSampleResult(List<SampleResult> sampleResults) {
+        for (int i = 0; i < sampleResults.size(); i++) {
+            // The == comparison is not a mistake
+            if (sampleResults.get(i) == FINAL_SAMPLE_RESULT) {
+                sampleResults.subList(i, sampleResults.size()).clear();
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -315,23 +339,32 @@ public class BackendListener extends AbstractTestElement
                 // that only 1 instance of BackendListenerClient is used
                 clientClass = initClass(); // may be null
                 BackendListenerClient backendListenerClient = createBackendListenerClientImpl(clientClass);
-                BackendListenerContext context = new BackendListenerContext((Arguments)getArguments().clone());
+                int workers = getWorkers(backendListenerClient);
 
                 listenerClientData = new ListenerClientData();
-                listenerClientData.queue = new ArrayBlockingQueue<>(queueSize);
-                listenerClientData.queueWaits = new LongAdder();
-                listenerClientData.queueWaitTime = new LongAdder();
-                listenerClientData.latch = new CountDownLatch(1);
+                @SuppressWarnings("unchecked")
+                BlockingQueue<SampleResult>[] queues = new BlockingQueue[workers];
+                for (int i = 0; i < workers; i++) {
+                    queues[i] = new ArrayBlockingQueue<>(queueSize);
+                }
+                listenerClientData.queues = queues;
+                listenerClientData.queueMetrics = new BackendQueueMetrics(queues);
+                listenerClientData.latch = new CountDownLatch(workers);
                 listenerClientData.client = backendListenerClient;
+                BackendListenerContext context = new BackendListenerContext((Arguments)getArguments().clone(),
+                        listenerClientData.queueMetrics);
                 if (log.isInfoEnabled()) {
-                    log.info("{}: Starting worker with class: {} and queue capacity: {}", getName(), clientClass,
-                            getQueueSize());
+                    log.info("{}: Starting {} worker(s) with class: {} and queue capacity: {}", getName(), workers,
+                            clientClass, getQueueSize());
+                }
+                for (BlockingQueue<SampleResult> queue : queues) {
+                    Worker worker = new Worker(backendListenerClient, (Arguments) getArguments().clone(),
+                            listenerClientData, queue);
+                    worker.setDaemon(true);
+                    worker.start();
                 }
-                Worker worker = new Worker(backendListenerClient, (Arguments) getArguments().clone(), listenerClientData);
-                worker.setDaemon(true);
-                worker.start();
                 if (log.isInfoEnabled()) {
-                    log.info("{}: Started  worker with class: {}", getName(), clientClass);
+                    log.info("{}: Started  worker(s) with class: {}", getName(), clientClass);
                 }
                 try {
                     backendListenerClient.setupTest(context);
@@ -341,9 +374,28 @@ public class BackendListener extends AbstractTestElement
                 queuesByTestElementName.put(myName, listenerClientData);
             }
             listenerClientData.instanceCount++;
+            sampleContext = new BackendListenerContext(getArguments(), listenerClientData.queueMetrics);
         }
     }
 
+    /**
+     * @param backendListenerClient {@link BackendListenerClient}
+     * @return the number of workers to use for the client
+     */
+    private int getWorkers(BackendListenerClient backendListenerClient) {
+        // Used only if the client supports concurrent calls
+        final int workers = JMeterUtils.getPropDefault("backend_workers", 1); // $NON-NLS-1$
+        if (workers <= 1) {
+            return 1;
+        }
+        if (!backendListenerClient.supportsConcurrentCalls()) {
+            log.warn("{}: {} does not support concurrent calls, ignoring backend_workers={}", getName(),
+                    backendListenerClient.getClass().getName(), workers);
+            return 1;
+        }
+        return workers;
+    }
+
     /**
      * Method called at the end of the test. This is called only on one instance
      * of BackendListener. This method will loop through all of the other
@@ -372,18 +424,26 @@ public class BackendListener extends AbstractTestElement
             }
         }
         try {
-            listenerClientData.queue.put(FINAL_SAMPLE_RESULT);
+            for (BlockingQueue<SampleResult> queue : listenerClientData.queues) {
+                queue.put(FINAL_SAMPLE_RESULT);
+            }
         } catch (Exception ex) {
             log.warn("testEnded() with exception: {}", ex, ex);
         }
-        if (listenerClientData.queueWaits.longValue() > 0) {
+        BackendQueueMetrics queueMetrics = listenerClientData.queueMetrics;
+        if (queueMetrics.getQueueWaits() > 0) {
             log.warn(
                     "QueueWaits: {}; QueueWaitTime: {} (nanoseconds), you may need to increase queue capacity, see property 'backend_queue_capacity'",
-                    listenerClientData.queueWaits, listenerClientData.queueWaitTime);
+                    queueMetrics.getQueueWaits(), queueMetrics.getQueueWaitTime());
+        }
+        if (queueMetrics.getDroppedSamples() > 0) {
+            log.warn(
+                    "Dropped samples: {}, you may need to increase queue capacity or the number of workers, see property 'backend_workers'",
+                    queueMetrics.getDroppedSamples());
         }
         try {
             listenerClientData.latch.await();
-            BackendListenerContext context = new BackendListenerContext(getArguments());
+            BackendListenerContext context = new BackendListenerContext(getArguments(), queueMetrics);
             listenerClientData.client.teardownTest(context);
         } catch (Exception e) {
             throw new java.lang.IllegalStateException("Failed calling teardownTest", e);
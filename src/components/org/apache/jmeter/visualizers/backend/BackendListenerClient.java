@@ -82,6 +82,10 @@ public interface BackendListenerClient {
      * <li>Write to a distant server</li>
      * <li>...</li>
      * </ul>
+     * <p>
+     * The list is reused by the caller for the next batch once this method
+     * returns, so implementations must not keep a reference to it.
+     * </p>
      * @param sampleResults List of {@link SampleResult}
      * @param context
      *            the context to run with. This provides access to
@@ -90,6 +94,20 @@ public interface BackendListenerClient {
      */
     void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context);
 
+    /**
+     * Tells whether {@link #handleSampleResults(List, BackendListenerContext)}
+     * can be called concurrently by several workers, see property
+     * <code>backend_workers</code>. Samples are partitioned between the
+     * workers by sample label, so all the samples of one label are handled in
+     * order by the same worker.
+     *
+     * @return true if this client supports concurrent calls, defaults to false
+     * @since 5.1
+     */
+    default boolean supportsConcurrentCalls() {
+        return false;
+    }
+
     /**
      * Do any clean-up required at the end of a test run.
      *
@@ -50,12 +50,31 @@ public class BackendListenerContext {
      */
     private final Map<String, String> params;
 
+    /**
+     * Metrics of the queues of the listener, set by {@link BackendListener}
+     */
+    private final BackendQueueMetrics queueMetrics;
+
     /**
      * @param args
      *            the initialization parameters.
      */
     public BackendListenerContext(Arguments args) {
+        this(args, null);
+    }
+
+    BackendListenerContext(Arguments args, BackendQueueMetrics queueMetrics) {
         this.params = args.getArgumentsAsMap();
+        this.queueMetrics = queueMetrics;
+    }
+
+    /**
+     * @return the metrics of the queues feeding the client, or null if the
+     *         context was not created by a {@link BackendListener}
+     * @since 5.1
+     */
+    public BackendQueueMetrics getQueueMetrics() {
+        return queueMetrics;
     }
 
     /**
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Metrics of the queues between the sampler threads and the workers of a
+ * {@link BackendListener}, available to clients through
+ * {@link BackendListenerContext#getQueueMetrics()}
+ * @since 5.1
+ */
+public final class BackendQueueMetrics {
+
+    private final BlockingQueue<SampleResult>[] queues;
+    /** how many times we had to wait to queue a SampleResult */
+    private final LongAdder queueWaits = new LongAdder();
+    /** how long we had to wait (nanoSeconds) */
+    private final LongAdder queueWaitTime = new LongAdder();
+    /** how many SampleResults were dropped because the queue was full */
+    private final LongAdder droppedSamples = new LongAdder();
+
+    BackendQueueMetrics(BlockingQueue<SampleResult>[] queues) {
+        this.queues = queues;
+    }
+
+    void addWait(long waitTimeNanos) {
+        queueWaits.increment();
+        queueWaitTime.add(waitTimeNanos);
+    }
+
+    void addDroppedSample() {
+        droppedSamples.increment();
+    }
+
+    /**
+     * @return the number of workers, each one having its own queue
+     */
+    public int getWorkers() {
+        return queues.length;
+    }
+
+    /**
+     * @return the number of samples waiting in all the queues
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<SampleResult> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return how many times a sampler thread had to wait because a queue was full
+     */
+    public long getQueueWaits() {
+        return queueWaits.sum();
+    }
+
+    /**
+     * @return how long sampler threads had to wait because a queue was full, in nanoseconds
+     */
+    public long getQueueWaitTime() {
+        return queueWaitTime.sum();
+    }
+
+    /**
+     * @return how many samples were dropped because a queue was full, see
+     *         property <code>backend_queue_drop_when_full</code>
+     */
+    public long getDroppedSamples() {
+        return droppedSamples.sum();
+    }
+}
@@ -42,15 +42,39 @@ public class ErrorMetric {
     }
 
     public ErrorMetric(SampleResult result) {
-        if (MetricUtils.isSuccessCode(responseCode) || 
-                (StringUtils.isEmpty(responseCode) && 
-                        !StringUtils.isEmpty(result.getFirstAssertionFailureMessage()))) {
-            responseCode = MetricUtils.ASSERTION_FAILED;
-            responseMessage = result.getFirstAssertionFailureMessage();
-        } else {
-            responseCode = result.getResponseCode();
-            responseMessage = result.getResponseMessage();
-        }
+        this(getErrorCode(result), getErrorMessage(result));
+    }
+
+    /**
+     * @param responseCode response code of the error, as returned by {@link #getErrorCode(SampleResult)}
+     * @param responseMessage response message of the error, as returned by {@link #getErrorMessage(SampleResult)}
+     * @since 5.1
+     */
+    public ErrorMetric(String responseCode, String responseMessage) {
+        this.responseCode = responseCode == null ? "" : responseCode;
+        this.responseMessage = responseMessage == null ? "" : responseMessage;
+    }
+
+    /**
+     * @param result failed {@link SampleResult}
+     * @return the code used to report the error of result
+     * @since 5.1
+     */
+    public static String getErrorCode(SampleResult result) {
+        return isAssertionFailure(result) ? MetricUtils.ASSERTION_FAILED : result.getResponseCode();
+    }
+
+    /**
+     * @param result failed {@link SampleResult}
+     * @return the message used to report the error of result
+     * @since 5.1
+     */
+    public static String getErrorMessage(SampleResult result) {
+        return isAssertionFailure(result) ? result.getFirstAssertionFailureMessage() : result.getResponseMessage();
+    }
+
+    private static boolean isAssertionFailure(SampleResult result) {
+        return !StringUtils.isEmpty(result.getFirstAssertionFailureMessage());
     }
 
     /**
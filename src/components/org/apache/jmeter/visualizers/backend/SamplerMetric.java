@@ -18,18 +18,28 @@
 
 package org.apache.jmeter.visualizers.backend;
 
+import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.jmeter.control.TransactionController;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.math.LatencyHistogram;
 
 /**
  * Sampler metric
+ * <p>
+ * Samples are recorded by each calling thread in its own {@link Recorder},
+ * using primitive counters, {@link LatencyHistogram}s and fixed size
+ * buffers, so {@link #add(SampleResult)} neither locks nor allocates.
+ * The recorders are collapsed into the statistics returned by the getters
+ * once per time interval, see {@link #collect()}.
+ * </p>
  * @since 2.13
  */
 public class SamplerMetric {
@@ -38,6 +48,12 @@ public class SamplerMetric {
 
     private static final WindowMode WINDOW_MODE = WindowMode.get();
 
+    /**
+     * In TIMED mode, response times of the time interval are kept in
+     * histograms, in FIXED mode they are kept in sliding windows
+     */
+    private final boolean timed = WINDOW_MODE == WindowMode.TIMED;
+
     /**
      * Response times for OK samples
      */
@@ -54,6 +70,12 @@ public class SamplerMetric {
      *  OK, KO, ALL stats
      */
     private List<DescriptiveStatistics> windowedStats = initWindowedStats();
+    /**
+     * Response times of the time interval for TIMED mode
+     */
+    private final LatencyHistogram okResponsesHistogram = new LatencyHistogram();
+    private final LatencyHistogram koResponsesHistogram = new LatencyHistogram();
+    private final LatencyHistogram allResponsesHistogram = new LatencyHistogram();
     /**
      * Timeboxed percentiles don't makes sense
      */
@@ -65,7 +87,18 @@ public class SamplerMetric {
     private long sentBytes;
     private long receivedBytes;
 
-    
+    /**
+     * Recorders of the live threads which added samples to this metric, the
+     * recorders of finished threads are removed once collapsed
+     */
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::newRecorder);
+    /**
+     * Set by {@link #collect()}, the statistics are then not updated until
+     * the next {@link #resetForTimeInterval()}
+     */
+    private boolean collected;
+
     /**
      * 
      */
@@ -85,57 +118,94 @@ public class SamplerMetric {
         return Arrays.asList(okResponsesStats, koResponsesStats, allResponsesStats);
     }
 
+    private Recorder newRecorder() {
+        Recorder newRecorder = new Recorder(timed);
+        recorders.add(newRecorder);
+        return newRecorder;
+    }
+
     /**
      * Add a {@link SampleResult} to be used in the statistics
+     * <p>
+     * This method can be called concurrently by several threads, each one
+     * records into its own buffers without locking.
+     * </p>
      * @param result {@link SampleResult} to be used
      */
-    public synchronized void add(SampleResult result) {
-        if(result.isSuccessful()) {
-            successes+=result.getSampleCount()-result.getErrorCount();
-        } else {
-            failures+=result.getErrorCount();
-            ErrorMetric error = new ErrorMetric(result);
-            errors.put(error, errors.getOrDefault(error, 0) + result.getErrorCount() );
-        }       
-        long time = result.getTime();
-        allResponsesStats.addValue(time);
-        pctResponseStats.addValue(time);
-        if(result.isSuccessful()) {
-            // Should we also compute KO , all response time ?
-            // only take successful requests for time computing
-            okResponsesStats.addValue(time);
-        }else {
-            koResponsesStats.addValue(time);
-        }
-        addHits(result);
-        addNetworkData(result);
+    public void add(SampleResult result) {
+        recorder.get().add(result);
     }
 
     /**
-     * Increment traffic metrics. A Parent sampler cumulates its children metrics.
-     * @param result SampleResult
+     * Collapse the samples added since the last call into the statistics
+     * returned by the getters, and keep these statistics unchanged until the
+     * next {@link #resetForTimeInterval()}, so that all the values reported
+     * for a time interval are consistent.
+     * <p>
+     * Samples added after this call are reported in the next time interval.
+     * Calling it is optional, when it has not been called the getters
+     * collapse the samples added so far.
+     * </p>
+     * @since 5.1
      */
-    private void addNetworkData(SampleResult result) {
-        if (!TransactionController.isFromTransactionController(result)) {
-            sentBytes += result.getSentBytes();
-            receivedBytes += result.getBytesAsLong();
+    public synchronized void collect() {
+        collapse();
+        collected = true;
+    }
+
+    private synchronized void update() {
+        if (!collected) {
+            collapse();
+        }
+    }
+
+    private void collapse() {
+        for (Recorder r : recorders) {
+            // Checked before the flip: a finished thread can't add samples
+            // after it, so nothing is lost when its recorder is removed
+            boolean retired = !r.isOwnerAlive();
+            Interval interval = r.flip();
+            if (interval != null) {
+                merge(interval);
+                interval.reset();
+            }
+            if (retired) {
+                recorders.remove(r);
+            }
         }
     }
 
     /**
-     * Compute hits from res
-     * @param res {@link SampleResult}
+     * @return the number of recorders of threads which added samples to this
+     *         metric and were alive at the last collapse
      */
-    private void addHits(SampleResult res) {     
-        SampleResult[] subResults = res.getSubResults();
-        if (!TransactionController.isFromTransactionController(res)) {
-            hits += 1;
-        }
-        for (SampleResult subResult : subResults) {
-            addHits(subResult);
+    int getRecorderCount() {
+        return recorders.size();
+    }
+
+    private void merge(Interval interval) {
+        successes += interval.successes;
+        failures += interval.failures;
+        hits += interval.hits;
+        sentBytes += interval.sentBytes;
+        receivedBytes += interval.receivedBytes;
+        interval.pctResponses.drainTo(pctResponseStats);
+        if (timed) {
+            okResponsesHistogram.add(interval.okResponsesHistogram);
+            koResponsesHistogram.add(interval.koResponsesHistogram);
+            allResponsesHistogram.add(interval.allResponsesHistogram);
+        } else {
+            interval.okResponses.drainTo(okResponsesStats);
+            interval.koResponses.drainTo(koResponsesStats);
+            interval.allResponses.drainTo(allResponsesStats);
         }
+        interval.errors.forEach((code, messages) -> messages.forEach((message, count) -> {
+            if (count[0] > 0) {
+                errors.merge(new ErrorMetric(code, message), count[0], Integer::sum);
+            }
+        }));
     }
-    
+
     /**
      * Reset metric except for percentile related data
      */
@@ -149,6 +219,9 @@ public class SamplerMetric {
             for (DescriptiveStatistics stat : windowedStats) {
                 stat.clear();
             }
+            okResponsesHistogram.reset();
+            koResponsesHistogram.reset();
+            allResponsesHistogram.reset();
             break;
         default: 
             // This cannot happen
@@ -159,6 +232,7 @@ public class SamplerMetric {
         hits = 0;
         sentBytes = 0;
         receivedBytes = 0;
+        collected = false;
     }
 
     /**
@@ -167,6 +241,7 @@ public class SamplerMetric {
      * @return number of total requests
      */
     public int getTotal() {
+        update();
         return successes+failures;
     }
     
@@ -176,6 +251,7 @@ public class SamplerMetric {
      * @return number of successful requests
      */
     public int getSuccesses() {
+        update();
         return successes;
     }
 
@@ -185,6 +261,7 @@ public class SamplerMetric {
      * @return number of failed requests
      */
     public int getFailures() {
+        update();
         return failures;
     }
 
@@ -195,7 +272,8 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getOkMaxTime() {
-        return okResponsesStats.getMax();
+        update();
+        return timed ? okResponsesHistogram.getMax() : okResponsesStats.getMax();
     }
 
     /**
@@ -205,7 +283,8 @@ public class SamplerMetric {
      *         added yet
      */
     public double getOkMinTime() {
-        return okResponsesStats.getMin();
+        update();
+        return timed ? okResponsesHistogram.getMin() : okResponsesStats.getMin();
     }
     
     /**
@@ -214,7 +293,8 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getOkMean() {
-        return okResponsesStats.getMean();
+        update();
+        return timed ? okResponsesHistogram.getMean() : okResponsesStats.getMean();
     }
     
     /**
@@ -226,7 +306,8 @@ public class SamplerMetric {
      *         values.
      */
     public double getOkPercentile(double percentile) {
-        return okResponsesStats.getPercentile(percentile);
+        update();
+        return timed ? okResponsesHistogram.getPercentile(percentile) : okResponsesStats.getPercentile(percentile);
     }
 
     /**
@@ -236,7 +317,8 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getKoMaxTime() {
-        return koResponsesStats.getMax();
+        update();
+        return timed ? koResponsesHistogram.getMax() : koResponsesStats.getMax();
     }
 
     /**
@@ -246,7 +328,8 @@ public class SamplerMetric {
      *         added yet
      */
     public double getKoMinTime() {
-        return koResponsesStats.getMin();
+        update();
+        return timed ? koResponsesHistogram.getMin() : koResponsesStats.getMin();
     }
     
     /**
@@ -255,7 +338,8 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getKoMean() {
-        return koResponsesStats.getMean();
+        update();
+        return timed ? koResponsesHistogram.getMean() : koResponsesStats.getMean();
     }
     
     /**
@@ -267,7 +351,8 @@ public class SamplerMetric {
      *         values.
      */
     public double getKoPercentile(double percentile) {
-        return koResponsesStats.getPercentile(percentile);
+        update();
+        return timed ? koResponsesHistogram.getPercentile(percentile) : koResponsesStats.getPercentile(percentile);
     }
     
     /**
@@ -277,7 +362,8 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getAllMaxTime() {
-        return allResponsesStats.getMax();
+        update();
+        return timed ? allResponsesHistogram.getMax() : allResponsesStats.getMax();
     }
 
     /**
@@ -287,7 +373,8 @@ public class SamplerMetric {
      *         added yet
      */
     public double getAllMinTime() {
-        return allResponsesStats.getMin();
+        update();
+        return timed ? allResponsesHistogram.getMin() : allResponsesStats.getMin();
     }
     
     /**
@@ -296,7 +383,8 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getAllMean() {
-        return allResponsesStats.getMean();
+        update();
+        return timed ? allResponsesHistogram.getMean() : allResponsesStats.getMean();
     }
     
     /**
@@ -308,6 +396,7 @@ public class SamplerMetric {
      *         values.
      */
     public double getAllPercentile(double percentile) {
+        update();
         return pctResponseStats.getPercentile(percentile);
     }
 
@@ -316,6 +405,7 @@ public class SamplerMetric {
      * @return the hits
      */
     public int getHits() {
+        update();
         return hits;
     }
     
@@ -324,6 +414,7 @@ public class SamplerMetric {
      * @return errors
      */
     public Map<ErrorMetric, Integer> getErrors() {
+        update();
         return errors;
     }
 
@@ -331,6 +422,7 @@ public class SamplerMetric {
      * @return the sentBytes
      */
     public long getSentBytes() {
+        update();
         return sentBytes;
     }
 
@@ -338,6 +430,227 @@ public class SamplerMetric {
      * @return the receivedBytes
      */
     public long getReceivedBytes() {
+        update();
         return receivedBytes;
     }
+
+    /**
+     * Records the samples added by one thread.
+     * <p>
+     * Only the owner thread writes to the active {@link Interval}. To collect
+     * it, the collecting thread swaps the active and inactive intervals, then
+     * waits for an add which may have started on the previous active interval
+     * to complete.
+     * </p>
+     */
+    private static final class Recorder {
+        /** Does not keep finished threads from being garbage collected */
+        private final WeakReference<Thread> owner = new WeakReference<>(Thread.currentThread());
+        private volatile Interval active;
+        private Interval inactive;
+        /** Incremented by the owner thread before each add */
+        private volatile long startCount;
+        /** Set to startCount by the owner thread after each add */
+        private volatile long endCount;
+        /** Value of startCount before the last flip, only used by the collecting thread */
+        private long flippedCount;
+
+        Recorder(boolean timed) {
+            active = new Interval(timed);
+            inactive = new Interval(timed);
+        }
+
+        void add(SampleResult result) {
+            long count = startCount + 1;
+            startCount = count;
+            try {
+                active.add(result);
+            } finally {
+                endCount = count;
+            }
+        }
+
+        boolean isOwnerAlive() {
+            Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        /**
+         * @return the interval holding the samples added since the last flip,
+         *         or null if no sample was added
+         */
+        Interval flip() {
+            long count = startCount;
+            if (count == flippedCount) {
+                return null;
+            }
+            Interval interval = active;
+            active = inactive;
+            inactive = interval;
+            long started = startCount;
+            while (endCount < started) {
+                Thread.yield();
+            }
+            flippedCount = count;
+            return interval;
+        }
+    }
+
+    /**
+     * Samples recorded by one thread since the last collect.
+     * This class is not thread safe.
+     */
+    private static final class Interval {
+        private int successes;
+        private int failures;
+        private int hits;
+        private long sentBytes;
+        private long receivedBytes;
+        private final ValueWindow pctResponses = new ValueWindow(SLIDING_WINDOW_SIZE);
+        /** Response times for FIXED mode */
+        private final ValueWindow okResponses;
+        private final ValueWindow koResponses;
+        private final ValueWindow allResponses;
+        /** Response times for TIMED mode */
+        private final LatencyHistogram okResponsesHistogram;
+        private final LatencyHistogram koResponsesHistogram;
+        private final LatencyHistogram allResponsesHistogram;
+        /**
+         * Error counts by response code and response message, entries are
+         * kept across resets to avoid allocating them again
+         */
+        private final Map<String, Map<String, int[]>> errors = new HashMap<>();
+
+        Interval(boolean timed) {
+            if (timed) {
+                okResponses = null;
+                koResponses = null;
+                allResponses = null;
+                okResponsesHistogram = new LatencyHistogram();
+                koResponsesHistogram = new LatencyHistogram();
+                allResponsesHistogram = new LatencyHistogram();
+            } else {
+                okResponses = new ValueWindow(SLIDING_WINDOW_SIZE);
+                koResponses = new ValueWindow(SLIDING_WINDOW_SIZE);
+                allResponses = new ValueWindow(SLIDING_WINDOW_SIZE);
+                okResponsesHistogram = null;
+                koResponsesHistogram = null;
+                allResponsesHistogram = null;
+            }
+        }
+
+        void add(SampleResult result) {
+            long time = result.getTime();
+            pctResponses.add(time);
+            if (allResponses != null) {
+                allResponses.add(time);
+            } else {
+                allResponsesHistogram.add(time);
+            }
+            if(result.isSuccessful()) {
+                successes+=result.getSampleCount()-result.getErrorCount();
+                // only take successful requests for time computing
+                if (okResponses != null) {
+                    okResponses.add(time);
+                } else {
+                    okResponsesHistogram.add(time);
+                }
+            } else {
+                failures+=result.getErrorCount();
+                addError(result);
+                if (koResponses != null) {
+                    koResponses.add(time);
+                } else {
+                    koResponsesHistogram.add(time);
+                }
+            }
+            addHits(result);
+            addNetworkData(result);
+        }
+
+        private void addError(SampleResult result) {
+            String code = ErrorMetric.getErrorCode(result);
+            String message = ErrorMetric.getErrorMessage(result);
+            Map<String, int[]> messages = errors.get(code);
+            if (messages == null) {
+                messages = new HashMap<>();
+                errors.put(code, messages);
+            }
+            int[] count = messages.get(message);
+            if (count == null) {
+                count = new int[1];
+                messages.put(message, count);
+            }
+            count[0] += result.getErrorCount();
+        }
+
+        /**
+         * Increment traffic metrics. A Parent sampler cumulates its children metrics.
+         * @param result SampleResult
+         */
+        private void addNetworkData(SampleResult result) {
+            if (!TransactionController.isFromTransactionController(result)) {
+                sentBytes += result.getSentBytes();
+                receivedBytes += result.getBytesAsLong();
+            }
+        }
+
+        /**
+         * Compute hits from res
+         * @param res {@link SampleResult}
+         */
+        private void addHits(SampleResult res) {
+            if (!TransactionController.isFromTransactionController(res)) {
+                hits += 1;
+            }
+            for (SampleResult subResult : res.getSubResults()) {
+                addHits(subResult);
+            }
+        }
+
+        void reset() {
+            successes = 0;
+            failures = 0;
+            hits = 0;
+            sentBytes = 0;
+            receivedBytes = 0;
+            for (Map<String, int[]> messages : errors.values()) {
+                for (int[] count : messages.values()) {
+                    count[0] = 0;
+                }
+            }
+            if (okResponsesHistogram != null) {
+                okResponsesHistogram.reset();
+                koResponsesHistogram.reset();
+                allResponsesHistogram.reset();
+            }
+        }
+    }
+
+    /**
+     * Keeps the last values added, up to its capacity
+     */
+    private static final class ValueWindow {
+        private final long[] values;
+        private long count;
+
+        ValueWindow(int capacity) {
+            values = new long[capacity];
+        }
+
+        void add(long value) {
+            values[(int) (count++ % values.length)] = value;
+        }
+
+        /**
+         * Add the kept values to stats in the order they were added, then
+         * empty this window
+         */
+        void drainTo(DescriptiveStatistics stats) {
+            for (long i = Math.max(0L, count - values.length); i < count; i++) {
+                stats.addValue(values[(int) (i % values.length)]);
+            }
+            count = 0;
+        }
+    }
 }
@@ -34,10 +34,13 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.apache.jmeter.visualizers.backend.BackendQueueMetrics;
 import org.apache.jmeter.visualizers.backend.SamplerMetric;
 import org.apache.jmeter.visualizers.backend.UserMetric;
 import org.slf4j.Logger;
@@ -76,6 +79,20 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     private static final String METRIC_MEAN_ACTIVE_THREADS = "meanAT"; //$NON-NLS-1$
     private static final String METRIC_STARTED_THREADS = "startedT"; //$NON-NLS-1$
     private static final String METRIC_FINISHED_THREADS = "endedT"; //$NON-NLS-1$
+
+    // Backend Listener queue Metrics
+    private static final String QUEUE_CONTEXT_NAME = TEST_CONTEXT_NAME + ".queue"; //$NON-NLS-1$
+    private static final String METRIC_QUEUE_DEPTH = "depth"; //$NON-NLS-1$
+    private static final String METRIC_QUEUE_WAITS = "waits"; //$NON-NLS-1$
+    private static final String METRIC_QUEUE_DROPPED = "dropped"; //$NON-NLS-1$
+
+    // Connection pool Metrics
+    private static final String POOL_CONTEXT_PREFIX = TEST_CONTEXT_NAME + ".pool."; //$NON-NLS-1$
+    private static final String METRIC_POOL_ACTIVE = "active"; //$NON-NLS-1$
+    private static final String METRIC_POOL_IDLE = "idle"; //$NON-NLS-1$
+    private static final String METRIC_POOL_WAITERS = "waiters"; //$NON-NLS-1$
+    private static final String METRIC_POOL_MAX = "max"; //$NON-NLS-1$
+    private static final String METRIC_POOL_BORROW_WAIT = "borrowWait"; //$NON-NLS-1$
     
     // Response time Metrics
     private static final String METRIC_SEPARATOR = "."; //$NON-NLS-1$
@@ -135,6 +152,8 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
 
     private GraphiteMetricsSender graphiteMetricsManager;
 
+    private BackendQueueMetrics queueMetrics;
+
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> timerHandle;
     
@@ -159,6 +178,7 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
             for (Map.Entry<String, SamplerMetric> entry : getMetricsPerSampler().entrySet()) {
                 final String key = entry.getKey();
                 final SamplerMetric metric = entry.getValue();
+                metric.collect();
                 if(key.equals(CUMULATED_METRICS)) {
                     addMetrics(timestampInSeconds, ALL_CONTEXT_NAME, metric);
                 } else {
@@ -184,10 +204,40 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
         graphiteMetricsManager.addMetric(timestampInSeconds, TEST_CONTEXT_NAME,
                 METRIC_FINISHED_THREADS,
                 Integer.toString(userMetric.getFinishedThreads()));
+        if (queueMetrics != null) {
+            graphiteMetricsManager.addMetric(timestampInSeconds, QUEUE_CONTEXT_NAME,
+                    METRIC_QUEUE_DEPTH, Integer.toString(queueMetrics.getQueueDepth()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, QUEUE_CONTEXT_NAME,
+                    METRIC_QUEUE_WAITS, Long.toString(queueMetrics.getQueueWaits()));
+            graphiteMetricsManager.addMetric(timestampInSeconds, QUEUE_CONTEXT_NAME,
+                    METRIC_QUEUE_DROPPED, Long.toString(queueMetrics.getDroppedSamples()));
+        }
+        for (ConnectionPoolMetrics pool : ConnectionPoolRegistry.getPools()) {
+            addPoolMetrics(timestampInSeconds, pool);
+        }
 
         graphiteMetricsManager.writeAndSendMetrics();
     }
 
+    /**
+     * Add gauges of a connection pool to metrics manager.
+     * @param timestampInSeconds long
+     * @param pool {@link ConnectionPoolMetrics}
+     */
+    private void addPoolMetrics(long timestampInSeconds, ConnectionPoolMetrics pool) {
+        String contextName = POOL_CONTEXT_PREFIX + AbstractGraphiteMetricsSender.sanitizeString(pool.getPoolName());
+        graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                METRIC_POOL_ACTIVE, Integer.toString(pool.getNumActive()));
+        graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                METRIC_POOL_IDLE, Integer.toString(pool.getNumIdle()));
+        graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                METRIC_POOL_WAITERS, Integer.toString(pool.getNumWaiters()));
+        graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                METRIC_POOL_MAX, Integer.toString(pool.getMaxTotal()));
+        graphiteMetricsManager.addMetric(timestampInSeconds, contextName,
+                METRIC_POOL_BORROW_WAIT, Long.toString(pool.getMeanBorrowWaitTime()));
+    }
+
 
     /**
      * Add request metrics to metrics manager.
@@ -279,32 +329,39 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     public void handleSampleResults(List<SampleResult> sampleResults,
             BackendListenerContext context) {
         boolean samplersToFilterMatch;
-        synchronized (LOCK) {
-            UserMetric userMetrics = getUserMetrics();
-            for (SampleResult sampleResult : sampleResults) {
-                userMetrics.add(sampleResult);
-                
-                if(!summaryOnly) {
-                    if (useRegexpForSamplersList) {
-                        Matcher matcher = pattern.matcher(sampleResult.getSampleLabel());
-                        samplersToFilterMatch = matcher.matches();
-                    } else {
-                        samplersToFilterMatch = samplersToFilter.contains(sampleResult.getSampleLabel()); 
-                    }
-                    if (samplersToFilterMatch) {
-                        SamplerMetric samplerMetric = getSamplerMetric(sampleResult.getSampleLabel());
-                        samplerMetric.add(sampleResult);
-                    }
+        UserMetric userMetrics = getUserMetrics();
+        for (SampleResult sampleResult : sampleResults) {
+            userMetrics.add(sampleResult);
+            
+            if(!summaryOnly) {
+                if (useRegexpForSamplersList) {
+                    Matcher matcher = pattern.matcher(sampleResult.getSampleLabel());
+                    samplersToFilterMatch = matcher.matches();
+                } else {
+                    samplersToFilterMatch = samplersToFilter.contains(sampleResult.getSampleLabel()); 
+                }
+                if (samplersToFilterMatch) {
+                    SamplerMetric samplerMetric = getSamplerMetric(sampleResult.getSampleLabel());
+                    samplerMetric.add(sampleResult);
                 }
-                SamplerMetric cumulatedMetrics = getSamplerMetric(CUMULATED_METRICS);
-                cumulatedMetrics.add(sampleResult);
             }
+            SamplerMetric cumulatedMetrics = getSamplerMetric(CUMULATED_METRICS);
+            cumulatedMetrics.add(sampleResult);
         }
     }
 
+    /**
+     * Metrics are aggregated without locking by each worker, see {@link SamplerMetric#add(SampleResult)}
+     */
+    @Override
+    public boolean supportsConcurrentCalls() {
+        return true;
+    }
+
     @Override
     public void setupTest(BackendListenerContext context) throws Exception {
         String graphiteMetricsSenderClass = context.getParameter(GRAPHITE_METRICS_SENDER);
+        queueMetrics = context.getQueueMetrics();
         
         graphiteHost = context.getParameter(GRAPHITE_HOST);
         graphitePort = context.getIntParameter(GRAPHITE_PORT, DEFAULT_PLAINTEXT_PROTOCOL_PORT);
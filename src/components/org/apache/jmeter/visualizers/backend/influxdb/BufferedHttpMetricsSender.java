@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend.influxdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * InfluxDB sender based on the Line Protocol, like {@link HttpMetricsSender},
+ * which:
+ * <ul>
+ * <li>writes metrics directly as UTF-8 bytes into reusable buffers</li>
+ * <li>sends each batch gzip compressed from its own thread, so a slow InfluxDB
+ * never blocks the thread sending metrics</li>
+ * <li>keeps the batches which could not be sent in a bounded retry buffer, and
+ * retries them with an exponential backoff. When the buffer is full, the
+ * oldest batches are dropped</li>
+ * </ul>
+ *
+ * @since 5.1
+ */
+class BufferedHttpMetricsSender extends AbstractInfluxdbMetricsSender {
+    private static final Logger log = LoggerFactory.getLogger(BufferedHttpMetricsSender.class);
+
+    private static final int RETRY_BUFFER_SIZE =
+            JMeterUtils.getPropDefault("backend_influxdb.retry_buffer_size", 16 * 1024 * 1024);
+    private static final long MIN_RETRY_DELAY = 500L;
+    private static final long MAX_RETRY_DELAY =
+            JMeterUtils.getPropDefault("backend_influxdb.retry_max_delay", 30000L);
+    /** How long destroy() waits for the pending batches to be sent */
+    private static final long DESTROY_TIMEOUT = 5000L;
+    private static final ContentType CONTENT_TYPE = ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8);
+    /** Number of empty batches kept for reuse */
+    private static final int MAX_FREE_BATCHES = 2;
+
+    private final int retryBufferSize;
+    private final long minRetryDelay;
+
+    private final Object lock = new Object();
+    // @GuardedBy("lock")
+    private Batch current = new Batch();
+    /** Batches waiting to be sent, oldest first */
+    // @GuardedBy("lock")
+    private final Deque<Batch> pending = new ArrayDeque<>();
+    // @GuardedBy("lock")
+    private long pendingBytes;
+    // @GuardedBy("lock")
+    private final Deque<Batch> free = new ArrayDeque<>();
+    // @GuardedBy("lock")
+    private boolean running;
+
+    private final AtomicLong sentMetrics = new AtomicLong();
+    private final AtomicLong droppedMetrics = new AtomicLong();
+
+    private CloseableHttpClient httpClient;
+    private URI uri;
+    private RequestConfig requestConfig;
+    private Thread senderThread;
+    /** Compressed batch, only used by the sender thread */
+    private final CompressedBuffer compressed = new CompressedBuffer();
+
+    BufferedHttpMetricsSender() {
+        this(RETRY_BUFFER_SIZE, MIN_RETRY_DELAY);
+    }
+
+    BufferedHttpMetricsSender(int retryBufferSize, long minRetryDelay) {
+        super();
+        this.retryBufferSize = retryBufferSize;
+        this.minRetryDelay = minRetryDelay;
+    }
+
+    /**
+     * @param influxdbUrl
+     *            example : http://localhost:8086/write?db=myd&amp;rp=one_week
+     * @see org.apache.jmeter.visualizers.backend.influxdb.InfluxdbMetricsSender#setup(java.lang.String)
+     */
+    @Override
+    public void setup(String influxdbUrl) throws Exception {
+        uri = new URL(influxdbUrl).toURI();
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(JMeterUtils.getPropDefault("backend_influxdb.connection_timeout", 1000))
+                .setSocketTimeout(JMeterUtils.getPropDefault("backend_influxdb.socket_timeout", 3000))
+                .setConnectionRequestTimeout(JMeterUtils.getPropDefault("backend_influxdb.connection_request_timeout", 100))
+                .build();
+        httpClient = HttpClients.custom()
+                .setMaxConnPerRoute(1)
+                .setMaxConnTotal(1)
+                .setUserAgent("ApacheJMeter"+JMeterUtils.getJMeterVersion())
+                .disableCookieManagement()
+                .disableConnectionState()
+                .disableContentCompression()
+                .build();
+        synchronized (lock) {
+            running = true;
+        }
+        senderThread = new Thread(this::sendLoop, "InfluxdbSender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+        log.debug("Created BufferedHttpMetricsSender with url: {}", uri);
+    }
+
+    @Override
+    public void addMetric(String measurement, String tag, String field) {
+        long timestamp = System.currentTimeMillis();
+        synchronized (lock) {
+            // Add TimeStamp in nanosecond from epoch ( default in InfluxDB )
+            current.append(measurement)
+                .append(tag)
+                .append((byte) ' ')
+                .append(field)
+                .append((byte) ' ')
+                .append(timestamp)
+                .append("000000") //$NON-NLS-1$
+                .append((byte) '\n');
+            current.count++;
+        }
+    }
+
+    /**
+     * Hand the metrics added since the last call to the sender thread, this
+     * never blocks on the network
+     * @see org.apache.jmeter.visualizers.backend.influxdb.InfluxdbMetricsSender#writeAndSendMetrics()
+     */
+    @Override
+    public void writeAndSendMetrics() {
+        synchronized (lock) {
+            if (current.count == 0) {
+                return;
+            }
+            pending.addLast(current);
+            pendingBytes += current.length;
+            current = free.isEmpty() ? new Batch() : free.removeFirst();
+            dropOldestBatches();
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Drop the oldest batches until the retry buffer size is respected, the
+     * newest batch is always kept
+     */
+    // @GuardedBy("lock")
+    private void dropOldestBatches() {
+        while (pendingBytes > retryBufferSize && pending.size() > 1) {
+            Batch dropped = pending.removeFirst();
+            pendingBytes -= dropped.length;
+            droppedMetrics.addAndGet(dropped.count);
+            log.warn("Retry buffer full ({} bytes), dropping {} metrics not sent to InfluxDB", retryBufferSize,
+                    dropped.count);
+            recycle(dropped);
+        }
+    }
+
+    // @GuardedBy("lock")
+    private void recycle(Batch batch) {
+        batch.reset();
+        if (free.size() < MAX_FREE_BATCHES) {
+            free.addLast(batch);
+        }
+    }
+
+    private void sendLoop() {
+        long retryDelay = minRetryDelay;
+        try {
+            Batch batch;
+            while ((batch = takeBatch()) != null) {
+                boolean done = send(batch);
+                synchronized (lock) {
+                    if (done) {
+                        recycle(batch);
+                        retryDelay = minRetryDelay;
+                        continue;
+                    }
+                    if (!running) {
+                        // Don't retry while shutting down
+                        droppedMetrics.addAndGet(batch.count);
+                        recycle(batch);
+                        continue;
+                    }
+                    pending.addFirst(batch);
+                    pendingBytes += batch.length;
+                    dropOldestBatches();
+                    awaitRetry(retryDelay);
+                }
+                retryDelay = Math.min(MAX_RETRY_DELAY, 2 * retryDelay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait before sending the batches again. New batches wake this thread
+     * up, they must not cut the backoff short, only destroy() does.
+     * @param retryDelay delay in milliseconds
+     * @throws InterruptedException when interrupted while waiting
+     */
+    // @GuardedBy("lock")
+    private void awaitRetry(long retryDelay) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelay);
+        long remaining;
+        while (running && (remaining = deadline - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+        }
+    }
+
+    /**
+     * @return the oldest pending batch, or null when destroyed and no batch is pending
+     * @throws InterruptedException when interrupted while waiting for a batch
+     */
+    private Batch takeBatch() throws InterruptedException {
+        synchronized (lock) {
+            while (pending.isEmpty()) {
+                if (!running) {
+                    return null;
+                }
+                lock.wait();
+            }
+            Batch batch = pending.removeFirst();
+            pendingBytes -= batch.length;
+            return batch;
+        }
+    }
+
+    /**
+     * @param batch {@link Batch} to send
+     * @return true if the batch was handled by InfluxDB, false if it should be sent again
+     */
+    private boolean send(Batch batch) {
+        try {
+            compressed.reset();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(batch.data, 0, batch.length);
+            }
+            HttpPost request = new HttpPost(uri);
+            request.setConfig(requestConfig);
+            request.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            request.setEntity(compressed.toEntity());
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                EntityUtils.consumeQuietly(response.getEntity());
+                /*
+                 * HTTP response summary 2xx: If your write request received
+                 * HTTP 204 No Content, it was a success! 4xx: InfluxDB
+                 * could not understand the request. 5xx: The system is
+                 * overloaded or significantly impaired.
+                 */
+                int code = response.getStatusLine().getStatusCode();
+                if (code >= 200 && code < 300) {
+                    sentMetrics.addAndGet(batch.count);
+                    log.debug("Success, number of metrics written: {}", batch.count);
+                    return true;
+                }
+                if (code >= 400 && code < 500 && code != 429) {
+                    droppedMetrics.addAndGet(batch.count);
+                    log.error("InfluxDB Url: {} rejected {} metrics, responseCode: {}", uri, batch.count, code);
+                    return true;
+                }
+                log.warn("Error writing metrics to InfluxDB Url: {}, responseCode: {}, will retry", uri, code);
+                return false;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to send data to InfluxDB server: {}, will retry", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Send the pending metrics, waiting at most 5 seconds, then stop the
+     * sender thread
+     * @see org.apache.jmeter.visualizers.backend.influxdb.InfluxdbMetricsSender#destroy()
+     */
+    @Override
+    public void destroy() {
+        log.info("Destroying ");
+        writeAndSendMetrics();
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        if (senderThread != null) {
+            try {
+                senderThread.join(DESTROY_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (senderThread.isAlive()) {
+                log.error("Timeout waiting for last metrics to be sent to InfluxDB");
+                senderThread.interrupt();
+            }
+        }
+        IOUtils.closeQuietly(httpClient);
+        synchronized (lock) {
+            for (Batch batch : pending) {
+                droppedMetrics.addAndGet(batch.count);
+            }
+            pending.clear();
+            pendingBytes = 0;
+        }
+        if (droppedMetrics.get() > 0) {
+            log.warn("Metrics sent to InfluxDB: {}, dropped: {}", sentMetrics, droppedMetrics);
+        }
+    }
+
+    /**
+     * @return the number of metrics successfully sent
+     */
+    long getSentMetrics() {
+        return sentMetrics.get();
+    }
+
+    /**
+     * @return the number of metrics dropped, because they were rejected or
+     *         the retry buffer was full
+     */
+    long getDroppedMetrics() {
+        return droppedMetrics.get();
+    }
+
+    /**
+     * Line protocol of a batch of metrics, encoded in UTF-8
+     */
+    static final class Batch {
+        private byte[] data = new byte[8192];
+        private int length;
+        private int count;
+
+        Batch append(byte b) {
+            ensureCapacity(1);
+            data[length++] = b;
+            return this;
+        }
+
+        Batch append(String s) {
+            ensureCapacity(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    data[length++] = (byte) c;
+                } else {
+                    appendNonAscii(s, i);
+                    if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        i++;
+                    }
+                    ensureCapacity(s.length() - i);
+                }
+            }
+            return this;
+        }
+
+        private void appendNonAscii(String s, int i) {
+            ensureCapacity(4);
+            char c = s.charAt(i);
+            if (c < 0x800) {
+                data[length++] = (byte) (0xc0 | (c >> 6));
+                data[length++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+                data[length++] = (byte) (0xf0 | (codePoint >> 18));
+                data[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                data[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                data[length++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, same replacement as String#getBytes
+                data[length++] = (byte) '?';
+            } else {
+                data[length++] = (byte) (0xe0 | (c >> 12));
+                data[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                data[length++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        Batch append(long value) {
+            if (value < 0) {
+                if (value == Long.MIN_VALUE) {
+                    return append(Long.toString(value));
+                }
+                append((byte) '-');
+                value = -value;
+            }
+            ensureCapacity(19);
+            int start = length;
+            do {
+                data[length++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            // digits were written in reverse order
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                byte tmp = data[i];
+                data[i] = data[j];
+                data[j] = tmp;
+            }
+            return this;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + extra));
+            }
+        }
+
+        void reset() {
+            length = 0;
+            count = 0;
+        }
+
+        int getLength() {
+            return length;
+        }
+
+        byte[] getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Reusable buffer of the compressed batch, sent without copying its content
+     */
+    private static final class CompressedBuffer extends ByteArrayOutputStream {
+        CompressedBuffer() {
+            super(8192);
+        }
+
+        ByteArrayEntity toEntity() {
+            return new ByteArrayEntity(buf, 0, count, CONTENT_TYPE);
+        }
+    }
+}
@@ -34,10 +34,13 @@ import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
 import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.apache.jmeter.visualizers.backend.BackendQueueMetrics;
 import org.apache.jmeter.visualizers.backend.SamplerMetric;
 import org.apache.jmeter.visualizers.backend.UserMetric;
 import org.slf4j.Logger;
@@ -86,6 +89,17 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
     private static final String METRIC_STARTED_THREADS = "startedT=";
     private static final String METRIC_ENDED_THREADS = "endedT=";
 
+    private static final String METRIC_QUEUE_DEPTH = "queueDepth=";
+    private static final String METRIC_QUEUE_WAITS = "queueWaits=";
+    private static final String METRIC_QUEUE_DROPPED = "queueDropped=";
+
+    private static final String TAG_POOL = ",pool=";
+    private static final String METRIC_POOL_ACTIVE = "poolActive=";
+    private static final String METRIC_POOL_IDLE = "poolIdle=";
+    private static final String METRIC_POOL_WAITERS = "poolWaiters=";
+    private static final String METRIC_POOL_MAX = "poolMax=";
+    private static final String METRIC_POOL_BORROW_WAIT = "poolBorrowWait=";
+
     private static final String TAG_OK = "ok";
     private static final String TAG_KO = "ko";
     private static final String TAG_ALL = "all";
@@ -121,6 +135,7 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
     private String application = "";
     private String userTag = "";
     private InfluxdbMetricsSender influxdbMetricsManager;
+    private BackendQueueMetrics queueMetrics;
 
     private ScheduledExecutorService scheduler;
     private ScheduledFuture<?> timerHandle;
@@ -142,6 +157,7 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
         synchronized (LOCK) {
             for (Map.Entry<String, SamplerMetric> entry : getMetricsInfluxdbPerSampler().entrySet()) {
                 SamplerMetric metric = entry.getValue();
+                metric.collect();
                 if (entry.getKey().equals(CUMULATED_METRICS)) {
                     addCumulatedMetrics(metric);
                 } else {
@@ -164,12 +180,43 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
         field.append(METRIC_MEAN_ACTIVE_THREADS).append(userMetrics.getMeanActiveThreads()).append(',');
         field.append(METRIC_STARTED_THREADS).append(userMetrics.getStartedThreads()).append(',');
         field.append(METRIC_ENDED_THREADS).append(userMetrics.getFinishedThreads());
+        if (queueMetrics != null) {
+            field.append(',');
+            field.append(METRIC_QUEUE_DEPTH).append(queueMetrics.getQueueDepth()).append(',');
+            field.append(METRIC_QUEUE_WAITS).append(queueMetrics.getQueueWaits()).append(',');
+            field.append(METRIC_QUEUE_DROPPED).append(queueMetrics.getDroppedSamples());
+        }
 
         influxdbMetricsManager.addMetric(measurement, tag.toString(), field.toString());
 
+        for (ConnectionPoolMetrics pool : ConnectionPoolRegistry.getPools()) {
+            addPoolMetrics(pool);
+        }
+
         influxdbMetricsManager.writeAndSendMetrics();
     }
 
+    /**
+     * Add gauges of a connection pool to metrics manager.
+     *
+     * @param pool
+     *            {@link ConnectionPoolMetrics}
+     */
+    private void addPoolMetrics(ConnectionPoolMetrics pool) {
+        StringBuilder tag = new StringBuilder(80);
+        tag.append(TAG_APPLICATION).append(application);
+        tag.append(TAG_TRANSACTION).append("internal");
+        tag.append(TAG_POOL).append(AbstractInfluxdbMetricsSender.tagToStringValue(pool.getPoolName()));
+        tag.append(userTag);
+        StringBuilder field = new StringBuilder(80);
+        field.append(METRIC_POOL_ACTIVE).append(pool.getNumActive()).append(',');
+        field.append(METRIC_POOL_IDLE).append(pool.getNumIdle()).append(',');
+        field.append(METRIC_POOL_WAITERS).append(pool.getNumWaiters()).append(',');
+        field.append(METRIC_POOL_MAX).append(pool.getMaxTotal()).append(',');
+        field.append(METRIC_POOL_BORROW_WAIT).append(pool.getMeanBorrowWaitTime());
+        influxdbMetricsManager.addMetric(measurement, tag.toString(), field.toString());
+    }
+
     @FunctionalInterface
     private interface PercentileProvider {
         public double getPercentileValue(double percentile);
@@ -297,24 +344,31 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
 
     @Override
     public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
-        synchronized (LOCK) {
-            UserMetric userMetrics = getUserMetrics();
-            for (SampleResult sampleResult : sampleResults) {
-                userMetrics.add(sampleResult);
-                Matcher matcher = samplersToFilter.matcher(sampleResult.getSampleLabel());
-                if (!summaryOnly && (matcher.find())) {
-                    SamplerMetric samplerMetric = getSamplerMetricInfluxdb(sampleResult.getSampleLabel());
-                    samplerMetric.add(sampleResult);
-                }
-                SamplerMetric cumulatedMetrics = getSamplerMetricInfluxdb(CUMULATED_METRICS);
-                cumulatedMetrics.add(sampleResult);
+        UserMetric userMetrics = getUserMetrics();
+        for (SampleResult sampleResult : sampleResults) {
+            userMetrics.add(sampleResult);
+            Matcher matcher = samplersToFilter.matcher(sampleResult.getSampleLabel());
+            if (!summaryOnly && (matcher.find())) {
+                SamplerMetric samplerMetric = getSamplerMetricInfluxdb(sampleResult.getSampleLabel());
+                samplerMetric.add(sampleResult);
             }
+            SamplerMetric cumulatedMetrics = getSamplerMetricInfluxdb(CUMULATED_METRICS);
+            cumulatedMetrics.add(sampleResult);
         }
     }
 
+    /**
+     * Metrics are aggregated without locking by each worker, see {@link SamplerMetric#add(SampleResult)}
+     */
+    @Override
+    public boolean supportsConcurrentCalls() {
+        return true;
+    }
+
     @Override
     public void setupTest(BackendListenerContext context) throws Exception {
         String influxdbMetricsSender = context.getParameter("influxdbMetricsSender");
+        queueMetrics = context.getQueueMetrics();
         String influxdbUrl = context.getParameter("influxdbUrl");
         summaryOnly = context.getBooleanParameter("summaryOnly", false);
         samplersRegex = context.getParameter("samplersRegex", "");
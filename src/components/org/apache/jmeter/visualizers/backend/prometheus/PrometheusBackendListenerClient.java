@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
+import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Backend Listener exposing the metrics of the samples to be scraped by
+ * Prometheus, from an embedded HTTP endpoint on each JMeter instance.
+ * <p>
+ * Metrics are cumulative since the start of the test: sample counts by status,
+ * hits, error counts by response code, sent and received bytes, a response
+ * time histogram by label, and thread counts. They are served in the
+ * OpenMetrics text format when the scraper accepts it, in the Prometheus text
+ * format otherwise.
+ * </p>
+ * @see <a href="https://openmetrics.io/">OpenMetrics</a>
+ * @since 5.1
+ */
+public class PrometheusBackendListenerClient extends AbstractBackendListenerClient {
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusBackendListenerClient.class);
+
+    //+ Argument names
+    // These are stored in the JMX file, so DO NOT CHANGE ANY VALUES
+    private static final String HOST = "prometheusHost"; //$NON-NLS-1$
+    private static final String PORT = "prometheusPort"; //$NON-NLS-1$
+    private static final String PATH = "prometheusPath"; //$NON-NLS-1$
+    private static final String METRICS_PREFIX = "metricsPrefix"; //$NON-NLS-1$
+    private static final String SUMMARY_ONLY = "summaryOnly"; //$NON-NLS-1$
+    private static final String SAMPLERS_REGEX = "samplersRegex"; //$NON-NLS-1$
+    private static final String BUCKETS = "buckets"; //$NON-NLS-1$
+    //- Argument names
+
+    private static final int DEFAULT_PORT = 9270;
+    private static final String DEFAULT_PATH = "/metrics"; //$NON-NLS-1$
+    private static final String DEFAULT_METRICS_PREFIX = "jmeter_"; //$NON-NLS-1$
+    private static final String DEFAULT_BUCKETS = "10;25;50;100;250;500;1000;2500;5000;10000;30000"; //$NON-NLS-1$
+    private static final String SEPARATOR = ";"; //$NON-NLS-1$
+    private static final String ALL_LABEL = "all"; //$NON-NLS-1$
+
+    private static final String OPENMETRICS_TYPE = "application/openmetrics-text"; //$NON-NLS-1$
+    private static final String OPENMETRICS_CONTENT_TYPE = OPENMETRICS_TYPE + "; version=1.0.0; charset=utf-8"; //$NON-NLS-1$
+    private static final String TEXT_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"; //$NON-NLS-1$
+
+    private boolean summaryOnly;
+    private Pattern samplersToFilter;
+    private PrometheusMetrics metrics;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public PrometheusBackendListenerClient() {
+        super();
+    }
+
+    @Override
+    public void setupTest(BackendListenerContext context) throws Exception {
+        super.setupTest(context);
+        summaryOnly = context.getBooleanParameter(SUMMARY_ONLY, false);
+        samplersToFilter = Pattern.compile(context.getParameter(SAMPLERS_REGEX, ".*"));
+        metrics = new PrometheusMetrics(context.getParameter(METRICS_PREFIX, DEFAULT_METRICS_PREFIX),
+                parseBuckets(context.getParameter(BUCKETS, DEFAULT_BUCKETS)));
+
+        String host = context.getParameter(HOST, "");
+        int port = context.getIntParameter(PORT, DEFAULT_PORT);
+        InetSocketAddress address = StringUtils.isBlank(host)
+                ? new InetSocketAddress(port) : new InetSocketAddress(host.trim(), port);
+        server = HttpServer.create(address, 0);
+        server.createContext(context.getParameter(PATH, DEFAULT_PATH), this::handleScrape);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "PrometheusEndpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Serving Prometheus metrics on {}", server.getAddress());
+    }
+
+    static long[] parseBuckets(String bucketsAsString) {
+        List<Long> buckets = new ArrayList<>();
+        for (String bucket : bucketsAsString.split(SEPARATOR)) {
+            if (StringUtils.isNotBlank(bucket)) {
+                try {
+                    buckets.add(Long.valueOf(bucket.trim()));
+                } catch (NumberFormatException e) {
+                    log.error("Error parsing bucket: '{}'", bucket, e);
+                }
+            }
+        }
+        return buckets.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
+        for (SampleResult sampleResult : sampleResults) {
+            String label = sampleResult.getSampleLabel();
+            if (samplersToFilter.matcher(label).find()) {
+                metrics.add(summaryOnly ? ALL_LABEL : label, sampleResult);
+            }
+        }
+    }
+
+    /**
+     * Metrics are recorded without locking, see {@link PrometheusMetrics#add(String, SampleResult)}
+     */
+    @Override
+    public boolean supportsConcurrentCalls() {
+        return true;
+    }
+
+    private void handleScrape(HttpExchange exchange) throws IOException {
+        try {
+            String accept = exchange.getRequestHeaders().getFirst("Accept");
+            boolean openMetrics = accept != null && accept.contains(OPENMETRICS_TYPE);
+            byte[] body = getMetrics(openMetrics).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    openMetrics ? OPENMETRICS_CONTENT_TYPE : TEXT_CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param openMetrics true for the OpenMetrics format, false for the
+     *            Prometheus text format
+     * @return the current metrics
+     */
+    String getMetrics(boolean openMetrics) {
+        StringBuilder sb = new StringBuilder(4096);
+        metrics.write(sb, openMetrics);
+        return sb.toString();
+    }
+
+    /**
+     * @return the address the metrics are served on
+     */
+    InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void teardownTest(BackendListenerContext context) throws Exception {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        metrics.clear();
+        super.teardownTest(context);
+    }
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments arguments = new Arguments();
+        arguments.addArgument(HOST, "");
+        arguments.addArgument(PORT, Integer.toString(DEFAULT_PORT));
+        arguments.addArgument(PATH, DEFAULT_PATH);
+        arguments.addArgument(METRICS_PREFIX, DEFAULT_METRICS_PREFIX);
+        arguments.addArgument(SUMMARY_ONLY, "false");
+        arguments.addArgument(SAMPLERS_REGEX, ".*");
+        arguments.addArgument(BUCKETS, DEFAULT_BUCKETS);
+        return arguments;
+    }
+}
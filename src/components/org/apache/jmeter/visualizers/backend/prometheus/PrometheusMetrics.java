@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend.prometheus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterContextService.ThreadCounts;
+import org.apache.jmeter.visualizers.backend.ErrorMetric;
+
+/**
+ * Cumulative metrics of the samples, by sample label, written in the
+ * Prometheus text exposition format or in the OpenMetrics text format.
+ * <p>
+ * Recording a sample only increments a few {@link LongAdder}s, so it can be
+ * done concurrently without locking. Response times are counted in histogram
+ * buckets with fixed upper bounds, so a scrape only sums a few counters per
+ * label.
+ * </p>
+ * @since 5.1
+ */
+class PrometheusMetrics {
+
+    private final String prefix;
+    /** Upper bounds of the response time buckets, in milliseconds, sorted */
+    private final long[] buckets;
+    /** Sorted by label so that scrapes are stable */
+    private final Map<String, LabelMetrics> metricsPerLabel = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param prefix prefix of the metric names
+     * @param buckets upper bounds of the response time buckets, in milliseconds
+     */
+    PrometheusMetrics(String prefix, long[] buckets) {
+        this.prefix = prefix;
+        this.buckets = buckets.clone();
+        Arrays.sort(this.buckets);
+    }
+
+    /**
+     * Record a sample
+     * @param label label under which the sample is recorded
+     * @param result {@link SampleResult} to record
+     */
+    void add(String label, SampleResult result) {
+        LabelMetrics metrics = metricsPerLabel.get(label);
+        if (metrics == null) {
+            metrics = metricsPerLabel.computeIfAbsent(label, k -> new LabelMetrics(k, buckets.length));
+        }
+        metrics.add(result, bucketIndex(result.getTime()));
+    }
+
+    private int bucketIndex(long time) {
+        int index = Arrays.binarySearch(buckets, time);
+        // index of the first bound greater than or equal to time, buckets.length for +Inf
+        return index >= 0 ? index : -index - 1;
+    }
+
+    void clear() {
+        metricsPerLabel.clear();
+    }
+
+    /**
+     * Write all the metrics
+     * @param out where to write
+     * @param openMetrics true for the OpenMetrics format, false for the
+     *            Prometheus text format version 0.0.4
+     */
+    void write(StringBuilder out, boolean openMetrics) {
+        writeCounter(out, openMetrics, "samples", "Number of samples",
+                (metrics, name) -> {
+                    writeSample(out, name, metrics.label, "status", "ok", metrics.successes.sum());
+                    writeSample(out, name, metrics.label, "status", "ko", metrics.failures.sum());
+                });
+        writeCounter(out, openMetrics, "hits", "Number of hits to the server, including sub samples",
+                (metrics, name) -> writeSample(out, name, metrics.label, null, null, metrics.hits.sum()));
+        writeCounter(out, openMetrics, "errors", "Number of errors by response code",
+                (metrics, name) -> metrics.errors.forEach((code, count) ->
+                        writeSample(out, name, metrics.label, "code", code, count.sum())));
+        writeCounter(out, openMetrics, "sent_bytes", "Bytes sent",
+                (metrics, name) -> writeSample(out, name, metrics.label, null, null, metrics.sentBytes.sum()));
+        writeCounter(out, openMetrics, "received_bytes", "Bytes received",
+                (metrics, name) -> writeSample(out, name, metrics.label, null, null, metrics.receivedBytes.sum()));
+        writeHistogram(out);
+        writeThreads(out, openMetrics);
+        writePools(out);
+        if (openMetrics) {
+            out.append("# EOF\n");
+        }
+    }
+
+    @FunctionalInterface
+    private interface LabelWriter {
+        void write(LabelMetrics metrics, String name);
+    }
+
+    private void writeCounter(StringBuilder out, boolean openMetrics, String family, String help,
+            LabelWriter writer) {
+        String name = prefix + family + "_total";
+        // In OpenMetrics the family of a counter has no _total suffix
+        String familyName = openMetrics ? prefix + family : name;
+        writeHeader(out, familyName, "counter", help);
+        for (LabelMetrics metrics : metricsPerLabel.values()) {
+            writer.write(metrics, name);
+        }
+    }
+
+    private void writeHistogram(StringBuilder out) {
+        String name = prefix + "response_time_milliseconds";
+        writeHeader(out, name, "histogram", "Response times of the samples");
+        String bucketName = name + "_bucket";
+        for (LabelMetrics metrics : metricsPerLabel.values()) {
+            long cumulated = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulated += metrics.responseTimes[i].sum();
+                writeSample(out, bucketName, metrics.label, "le", Long.toString(buckets[i]), cumulated);
+            }
+            cumulated += metrics.responseTimes[buckets.length].sum();
+            writeSample(out, bucketName, metrics.label, "le", "+Inf", cumulated);
+            writeSample(out, name + "_count", metrics.label, null, null, cumulated);
+            writeSample(out, name + "_sum", metrics.label, null, null, metrics.responseTimeSum.sum());
+        }
+    }
+
+    private void writeThreads(StringBuilder out, boolean openMetrics) {
+        ThreadCounts threadCounts = JMeterContextService.getThreadCounts();
+        writeHeader(out, prefix + "active_threads", "gauge", "Number of active threads");
+        writeSample(out, prefix + "active_threads", null, null, null, threadCounts.activeThreads);
+        String started = prefix + "started_threads";
+        writeHeader(out, openMetrics ? started : started + "_total", "counter", "Number of started threads");
+        writeSample(out, started + "_total", null, null, null, threadCounts.startedThreads);
+        String finished = prefix + "finished_threads";
+        writeHeader(out, openMetrics ? finished : finished + "_total", "counter", "Number of finished threads");
+        writeSample(out, finished + "_total", null, null, null, threadCounts.finishedThreads);
+    }
+
+    private void writePools(StringBuilder out) {
+        List<ConnectionPoolMetrics> pools = ConnectionPoolRegistry.getPools();
+        if (pools.isEmpty()) {
+            return;
+        }
+        writePoolGauge(out, pools, "pool_active_connections", "Number of connections borrowed from the pool",
+                ConnectionPoolMetrics::getNumActive);
+        writePoolGauge(out, pools, "pool_idle_connections", "Number of connections idle in the pool",
+                ConnectionPoolMetrics::getNumIdle);
+        writePoolGauge(out, pools, "pool_waiting_threads", "Number of threads waiting for a connection",
+                ConnectionPoolMetrics::getNumWaiters);
+        writePoolGauge(out, pools, "pool_max_connections", "Maximum number of connections of the pool",
+                ConnectionPoolMetrics::getMaxTotal);
+        writePoolGauge(out, pools, "pool_borrow_wait_milliseconds", "Mean time waited to borrow a connection",
+                ConnectionPoolMetrics::getMeanBorrowWaitTime);
+    }
+
+    private void writePoolGauge(StringBuilder out, List<ConnectionPoolMetrics> pools, String gauge, String help,
+            ToLongFunction<ConnectionPoolMetrics> value) {
+        String name = prefix + gauge;
+        writeHeader(out, name, "gauge", help);
+        for (ConnectionPoolMetrics pool : pools) {
+            out.append(name).append("{pool=\"");
+            appendEscaped(out, pool.getPoolName());
+            out.append("\"} ").append(value.applyAsLong(pool)).append('\n');
+        }
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String type, String help) {
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String label,
+            String extraLabelName, String extraLabelValue, long value) {
+        out.append(name);
+        if (label != null) {
+            out.append("{label=\"");
+            appendEscaped(out, label);
+            out.append('"');
+            if (extraLabelName != null) {
+                out.append(',').append(extraLabelName).append("=\"");
+                appendEscaped(out, extraLabelValue);
+                out.append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '\\':
+                out.append("\\\\");
+                break;
+            case '"':
+                out.append("\\\"");
+                break;
+            case '\n':
+                out.append("\\n");
+                break;
+            default:
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Cumulative metrics of one label
+     */
+    private static final class LabelMetrics {
+        private final String label;
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+        private final LongAdder receivedBytes = new LongAdder();
+        /** Not cumulated counts of each bucket, the last one is for +Inf */
+        private final LongAdder[] responseTimes;
+        private final LongAdder responseTimeSum = new LongAdder();
+        /** Error counts by code, see {@link ErrorMetric#getErrorCode(SampleResult)} */
+        private final Map<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+
+        LabelMetrics(String label, int bucketCount) {
+            this.label = label;
+            responseTimes = new LongAdder[bucketCount + 1];
+            for (int i = 0; i < responseTimes.length; i++) {
+                responseTimes[i] = new LongAdder();
+            }
+        }
+
+        void add(SampleResult result, int bucketIndex) {
+            if (result.isSuccessful()) {
+                successes.add((long) result.getSampleCount() - result.getErrorCount());
+            } else {
+                failures.add(result.getErrorCount());
+                String code = ErrorMetric.getErrorCode(result);
+                if (code == null) {
+                    code = "";
+                }
+                LongAdder count = errors.get(code);
+                if (count == null) {
+                    count = errors.computeIfAbsent(code, k -> new LongAdder());
+                }
+                count.add(result.getErrorCount());
+            }
+            responseTimes[bucketIndex].increment();
+            responseTimeSum.add(result.getTime());
+            addHits(result);
+            // A Parent sampler cumulates its children metrics.
+            if (!TransactionController.isFromTransactionController(result)) {
+                sentBytes.add(result.getSentBytes());
+                receivedBytes.add(result.getBytesAsLong());
+            }
+        }
+
+        private void addHits(SampleResult res) {
+            if (!TransactionController.isFromTransactionController(res)) {
+                hits.increment();
+            }
+            for (SampleResult subResult : res.getSubResults()) {
+                addHits(subResult);
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.jmeter.save.CSVSaveService;
+
+/**
+ * A block of CSV rows parsed from a byte buffer, usually a memory mapped
+ * region of a result file.
+ * <p>
+ * Parsing only records the boundaries of the fields. Field values are decoded
+ * on demand, so columns that are never read are never turned into
+ * {@link String}s, and numeric columns can be read directly from the bytes as
+ * primitives.
+ * </p>
+ * <p>
+ * The syntax accepted is the one of
+ * {@link CSVSaveService#csvReadFile(java.io.BufferedReader, char)}. The buffer
+ * must use an encoding in which the separator, the quote and the line endings
+ * are single ASCII bytes, see
+ * {@link MappedCsvFile#isSupported(Charset, char)}.
+ * </p>
+ *
+ * @since 5.1
+ */
+public final class CsvRowBlock {
+
+    private static final byte QUOTE = (byte) CSVSaveService.QUOTING_CHAR;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_FIELDS = 16 * INITIAL_ROWS;
+
+    private final ByteBuffer buffer;
+    private final Charset charset;
+
+    /** start (inclusive) and end (exclusive) offsets of each field */
+    private int[] fields;
+    /** index in fields of the first field of each row, plus one trailing entry */
+    private int[] rows;
+    private int rowCount;
+    private int fieldCount;
+
+    /** values decoded while parsing, null for the columns decoded on demand */
+    private String[][] values;
+
+    private String error;
+
+    private CsvRowBlock(ByteBuffer buffer, Charset charset) {
+        this.buffer = buffer;
+        this.charset = charset;
+    }
+
+    /**
+     * Parse all the rows contained in the buffer, from position 0 to its
+     * limit.
+     * <p>
+     * A syntax error does not raise an exception, the rows preceding the error
+     * are kept and the error is reported by {@link #getError()}.
+     * </p>
+     *
+     * @param buffer
+     *            the bytes to parse, must start and end on row boundaries
+     * @param charset
+     *            the encoding of the bytes
+     * @param separator
+     *            the field separator
+     * @param decodedColumns
+     *            the columns to decode while parsing, which moves the
+     *            decoding work to the parsing thread for the columns the
+     *            caller will read anyway, may be {@code null} to decode all
+     *            columns on demand
+     * @return the parsed block
+     */
+    public static CsvRowBlock parse(ByteBuffer buffer, Charset charset,
+            char separator, BitSet decodedColumns) {
+        CsvRowBlock block = new CsvRowBlock(buffer, charset);
+        block.fields = new int[2 * INITIAL_FIELDS];
+        block.rows = new int[INITIAL_ROWS + 1];
+        block.parse((byte) separator);
+        if (decodedColumns != null && !decodedColumns.isEmpty()) {
+            block.decode(decodedColumns);
+        }
+        return block;
+    }
+
+    /**
+     * Copies a row to a block of its own, so that it does not hold on the
+     * buffer of this block, which is usually a large memory mapped region.
+     *
+     * @param row
+     *            the index of the row in this block
+     * @return a block holding only the row, with the values already decoded
+     */
+    public CsvRowBlock copyRow(int row) {
+        int firstField = rows[row];
+        int columns = getColumnCount(row);
+        int start = columns == 0 ? 0 : fields[2 * firstField];
+        int end = columns == 0 ? 0 : fields[2 * (firstField + columns) - 1];
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        CsvRowBlock copy = new CsvRowBlock(ByteBuffer.wrap(bytes), charset);
+        copy.fields = new int[2 * columns];
+        for (int i = 0; i < copy.fields.length; i++) {
+            copy.fields[i] = fields[2 * firstField + i] - start;
+        }
+        copy.rows = new int[] { 0, columns };
+        copy.rowCount = 1;
+        copy.fieldCount = columns;
+        if (values != null) {
+            copy.values = new String[][] { values[row].clone() };
+        }
+        return copy;
+    }
+
+    private void parse(byte separator) {
+        final ByteBuffer buf = buffer;
+        final int end = buf.limit();
+        int pos = 0;
+        while (pos < end) {
+            rows[rowCount] = fieldCount;
+            boolean endOfRow = false;
+            while (!endOfRow) {
+                int start = pos;
+                byte b = pos < end ? buf.get(pos) : LF;
+                if (b == QUOTE) {
+                    pos++;
+                    boolean closed = false;
+                    while (pos < end) {
+                        if (buf.get(pos++) == QUOTE) {
+                            if (pos < end && buf.get(pos) == QUOTE) {
+                                pos++; // doubled quote
+                            } else {
+                                closed = true;
+                                break;
+                            }
+                        }
+                    }
+                    if (!closed) {
+                        fail("Missing trailing quote-char in quoted field:["
+                                + decode(start, pos) + "]");
+                        return;
+                    }
+                    if (pos < end) {
+                        b = buf.get(pos);
+                        if (b != separator && b != CR && b != LF) {
+                            fail("Cannot have single quote-char in quoted field:["
+                                    + decode(start, pos + 1) + "]");
+                            return;
+                        }
+                    }
+                } else {
+                    while (pos < end) {
+                        b = buf.get(pos);
+                        if (b == separator || b == CR || b == LF) {
+                            break;
+                        }
+                        if (b == QUOTE) {
+                            fail("Cannot have quote-char in plain field:["
+                                    + decode(start, pos + 1) + "]");
+                            return;
+                        }
+                        pos++;
+                    }
+                }
+                addField(start, pos);
+                if (pos >= end) {
+                    endOfRow = true;
+                } else {
+                    b = buf.get(pos++);
+                    if (b == CR) {
+                        if (pos < end && buf.get(pos) == LF) {
+                            pos++;
+                        }
+                        endOfRow = true;
+                    } else if (b == LF) {
+                        endOfRow = true;
+                    } else if (pos >= end) {
+                        // trailing separator at end of data
+                        addField(pos, pos);
+                        endOfRow = true;
+                    }
+                }
+            }
+            addRow();
+        }
+    }
+
+    private void addField(int start, int end) {
+        int index = 2 * fieldCount;
+        if (index + 2 > fields.length) {
+            fields = Arrays.copyOf(fields, 2 * fields.length);
+        }
+        fields[index] = start;
+        fields[index + 1] = end;
+        fieldCount++;
+    }
+
+    private void addRow() {
+        rowCount++;
+        if (rowCount + 1 > rows.length) {
+            rows = Arrays.copyOf(rows, 2 * rows.length);
+        }
+        rows[rowCount] = fieldCount;
+    }
+
+    private void fail(String message) {
+        // Drop the fields of the incomplete row
+        fieldCount = rows[rowCount];
+        error = message;
+    }
+
+    private void decode(BitSet columns) {
+        values = new String[rowCount][];
+        for (int row = 0; row < rowCount; row++) {
+            String[] rowValues = new String[getColumnCount(row)];
+            for (int col = columns.nextSetBit(0); col >= 0 && col < rowValues.length;
+                    col = columns.nextSetBit(col + 1)) {
+                rowValues[col] = decodeField(row, col);
+            }
+            values[row] = rowValues;
+        }
+    }
+
+    /**
+     * @return the number of complete rows in this block
+     */
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * @return the syntax error that stopped the parsing after the last row of
+     *         this block, or {@code null} if the whole buffer was parsed
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @param row
+     *            the index of the row in this block
+     * @return the number of fields of the row
+     */
+    public int getColumnCount(int row) {
+        return rows[row + 1] - rows[row];
+    }
+
+    /**
+     * Gets the decoded value of a field.
+     *
+     * @param row
+     *            the index of the row in this block
+     * @param col
+     *            the index of the field in the row
+     * @return the value of the field, without the surrounding quotes if any
+     */
+    public String getString(int row, int col) {
+        if (values != null && values[row][col] != null) {
+            return values[row][col];
+        }
+        return decodeField(row, col);
+    }
+
+    /**
+     * Gets all the decoded values of a row.
+     *
+     * @param row
+     *            the index of the row in this block
+     * @return the values of the fields of the row
+     */
+    public String[] getStrings(int row) {
+        String[] result = new String[getColumnCount(row)];
+        for (int col = 0; col < result.length; col++) {
+            result[col] = getString(row, col);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a field holding a decimal integer without decoding it.
+     *
+     * @param row
+     *            the index of the row in this block
+     * @param col
+     *            the index of the field in the row
+     * @return the value of the field
+     * @throws NumberFormatException
+     *             when the field is not a plain decimal long, callers should
+     *             then fall back to {@link #getString(int, int)}
+     */
+    public long getLong(int row, int col) {
+        int index = 2 * (rows[row] + col);
+        int pos = fields[index];
+        final int end = fields[index + 1];
+        boolean negative = false;
+        if (pos < end && buffer.get(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        // 18 digits always fit in a long
+        if (pos == end || end - pos > 18) {
+            throw new NumberFormatException("Not a simple long at row " + row + ", column " + col);
+        }
+        long result = 0;
+        while (pos < end) {
+            int digit = buffer.get(pos++) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a simple long at row " + row + ", column " + col);
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Reads a boolean field without decoding it, with the semantics of
+     * {@link Boolean#parseBoolean(String)}.
+     *
+     * @param row
+     *            the index of the row in this block
+     * @param col
+     *            the index of the field in the row
+     * @return {@code true} if the field is equal, ignoring case, to
+     *         {@code true}
+     */
+    public boolean getBoolean(int row, int col) {
+        int index = 2 * (rows[row] + col);
+        int pos = fields[index];
+        int end = fields[index + 1];
+        if (end - pos == 6 && buffer.get(pos) == QUOTE) {
+            // quoted "true"
+            pos++;
+            end--;
+        }
+        if (end - pos != 4) {
+            return false;
+        }
+        return (buffer.get(pos) | 0x20) == 't'
+                && (buffer.get(pos + 1) | 0x20) == 'r'
+                && (buffer.get(pos + 2) | 0x20) == 'u'
+                && (buffer.get(pos + 3) | 0x20) == 'e';
+    }
+
+    private String decodeField(int row, int col) {
+        int index = 2 * (rows[row] + col);
+        int start = fields[index];
+        int end = fields[index + 1];
+        if (start < end && buffer.get(start) == QUOTE) {
+            return unquote(start + 1, end - 1);
+        }
+        return decode(start, end);
+    }
+
+    private String decode(int start, int end) {
+        if (start >= end) {
+            return "";
+        }
+        byte[] bytes = new byte[end - start];
+        ByteBuffer view = buffer.duplicate();
+        view.position(start);
+        view.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private String unquote(int start, int end) {
+        byte[] bytes = new byte[Math.max(0, end - start)];
+        int length = 0;
+        for (int pos = start; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            bytes[length++] = b;
+            if (b == QUOTE) {
+                pos++; // skip the second quote of the doubled pair
+            }
+        }
+        return new String(bytes, 0, length, charset);
+    }
+}
@@ -27,7 +27,10 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.samplers.SampleEvent;
@@ -44,6 +47,11 @@ import org.slf4j.LoggerFactory;
  * Reader class for reading CSV files.
  * <p>
  * Handles {@link SampleMetadata} reading and sample extraction.
+ * <p>
+ * Unless disabled by {@value MappedCsvFile#MAPPED_READER_PROPERTY}, files
+ * using an encoding supported by {@link MappedCsvFile} are memory mapped and
+ * parsed by several threads, and samples only decode the columns which are
+ * actually read.
  *
  * @since 3.0
  */
@@ -65,6 +73,10 @@ public class CsvSampleReader implements Closeable{
     private InputStream fis;
     private Reader isr;
     private BufferedReader reader;
+    private MappedCsvFile mappedFile;
+    private Charset charset;
+    private CsvRowBlock block;
+    private int blockRow;
     private char separator;
     private long row;
     private SampleMetadata metadata;
@@ -105,13 +117,12 @@ public class CsvSampleReader implements Closeable{
         }
         this.file = inputFile;
         try {
-            this.fis = new FileInputStream(file); 
-            this.isr = new InputStreamReader(fis, CHARSET);
-            this.reader = new BufferedReader(isr, BUF_SIZE);
-        } catch (FileNotFoundException | UnsupportedEncodingException ex) {
-            JOrphanUtils.closeQuietly(isr);
-            JOrphanUtils.closeQuietly(fis);
-            JOrphanUtils.closeQuietly(this.reader);
+            this.mappedFile = openMappedFile();
+            if (mappedFile == null) {
+                openReader();
+            }
+        } catch (IOException ex) {
+            close();
             throw new SampleException("Could not create file reader !", ex);
         }
         boolean usingHeadersInCsv = true;
@@ -124,6 +135,13 @@ public class CsvSampleReader implements Closeable{
         }
         this.columnCount = this.metadata.getColumnCount();
         this.separator = this.metadata.getSeparator();
+        if (mappedFile != null) {
+            if (MappedCsvFile.isSupported(charset, this.separator)) {
+                mappedFile.setSeparator(this.separator);
+            } else {
+                useReader(metadata == null);
+            }
+        }
         this.row = 0;
         if(!usingHeadersInCsv) {
             String vars = JMeterUtils.getProperty(SampleEvent.SAMPLE_VARIABLES);
@@ -135,11 +153,58 @@ public class CsvSampleReader implements Closeable{
         this.lastSampleRead = nextSample();
     }
 
+    /**
+     * @return the mapped file, or {@code null} if it is disabled or can not
+     *         handle the encoding
+     */
+    private MappedCsvFile openMappedFile() throws IOException {
+        if (!MappedCsvFile.isEnabled()) {
+            return null;
+        }
+        try {
+            charset = Charset.forName(CHARSET);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException ex) {
+            throw new UnsupportedEncodingException(CHARSET);
+        }
+        if (!MappedCsvFile.isSupported(charset)) {
+            return null;
+        }
+        return new MappedCsvFile(file, charset);
+    }
+
+    private void openReader() throws FileNotFoundException, UnsupportedEncodingException {
+        this.fis = new FileInputStream(file);
+        this.isr = new InputStreamReader(fis, CHARSET);
+        this.reader = new BufferedReader(isr, BUF_SIZE);
+    }
+
+    /**
+     * The separator can not be handled by the mapped file, switch to the
+     * reader.
+     */
+    private void useReader(boolean skipFirstLine) {
+        try {
+            mappedFile.close();
+            mappedFile = null;
+            openReader();
+            if (skipFirstLine) {
+                reader.readLine();
+            }
+        } catch (IOException ex) {
+            close();
+            throw new SampleException("Could not create file reader !", ex);
+        }
+    }
+
+    private String readFirstLine() throws IOException {
+        return mappedFile != null ? mappedFile.readLine() : reader.readLine();
+    }
+
     private Pair<Boolean, SampleMetadata> readMetadata(char separator, boolean useSaveSampleCfg) {
         try {
             SampleMetadata result;
             // Read first line
-            String line = reader.readLine();
+            String line = readFirstLine();
             if (line == null) {
                 throw new IllegalArgumentException("File is empty");
             }
@@ -180,6 +245,9 @@ public class CsvSampleReader implements Closeable{
     }
 
     private Sample nextSample() {
+        if (mappedFile != null) {
+            return nextMappedSample();
+        }
         String[] data;
         try {
             data = CSVSaveService.csvReadFile(reader, separator);
@@ -197,6 +265,29 @@ public class CsvSampleReader implements Closeable{
         }
     }
 
+    private Sample nextMappedSample() {
+        try {
+            while (block == null || blockRow >= block.size()) {
+                if (block != null && block.getError() != null) {
+                    throw new IOException(block.getError());
+                }
+                block = mappedFile.nextBlock();
+                blockRow = 0;
+                if (block == null) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            throw new SampleException("Could not read sample <" + row + ">", e);
+        }
+        int columns = block.getColumnCount(blockRow);
+        if (columns != columnCount+numberOfSampleVariablesInCsv) {
+            throw new SampleException("Mismatch between expected number of columns:"+columnCount+" and columns in CSV file:"+columns+
+                    ", check your jmeter.save.saveservice.* configuration or check line is complete");
+        }
+        return new Sample(row++, metadata, block, blockRow++);
+    }
+
     /**
      * @return next sample from the file.
      */
@@ -222,6 +313,8 @@ public class CsvSampleReader implements Closeable{
 
     @Override
     public void close() {
+        block = null;
+        JOrphanUtils.closeQuietly(mappedFile);
         JOrphanUtils.closeQuietly(isr);
         JOrphanUtils.closeQuietly(fis);
         JOrphanUtils.closeQuietly(reader);
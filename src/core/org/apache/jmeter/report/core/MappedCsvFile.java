@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.jmeter.report.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Memory mapped CSV result file parsed by several threads.
+ * <p>
+ * The file is split in chunks that start and end on row boundaries, taking
+ * quoted fields spanning several lines into account. Chunks are parsed in
+ * parallel into {@link CsvRowBlock}s, which are handed back in file order by
+ * {@link #nextBlock()}. A bounded number of chunks are parsed ahead of the
+ * consumer, so heap usage does not depend on the size of the file.
+ * </p>
+ *
+ * @since 5.1
+ */
+public class MappedCsvFile implements Closeable {
+
+    /** Property enabling the use of this reader for CSV result files */
+    public static final String MAPPED_READER_PROPERTY = "jmeter.save.saveservice.csv_reader.mapped"; // $NON-NLS-1$
+
+    /** Property setting the number of threads parsing CSV result files */
+    public static final String THREADS_PROPERTY = "jmeter.save.saveservice.csv_reader.threads"; // $NON-NLS-1$
+
+    /** Property setting the size in bytes of the chunks parsed by each thread */
+    public static final String CHUNK_SIZE_PROPERTY = "jmeter.save.saveservice.csv_reader.chunk_size"; // $NON-NLS-1$
+
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final byte QUOTE = (byte) CSVSaveService.QUOTING_CHAR;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private static final class ParserPoolHolder {
+        private ParserPoolHolder() {
+            // NOOP
+        }
+        static final int THREADS = Math.max(1, JMeterUtils.getPropDefault(THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+        static final ExecutorService PARSERS =
+                Executors.newFixedThreadPool(THREADS,
+                        (Runnable r) -> {
+                            Thread t = Executors.defaultThreadFactory().newThread(r);
+                            t.setName("CsvParser-" + t.getName()); // $NON-NLS-1$
+                            t.setDaemon(true);
+                            return t;
+                        });
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final Charset charset;
+    private char separator = ',';
+    private BitSet decodedColumns;
+    private final int chunkSize;
+    private final int threads;
+
+    /** Offset up to which chunks have been handed to the parsers */
+    private long planned;
+    private final Deque<Future<CsvRowBlock>> pending = new ArrayDeque<>();
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * Open a CSV file for parallel parsing with the chunk size set by
+     * {@value #CHUNK_SIZE_PROPERTY}.
+     *
+     * @param file
+     *            the file to read
+     * @param charset
+     *            the encoding of the file, must be supported according to
+     *            {@link #isSupported(Charset)}
+     * @throws IOException
+     *             when the file can not be opened
+     */
+    public MappedCsvFile(File file, Charset charset) throws IOException {
+        this(file, charset, JMeterUtils.getPropDefault(CHUNK_SIZE_PROPERTY, DEFAULT_CHUNK_SIZE));
+    }
+
+    MappedCsvFile(File file, Charset charset, int chunkSize) throws IOException {
+        if (!isSupported(charset)) {
+            throw new IllegalArgumentException("Unsupported encoding for memory mapped CSV file: " + charset);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+        this.charset = charset;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.threads = ParserPoolHolder.THREADS;
+    }
+
+    /**
+     * Sets the field separator used to parse the rows, usually known once
+     * the header has been read.
+     *
+     * @param separator
+     *            the field separator, must be supported according to
+     *            {@link #isSupported(Charset, char)}
+     * @throws IllegalStateException
+     *             if a block has already been requested
+     */
+    public void setSeparator(char separator) {
+        ensureNotStarted();
+        if (!isSupported(charset, separator)) {
+            throw new IllegalArgumentException("Unsupported separator for memory mapped CSV file: " + separator);
+        }
+        this.separator = separator;
+    }
+
+    /**
+     * Sets the columns the consumer will read from every row, which are then
+     * decoded by the parser threads instead of on demand, see
+     * {@link CsvRowBlock#parse(ByteBuffer, Charset, char, BitSet)}.
+     *
+     * @param decodedColumns
+     *            the indexes of the columns, {@code null} or empty to decode
+     *            all the columns on demand
+     * @throws IllegalStateException
+     *             if a block has already been requested
+     */
+    public void setDecodedColumns(BitSet decodedColumns) {
+        ensureNotStarted();
+        this.decodedColumns = decodedColumns == null ? null : (BitSet) decodedColumns.clone();
+    }
+
+    /**
+     * @return {@code true} unless {@value #MAPPED_READER_PROPERTY} is set to
+     *         {@code false}
+     */
+    public static boolean isEnabled() {
+        return JMeterUtils.getPropDefault(MAPPED_READER_PROPERTY, true);
+    }
+
+    /**
+     * Checks whether files using an encoding can be split and parsed at the
+     * byte level: the quote and the line endings must be single ASCII bytes
+     * which can not appear inside another character.
+     *
+     * @param charset
+     *            the encoding of the file
+     * @return {@code true} if the encoding can be handled by this class
+     */
+    public static boolean isSupported(Charset charset) {
+        return isSupported(charset, ',');
+    }
+
+    /**
+     * Checks whether files using an encoding and a separator can be split and
+     * parsed at the byte level: the separator, the quote and the line endings
+     * must be single ASCII bytes which can not appear inside another
+     * character.
+     *
+     * @param charset
+     *            the encoding of the file
+     * @param separator
+     *            the field separator
+     * @return {@code true} if the encoding and separator can be handled by
+     *         this class
+     */
+    public static boolean isSupported(Charset charset, char separator) {
+        if (separator >= 0x80 || separator == CSVSaveService.QUOTING_CHAR
+                || separator == '\r' || separator == '\n') {
+            return false;
+        }
+        if (!StandardCharsets.UTF_8.equals(charset)
+                && charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        String probe = "\"\r\n" + separator; // $NON-NLS-1$
+        return probe.equals(new String(probe.getBytes(StandardCharsets.US_ASCII), charset));
+    }
+
+    /**
+     * Reads a line like {@link java.io.BufferedReader#readLine()}, used to
+     * consume a header before the rows are parsed.
+     *
+     * @return the line without its terminator, or {@code null} at the end of
+     *         the file
+     * @throws IOException
+     *             when the file can not be read
+     * @throws IllegalStateException
+     *             if a block has already been requested
+     */
+    public String readLine() throws IOException {
+        ensureNotStarted();
+        if (planned >= size) {
+            return null;
+        }
+        long end = -1;
+        long windowStart = planned;
+        while (end < 0 && windowStart < size) {
+            MappedByteBuffer window = map(windowStart, Math.min(size - windowStart, chunkSize));
+            for (int i = 0, n = window.limit(); i < n; i++) {
+                byte b = window.get(i);
+                if (b == CR || b == LF) {
+                    end = windowStart + i;
+                    break;
+                }
+            }
+            windowStart += window.limit();
+        }
+        if (end < 0) {
+            end = size;
+        }
+        ByteBuffer line = map(planned, end - planned);
+        byte[] bytes = new byte[line.limit()];
+        line.get(bytes);
+        planned = skipLineEnd(end);
+        return new String(bytes, charset);
+    }
+
+    /**
+     * Goes back to the start of the file, after a line read by
+     * {@link #readLine()} turned out not to be a header.
+     *
+     * @throws IllegalStateException
+     *             if a block has already been requested
+     */
+    public void rewind() {
+        ensureNotStarted();
+        planned = 0;
+    }
+
+    private void ensureNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Parsing has already started");
+        }
+    }
+
+    /**
+     * Gets the next block of rows in file order, waiting for its parsing to
+     * complete if needed.
+     *
+     * @return the next block, or {@code null} once the whole file has been
+     *         read
+     * @throws IOException
+     *             when the file can not be read or has been closed
+     */
+    public CsvRowBlock nextBlock() throws IOException {
+        if (closed) {
+            throw new IOException("File has been closed");
+        }
+        started = true;
+        if (pending.size() < threads && planned < size) {
+            planChunks();
+        }
+        Future<CsvRowBlock> next = pending.poll();
+        return next == null ? null : getQuietly(next);
+    }
+
+    /**
+     * Cut the next chunks on row boundaries and hand them to the parsers.
+     * <p>
+     * Whether a raw cut position is inside a quoted field only depends on the
+     * parity of the number of quotes since the last row boundary, doubled
+     * quotes counting twice. Quotes are counted in parallel, then each cut is
+     * moved forward to the first line end outside of a quoted field.
+     * </p>
+     */
+    private void planChunks() throws IOException {
+        List<Long> rawEnds = new ArrayList<>(threads);
+        long rawEnd = planned;
+        while (rawEnds.size() < threads && rawEnd < size) {
+            long start = rawEnd;
+            rawEnd = Math.min(size, start + chunkSize);
+            rawEnds.add(Long.valueOf(rawEnd));
+        }
+        List<Future<Boolean>> parities = new ArrayList<>(rawEnds.size());
+        long rawStart = planned;
+        for (Long end : rawEnds) {
+            final long from = rawStart;
+            final long to = end.longValue();
+            parities.add(ParserPoolHolder.PARSERS.submit(() -> Boolean.valueOf(hasOddQuotes(from, to))));
+            rawStart = to;
+        }
+        boolean quotedAtRawEnd = false;
+        long start = planned;
+        for (int i = 0; i < rawEnds.size(); i++) {
+            quotedAtRawEnd ^= getQuietly(parities.get(i)).booleanValue();
+            long end = rawEnds.get(i).longValue();
+            if (end < size) {
+                end = findRowEnd(end, quotedAtRawEnd);
+            }
+            if (end > start) {
+                final long from = start;
+                final long to = end;
+                pending.add(ParserPoolHolder.PARSERS.submit(() -> parse(from, to)));
+                start = end;
+            }
+        }
+        planned = start;
+    }
+
+    private boolean hasOddQuotes(long from, long to) throws IOException {
+        MappedByteBuffer buf = map(from, to - from);
+        boolean odd = false;
+        for (int i = 0, n = buf.limit(); i < n; i++) {
+            if (buf.get(i) == QUOTE) {
+                odd = !odd;
+            }
+        }
+        return odd;
+    }
+
+    /**
+     * @return the offset following the first line end at or after
+     *         {@code from} which is not in a quoted field, or the file size
+     */
+    private long findRowEnd(long from, boolean quoted) throws IOException {
+        boolean inQuotes = quoted;
+        long windowStart = from;
+        while (windowStart < size) {
+            MappedByteBuffer window = map(windowStart, Math.min(size - windowStart, chunkSize));
+            for (int i = 0, n = window.limit(); i < n; i++) {
+                byte b = window.get(i);
+                if (b == QUOTE) {
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && (b == CR || b == LF)) {
+                    return skipLineEnd(windowStart + i);
+                }
+            }
+            windowStart += window.limit();
+        }
+        return size;
+    }
+
+    /**
+     * @return the offset after the line end starting at {@code pos}
+     */
+    private long skipLineEnd(long pos) throws IOException {
+        if (pos >= size) {
+            return size;
+        }
+        ByteBuffer twoBytes = map(pos, Math.min(2, size - pos));
+        if (twoBytes.get(0) == CR && twoBytes.limit() > 1 && twoBytes.get(1) == LF) {
+            return pos + 2;
+        }
+        return pos + 1;
+    }
+
+    private CsvRowBlock parse(long from, long to) throws IOException {
+        return CsvRowBlock.parse(map(from, to - from), charset, separator, decodedColumns);
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("CSV row too large at offset " + position);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static <T> T getQuietly(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing CSV file");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not parse CSV file", e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Future<CsvRowBlock> future : pending) {
+            future.cancel(false);
+        }
+        pending.clear();
+        channel.close();
+    }
+}
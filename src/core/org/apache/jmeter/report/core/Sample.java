@@ -40,7 +40,10 @@ public class Sample {
 
     private final boolean storesStartTimeStamp;
     private final SampleMetadata metadata;
+    /** values, lazily filled from the row when it is backed by a block */
     private final String[] data;
+    /** copy of the CSV row, so that the sample does not pin the whole block */
+    private final CsvRowBlock block;
     private final long row;
 
     /**
@@ -58,6 +61,29 @@ public class Sample {
         this.row = row;
         this.metadata = metadata;
         this.data = data;
+        this.block = null;
+        this.storesStartTimeStamp = JMeterUtils.getPropDefault("sampleresult.timestamp.start", false);
+    }
+
+    /**
+     * Build a sample backed by a copy of a row of a parsed CSV block, columns
+     * are only decoded when they are read.
+     *
+     * @param row
+     *            the row number in the CSV source from which this sample is
+     *            built
+     * @param metadata
+     *            The sample metadata (contains column names)
+     * @param block
+     *            The block holding the sample data
+     * @param blockRow
+     *            The index of the sample data in the block
+     */
+    Sample(long row, SampleMetadata metadata, CsvRowBlock block, int blockRow) {
+        this.row = row;
+        this.metadata = metadata;
+        this.block = block.copyRow(blockRow);
+        this.data = new String[this.block.getColumnCount(0)];
         this.storesStartTimeStamp = JMeterUtils.getPropDefault("sampleresult.timestamp.start", false);
     }
 
@@ -77,7 +103,13 @@ public class Sample {
      * @return the data of the column
      */
     public String getData(int index) {
-        return data[index];
+        String value = data[index];
+        if (value == null && block != null) {
+            // Racy but idempotent, like String#hashCode
+            value = block.getString(0, index);
+            data[index] = value;
+        }
+        return value;
     }
 
     /**
@@ -88,7 +120,7 @@ public class Sample {
      * @return the data of the column
      */
     public String getData(String name) {
-        return data[metadata.ensureIndexOf(name)];
+        return getData(metadata.ensureIndexOf(name));
     }
 
     /**
@@ -107,11 +139,11 @@ public class Sample {
      */
     public <T> T getData(Class<T> clazz, int index, String fieldName) {
         try {
-            return Converters.convert(clazz, data[index]);
+            return Converters.convert(clazz, getData(index));
         } catch (ConvertException ex) {
             throw new SampleException(ERROR_ON_SAMPLE + (row + 1)
                     + " converting field:" + fieldName + " at column:" + index
-                    + " to:" + clazz.getName() + ", fieldValue:'" + data[index]
+                    + " to:" + clazz.getName() + ", fieldValue:'" + getData(index)
                     + "'", ex);
         }
     }
@@ -139,16 +171,44 @@ public class Sample {
      */
     @Override
     public String toString() {
+        if (block != null) {
+            return StringUtils.join(block.getStrings(0), metadata.getSeparator());
+        }
         return StringUtils.join(data, metadata.getSeparator());
     }
 
+    /**
+     * Reads a long column, directly from the CSV bytes when the sample is
+     * backed by a {@link CsvRowBlock}.
+     */
+    private long getLong(String name) {
+        int index = metadata.ensureIndexOf(name);
+        if (block != null) {
+            try {
+                return block.getLong(0, index);
+            } catch (NumberFormatException e) { // NOSONAR
+                // Not a plain long, let the converters handle it or report it
+            }
+        }
+        return getData(long.class, index, name).longValue();
+    }
+
+    private int getInt(String name) {
+        long value = getLong(name);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            // Let the converter report the overflow
+            return getData(int.class, name).intValue();
+        }
+        return (int) value;
+    }
+
     /**
      * Gets the time stamp stored in the sample.
      *
      * @return the time stamp
      */
     public long getTimestamp() {
-        return getData(long.class, CSVSaveService.TIME_STAMP).longValue();
+        return getLong(CSVSaveService.TIME_STAMP);
     }
 
     /**
@@ -157,7 +217,7 @@ public class Sample {
      * @return the elapsed time stored in the sample
      */
     public long getElapsedTime() {
-        return getData(long.class, CSVSaveService.CSV_ELAPSED).longValue();
+        return getLong(CSVSaveService.CSV_ELAPSED);
     }
 
     /**
@@ -242,7 +302,7 @@ public class Sample {
      * @return the latency stored in the sample
      */
     public long getLatency() {
-        return getData(long.class, CSVSaveService.CSV_LATENCY).longValue();
+        return getLong(CSVSaveService.CSV_LATENCY);
     }
     
     /**
@@ -252,7 +312,7 @@ public class Sample {
      */
     public long getConnectTime() {
         if(metadata.indexOf(CSVSaveService.CSV_CONNECT_TIME) >= 0) {
-            return getData(long.class, CSVSaveService.CSV_CONNECT_TIME).longValue();
+            return getLong(CSVSaveService.CSV_CONNECT_TIME);
         } else {
             return 0L;
         }
@@ -264,6 +324,9 @@ public class Sample {
      * @return the success status stored in the sample
      */
     public boolean getSuccess() {
+        if (block != null) {
+            return block.getBoolean(0, metadata.ensureIndexOf(CSVSaveService.SUCCESSFUL));
+        }
         return getData(boolean.class, CSVSaveService.SUCCESSFUL).booleanValue();
     }
 
@@ -273,7 +336,7 @@ public class Sample {
      * @return the number of received bytes stored in the sample
      */
     public long getReceivedBytes() {
-        return getData(long.class, CSVSaveService.CSV_BYTES).longValue();
+        return getLong(CSVSaveService.CSV_BYTES);
     }
 
     /**
@@ -283,7 +346,7 @@ public class Sample {
      */
     public long getSentBytes() {
         if(metadata.indexOf(CSVSaveService.CSV_SENT_BYTES) >= 0) {
-            return getData(long.class, CSVSaveService.CSV_SENT_BYTES).longValue();
+            return getLong(CSVSaveService.CSV_SENT_BYTES);
         } else {
             return 0L;
         }
@@ -295,7 +358,7 @@ public class Sample {
      * @return the number of threads in the group of this sample
      */
     public int getGroupThreads() {
-        return getData(int.class, CSVSaveService.CSV_THREAD_COUNT1).intValue();
+        return getInt(CSVSaveService.CSV_THREAD_COUNT1);
     }
 
     /**
@@ -304,7 +367,7 @@ public class Sample {
      * @return the overall number of threads
      */
     public int getAllThreads() {
-        return getData(int.class, CSVSaveService.CSV_THREAD_COUNT2).intValue();
+        return getInt(CSVSaveService.CSV_THREAD_COUNT2);
     }
 
     /**
@@ -18,7 +18,9 @@
 package org.apache.jmeter.report.processor;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -29,6 +31,10 @@ import org.apache.jmeter.report.core.Sample;
 import org.apache.jmeter.report.core.SampleException;
 import org.apache.jmeter.report.core.SampleMetadata;
 import org.apache.jmeter.report.core.TimeHelper;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.save.HistogramSaveService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +64,9 @@ import org.slf4j.LoggerFactory;
  * <li>If the input file is named <code>results.csv</code> then it will
  * be produced on the channel 0.</li>
  * </ul>
+ * The aggregates of the Histogram remote mode saved next to an input file
+ * (<code>results.csv.histogram</code>) are produced on its channel after its
+ * rows.<br>
  *
  * @since 3.0
  */
@@ -181,6 +190,7 @@ public class CsvFileSampleSource extends AbstractSampleSource {
                     producer.produce(s, i);
                     sampleCount++;
                 }
+                sampleCount += produceHistograms(inputFiles[i], csvReader.getMetadata(), sampleCount, i);
             } finally {
                 producer.stopProducing();
                 csvReader.close();
@@ -192,6 +202,83 @@ public class CsvFileSampleSource extends AbstractSampleSource {
         }
     }
 
+    /**
+     * Produce the samples summarised by the aggregates of the Histogram remote
+     * mode saved next to an input file, see {@link HistogramSaveService}. Each
+     * aggregate is expanded in memory into one sample per summarised sample.
+     *
+     * @param inputFile the input file
+     * @param metadata the metadata of the input file
+     * @param firstRow the row of the first produced sample
+     * @param channel the channel of the input file
+     * @return the number of produced samples
+     */
+    private long produceHistograms(File inputFile, SampleMetadata metadata, long firstRow, int channel) {
+        File histograms = new File(HistogramSaveService.getHistogramFileName(inputFile.getPath()));
+        if (!histograms.isFile()) {
+            return 0;
+        }
+        SampleSaveConfiguration saveConfig = SampleSaveConfiguration.staticConfig();
+        long[] row = new long[] { firstRow };
+        try {
+            HistogramSaveService.processHistogramResults(histograms,
+                    aggregate -> aggregate.forEachSample(result -> producer.produce(
+                            new Sample(row[0]++, metadata, toRow(result, metadata, saveConfig)), channel)));
+        } catch (IOException e) {
+            throw new SampleException("Could not read histogram file " + histograms, e);
+        }
+        return row[0] - firstRow;
+    }
+
+    private static String[] toRow(SampleResult result, SampleMetadata metadata,
+            SampleSaveConfiguration saveConfig) {
+        String[] data = new String[metadata.getColumnCount()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = getColumnValue(result, metadata.getColumnName(i), saveConfig);
+        }
+        return data;
+    }
+
+    private static String getColumnValue(SampleResult result, String column,
+            SampleSaveConfiguration saveConfig) {
+        switch (column) {
+        case CSVSaveService.TIME_STAMP:
+            return saveConfig.printMilliseconds()
+                    ? Long.toString(result.getTimeStamp())
+                    : saveConfig.threadSafeLenientFormatter().format(new Date(result.getTimeStamp()));
+        case CSVSaveService.CSV_ELAPSED:
+            return Long.toString(result.getTime());
+        case CSVSaveService.LABEL:
+            return result.getSampleLabel();
+        case CSVSaveService.RESPONSE_CODE:
+            return result.getResponseCode();
+        case CSVSaveService.THREAD_NAME:
+            return result.getThreadName();
+        case CSVSaveService.SUCCESSFUL:
+            return Boolean.toString(result.isSuccessful());
+        case CSVSaveService.CSV_BYTES:
+            return Long.toString(result.getBytesAsLong());
+        case CSVSaveService.CSV_SENT_BYTES:
+            return Long.toString(result.getSentBytes());
+        case CSVSaveService.CSV_THREAD_COUNT1:
+            return Integer.toString(result.getGroupThreads());
+        case CSVSaveService.CSV_THREAD_COUNT2:
+            return Integer.toString(result.getAllThreads());
+        case CSVSaveService.CSV_LATENCY:
+            return Long.toString(result.getLatency());
+        case CSVSaveService.CSV_CONNECT_TIME:
+            return Long.toString(result.getConnectTime());
+        case CSVSaveService.CSV_SAMPLE_COUNT:
+            return "1"; // $NON-NLS-1$
+        case CSVSaveService.CSV_ERROR_COUNT:
+            return result.isSuccessful() ? "0" : "1"; // $NON-NLS-1$ $NON-NLS-2$
+        case CSVSaveService.CSV_IDLETIME:
+            return "0"; // $NON-NLS-1$
+        default:
+            return ""; // not kept by the aggregates
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -38,12 +38,14 @@ import java.util.Map;
 import org.apache.jmeter.engine.util.NoThreadClone;
 import org.apache.jmeter.gui.GuiPackage;
 import org.apache.jmeter.samplers.Clearable;
+import org.apache.jmeter.samplers.HistogramSampleResult;
 import org.apache.jmeter.samplers.Remoteable;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.save.HistogramSaveService;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestStateListener;
@@ -125,6 +127,9 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
 
     private static final Map<String, FileEntry> files = new HashMap<>();
 
+    /** Neither header nor footer for the files of the histograms */
+    private static final SampleSaveConfiguration HISTOGRAM_SAVE_CONFIG = new SampleSaveConfiguration(false);
+
     /**
      * Shutdown Hook that ensures PrintWriter is flushed is CTRL+C or kill is called during a test
      */
@@ -141,6 +146,9 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     // Instance variables (guarded by volatile)
     private transient volatile PrintWriter out;
 
+    // Opened by the first aggregate of the Histogram remote mode
+    private transient volatile PrintWriter histogramOut;
+
     /**
      * Is a test running ?
      */
@@ -317,6 +325,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
                 Runtime.getRuntime().addShutdownHook(shutdownHook);
             }
             instanceCount++;
+            histogramOut = null; // closed at the end of the previous test
             try {
                 if (out == null) {
                     try {
@@ -357,7 +366,8 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      *   <li>XStream format</li>
      *   <li>CSV format</li>
      * </ul>
-     *
+     * The aggregates of the Histogram remote mode saved next to the file are
+     * loaded too.
      */
     public void loadExistingFile() {
         final Visualizer visualizer = getVisualizer();
@@ -392,6 +402,9 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
                         }
                     }
                 }
+                if (parsedOK) {
+                    parsedOK = loadHistograms(file, visualizer);
+                }
             } catch (IOException | JMeterError | RuntimeException e) {
                 log.warn("Problem reading JTL file: {}", file, e);
             } finally {
@@ -408,6 +421,32 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
+    /**
+     * Loads the aggregates of the Histogram remote mode saved next to a result file, if any
+     *
+     * @param file the result file
+     * @param visualizer receives the aggregates
+     * @return false if the aggregates could not be loaded
+     */
+    private boolean loadHistograms(File file, Visualizer visualizer) {
+        File histograms = new File(HistogramSaveService.getHistogramFileName(file.getPath()));
+        if (!histograms.exists()) {
+            return true;
+        }
+        try {
+            HistogramSaveService.processHistogramResults(histograms, result -> {
+                HistogramSampleResult wanted = getWantedSamples(result);
+                if (wanted.getSampleCount() > 0) {
+                    visualizer.add(wanted);
+                }
+            });
+            return true;
+        } catch (IOException e) {
+            log.warn("Problem reading histogram file: {}", histograms, e);
+            return false;
+        }
+    }
+
     private static void writeFileStart(PrintWriter writer, SampleSaveConfiguration saveConfig) {
         if (saveConfig.saveAsXml()) {
             writer.print(XML_HEADER);
@@ -543,20 +582,12 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     public void sampleOccurred(SampleEvent event) {
         SampleResult result = event.getResult();
 
-        if (isSampleWanted(result.isSuccessful())) {
+        if (result instanceof HistogramSampleResult) {
+            histogramSampleOccurred((HistogramSampleResult) result);
+        } else if (isSampleWanted(result.isSuccessful())) {
             sendToVisualizer(result);
             if (out != null && !isResultMarked(result) && !this.isStats) {
-                SampleSaveConfiguration config = getSaveConfig();
-                result.setSaveConfig(config);
-                try {
-                    if (config.saveAsXml()) {
-                        SaveService.saveSampleResult(event, out);
-                    } else { // !saveAsXml
-                        CSVSaveService.saveSampleResult(event, out);
-                    }
-                } catch (Exception err) {
-                    log.error("Error trying to record a sample", err); // should throw exception back to caller
-                }
+                saveSample(event);
             }
         }
 
@@ -565,6 +596,68 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
+    /**
+     * An aggregate fails as soon as one of its samples failed, so the
+     * success/error filter is applied to the samples it summarises.
+     * Aggregates are saved as they are next to the result file, see
+     * {@link HistogramSaveService}.
+     *
+     * @param result the aggregate
+     */
+    private void histogramSampleOccurred(HistogramSampleResult result) {
+        HistogramSampleResult wanted = getWantedSamples(result);
+        if (wanted.getSampleCount() == 0) {
+            return;
+        }
+        sendToVisualizer(wanted);
+        if (out != null && !isResultMarked(result) && !this.isStats) {
+            saveHistogram(wanted);
+        }
+    }
+
+    private HistogramSampleResult getWantedSamples(HistogramSampleResult result) {
+        if (isErrorLogging()) {
+            return result.filter(false);
+        } else if (isSuccessOnlyLogging()) {
+            return result.filter(true);
+        }
+        return result;
+    }
+
+    private void saveHistogram(HistogramSampleResult result) {
+        PrintWriter writer = histogramOut;
+        if (writer == null) {
+            synchronized (LOCK) {
+                if (histogramOut == null) {
+                    try {
+                        // Same life cycle as the result file
+                        histogramOut = getFileWriter(HistogramSaveService.getHistogramFileName(getFilename()),
+                                HISTOGRAM_SAVE_CONFIG);
+                    } catch (IOException e) {
+                        log.error("Error opening the file of the histograms of {}", getFilename(), e);
+                        return;
+                    }
+                }
+                writer = histogramOut;
+            }
+        }
+        HistogramSaveService.saveHistogramResult(result, writer);
+    }
+
+    private void saveSample(SampleEvent event) {
+        SampleSaveConfiguration config = getSaveConfig();
+        event.getResult().setSaveConfig(config);
+        try {
+            if (config.saveAsXml()) {
+                SaveService.saveSampleResult(event, out);
+            } else { // !saveAsXml
+                CSVSaveService.saveSampleResult(event, out);
+            }
+        } catch (Exception err) {
+            log.error("Error trying to record a sample", err); // should throw exception back to caller
+        }
+    }
+
     protected final void sendToVisualizer(SampleResult r) {
         if (getVisualizer() != null) {
             getVisualizer().add(r);
@@ -623,6 +716,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
         files.clear();
         out = null;
+        histogramOut = null;
     }
 
     /**
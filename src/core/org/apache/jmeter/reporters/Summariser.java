@@ -27,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.control.TransactionController;
 import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
 import org.apache.jmeter.samplers.Remoteable;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
@@ -377,6 +378,7 @@ public class Summariser extends AbstractTestElement
             sb.append(tc.startedThreads);
             sb.append(" Finished: ");
             sb.append(tc.finishedThreads);
+            ConnectionPoolRegistry.appendSummary(sb);
         }
         return sb.toString();
     }
@@ -20,7 +20,9 @@ package org.apache.jmeter.reporters;
 
 import java.text.DecimalFormat;
 
+import org.apache.jmeter.samplers.HistogramSampleResult;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.math.LatencyHistogram;
 
 /**
  * <p>
@@ -122,11 +124,19 @@ class SummariserRunningSample {
         errorCount += res.getErrorCount();
         long aTimeInMillis = res.getTime();
         runningSum += aTimeInMillis;
-        if (aTimeInMillis > max) {
-            max = aTimeInMillis;
+        long resMax = aTimeInMillis;
+        long resMin = aTimeInMillis;
+        if (res instanceof HistogramSampleResult) {
+            // the time is the sum of the elapsed times of the aggregated samples
+            LatencyHistogram times = ((HistogramSampleResult) res).getTimes();
+            resMax = (long) times.getMax();
+            resMin = (long) times.getMin();
         }
-        if (aTimeInMillis < min) {
-            min = aTimeInMillis;
+        if (resMax > max) {
+            max = resMax;
+        }
+        if (resMin < min) {
+            min = resMin;
         }
         // We want end time to be current time so sample rates reflect real time
         endTime = System.currentTimeMillis();
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+/**
+ * Gauges of a connection pool shared by the threads of a test, published
+ * through {@link ConnectionPoolRegistry} so that listeners can tell a
+ * saturated pool on the injector from a slow server.
+ *
+ * @since 5.1
+ */
+public interface ConnectionPoolMetrics {
+
+    /**
+     * @return name of the pool, as referenced by the samplers
+     */
+    String getPoolName();
+
+    /**
+     * @return number of connections currently borrowed from the pool
+     */
+    int getNumActive();
+
+    /**
+     * @return number of connections idle in the pool
+     */
+    int getNumIdle();
+
+    /**
+     * @return number of threads waiting to borrow a connection
+     */
+    int getNumWaiters();
+
+    /**
+     * @return maximum number of connections of the pool, negative when
+     *         unlimited
+     */
+    int getMaxTotal();
+
+    /**
+     * @return mean time in milliseconds the last borrows waited for a
+     *         connection
+     */
+    long getMeanBorrowWaitTime();
+}
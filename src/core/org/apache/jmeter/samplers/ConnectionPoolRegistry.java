@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Connection pools of the running test, registered by the configuration
+ * elements which create them when the test starts and removed when it ends.
+ *
+ * @since 5.1
+ */
+public final class ConnectionPoolRegistry {
+
+    private static final List<ConnectionPoolMetrics> POOLS = new CopyOnWriteArrayList<>();
+
+    private ConnectionPoolRegistry() {
+        super();
+    }
+
+    /**
+     * @param pool pool created for the test
+     */
+    public static void register(ConnectionPoolMetrics pool) {
+        POOLS.add(pool);
+    }
+
+    /**
+     * @param pool pool closed at the end of the test
+     */
+    public static void unregister(ConnectionPoolMetrics pool) {
+        POOLS.remove(pool);
+    }
+
+    /**
+     * @return unmodifiable view of the registered pools, which can be iterated
+     *         while pools are registered
+     */
+    public static List<ConnectionPoolMetrics> getPools() {
+        return Collections.unmodifiableList(POOLS);
+    }
+
+    /**
+     * Appends the gauges of the registered pools to a summary line, for
+     * example {@code " Pool mydb: 5/10 active, 3 idle, 2 waiting"}
+     *
+     * @param sb line to append to
+     * @return {@code sb}
+     */
+    public static StringBuilder appendSummary(StringBuilder sb) {
+        for (ConnectionPoolMetrics pool : POOLS) {
+            sb.append(" Pool ").append(pool.getPoolName()).append(": ")
+                .append(pool.getNumActive()).append('/').append(pool.getMaxTotal()).append(" active, ")
+                .append(pool.getNumIdle()).append(" idle, ")
+                .append(pool.getNumWaiters()).append(" waiting");
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.apache.jorphan.math.LatencyHistogram;
+
+/**
+ * Aggregate of the samples of a label during an interval, which keeps the
+ * distribution of the elapsed times in mergeable histograms, so that
+ * percentiles can still be computed.
+ * <p>
+ * As for {@link StatisticalSampleResult}, {@link #getTime()} returns the sum
+ * of the elapsed times and {@link #getSampleCount()} the number of samples.
+ * </p>
+ * @see HistogramSampleSender
+ * @since 5.1
+ */
+public class HistogramSampleResult extends StatisticalSampleResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LatencyHistogram successTimes = new LatencyHistogram();
+
+    private final LatencyHistogram failureTimes = new LatencyHistogram();
+
+    /** Number of failed samples by response code */
+    private final Map<String, Long> errorsByCode = new TreeMap<>();
+
+    /** Response code of the first successful sample */
+    private String successCode = "";
+
+    /**
+     * Create an empty aggregate with the label and thread name of a sample
+     *
+     * @param res the sample result
+     */
+    public HistogramSampleResult(SampleResult res) {
+        super(res);
+    }
+
+    /**
+     * Rebuild an aggregate, from a result file for instance
+     *
+     * @param res
+     *            provides the label, thread name, start and end times and
+     *            thread counts of the aggregate, as well as the sums of the
+     *            latencies, connect times and sizes of its samples
+     * @param successTimes
+     *            the elapsed times of the successful samples
+     * @param failureTimes
+     *            the elapsed times of the failed samples
+     * @param errorsByCode
+     *            the number of failed samples by response code
+     * @param successCode
+     *            the response code of the first successful sample
+     */
+    public HistogramSampleResult(SampleResult res, LatencyHistogram successTimes, LatencyHistogram failureTimes,
+            Map<String, Long> errorsByCode, String successCode) {
+        super(res);
+        setStartTime(res.getStartTime());
+        setEndTime(res.getEndTime());
+        setGroupThreads(res.getGroupThreads());
+        setAllThreads(res.getAllThreads());
+        setLatency(res.getLatency());
+        setConnectTime(res.getConnectTime());
+        setBytes(res.getBytesAsLong());
+        setSentBytes(res.getSentBytes());
+        this.successTimes.add(successTimes);
+        this.failureTimes.add(failureTimes);
+        this.errorsByCode.putAll(errorsByCode);
+        this.successCode = successCode;
+        setSampleCount((int) (successTimes.getCount() + failureTimes.getCount()));
+        setErrorCount((int) failureTimes.getCount());
+        setSuccessful(failureTimes.getCount() == 0);
+    }
+
+    @Override
+    public void add(SampleResult res) {
+        super.add(res);
+        setGroupThreads(res.getGroupThreads());
+        setAllThreads(res.getAllThreads());
+        if (res.isSuccessful()) {
+            if (successTimes.getCount() == 0) {
+                successCode = res.getResponseCode();
+            }
+            successTimes.add(res.getTime());
+        } else {
+            failureTimes.add(res.getTime());
+            errorsByCode.merge(res.getResponseCode(), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * The sum of the elapsed times is kept by the histograms, so that it
+     * survives {@link #HistogramSampleResult(SampleResult, LatencyHistogram, LatencyHistogram, Map, String)}
+     */
+    @Override
+    public long getTime() {
+        return (long) (successTimes.getSum() + failureTimes.getSum());
+    }
+
+    /**
+     * Create the aggregate of the successful or of the failed samples only.
+     * Latency, connect time and sizes are prorated to the number of samples.
+     *
+     * @param successful <code>true</code> to keep the successful samples,
+     *            <code>false</code> to keep the failed ones
+     * @return a new aggregate, which may be empty
+     */
+    public HistogramSampleResult filter(boolean successful) {
+        LatencyHistogram times = successful ? successTimes : failureTimes;
+        SampleResult sums = new SampleResult();
+        sums.setSampleLabel(getSampleLabel());
+        sums.setThreadName(getThreadName());
+        sums.setStampAndTime(getStartTime(), getEndTime() - getStartTime());
+        sums.setGroupThreads(getGroupThreads());
+        sums.setAllThreads(getAllThreads());
+        sums.setLatency(prorate(getLatency(), times.getCount()));
+        sums.setConnectTime(prorate(getConnectTime(), times.getCount()));
+        sums.setBytes(prorate(getBytesAsLong(), times.getCount()));
+        sums.setSentBytes(prorate(getSentBytes(), times.getCount()));
+        return new HistogramSampleResult(sums,
+                successful ? successTimes : new LatencyHistogram(),
+                successful ? new LatencyHistogram() : failureTimes,
+                successful ? Collections.<String, Long>emptyMap() : errorsByCode,
+                successful ? successCode : "");
+    }
+
+    private long prorate(long total, long count) {
+        int sampleCount = getSampleCount();
+        return sampleCount == 0 ? 0 : Math.round((double) total * count / sampleCount);
+    }
+
+    /**
+     * @return the response code of the first successful sample
+     */
+    public String getSuccessCode() {
+        return successCode;
+    }
+
+    /**
+     * @return the elapsed times of the successful samples, not to be modified
+     */
+    public LatencyHistogram getSuccessTimes() {
+        return successTimes;
+    }
+
+    /**
+     * @return the elapsed times of the failed samples, not to be modified
+     */
+    public LatencyHistogram getFailureTimes() {
+        return failureTimes;
+    }
+
+    /**
+     * @return the number of failed samples by response code
+     */
+    public Map<String, Long> getErrorsByCode() {
+        return Collections.unmodifiableMap(errorsByCode);
+    }
+
+    /**
+     * @return the elapsed times of all the samples
+     */
+    public LatencyHistogram getTimes() {
+        LatencyHistogram times = new LatencyHistogram();
+        times.add(successTimes);
+        times.add(failureTimes);
+        return times;
+    }
+
+    /**
+     * Pass the elapsed times of all the samples to a consumer
+     *
+     * @param consumer receives each non empty bucket of the histograms
+     * @see LatencyHistogram#forEachValue(LatencyHistogram.ValueConsumer)
+     */
+    public void forEachValue(LatencyHistogram.ValueConsumer consumer) {
+        getTimes().forEachValue(consumer);
+    }
+
+    /**
+     * Create one synthetic {@link SampleResult} per aggregated sample. Only
+     * the number of samples, their success and the distribution of their
+     * elapsed times are the real ones:
+     * <ul>
+     * <li>the elapsed time is the one of the histogram bucket of the sample</li>
+     * <li>all the samples get the time stamp of this aggregate</li>
+     * <li>latency, connect time and sizes are the averages of this aggregate</li>
+     * <li>successful samples get the response code of the first successful
+     * sample, failed samples get the codes of the failures in the order of
+     * the codes, not in the order of their elapsed times</li>
+     * </ul>
+     *
+     * @param consumer receives each sample
+     */
+    public void forEachSample(Consumer<SampleResult> consumer) {
+        if (getSampleCount() == 0) {
+            return;
+        }
+        successTimes.forEachValue((value, count) -> {
+            for (long i = 0; i < count; i++) {
+                consumer.accept(createSample(value, true, successCode));
+            }
+        });
+        Iterator<Map.Entry<String, Long>> codes = errorsByCode.entrySet().iterator();
+        long[] remaining = new long[1];
+        String[] code = new String[1];
+        failureTimes.forEachValue((value, count) -> {
+            for (long i = 0; i < count; i++) {
+                while (remaining[0] == 0 && codes.hasNext()) {
+                    Map.Entry<String, Long> entry = codes.next();
+                    code[0] = entry.getKey();
+                    remaining[0] = entry.getValue();
+                }
+                remaining[0]--;
+                consumer.accept(createSample(value, false, code[0]));
+            }
+        });
+    }
+
+    private SampleResult createSample(long elapsed, boolean success, String responseCode) {
+        SampleResult sample = new SampleResult(getTimeStamp(), elapsed);
+        sample.setSampleLabel(getSampleLabel());
+        sample.setThreadName(getThreadName());
+        sample.setSuccessful(success);
+        sample.setResponseCode(responseCode);
+        sample.setGroupThreads(getGroupThreads());
+        sample.setAllThreads(getAllThreads());
+        int sampleCount = getSampleCount();
+        sample.setLatency(getLatency() / sampleCount);
+        sample.setConnectTime(getConnectTime() / sampleCount);
+        sample.setBytes(getBytesAsLong() / sampleCount);
+        sample.setSentBytes(getSentBytes() / sampleCount);
+        return sample;
+    }
+}
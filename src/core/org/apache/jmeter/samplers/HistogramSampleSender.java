@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the samples on the server into one {@link HistogramSampleResult}
+ * per label and thread group (or thread name) and per interval, and only sends
+ * these aggregates to the client.
+ * <p>
+ * Unlike {@link StatisticalSampleSender}, the distribution of the elapsed
+ * times is kept, so listeners of the client can compute percentiles, and the
+ * number of samples sent does not depend on the load.
+ * </p>
+ * @since 5.1
+ */
+public class HistogramSampleSender extends AbstractSampleSender implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(HistogramSampleSender.class);
+
+    private static final long DEFAULT_TIME_THRESHOLD = 60000L;
+
+    // Static fields are set by the server when the class is constructed
+
+    private static final long TIME_THRESHOLD_MS = JMeterUtils.getPropDefault("time_threshold",
+            DEFAULT_TIME_THRESHOLD);
+
+    // should the samples be aggregated on thread name or thread group (default) ?
+    private static final boolean KEY_ON_THREADNAME = JMeterUtils.getPropDefault("key_on_threadname", false);
+
+    // Instance fields are constructed by the client when the instance is create in the test plan
+    // and the field values are then transferred to the server copy by RMI serialisation/deserialisation
+
+    private final long clientConfiguredTimeThresholdMs = JMeterUtils.getPropDefault("time_threshold",
+            DEFAULT_TIME_THRESHOLD);
+
+    private final boolean clientConfiguredKeyOnThreadName = JMeterUtils.getPropDefault("key_on_threadname", false);
+
+    private final RemoteSampleListener listener;
+
+    // Settings; readResolve sets these from the server/client values as appropriate
+    private transient long timeThresholdMs;
+
+    private transient boolean keyOnThreadName;
+
+    // variables maintained by server code
+
+    /** Aggregates of the current interval by key */
+    private transient Map<String, SampleEvent> aggregates;
+
+    /** Held to add samples, exclusively held to swap the aggregates */
+    private transient ReadWriteLock aggregatesLock;
+
+    private transient AtomicLong nextSendTime;
+
+    /**
+     * Constructor, only called by client code.
+     *
+     * @param listener that the List of sample events will be sent to.
+     */
+    HistogramSampleSender(RemoteSampleListener listener) {
+        this.listener = listener;
+        if (isClientConfigured()) {
+            log.info("Using HistogramSampleSender (client settings) for this run."
+                    + " Interval: {}. Key uses ThreadName: {}",
+                    clientConfiguredTimeThresholdMs, clientConfiguredKeyOnThreadName);
+        } else {
+            log.info("Using HistogramSampleSender (server settings) for this run.");
+        }
+    }
+
+    /**
+     * Processed by the RMI server code; acts as testStarted().
+     * @return this
+     * @throws ObjectStreamException never
+     */
+    protected Object readResolve() throws ObjectStreamException {
+        if (isClientConfigured()) {
+            timeThresholdMs = clientConfiguredTimeThresholdMs;
+            keyOnThreadName = clientConfiguredKeyOnThreadName;
+        } else {
+            timeThresholdMs = TIME_THRESHOLD_MS;
+            keyOnThreadName = KEY_ON_THREADNAME;
+        }
+        aggregates = new ConcurrentHashMap<>();
+        aggregatesLock = new ReentrantReadWriteLock();
+        nextSendTime = new AtomicLong(timeThresholdMs > 0
+                ? System.currentTimeMillis() + timeThresholdMs : Long.MAX_VALUE);
+        log.info("Using HistogramSampleSender for this run. {} config: Interval: {}. Key uses ThreadName: {}",
+                isClientConfigured() ? "Client" : "Server", timeThresholdMs, keyOnThreadName);
+        return this;
+    }
+
+    /**
+     * Sends the aggregates of the last interval and informs the listener that
+     * the test ended.
+     *
+     * @param host the hostname that the test has ended on.
+     */
+    @Override
+    public void testEnded(String host) {
+        log.info("Test Ended on {}", host);
+        try {
+            sendAggregates();
+            listener.testEnded(host);
+        } catch (RemoteException err) {
+            log.warn("testEnded(hostname)", err);
+        }
+    }
+
+    /**
+     * Adds the sample to the aggregate of its key. The first sampler thread
+     * which sees that the interval is over sends the aggregates.
+     *
+     * @param e a Sample Event
+     */
+    @Override
+    public void sampleOccurred(SampleEvent e) {
+        String key = StatisticalSampleResult.getKey(e, keyOnThreadName);
+        aggregatesLock.readLock().lock();
+        try {
+            SampleEvent aggregate = aggregates.computeIfAbsent(key,
+                    k -> new SampleEvent(new HistogramSampleResult(e.getResult()), e.getThreadGroup()));
+            HistogramSampleResult result = (HistogramSampleResult) aggregate.getResult();
+            synchronized (result) {
+                result.add(e.getResult());
+            }
+        } finally {
+            aggregatesLock.readLock().unlock();
+        }
+        long now = System.currentTimeMillis();
+        long sendTime = nextSendTime.get();
+        if (now >= sendTime && nextSendTime.compareAndSet(sendTime, now + timeThresholdMs)) {
+            try {
+                sendAggregates();
+            } catch (RemoteException err) {
+                log.warn("sampleOccurred", err);
+            }
+        }
+    }
+
+    private void sendAggregates() throws RemoteException {
+        Map<String, SampleEvent> toSend;
+        aggregatesLock.writeLock().lock();
+        try {
+            toSend = aggregates;
+            aggregates = new ConcurrentHashMap<>();
+        } finally {
+            aggregatesLock.writeLock().unlock();
+        }
+        if (!toSend.isEmpty()) {
+            listener.processBatch(new ArrayList<>(toSend.values()));
+        }
+    }
+}
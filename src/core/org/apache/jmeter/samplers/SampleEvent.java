@@ -44,6 +44,8 @@ public class SampleEvent implements Serializable {
     // List of variable names to be saved in JTL files
     private static volatile String[] variableNames = new String[0];
 
+    private static final String[] NO_VALUES = new String[0];
+
     // The values. Entries may be null, but there will be the correct number.
     private final String[] values;
 
@@ -131,7 +133,33 @@ public class SampleEvent implements Serializable {
         this.result = result;
         this.threadGroup = threadGroup;
         this.hostname = hostname;
-        this.values = new String[variableNames.length];
+        int varCount = variableNames.length;
+        // No need to allocate an array per event when there is no sample variable
+        this.values = varCount == 0 ? NO_VALUES : new String[varCount];
+        this.isTransactionSampleEvent = isTransactionSampleEvent;
+    }
+
+    /**
+     * Only intended for use when decoding events sent by {@link StreamingSampleSender}.
+     *
+     * @param result
+     *            The SampleResult to be associated with this event
+     * @param threadGroup
+     *            The name of the thread, the {@link SampleResult} was recorded
+     * @param hostname
+     *            The name of the host, for which the {@link SampleResult} was
+     *            recorded
+     * @param values
+     *            the values of the sample variables
+     * @param isTransactionSampleEvent
+     *            Flag whether this event is an transaction sample event
+     */
+    SampleEvent(SampleResult result, String threadGroup, String hostname, String[] values,
+            boolean isTransactionSampleEvent) {
+        this.result = result;
+        this.threadGroup = threadGroup;
+        this.hostname = hostname;
+        this.values = values;
         this.isTransactionSampleEvent = isTransactionSampleEvent;
     }
 
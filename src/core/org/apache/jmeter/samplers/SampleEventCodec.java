@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.assertions.AssertionResult;
+
+/**
+ * Compact binary encoding of {@link SampleEvent}s used by
+ * {@link StreamingSampleSender}.
+ * <p>
+ * The fields of a {@link SampleResult} are written in a fixed order, optional
+ * fields are only written when a bit of the leading flags says they are set.
+ * Numbers are written as variable length integers, timestamps as a difference
+ * with the previous one. Strings which are likely to repeat (labels, thread
+ * names, response codes...) are written once, then referenced by their index
+ * in a dictionary which both sides build in the same order.
+ * </p>
+ * <p>
+ * Only the fields of {@link SampleResult} are encoded: results of sub classes
+ * are decoded as plain {@link SampleResult}s.
+ * </p>
+ * An {@link Encoder} and its {@link Decoder} are stateful and must see the
+ * same events in the same order, they are not thread safe.
+ * @since 5.1
+ */
+final class SampleEventCodec {
+
+    /** Version of the encoding, to be changed when the encoding changes */
+    static final int VERSION = 1;
+
+    /** Maximal number of entries of the string dictionary */
+    private static final int MAX_DICTIONARY_SIZE = 16384;
+
+    // String tags
+    private static final int NULL_STRING = 0;
+    private static final int INLINE_STRING = 1;
+    private static final int NEW_STRING = 2;
+    private static final int STRING_REFERENCE = 3;
+
+    // Flags of a result
+    private static final int SUCCESS = 1;
+    private static final int RESPONSE_DATA = 1 << 1;
+    private static final int SAMPLER_DATA = 1 << 2;
+    private static final int URL = 1 << 3;
+    private static final int REQUEST_HEADERS = 1 << 4;
+    private static final int RESPONSE_HEADERS = 1 << 5;
+    private static final int DATA_ENCODING = 1 << 6;
+    private static final int ASSERTIONS = 1 << 7;
+    private static final int SUB_RESULTS = 1 << 8;
+
+    // Flags of an assertion
+    private static final int ASSERTION_FAILURE = 1;
+    private static final int ASSERTION_ERROR = 1 << 1;
+    private static final int ASSERTION_MESSAGE = 1 << 2;
+
+    private static final byte[] EMPTY_BA = new byte[0];
+
+    private SampleEventCodec() {
+        super();
+    }
+
+    /**
+     * Writes {@link SampleEvent}s
+     */
+    static final class Encoder {
+        private final DataOutput out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private long lastTimeStamp;
+
+        /**
+         * @param out where to write the events
+         */
+        Encoder(DataOutput out) {
+            this.out = out;
+        }
+
+        /**
+         * @param event {@link SampleEvent} to write
+         * @throws IOException when writing fails
+         */
+        void write(SampleEvent event) throws IOException {
+            writeString(event.getThreadGroup());
+            writeString(event.getHostname());
+            out.writeBoolean(event.isTransactionSampleEvent());
+            int varCount = SampleEvent.getVarCount();
+            writeVarLong(out, varCount);
+            for (int i = 0; i < varCount; i++) {
+                writeText(out, event.getVarValue(i));
+            }
+            writeResult(event.getResult());
+        }
+
+        private void writeResult(SampleResult result) throws IOException {
+            byte[] responseData = result.getResponseData();
+            String samplerData = result.getSamplerData();
+            URL url = result.getURL();
+            String requestHeaders = result.getRequestHeaders();
+            String responseHeaders = result.getResponseHeaders();
+            String dataEncoding = result.getDataEncodingNoDefault();
+            AssertionResult[] assertions = result.getAssertionResults();
+            SampleResult[] subResults = result.getSubResults();
+
+            int flags = result.isSuccessful() ? SUCCESS : 0;
+            flags |= responseData.length > 0 ? RESPONSE_DATA : 0;
+            flags |= samplerData != null ? SAMPLER_DATA : 0;
+            flags |= url != null ? URL : 0;
+            flags |= !requestHeaders.isEmpty() ? REQUEST_HEADERS : 0;
+            flags |= !responseHeaders.isEmpty() ? RESPONSE_HEADERS : 0;
+            flags |= dataEncoding != null ? DATA_ENCODING : 0;
+            flags |= assertions.length > 0 ? ASSERTIONS : 0;
+            flags |= subResults.length > 0 ? SUB_RESULTS : 0;
+            writeVarLong(out, flags);
+
+            long timeStamp = result.getTimeStamp();
+            writeZigZag(out, timeStamp - lastTimeStamp);
+            lastTimeStamp = timeStamp;
+            writeZigZag(out, result.getStartTime() - timeStamp);
+            writeZigZag(out, result.getEndTime() - result.getStartTime());
+            writeZigZag(out, result.getIdleTime());
+            writeZigZag(out, result.getTime());
+            writeZigZag(out, result.getLatency());
+            writeZigZag(out, result.getConnectTime());
+
+            writeVarLong(out, result.getSampleCount());
+            writeVarLong(out, result.getBytesAsLong());
+            writeVarLong(out, result.getHeadersSize());
+            writeVarLong(out, result.getBodySizeAsLong());
+            writeVarLong(out, result.getSentBytes());
+            writeVarLong(out, result.getGroupThreads());
+            writeVarLong(out, result.getAllThreads());
+
+            writeString(result.getSampleLabel());
+            writeString(result.getThreadName());
+            writeString(result.getResponseCode());
+            writeString(result.getResponseMessage());
+            writeString(result.getDataType());
+            writeString(result.getContentType());
+            if (dataEncoding != null) {
+                writeString(dataEncoding);
+            }
+            if (responseData.length > 0) {
+                writeVarLong(out, responseData.length);
+                out.write(responseData);
+            }
+            if (samplerData != null) {
+                writeText(out, samplerData);
+            }
+            if (url != null) {
+                writeText(out, url.toExternalForm());
+            }
+            if (!requestHeaders.isEmpty()) {
+                writeText(out, requestHeaders);
+            }
+            if (!responseHeaders.isEmpty()) {
+                writeText(out, responseHeaders);
+            }
+            if (assertions.length > 0) {
+                writeVarLong(out, assertions.length);
+                for (AssertionResult assertion : assertions) {
+                    writeAssertion(assertion);
+                }
+            }
+            if (subResults.length > 0) {
+                writeVarLong(out, subResults.length);
+                for (SampleResult subResult : subResults) {
+                    writeResult(subResult);
+                }
+            }
+        }
+
+        private void writeAssertion(AssertionResult assertion) throws IOException {
+            String message = assertion.getFailureMessage();
+            int flags = assertion.isFailure() ? ASSERTION_FAILURE : 0;
+            flags |= assertion.isError() ? ASSERTION_ERROR : 0;
+            flags |= message != null ? ASSERTION_MESSAGE : 0;
+            out.writeByte(flags);
+            writeString(assertion.getName());
+            if (message != null) {
+                writeString(message);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(out, NULL_STRING);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarLong(out, STRING_REFERENCE + (long) index);
+            } else if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+                dictionary.put(value, dictionary.size());
+                writeVarLong(out, NEW_STRING);
+                writeUtf8(out, value);
+            } else {
+                writeVarLong(out, INLINE_STRING);
+                writeUtf8(out, value);
+            }
+        }
+    }
+
+    /**
+     * Reads {@link SampleEvent}s written by an {@link Encoder}
+     */
+    static final class Decoder {
+        private final DataInput in;
+        private final List<String> dictionary = new ArrayList<>();
+        private long lastTimeStamp;
+
+        /**
+         * @param in where to read the events from
+         */
+        Decoder(DataInput in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next {@link SampleEvent}
+         * @throws IOException when reading fails or data is corrupted
+         */
+        SampleEvent read() throws IOException {
+            String threadGroup = readString();
+            String hostname = readString();
+            boolean transaction = in.readBoolean();
+            int varCount = readLength(in);
+            String[] values = new String[varCount];
+            for (int i = 0; i < varCount; i++) {
+                values[i] = readText(in);
+            }
+            return new SampleEvent(readResult(), threadGroup, hostname, values, transaction);
+        }
+
+        private SampleResult readResult() throws IOException {
+            int flags = (int) readVarLong(in);
+            SampleResult result = new SampleResult();
+            result.setSuccessful((flags & SUCCESS) != 0);
+
+            long timeStamp = lastTimeStamp + readZigZag(in);
+            lastTimeStamp = timeStamp;
+            long startTime = timeStamp + readZigZag(in);
+            long endTime = startTime + readZigZag(in);
+            long idleTime = readZigZag(in);
+            long elapsed = readZigZag(in);
+            result.setTimes(timeStamp, startTime, endTime, idleTime, elapsed);
+            result.setLatency(readZigZag(in));
+            result.setConnectTime(readZigZag(in));
+
+            result.setSampleCount(readLength(in));
+            result.setBytes(readVarLong(in));
+            result.setHeadersSize(readLength(in));
+            result.setBodySize(readVarLong(in));
+            result.setSentBytes(readVarLong(in));
+            result.setGroupThreads(readLength(in));
+            result.setAllThreads(readLength(in));
+
+            result.setSampleLabel(readString());
+            result.setThreadName(readString());
+            result.setResponseCode(readString());
+            result.setResponseMessage(readString());
+            result.setDataType(readString());
+            result.setContentType(readString());
+            if ((flags & DATA_ENCODING) != 0) {
+                result.setDataEncoding(readString());
+            }
+            if ((flags & RESPONSE_DATA) != 0) {
+                byte[] responseData = new byte[readLength(in)];
+                in.readFully(responseData);
+                result.setResponseData(responseData);
+            }
+            if ((flags & SAMPLER_DATA) != 0) {
+                result.setSamplerData(readText(in));
+            }
+            if ((flags & URL) != 0) {
+                result.setURL(new URL(readText(in)));
+            }
+            if ((flags & REQUEST_HEADERS) != 0) {
+                result.setRequestHeaders(readText(in));
+            }
+            if ((flags & RESPONSE_HEADERS) != 0) {
+                result.setResponseHeaders(readText(in));
+            }
+            if ((flags & ASSERTIONS) != 0) {
+                int count = readLength(in);
+                for (int i = 0; i < count; i++) {
+                    result.addAssertionResult(readAssertion());
+                }
+            }
+            if ((flags & SUB_RESULTS) != 0) {
+                int count = readLength(in);
+                for (int i = 0; i < count; i++) {
+                    result.storeSubResult(readResult(), false);
+                }
+            }
+            return result;
+        }
+
+        private AssertionResult readAssertion() throws IOException {
+            int flags = in.readUnsignedByte();
+            AssertionResult assertion = new AssertionResult(readString());
+            assertion.setFailure((flags & ASSERTION_FAILURE) != 0);
+            assertion.setError((flags & ASSERTION_ERROR) != 0);
+            if ((flags & ASSERTION_MESSAGE) != 0) {
+                assertion.setFailureMessage(readString());
+            }
+            return assertion;
+        }
+
+        private String readString() throws IOException {
+            long tag = readVarLong(in);
+            if (tag == NULL_STRING) {
+                return null;
+            }
+            if (tag == INLINE_STRING) {
+                return readUtf8(in);
+            }
+            if (tag == NEW_STRING) {
+                String value = readUtf8(in);
+                dictionary.add(value);
+                return value;
+            }
+            long index = tag - STRING_REFERENCE;
+            if (index >= dictionary.size()) {
+                throw new StreamCorruptedException("Unknown string reference: " + index);
+            }
+            return dictionary.get((int) index);
+        }
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed variable length integer");
+    }
+
+    private static void writeZigZag(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readZigZag(DataInput in) throws IOException {
+        long v = readVarLong(in);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Invalid length: " + length);
+        }
+        return (int) length;
+    }
+
+    private static void writeUtf8(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.isEmpty() ? EMPTY_BA : value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readUtf8(DataInput in) throws IOException {
+        int length = readLength(in);
+        if (length == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Writes a string which is not likely to repeat, or null */
+    private static void writeText(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, NULL_STRING);
+        } else {
+            writeVarLong(out, INLINE_STRING);
+            writeUtf8(out, value);
+        }
+    }
+
+    private static String readText(DataInput in) throws IOException {
+        long tag = readVarLong(in);
+        if (tag == NULL_STRING) {
+            return null;
+        }
+        if (tag != INLINE_STRING) {
+            throw new StreamCorruptedException("Unexpected string tag: " + tag);
+        }
+        return readUtf8(in);
+    }
+}
@@ -25,8 +25,10 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -96,6 +98,14 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @see #setDataType(java.lang.String)
      */
     public static final String BINARY = "bin"; // $NON-NLS-1$
+
+    /**
+     * Key of the MD5 digest of the response data, as a lower case hex String,
+     * for samplers which compute it while reading the response
+     * @see #getParsedResponse(String)
+     * @since 5.1
+     */
+    public static final String RESPONSE_DATA_MD5_HEX_KEY = "SampleResult.responseDataMD5Hex"; // $NON-NLS-1$
     
     // List of types that are known to be binary
     private static final String[] BINARY_TYPES = {
@@ -208,11 +218,16 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     private boolean success;
 
     /**
-     * Files that this sample has been saved in.
-     * In Non GUI mode and when best config is used, size never exceeds 1,
-     * but as a compromise set it to 3
+     * First file that this sample has been saved in.
+     * In Non GUI mode and when best config is used, a sample is never saved
+     * in more than 1 file, so {@link #files} is only created when needed
      */
-    private final Set<String> files = new HashSet<>(3);
+    private String firstFile;
+
+    /**
+     * Other files that this sample has been saved in, created on first use
+     */
+    private Set<String> files;
 
     // TODO do contentType and/or dataEncoding belong in HTTPSampleResult instead?
     private String dataEncoding;// (is this really the character set?) e.g.
@@ -275,6 +290,11 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     private transient volatile String responseDataAsString;
 
+    /**
+     * Response data parsed by post processors and assertions, by parser and options
+     */
+    private transient Map<String, Object> parsedResponses;
+
     public SampleResult() {
         this(USE_NANO_TIME, NANOTHREAD_SLEEP);
     }
@@ -497,6 +517,16 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @return <code>true</code> if the result was previously marked
      */
     public synchronized boolean markFile(String filename) {
+        if (firstFile == null) {
+            firstFile = filename;
+            return false;
+        }
+        if (firstFile.equals(filename)) {
+            return true;
+        }
+        if (files == null) {
+            files = new HashSet<>(3);
+        }
         return !files.add(filename);
     }
 
@@ -690,7 +720,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      *            the {@link SampleResult} to be added
      * @param renameSubResults boolean do we rename subResults based on position
      */
-    private void storeSubResult(SampleResult subResult, boolean renameSubResults) {
+    void storeSubResult(SampleResult subResult, boolean renameSubResults) {
         if (subResults == null) {
             subResults = new ArrayList<>();
         }
@@ -725,6 +755,10 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     public void setResponseData(byte[] response) {
         responseDataAsString = null;
+        if (response != responseData) {
+            // kept for the same data, which samplers may have digested while reading it
+            parsedResponses = null;
+        }
         responseData = response == null ? EMPTY_BA : response;
     }
 
@@ -740,6 +774,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     @Deprecated
     public void setResponseData(String response) {
         responseDataAsString = null;
+        parsedResponses = null;
         try {
             responseData = response.getBytes(getDataEncodingWithDefault());
         } catch (UnsupportedEncodingException e) {
@@ -757,6 +792,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     public void setResponseData(final String response, final String encoding) {
         responseDataAsString = null;
+        parsedResponses = null;
         String encodeUsing = encoding != null? encoding : DEFAULT_CHARSET;
         try {
             responseData = response.getBytes(encodeUsing);
@@ -929,6 +965,49 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         return getDataEncodingWithDefault(DEFAULT_ENCODING);
     }
 
+    /**
+     * Get the charset of the response data, if strings can be searched in
+     * the response data bytes with the same results as in
+     * {@link #getResponseDataAsString()}, so that it does not need to be
+     * decoded: UTF-8, whose characters never start within another one, and
+     * single byte charsets.
+     *
+     * @return the charset of the response data, or <code>null</code> if its
+     *         bytes can't be searched
+     * @see #encodeForResponseDataSearch(String)
+     * @since 5.1
+     */
+    public Charset getResponseDataSearchCharset() {
+        try {
+            Charset charset = Charset.forName(getDataEncodingWithDefault());
+            if (StandardCharsets.UTF_8.equals(charset) || charset.newEncoder().maxBytesPerChar() == 1.0f) {
+                return charset;
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) { // NOSONAR
+            // Let getResponseDataAsString handle it
+        }
+        return null;
+    }
+
+    /**
+     * Encode a string to search it in the response data bytes
+     *
+     * @param s string to search
+     * @return the bytes to search, or <code>null</code> if the string must be
+     *         searched in {@link #getResponseDataAsString()}, because the
+     *         response data bytes can't be searched or the response data
+     *         charset can't encode the string
+     * @see #getResponseDataSearchCharset()
+     * @since 5.1
+     */
+    public byte[] encodeForResponseDataSearch(String s) {
+        Charset charset = getResponseDataSearchCharset();
+        if (charset == null || !charset.newEncoder().canEncode(s)) {
+            return null;
+        }
+        return s.getBytes(charset);
+    }
+
     /**
      * Returns the dataEncoding or the default if no dataEncoding was provided.
      * 
@@ -1109,6 +1188,23 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         setEndTime(end);
     }
 
+    /**
+     * Restore all the times of a result, for use by {@link SampleEventCodec}.
+     *
+     * @param stamp the time stamp
+     * @param start the start time
+     * @param end the end time
+     * @param idle the idle time
+     * @param elapsed the elapsed time
+     */
+    void setTimes(long stamp, long start, long end, long idle, long elapsed) {
+        timeStamp = stamp;
+        startTime = start;
+        endTime = end;
+        idleTime = idle;
+        elapsedTime = elapsed;
+    }
+
     /**
      * Record the start time of a sample
      *
@@ -1527,17 +1623,59 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         }
     }
 
+    /**
+     * Get the response data as parsed by a post processor or an assertion,
+     * so that all the elements parsing the response of a sample the same way
+     * parse it only once.
+     * <p>
+     * Parsed responses are only meant to be used by the thread of the sample,
+     * must not be modified, and are released by {@link #cleanAfterSample()}
+     * or when the response data is set.
+     * </p>
+     *
+     * @param key identifies the parser and its options
+     * @return the parsed response, or <code>null</code> if the response was not
+     *         parsed with this key
+     * @since 5.1
+     */
+    public Object getParsedResponse(String key) {
+        return parsedResponses == null ? null : parsedResponses.get(key);
+    }
+
+    /**
+     * Keep the response data parsed by a post processor or an assertion
+     *
+     * @param key identifies the parser and its options
+     * @param parsedResponse the parsed response data
+     * @see #getParsedResponse(String)
+     * @since 5.1
+     */
+    public void setParsedResponse(String key, Object parsedResponse) {
+        if (parsedResponses == null) {
+            parsedResponses = new HashMap<>(4);
+        }
+        parsedResponses.put(key, parsedResponse);
+    }
+
     /**
      * Clean up cached data
      */
     public void cleanAfterSample() {
         this.responseDataAsString = null;
+        this.parsedResponses = null;
+        if (subResults != null) {
+            for (SampleResult subResult : subResults) {
+                subResult.cleanAfterSample();
+            }
+        }
     }
 
     @Override
     public Object clone() {
         try {
-            return super.clone();
+            SampleResult clone = (SampleResult) super.clone();
+            clone.parsedResponses = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new IllegalStateException("This should not happen");
         }
@@ -37,6 +37,9 @@ public class SampleSenderFactory {
     private static final String MODE_STRIPPED_ASYNCH = "StrippedAsynch"; // $NON-NLS-1$
     private static final String MODE_DISKSTORE = "DiskStore"; // $NON-NLS-1$
     private static final String MODE_STRIPPED_DISKSTORE = "StrippedDiskStore"; // $NON-NLS-1$
+    private static final String MODE_STREAMING = "Streaming"; // $NON-NLS-1$
+    private static final String MODE_STRIPPED_STREAMING = "StrippedStreaming"; // $NON-NLS-1$
+    private static final String MODE_HISTOGRAM = "Histogram"; // $NON-NLS-1$
 
     /**
      * Checks for the JMeter property mode and returns the required class.
@@ -67,6 +70,12 @@ public class SampleSenderFactory {
             s = new DiskStoreSampleSender(listener);
         } else if (type.equalsIgnoreCase(MODE_STRIPPED_DISKSTORE)) {
             s = new DataStrippingSampleSender(new DiskStoreSampleSender(listener));
+        } else if (type.equalsIgnoreCase(MODE_STREAMING)) {
+            s = new StreamingSampleSender(listener);
+        } else if (type.equalsIgnoreCase(MODE_STRIPPED_STREAMING)) {
+            s = new DataStrippingSampleSender(new StreamingSampleSender(listener));
+        } else if (type.equalsIgnoreCase(MODE_HISTOGRAM)) {
+            s = new HistogramSampleSender(listener);
         } else {
             // should be a user provided class name
             try {
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.rmi.RmiUtils;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives on the client the {@link SampleEvent}s streamed by the
+ * {@link StreamingSampleSender}s of the servers, and fires them to the
+ * {@link RemoteSampleListener} each sender was created for.
+ * <p>
+ * A single server socket is opened for the lifetime of the client, each
+ * sender connects to it with the random identifier it was registered with.
+ * Each connection is read by its own thread.
+ * </p>
+ * <p>
+ * The socket is bound to the advertised address only, not to all the
+ * interfaces, and is not encrypted, so {@link StreamingSampleSender} refuses
+ * to be used unless RMI SSL is disabled.
+ * </p>
+ * @since 5.1
+ */
+final class StreamingSampleReceiver implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingSampleReceiver.class);
+
+    /** First bytes sent by a sender: "JMSS" */
+    static final int MAGIC = 0x4A4D5353;
+
+    /** Frame of a batch of events */
+    static final int BATCH = 1;
+
+    /** Frame ending the stream */
+    static final int END = 2;
+
+    /** Sent back once all the events of the stream have been fired */
+    static final int ACK = 1;
+
+    static final int BUFFER_SIZE = 65536;
+
+    private static StreamingSampleReceiver instance; // guarded by class
+
+    private final ServerSocketChannel serverChannel;
+
+    private final String advertisedHost;
+
+    private final Map<Long, RemoteSampleListener> listeners = new ConcurrentHashMap<>();
+
+    private final SecureRandom random = new SecureRandom();
+
+    private StreamingSampleReceiver(int port, String host) throws IOException {
+        InetAddress address = StringUtils.isBlank(host) ? RmiUtils.getRmiHost() : InetAddress.getByName(host.trim());
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(address, port));
+        advertisedHost = address.getHostAddress();
+    }
+
+    /**
+     * @return the receiver of this JVM, started on first call
+     * @throws IOException when the server socket can't be opened
+     */
+    static synchronized StreamingSampleReceiver getInstance() throws IOException {
+        if (instance == null) {
+            instance = new StreamingSampleReceiver(
+                    JMeterUtils.getPropDefault("client.streaming.port", 0), // $NON-NLS-1$
+                    JMeterUtils.getProperty("client.streaming.host")); // $NON-NLS-1$
+            Thread acceptor = new Thread(instance, "StreamingSampleReceiver"); // $NON-NLS-1$
+            acceptor.setDaemon(true);
+            acceptor.start();
+            log.info("Receiving streamed samples on {}:{}", instance.getHost(), instance.getPort());
+        }
+        return instance;
+    }
+
+    /**
+     * @return the host the servers must connect to
+     */
+    String getHost() {
+        return advertisedHost;
+    }
+
+    /**
+     * @return the port the receiver listens on
+     */
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Register a listener to fire the events of one sender to
+     * @param listener {@link RemoteSampleListener} to fire events to
+     * @return the identifier the sender has to connect with
+     */
+    long register(RemoteSampleListener listener) {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (listeners.putIfAbsent(id, listener) != null);
+        return id;
+    }
+
+    @Override
+    public void run() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                SocketAddress remote = channel.getRemoteAddress();
+                Thread reader = new Thread(() -> receive(channel, remote), "StreamingSampleReceiver-" + remote); // $NON-NLS-1$
+                reader.setDaemon(true);
+                reader.start();
+            } catch (ClosedChannelException e) { // NOSONAR Receiver is closed
+                return;
+            } catch (IOException e) {
+                log.error("Error accepting connection of a streaming sample sender", e);
+            }
+        }
+    }
+
+    private void receive(SocketChannel channel, SocketAddress remote) {
+        long id = 0;
+        int count = 0;
+        Inflater inflater = null;
+        try (SocketChannel c = channel) {
+            InputStream raw = Channels.newInputStream(c);
+            // Not buffered, so that nothing is read after the handshake
+            DataInputStream handshake = new DataInputStream(raw);
+            if (handshake.readInt() != MAGIC) {
+                log.warn("Closing connection from {}, it is not a streaming sample sender", remote);
+                return;
+            }
+            int version = handshake.readUnsignedByte();
+            if (version != SampleEventCodec.VERSION) {
+                log.warn("Closing connection from {}, unsupported version: {}", remote, version);
+                return;
+            }
+            id = handshake.readLong();
+            boolean compressed = handshake.readBoolean();
+            RemoteSampleListener listener = listeners.get(id);
+            if (listener == null) {
+                log.warn("Closing connection from {}, unknown sender", remote);
+                return;
+            }
+            log.info("Receiving streamed samples from {}", remote);
+            DataInputStream in;
+            if (compressed) {
+                inflater = new Inflater();
+                in = new DataInputStream(new BufferedInputStream(
+                        new InflaterInputStream(raw, inflater, BUFFER_SIZE), BUFFER_SIZE));
+            } else {
+                in = new DataInputStream(new BufferedInputStream(raw, BUFFER_SIZE));
+            }
+            SampleEventCodec.Decoder decoder = new SampleEventCodec.Decoder(in);
+            int frame;
+            while ((frame = in.readUnsignedByte()) == BATCH) {
+                int size = (int) SampleEventCodec.readVarLong(in);
+                List<SampleEvent> batch = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    batch.add(decoder.read());
+                }
+                listener.processBatch(batch);
+                count += size;
+            }
+            if (frame != END) {
+                throw new IOException("Unexpected frame: " + frame);
+            }
+            c.write(ByteBuffer.wrap(new byte[] { ACK }));
+            log.info("Received {} streamed samples from {}", count, remote);
+        } catch (IOException e) {
+            log.error("Error receiving streamed samples from {} after {} samples", remote, count, e);
+        } finally {
+            listeners.remove(id);
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the samples to the client over a single persistent socket per
+ * server, instead of a RMI call per sample or per batch.
+ * <p>
+ * The client creates the sender and registers it to its
+ * {@link StreamingSampleReceiver}, the server connects to it when the sender is
+ * deserialized. Samples are queued, a worker thread encodes all the queued
+ * samples with {@link SampleEventCodec}, optionally compresses them and writes
+ * them to the socket. Samples are thus batched according to the load, and the
+ * bounded queue slows down the sampler threads when the client can't keep up.
+ * </p>
+ * <p>
+ * If the stream fails, the samples that were not streamed and the next ones are
+ * sent by RMI as {@link BatchSampleSender} does.
+ * </p>
+ * Samples are received by the client as plain {@link SampleResult}s, so fields
+ * specific to sub classes (HTTP method, cookies...) are not sent.
+ * <p>
+ * The stream is not encrypted, so this sender can only be used when SSL is
+ * disabled for RMI with <code>server.rmi.ssl.disable=true</code>.
+ * </p>
+ * @since 5.1
+ */
+public class StreamingSampleSender extends AbstractSampleSender implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingSampleSender.class);
+
+    // Create unique object as marker for end of queue
+    private static transient final SampleEvent FINAL_EVENT = new SampleEvent();
+
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static final boolean DEFAULT_COMPRESS = true;
+
+    private static final int SERVER_CONFIGURED_CAPACITY =
+            JMeterUtils.getPropDefault("streaming.batch.queue.size", DEFAULT_QUEUE_SIZE); // $NON-NLS-1$
+
+    private static final boolean SERVER_CONFIGURED_COMPRESS =
+            JMeterUtils.getPropDefault("streaming.compress", DEFAULT_COMPRESS); // $NON-NLS-1$
+
+    // instance fields are copied from the client instance
+    private final int clientConfiguredCapacity =
+            JMeterUtils.getPropDefault("streaming.batch.queue.size", DEFAULT_QUEUE_SIZE); // $NON-NLS-1$
+
+    private final boolean clientConfiguredCompress =
+            JMeterUtils.getPropDefault("streaming.compress", DEFAULT_COMPRESS); // $NON-NLS-1$
+
+    // created by client
+    private final RemoteSampleListener listener;
+
+    private final String receiverHost;
+
+    private final int receiverPort;
+
+    private final long receiverId;
+
+    // created by server in readResolve method
+    private transient BlockingQueue<SampleEvent> queue;
+
+    private transient Worker worker;
+
+    private transient long queueWaits; // how many times we had to wait to queue a sample
+
+    private transient long queueWaitTime; // how long we had to wait (nanoSeconds)
+
+    // Created by SampleSenderFactory
+    protected StreamingSampleSender(RemoteSampleListener listener) {
+        this.listener = listener;
+        if (!JMeterUtils.getPropDefault("server.rmi.ssl.disable", false)) { // $NON-NLS-1$
+            // Don't send in plain text the samples RMI would have encrypted
+            throw new IllegalStateException("Streaming mode does not encrypt the samples,"
+                    + " it can only be used with server.rmi.ssl.disable=true");
+        }
+        try {
+            StreamingSampleReceiver receiver = StreamingSampleReceiver.getInstance();
+            receiverHost = receiver.getHost();
+            receiverPort = receiver.getPort();
+            receiverId = receiver.register(listener);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start the receiver of streamed samples", e);
+        }
+        log.info("Using Streaming Remote Sampler for this test run, samples are received on {}:{}",
+                receiverHost, receiverPort); // client log file
+    }
+
+    /**
+     * Processed by the RMI server code.
+     *
+     * @return this
+     * @throws ObjectStreamException when the client can't be connected to
+     */
+    protected Object readResolve() throws ObjectStreamException {
+        int capacity = isClientConfigured() ? clientConfiguredCapacity : SERVER_CONFIGURED_CAPACITY;
+        boolean compress = isClientConfigured() ? clientConfiguredCompress : SERVER_CONFIGURED_COMPRESS;
+        log.info("Streaming samples to {}:{}, queue size (streaming.batch.queue.size): {}, compress: {}",
+                receiverHost, receiverPort, capacity, compress); // server log file
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open(new InetSocketAddress(receiverHost, receiverPort));
+            ByteBuffer handshake = ByteBuffer.allocate(14);
+            handshake.putInt(StreamingSampleReceiver.MAGIC)
+                    .put((byte) SampleEventCodec.VERSION)
+                    .putLong(receiverId)
+                    .put((byte) (compress ? 1 : 0))
+                    .flip();
+            while (handshake.hasRemaining()) {
+                channel.write(handshake);
+            }
+        } catch (IOException e) {
+            closeQuietly(channel);
+            InvalidObjectException ex = new InvalidObjectException(
+                    "Could not connect to the receiver of streamed samples on " + receiverHost + ":" + receiverPort);
+            ex.initCause(e);
+            throw ex;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        worker = new Worker(channel, compress);
+        worker.setDaemon(true);
+        worker.start();
+        return this;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) { // NOSONAR Ignored
+                log.debug("Error closing channel", e);
+            }
+        }
+    }
+
+    @Override
+    public void testEnded(String host) {
+        log.debug("Test Ended on {}", host);
+        try {
+            // All the samples must be fired on the client before the test ends
+            queue.put(FINAL_EVENT);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            listener.testEnded(host);
+        } catch (Exception ex) {
+            log.warn("testEnded(host)", ex);
+        }
+        if (queueWaits > 0) {
+            log.info("QueueWaits: {}; QueueWaitTime: {} (nanoseconds)", queueWaits, queueWaitTime);
+        }
+    }
+
+    @Override
+    public void sampleOccurred(SampleEvent e) {
+        try {
+            if (!queue.offer(e)) { // we failed to add the element first time
+                queueWaits++;
+                long t1 = System.nanoTime();
+                queue.put(e);
+                long t2 = System.nanoTime();
+                queueWaitTime += t2 - t1;
+            }
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            log.error("sampleOccurred; failed to queue the sample", err);
+        }
+    }
+
+    private final class Worker extends Thread {
+
+        private final SocketChannel channel;
+
+        private final boolean compress;
+
+        // Set once the final event has been taken from the queue
+        private boolean eof;
+
+        private int count;
+
+        private Worker(SocketChannel channel, boolean compress) {
+            super("StreamingSampleSender"); // $NON-NLS-1$
+            this.channel = channel;
+            this.compress = compress;
+        }
+
+        @Override
+        public void run() {
+            // Samples not sent yet, kept in case the stream fails
+            List<SampleEvent> batch = new ArrayList<>();
+            try {
+                try {
+                    stream(batch);
+                } catch (IOException e) {
+                    log.error("Failed to stream samples to the client after {} samples, sending the next samples by RMI",
+                            count, e);
+                    sendByRmi(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.debug("Worker ended, {} samples sent", count);
+        }
+
+        /**
+         * @param batch events taken from the queue
+         * @return the number of samples before the final event
+         */
+        private int samplesIn(List<SampleEvent> batch) {
+            int end = batch.indexOf(FINAL_EVENT); // SampleEvent does not override equals
+            if (end >= 0) {
+                eof = true;
+                return end;
+            }
+            return batch.size();
+        }
+
+        private void stream(List<SampleEvent> batch) throws IOException, InterruptedException {
+            Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            try (SocketChannel c = channel) {
+                OutputStream raw = Channels.newOutputStream(c);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        deflater != null
+                                ? new DeflaterOutputStream(raw, deflater, StreamingSampleReceiver.BUFFER_SIZE, true)
+                                : raw,
+                        StreamingSampleReceiver.BUFFER_SIZE));
+                SampleEventCodec.Encoder encoder = new SampleEventCodec.Encoder(out);
+                while (!eof) {
+                    // Send as many samples as possible at once
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                    int size = samplesIn(batch);
+                    if (size > 0) {
+                        out.writeByte(StreamingSampleReceiver.BATCH);
+                        SampleEventCodec.writeVarLong(out, size);
+                        for (int i = 0; i < size; i++) {
+                            encoder.write(batch.get(i));
+                        }
+                    }
+                    out.flush();
+                    // The client only fires complete batches
+                    count += size;
+                    batch.clear();
+                }
+                out.writeByte(StreamingSampleReceiver.END);
+                out.flush();
+                // Wait for the client to fire all the samples
+                if (Channels.newInputStream(c).read() != StreamingSampleReceiver.ACK) {
+                    log.warn("Client did not acknowledge the end of the streamed samples");
+                }
+            } finally {
+                if (deflater != null) {
+                    deflater.end();
+                }
+            }
+        }
+
+        /**
+         * Sends the samples that could not be streamed and the next ones by
+         * RMI, so that the client does not miss them.
+         *
+         * @param batch events taken from the queue but not streamed
+         * @throws InterruptedException when interrupted while waiting for samples
+         */
+        private void sendByRmi(List<SampleEvent> batch) throws InterruptedException {
+            int lost = 0;
+            while (true) {
+                int size = samplesIn(batch);
+                if (size > 0) {
+                    try {
+                        listener.processBatch(new ArrayList<>(batch.subList(0, size)));
+                        count += size;
+                    } catch (RemoteException e) {
+                        lost += size;
+                        log.error("Failed to send {} samples by RMI", size, e);
+                    }
+                }
+                batch.clear();
+                if (eof) {
+                    break;
+                }
+                batch.add(queue.take());
+                queue.drainTo(batch);
+            }
+            if (lost > 0) {
+                log.error("{} samples could not be sent to the client", lost);
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.jmeter.save;
 
 import java.io.BufferedReader;
 import java.io.CharArrayWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -29,11 +30,13 @@ import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
 
@@ -42,6 +45,8 @@ import javax.swing.table.DefaultTableModel;
 import org.apache.commons.collections.map.LinkedMap;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.report.core.CsvRowBlock;
+import org.apache.jmeter.report.core.MappedCsvFile;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
@@ -125,6 +130,10 @@ public final class CSVSaveService {
 
     /**
      * Read Samples from a file; handles quoted strings.
+     * <p>
+     * Unless disabled by {@value MappedCsvFile#MAPPED_READER_PROPERTY}, files
+     * using an encoding supported by {@link MappedCsvFile} are memory mapped
+     * and parsed by several threads.
      * 
      * @param filename
      *            input file
@@ -140,9 +149,56 @@ public final class CSVSaveService {
             ResultCollector resultCollector) throws IOException {
         final boolean errorsOnly = resultCollector.isErrorLogging();
         final boolean successOnly = resultCollector.isSuccessOnlyLogging();
+        final String encoding = SaveService.getFileEncoding(StandardCharsets.UTF_8.name());
+        final Charset mappedCharset = getMappedCharset(encoding);
+        if (mappedCharset != null) {
+            try (MappedCsvFile csvFile = new MappedCsvFile(new File(filename), mappedCharset)) {
+                // Get the first line, and see if it is the header
+                String line = csvFile.readLine();
+                if (line == null) {
+                    throw new IOException(filename + ": unable to read header line");
+                }
+                long lineNumber = 1;
+                SampleSaveConfiguration saveConfig = CSVSaveService.getSampleSaveConfiguration(line, filename);
+                if (saveConfig == null) {// not a valid header
+                    saveConfig = getDefaultSaveConfiguration(filename, resultCollector);
+                    csvFile.rewind(); // restart from beginning
+                    lineNumber = 0;
+                }
+                final char delim = saveConfig.getDelimiter().charAt(0);
+                if (MappedCsvFile.isSupported(mappedCharset, delim)) {
+                    csvFile.setSeparator(delim);
+                    // Rows filtered out are skipped on their success flag,
+                    // without decoding any column
+                    int successColumn = errorsOnly || successOnly
+                            ? getColumnIndex(saveConfig, SUCCESSFUL) : -1;
+                    if (successColumn < 0) {
+                        // Every column of every row is read by makeResultFromDelimitedString
+                        BitSet allColumns = new BitSet();
+                        allColumns.set(0, getColumnCount(saveConfig));
+                        csvFile.setDecodedColumns(allColumns);
+                    }
+                    CsvRowBlock block;
+                    while ((block = csvFile.nextBlock()) != null) {
+                        for (int i = 0; i < block.size(); i++) {
+                            lineNumber++;
+                            if (successColumn < 0 || successColumn >= block.getColumnCount(i)
+                                    || ResultCollector.isSampleWanted(block.getBoolean(i, successColumn),
+                                            errorsOnly, successOnly)) {
+                                addSample(block.getStrings(i), saveConfig, lineNumber,
+                                        visualizer, errorsOnly, successOnly);
+                            }
+                        }
+                        if (block.getError() != null) {
+                            throw new IOException(block.getError());
+                        }
+                    }
+                    return;
+                }
+            }
+        }
         try (InputStream inStream = new FileInputStream(filename);
-                Reader inReader = new InputStreamReader(inStream,
-                        SaveService.getFileEncoding(StandardCharsets.UTF_8.name()));
+                Reader inReader = new InputStreamReader(inStream, encoding);
                 BufferedReader dataReader = new BufferedReader(inReader)) {
             dataReader.mark(400);// Enough to read the header column names
             // Get the first line, and see if it is the header
@@ -151,12 +207,9 @@ public final class CSVSaveService {
                 throw new IOException(filename + ": unable to read header line");
             }
             long lineNumber = 1;
-            SampleSaveConfiguration saveConfig = CSVSaveService
-                    .getSampleSaveConfiguration(line, filename);
+            SampleSaveConfiguration saveConfig = CSVSaveService.getSampleSaveConfiguration(line, filename);
             if (saveConfig == null) {// not a valid header
-                log.info("{} does not appear to have a valid header. Using default configuration.", filename);
-                saveConfig = (SampleSaveConfiguration) resultCollector
-                        .getSaveConfig().clone(); // may change the format later
+                saveConfig = getDefaultSaveConfiguration(filename, resultCollector);
                 dataReader.reset(); // restart from beginning
                 lineNumber = 0;
             }
@@ -168,14 +221,64 @@ public final class CSVSaveService {
             // If so, then need to check whether the reader is at EOF
             while ((parts = csvReadFile(dataReader, delim)).length != 0) {
                 lineNumber++;
-                SampleEvent event = CSVSaveService.makeResultFromDelimitedString(parts, saveConfig, lineNumber);
-                if (event != null) {
-                    final SampleResult result = event.getResult();
-                    if (ResultCollector.isSampleWanted(result.isSuccessful(),
-                            errorsOnly, successOnly)) {
-                        visualizer.add(result);
-                    }
-                }
+                addSample(parts, saveConfig, lineNumber, visualizer, errorsOnly, successOnly);
+            }
+        }
+    }
+
+    /**
+     * @return the encoding of the file if it can be memory mapped, otherwise
+     *         {@code null}
+     */
+    private static Charset getMappedCharset(String encoding) {
+        if (!MappedCsvFile.isEnabled()) {
+            return null;
+        }
+        try {
+            Charset charset = Charset.forName(encoding);
+            return MappedCsvFile.isSupported(charset) ? charset : null;
+        } catch (IllegalArgumentException e) { // NOSONAR
+            // Unknown encoding, let the reader report it
+            return null;
+        }
+    }
+
+    /**
+     * @return the index of a column in the files saved with a configuration,
+     *         or -1 if the column is not saved
+     */
+    private static int getColumnIndex(SampleSaveConfiguration saveConfig, String column) {
+        return Arrays.asList(getColumnNames(saveConfig)).indexOf(column);
+    }
+
+    /**
+     * @return the number of columns in the files saved with a configuration,
+     *         sample variables included
+     */
+    private static int getColumnCount(SampleSaveConfiguration saveConfig) {
+        return getColumnNames(saveConfig).length;
+    }
+
+    private static String[] getColumnNames(SampleSaveConfiguration saveConfig) {
+        return StringUtils.splitByWholeSeparatorPreserveAllTokens(
+                printableFieldNamesToString(saveConfig), saveConfig.getDelimiter());
+    }
+
+    private static SampleSaveConfiguration getDefaultSaveConfiguration(
+            String filename, ResultCollector resultCollector) {
+        log.info("{} does not appear to have a valid header. Using default configuration.", filename);
+        return (SampleSaveConfiguration) resultCollector
+                .getSaveConfig().clone(); // may change the format later
+    }
+
+    private static void addSample(String[] parts, SampleSaveConfiguration saveConfig,
+            long lineNumber, Visualizer visualizer, boolean errorsOnly, boolean successOnly) {
+        SampleEvent event = CSVSaveService.makeResultFromDelimitedString(parts, saveConfig, lineNumber);
+        if (event != null) {
+            final SampleResult result = event.getResult();
+            if (ResultCollector.isSampleWanted(result.isSuccessful(),
+                    errorsOnly, successOnly)) {
+                visualizer.add(result);
             }
         }
     }
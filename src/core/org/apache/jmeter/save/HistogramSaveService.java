@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.save;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.CharUtils;
+import org.apache.jmeter.samplers.HistogramSampleResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.math.LatencyHistogram;
+
+/**
+ * Saves and reads the aggregates of the Histogram remote mode.
+ * <p>
+ * The aggregates are not expanded into the rows of the result file, they are
+ * saved as they are in a CSV file next to it, named after it with the
+ * {@link #FILE_SUFFIX} suffix. Each line holds one aggregate:
+ * </p>
+ * <pre>
+ * start,end,label,threadName,grpThreads,allThreads,latency,connect,bytes,sentBytes,successCode,successTimes,failureTimes[,code,count]*
+ * </pre>
+ * Times are in milliseconds since the epoch, latency, connect time and sizes
+ * are the sums for all the samples of the aggregate, the histograms are
+ * encoded by {@link LatencyHistogram#encode()} and the line ends with the
+ * number of failed samples by response code.
+ * @since 5.1
+ */
+public final class HistogramSaveService {
+
+    /** Suffix appended to the name of the result file */
+    public static final String FILE_SUFFIX = ".histogram"; // $NON-NLS-1$
+
+    private static final char DELIMITER = ',';
+
+    private static final char[] SPECIAL_CHARS = new char[] { DELIMITER, CSVSaveService.QUOTING_CHAR, CharUtils.CR,
+            CharUtils.LF };
+
+    private static final int CODES_COLUMN = 13;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private HistogramSaveService() {
+    }
+
+    /**
+     * @param resultFileName the name of the result file
+     * @return the name of the file holding its aggregates
+     */
+    public static String getHistogramFileName(String resultFileName) {
+        return resultFileName + FILE_SUFFIX;
+    }
+
+    /**
+     * @param result the aggregate to convert
+     * @return the line saving the aggregate, without line separator
+     */
+    public static String resultToDelimitedString(HistogramSampleResult result) {
+        StringBuilder sb = new StringBuilder(200);
+        sb.append(result.getStartTime()).append(DELIMITER)
+            .append(result.getEndTime()).append(DELIMITER)
+            .append(quote(result.getSampleLabel())).append(DELIMITER)
+            .append(quote(result.getThreadName())).append(DELIMITER)
+            .append(result.getGroupThreads()).append(DELIMITER)
+            .append(result.getAllThreads()).append(DELIMITER)
+            .append(result.getLatency()).append(DELIMITER)
+            .append(result.getConnectTime()).append(DELIMITER)
+            .append(result.getBytesAsLong()).append(DELIMITER)
+            .append(result.getSentBytes()).append(DELIMITER)
+            .append(quote(result.getSuccessCode())).append(DELIMITER)
+            .append(result.getSuccessTimes().encode()).append(DELIMITER)
+            .append(result.getFailureTimes().encode());
+        for (Map.Entry<String, Long> entry : result.getErrorsByCode().entrySet()) {
+            sb.append(DELIMITER).append(quote(entry.getKey()))
+                .append(DELIMITER).append(entry.getValue());
+        }
+        return sb.toString();
+    }
+
+    private static String quote(String value) {
+        return CSVSaveService.quoteDelimiters(value == null ? "" : value, SPECIAL_CHARS);
+    }
+
+    /**
+     * @param result the aggregate to save
+     * @param out {@link PrintWriter} to which the aggregate will be written
+     */
+    public static void saveHistogramResult(HistogramSampleResult result, PrintWriter out) {
+        out.println(resultToDelimitedString(result));
+    }
+
+    /**
+     * Rebuild an aggregate from the fields of its line
+     *
+     * @param fields the fields of the line
+     * @return the aggregate
+     * @throws IllegalArgumentException if the fields are not the ones of an aggregate
+     */
+    public static HistogramSampleResult fieldsToResult(String[] fields) {
+        if (fields.length < CODES_COLUMN || (fields.length - CODES_COLUMN) % 2 != 0) {
+            throw new IllegalArgumentException("Unexpected number of fields: " + fields.length);
+        }
+        SampleResult sums = new SampleResult();
+        long start = Long.parseLong(fields[0]);
+        sums.setStampAndTime(start, Long.parseLong(fields[1]) - start);
+        sums.setSampleLabel(fields[2]);
+        sums.setThreadName(fields[3]);
+        sums.setGroupThreads(Integer.parseInt(fields[4]));
+        sums.setAllThreads(Integer.parseInt(fields[5]));
+        sums.setLatency(Long.parseLong(fields[6]));
+        sums.setConnectTime(Long.parseLong(fields[7]));
+        sums.setBytes(Long.parseLong(fields[8]));
+        sums.setSentBytes(Long.parseLong(fields[9]));
+        Map<String, Long> errorsByCode = new TreeMap<>();
+        for (int i = CODES_COLUMN; i < fields.length; i += 2) {
+            errorsByCode.put(fields[i], Long.valueOf(fields[i + 1]));
+        }
+        return new HistogramSampleResult(sums,
+                LatencyHistogram.decode(fields[11]),
+                LatencyHistogram.decode(fields[12]),
+                errorsByCode, fields[10]);
+    }
+
+    /**
+     * Read the aggregates saved in a file
+     *
+     * @param file the file holding the aggregates, see {@link #getHistogramFileName(String)}
+     * @param consumer receives each aggregate
+     * @return the number of aggregates read
+     * @throws IOException when the file can't be read or holds an invalid line
+     */
+    public static long processHistogramResults(File file, Consumer<HistogramSampleResult> consumer)
+            throws IOException {
+        long lineNumber = 0;
+        long count = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file),
+                        SaveService.getFileEncoding(StandardCharsets.UTF_8.name())))) {
+            String[] fields;
+            while ((fields = CSVSaveService.csvReadFile(reader, DELIMITER)).length > 0) {
+                lineNumber++;
+                if (fields.length == 1 && fields[0].isEmpty()) {
+                    continue; // blank line
+                }
+                HistogramSampleResult result;
+                try {
+                    result = fieldsToResult(fields);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid aggregate at line " + lineNumber + " of " + file, e);
+                }
+                consumer.accept(result);
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.services;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Immutable table of the rows of a CSV file, split once when the file is
+ * loaded, so that rows can be handed out to any number of threads without
+ * locking.
+ * <p>
+ * Rows are handed out by {@link Cursor}s, each {@link FileServer} alias
+ * getting its own cursor on the table of its file.
+ * </p>
+ * @since 5.1
+ */
+public final class CSVDataTable {
+
+    private static final Logger log = LoggerFactory.getLogger(CSVDataTable.class);
+
+    private static final String[] EOF = new String[0];
+
+    private final String headerLine;
+
+    private final String[][] rows;
+
+    private final int skippedRows;
+
+    private CSVDataTable(String headerLine, String[][] rows, int skippedRows) {
+        this.headerLine = headerLine;
+        this.rows = rows;
+        this.skippedRows = skippedRows;
+    }
+
+    /**
+     * Read and split all the rows of a file. Rows which can't be parsed are
+     * logged and skipped, see {@link #getSkippedRows()}.
+     *
+     * @param file the file to read
+     * @param charsetName the encoding of the file, platform default if blank
+     * @param hasHeader true if the first line is not a row
+     * @param delimiter delimiter of the values
+     * @param quoted true if values may be quoted, they are then split with
+     *            {@link CSVSaveService#csvReadFile(BufferedReader, char)},
+     *            otherwise with {@link JOrphanUtils#split(String, String, boolean)}
+     * @return the table
+     * @throws IOException when the file can't be read
+     * @throws IllegalArgumentException when the file does not exist
+     */
+    static CSVDataTable load(File file, String charsetName, boolean hasHeader,
+            String delimiter, boolean quoted) throws IOException {
+        if (!file.canRead() || !file.isFile()) {
+            throw new IllegalArgumentException("File "+ file.getName()+ " must exist and be readable");
+        }
+        Charset charset = JOrphanUtils.isBlank(charsetName) ? Charset.defaultCharset() : Charset.forName(charsetName);
+        String headerLine = null;
+        List<String[]> rows = new ArrayList<>();
+        int skippedRows = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), charset))) {
+            if (hasHeader) {
+                headerLine = reader.readLine();
+            }
+            if (quoted) {
+                char delim = delimiter.charAt(0);
+                while (true) {
+                    String[] row;
+                    try {
+                        row = CSVSaveService.csvReadFile(reader, delim);
+                    } catch (IOException e) {
+                        // Don't end the rows of all the threads sharing the table
+                        skippedRows++;
+                        log.error("Could not parse row {} of {}, it is skipped", rows.size() + skippedRows, file, e);
+                        reader.readLine(); // skip the rest of the row
+                        continue;
+                    }
+                    if (row.length == 0) { // EOF
+                        break;
+                    }
+                    rows.add(row);
+                }
+            } else {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    rows.add(JOrphanUtils.split(line, delimiter, false));
+                }
+            }
+        }
+        if (skippedRows > 0) {
+            log.warn("Loaded {} rows from {}, skipped {} rows which could not be parsed", rows.size(), file, skippedRows);
+        } else {
+            log.info("Loaded {} rows from {}", rows.size(), file);
+        }
+        return new CSVDataTable(headerLine, rows.toArray(new String[rows.size()][]), skippedRows);
+    }
+
+    /**
+     * @return the first line of the file if it was loaded with a header,
+     *         <code>null</code> otherwise or if the file is empty
+     */
+    public String getHeaderLine() {
+        return headerLine;
+    }
+
+    /**
+     * @return the number of rows, not counting the header
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * @return the number of rows which could not be parsed and were skipped
+     */
+    public int getSkippedRows() {
+        return skippedRows;
+    }
+
+    /**
+     * @return a new cursor on the first row
+     */
+    Cursor newCursor() {
+        return new Cursor(this);
+    }
+
+    /**
+     * Position in a {@link CSVDataTable}, which can be shared by threads
+     */
+    public static final class Cursor {
+
+        private final CSVDataTable table;
+
+        private final AtomicLong position = new AtomicLong();
+
+        private Cursor(CSVDataTable table) {
+            this.table = table;
+        }
+
+        /**
+         * @return the table of this cursor
+         */
+        public CSVDataTable getTable() {
+            return table;
+        }
+
+        /**
+         * Get the next row and move the cursor
+         *
+         * @param recycle true to restart from the first row at the end of
+         *            the table
+         * @return the values of the row, not to be modified, empty at EOF
+         */
+        public String[] next(boolean recycle) {
+            String[][] rows = table.rows;
+            long index = position.getAndIncrement();
+            if (index < rows.length) {
+                return rows[(int) index];
+            }
+            if (!recycle || rows.length == 0) {
+                return EOF;
+            }
+            return rows[(int) (index % rows.length)];
+        }
+    }
+}
@@ -32,6 +32,7 @@ import java.io.Reader;
 import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.collections.ArrayStack;
@@ -75,6 +76,12 @@ public class FileServer {
 
     private final Map<String, FileEntry> files = new HashMap<>();
 
+    /** Tables of the files loaded in memory, by file and parsing options */
+    private final Map<String, CSVDataTable> tables = new ConcurrentHashMap<>();
+
+    /** Cursors on the tables, by alias */
+    private final Map<String, CSVDataTable.Cursor> cursors = new ConcurrentHashMap<>();
+
     private static final FileServer server = new FileServer();
 
     // volatile needed to ensure safe publication
@@ -285,6 +292,48 @@ public class FileServer {
         return fileEntry.headerLine;
     }
 
+    /**
+     * Load the rows of a file in memory, unless it has already been loaded
+     * with the same options, and get the cursor of the alias on them.
+     * <p>
+     * Unlike the other methods, rows are read without locking this server:
+     * the table is immutable and the cursor is moved atomically.
+     * </p>
+     *
+     * @param filename name of the file to read, relative to the base directory if not absolute
+     * @param charsetName the encoding of the file, platform default if blank
+     * @param alias the alias of the cursor, see {@link #reserveFile(String, String, String, boolean)}
+     * @param hasHeader true if the first line is not a row
+     * @param delimiter delimiter of the values
+     * @param quoted true if values may be quoted
+     * @return the cursor of the alias
+     * @throws IllegalArgumentException if the file can't be read or filename is null or empty
+     * @since 5.1
+     */
+    public CSVDataTable.Cursor reserveTable(String filename, String charsetName, String alias,
+            boolean hasHeader, String delimiter, boolean quoted) {
+        CSVDataTable.Cursor cursor = cursors.get(alias);
+        if (cursor != null) {
+            return cursor;
+        }
+        if (filename == null || filename.isEmpty()){
+            throw new IllegalArgumentException("Filename must not be null or empty");
+        }
+        File file;
+        synchronized (this) {
+            file = resolveFileFromPath(filename);
+        }
+        String key = file.getAbsolutePath() + '|' + charsetName + '|' + hasHeader + '|' + quoted + '|' + delimiter;
+        CSVDataTable table = tables.computeIfAbsent(key, k -> {
+            try {
+                return CSVDataTable.load(file, charsetName, hasHeader, delimiter, quoted);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not load file " + filename, e);
+            }
+        });
+        return cursors.computeIfAbsent(alias, a -> table.newCursor());
+    }
+
     /**
      * Resolves file name into {@link File} instance.
      * When filename is not absolute and not found from current working dir,
@@ -469,6 +518,8 @@ public class FileServer {
             closeFile(me.getKey(),me.getValue() );
         }
         files.clear();
+        cursors.clear();
+        tables.clear();
     }
 
     /**
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.util;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Idle connections of samplers keeping their connections alive between
+ * samples, by connection settings.
+ * <p>
+ * A sampler borrows a connection for the duration of a sample and gives it
+ * back at the end. A pool owned by a sampler keeps the connections of its
+ * thread, a static pool shares the connections between threads. The most
+ * recently used connection is borrowed first, connections idle for longer
+ * than the maximum idle time are closed instead of being borrowed.
+ * <p>
+ * The pool does not check that a connection is still usable: the sampler
+ * should check it after borrowing it.
+ *
+ * @param <C> type of the connections
+ * @since 5.1
+ */
+public final class IdleConnectionPool<C> {
+
+    private static final Logger log = LoggerFactory.getLogger(IdleConnectionPool.class);
+
+    private static final class Idle<C> {
+        private final C connection;
+        private final long since;
+
+        private Idle(C connection, long since) {
+            this.connection = connection;
+            this.since = since;
+        }
+    }
+
+    private final Map<String, Deque<Idle<C>>> idleConnections = new ConcurrentHashMap<>();
+
+    private final long maxIdleMillis;
+
+    private final int maxIdlePerKey;
+
+    private final Consumer<? super C> closer;
+
+    /**
+     * @param maxIdleMillis maximum time a connection can stay idle, in
+     *                      milliseconds, 0 or less for no limit
+     * @param closer        closes the connections, it should not throw
+     */
+    public IdleConnectionPool(long maxIdleMillis, Consumer<? super C> closer) {
+        this(maxIdleMillis, 0, closer);
+    }
+
+    /**
+     * @param maxIdleMillis maximum time a connection can stay idle, in
+     *                      milliseconds, 0 or less for no limit
+     * @param maxIdlePerKey maximum number of idle connections with the same
+     *                      settings, 0 or less for no limit
+     * @param closer        closes the connections, it should not throw
+     */
+    public IdleConnectionPool(long maxIdleMillis, int maxIdlePerKey, Consumer<? super C> closer) {
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxIdlePerKey = maxIdlePerKey;
+        this.closer = closer;
+    }
+
+    /**
+     * Take an idle connection
+     *
+     * @param key the connection settings
+     * @return the most recently used idle connection with these settings, or
+     *         <code>null</code> if there is none
+     */
+    public C borrow(String key) {
+        Deque<Idle<C>> idle = idleConnections.get(key);
+        if (idle == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Idle<C> candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            if (maxIdleMillis <= 0 || now - candidate.since <= maxIdleMillis) {
+                return candidate.connection;
+            }
+            log.debug("Closing connection idle for {} ms: {}", now - candidate.since, key);
+            close(candidate.connection);
+        }
+        return null;
+    }
+
+    /**
+     * Give back a connection at the end of a sample, to be borrowed again.
+     * When there are already as many idle connections with these settings as
+     * allowed, the least recently used one is closed.
+     *
+     * @param key        the connection settings
+     * @param connection the connection, which must be usable
+     */
+    public void giveBack(String key, C connection) {
+        Deque<Idle<C>> idle = idleConnections.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        idle.offerFirst(new Idle<>(connection, System.currentTimeMillis()));
+        if (maxIdlePerKey > 0) {
+            Idle<C> eldest;
+            while (idle.size() > maxIdlePerKey && (eldest = idle.pollLast()) != null) {
+                log.debug("Closing connection beyond the {} idle connections: {}", maxIdlePerKey, key);
+                close(eldest.connection);
+            }
+        }
+    }
+
+    /**
+     * @return the number of idle connections
+     */
+    public int getIdleCount() {
+        return idleConnections.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    /**
+     * Close all the idle connections
+     */
+    public void close() {
+        for (Deque<Idle<C>> idle : idleConnections.values()) {
+            Idle<C> candidate;
+            while ((candidate = idle.pollFirst()) != null) {
+                close(candidate.connection);
+            }
+        }
+    }
+
+    private void close(C connection) {
+        try {
+            closer.accept(connection);
+        } catch (RuntimeException e) {
+            log.warn("Error closing idle connection", e);
+        }
+    }
+}
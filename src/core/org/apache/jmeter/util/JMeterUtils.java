@@ -58,6 +58,7 @@ import javax.swing.UIDefaults;
 import javax.swing.UIManager;
 import javax.swing.plaf.FontUIResource;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.jmeter.gui.GuiPackage;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jorphan.reflect.ClassFinder;
@@ -72,6 +73,8 @@ import org.apache.oro.text.regex.Perl5Matcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.security.AnyTypePermission;
 import com.thoughtworks.xstream.security.NoTypePermission;
@@ -97,6 +100,16 @@ public class JMeterUtils implements UnitTestManager {
                 new Perl5Compiler());
     }
 
+    private static class LazyJavaPatternCacheHolder {
+        private LazyJavaPatternCacheHolder() {
+            super();
+        }
+        public static final LoadingCache<Pair<String, Integer>, java.util.regex.Pattern> INSTANCE =
+                Caffeine.newBuilder()
+                        .maximumSize(getPropDefault("jmeter.regex.patterncache.size", 1000)) // $NON-NLS-1$
+                        .build(key -> java.util.regex.Pattern.compile(key.getLeft(), key.getRight().intValue()));
+    }
+
     public static final String RES_KEY_PFX = "[res_key="; // $NON-NLS-1$
 
     private static final String EXPERT_MODE_PROPERTY = "jmeter.expertMode"; // $NON-NLS-1$
@@ -304,6 +317,47 @@ public class JMeterUtils implements UnitTestManager {
         return LazyPatternCacheHolder.INSTANCE.getPattern(expression, options);
     }
 
+    /**
+     * Tells which regular expression engine the extractors, assertions and
+     * functions must use, as set by property <code>jmeter.regex.engine</code>.
+     * The property is read on each call, so callers on hot paths should keep
+     * the value for the life of their element.
+     *
+     * @return <code>true</code> to use {@link java.util.regex}, <code>false</code>
+     *         to use ORO
+     */
+    public static boolean useJavaRegex() {
+        return "java".equalsIgnoreCase( // $NON-NLS-1$
+                getPropDefault("jmeter.regex.engine", "oro").trim()); // $NON-NLS-1$ $NON-NLS-2$
+    }
+
+    /**
+     * Get a compiled {@link java.util.regex} expression from a cache, which
+     * unlike {@link #getPatternCache()} does not lock on lookups.
+     *
+     * @param expression regular expression to be looked up
+     * @return compiled pattern
+     * @throws java.util.regex.PatternSyntaxException (Runtime)
+     * This should be caught for expressions that may vary (e.g. user input)
+     */
+    public static java.util.regex.Pattern compilePattern(String expression) {
+        return compilePattern(expression, 0);
+    }
+
+    /**
+     * Get a compiled {@link java.util.regex} expression from a cache, which
+     * unlike {@link #getPatternCache()} does not lock on lookups.
+     *
+     * @param expression regular expression to be looked up
+     * @param flags e.g. {@link java.util.regex.Pattern#CASE_INSENSITIVE}
+     * @return compiled pattern
+     * @throws java.util.regex.PatternSyntaxException (Runtime)
+     * This should be caught for expressions that may vary (e.g. user input)
+     */
+    public static java.util.regex.Pattern compilePattern(String expression, int flags) {
+        return LazyJavaPatternCacheHolder.INSTANCE.get(Pair.of(expression, Integer.valueOf(flags)));
+    }
+
     @Override
     public void initializeProperties(String file) {
         System.out.println("Initializing Properties: " + file); // NOSONAR intentional
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.util;
+
+import org.apache.oro.text.regex.MatchResult;
+
+/**
+ * Exposes a {@link java.util.regex.MatchResult} as an ORO {@link MatchResult},
+ * so that the elements supporting both regular expression engines handle
+ * their matches the same way.
+ * @since 5.1
+ */
+public final class JavaMatchResult implements MatchResult {
+
+    private final java.util.regex.MatchResult match;
+
+    /**
+     * @param match the match, which must not change afterwards, e.g. the
+     *            result of {@link java.util.regex.Matcher#toMatchResult()}
+     */
+    public JavaMatchResult(java.util.regex.MatchResult match) {
+        this.match = match;
+    }
+
+    @Override
+    public int length() {
+        return match.end() - match.start();
+    }
+
+    @Override
+    public int groups() {
+        return match.groupCount() + 1;
+    }
+
+    // Like ORO, unknown groups are handled as groups which did not match
+
+    private boolean isGroup(int group) {
+        return group >= 0 && group <= match.groupCount();
+    }
+
+    @Override
+    public String group(int group) {
+        return isGroup(group) ? match.group(group) : null;
+    }
+
+    @Override
+    public int begin(int group) {
+        int start = beginOffset(group);
+        return start < 0 ? -1 : start - match.start();
+    }
+
+    @Override
+    public int end(int group) {
+        int end = endOffset(group);
+        return end < 0 ? -1 : end - match.start();
+    }
+
+    @Override
+    public int beginOffset(int group) {
+        return isGroup(group) ? match.start(group) : -1;
+    }
+
+    @Override
+    public int endOffset(int group) {
+        return isGroup(group) ? match.end(group) : -1;
+    }
+
+    @Override
+    public String toString() {
+        return match.group();
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.util;
+
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Evaluates the common subset of XPath 2 queries by reading XML with a StAX
+ * parser, without building its tree, so that the memory used does not depend
+ * on the size of the XML:
+ * <ul>
+ * <li>absolute paths of <code>/</code> and <code>//</code> steps</li>
+ * <li>element names, with prefixes of the declared namespaces, and
+ * <code>*</code></li>
+ * <li>one predicate per element step: a position like <code>[2]</code>, an
+ * attribute like <code>[@id]</code>, or an attribute value like
+ * <code>[@id='1']</code></li>
+ * <li>a last step selecting an attribute, like <code>@id</code>, or text
+ * nodes, <code>text()</code></li>
+ * </ul>
+ * Values are the string values of the selected nodes, in document order, as
+ * Saxon would return them. Documents with a DTD are not supported, as it may
+ * change their content.
+ * @since 5.1
+ */
+final class XPathStreamingQuery {
+
+    private enum Kind {
+        ELEMENT, ATTRIBUTE, TEXT
+    }
+
+    /** Step of a query */
+    private static final class Step {
+        private final boolean descendant;
+        private final Kind kind;
+        /** <code>null</code> for any element */
+        private final String namespace;
+        private final String localName;
+        // predicate
+        private int position;
+        private String attributeNamespace;
+        private String attributeName;
+        /** <code>null</code> to check the attribute exists */
+        private String attributeValue;
+
+        private Step(boolean descendant, Kind kind, String namespace, String localName) {
+            this.descendant = descendant;
+            this.kind = kind;
+            this.namespace = namespace;
+            this.localName = localName;
+        }
+
+        private boolean matches(XMLStreamReader reader) {
+            if (localName == null) {
+                return true;
+            }
+            return localName.equals(reader.getLocalName()) && namespace.equals(namespaceOf(reader.getNamespaceURI()));
+        }
+
+        private boolean matchesAttributes(XMLStreamReader reader) {
+            if (attributeName == null) {
+                return true;
+            }
+            String value = attribute(reader, attributeNamespace, attributeName);
+            return value != null && (attributeValue == null || attributeValue.equals(value));
+        }
+    }
+
+    /** Element whose string value is being read */
+    private static final class OpenValue {
+        private final int index;
+        private final int depth;
+        private final StringBuilder value = new StringBuilder();
+
+        private OpenValue(int index, int depth) {
+            this.index = index;
+            this.depth = depth;
+        }
+    }
+
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    });
+
+    private final Step[] steps;
+
+    private XPathStreamingQuery(Step[] steps) {
+        this.steps = steps;
+    }
+
+    /**
+     * Compile an XPath 2 query
+     *
+     * @param query XPath 2 query
+     * @param namespaces prefixes and URIs of the namespaces used by the
+     *            query, as returned by {@link XPathUtil#namespacesParse(String)}
+     * @return the compiled query, or <code>null</code> if the query is not
+     *         supported (or not valid)
+     */
+    static XPathStreamingQuery compile(String query, List<String[]> namespaces) {
+        Map<String, String> prefixes = new HashMap<>();
+        for (String[] namespace : namespaces) {
+            prefixes.put(namespace[0], namespace[1]);
+        }
+        Parser parser = new Parser(query.trim(), prefixes);
+        List<Step> steps = new ArrayList<>();
+        while (!parser.atEnd()) {
+            if (!steps.isEmpty() && steps.get(steps.size() - 1).kind != Kind.ELEMENT) {
+                return null;
+            }
+            Step step = parser.step();
+            if (step == null) {
+                return null;
+            }
+            steps.add(step);
+        }
+        if (steps.isEmpty() || steps.size() > 62) {
+            return null;
+        }
+        return new XPathStreamingQuery(steps.toArray(new Step[steps.size()]));
+    }
+
+    /** Parser of the supported queries, whose methods return <code>null</code> on unsupported syntax */
+    private static final class Parser {
+        private final String query;
+        private final Map<String, String> prefixes;
+        private int pos;
+
+        private Parser(String query, Map<String, String> prefixes) {
+            this.query = query;
+            this.prefixes = prefixes;
+        }
+
+        private boolean atEnd() {
+            return pos == query.length();
+        }
+
+        private Step step() {
+            boolean descendant;
+            if (query.startsWith("//", pos)) {
+                descendant = true;
+                pos += 2;
+            } else if (query.startsWith("/", pos)) {
+                descendant = false;
+                pos++;
+            } else {
+                return null;
+            }
+            if (query.startsWith("text()", pos)) {
+                pos += 6;
+                return new Step(descendant, Kind.TEXT, null, null);
+            }
+            if (query.startsWith("@", pos)) {
+                pos++;
+                String[] name = qName();
+                return name == null ? null : new Step(descendant, Kind.ATTRIBUTE, name[0], name[1]);
+            }
+            Step step;
+            if (query.startsWith("*", pos)) {
+                pos++;
+                step = new Step(descendant, Kind.ELEMENT, null, null);
+            } else {
+                String[] name = qName();
+                if (name == null) {
+                    return null;
+                }
+                step = new Step(descendant, Kind.ELEMENT, name[0], name[1]);
+            }
+            if (query.startsWith("[", pos)) {
+                int end = query.indexOf(']', pos);
+                if (end < 0 || !predicate(step, query.substring(pos + 1, end).trim())) {
+                    return null;
+                }
+                pos = end + 1;
+            }
+            return step;
+        }
+
+        private boolean predicate(Step step, String predicate) {
+            if (!predicate.isEmpty() && predicate.length() < 10 && predicate.chars().allMatch(Character::isDigit)) {
+                step.position = Integer.parseInt(predicate);
+                return step.position > 0;
+            }
+            if (!predicate.startsWith("@")) {
+                return false;
+            }
+            Parser parser = new Parser(predicate, prefixes);
+            parser.pos = 1;
+            String[] name = parser.qName();
+            if (name == null) {
+                return false;
+            }
+            step.attributeNamespace = name[0];
+            step.attributeName = name[1];
+            String rest = predicate.substring(parser.pos).trim();
+            if (rest.isEmpty()) {
+                return true;
+            }
+            if (!rest.startsWith("=")) {
+                return false;
+            }
+            String literal = rest.substring(1).trim();
+            if (literal.length() < 2) {
+                return false;
+            }
+            char quote = literal.charAt(0);
+            if ((quote != '\'' && quote != '"') || literal.charAt(literal.length() - 1) != quote
+                    || literal.indexOf(quote, 1) != literal.length() - 1) {
+                return false;
+            }
+            step.attributeValue = literal.substring(1, literal.length() - 1);
+            return true;
+        }
+
+        /**
+         * @return namespace and local name
+         */
+        private String[] qName() {
+            String name = ncName();
+            if (name == null) {
+                return null;
+            }
+            if (!query.startsWith(":", pos)) {
+                return new String[] { "", name };
+            }
+            pos++;
+            String localName = ncName();
+            String namespace = prefixes.get(name);
+            if (localName == null || namespace == null) {
+                return null;
+            }
+            return new String[] { namespace, localName };
+        }
+
+        private String ncName() {
+            int start = pos;
+            while (pos < query.length()) {
+                char c = query.charAt(pos);
+                if (!Character.isLetter(c) && c != '_'
+                        && (pos == start || !Character.isDigit(c) && c != '-' && c != '.')) {
+                    break;
+                }
+                pos++;
+            }
+            return pos == start ? null : query.substring(start, pos);
+        }
+    }
+
+    private static String namespaceOf(String uri) {
+        return uri == null ? "" : uri;
+    }
+
+    private static String attribute(XMLStreamReader reader, String namespace, String localName) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (localName.equals(reader.getAttributeLocalName(i))
+                    && namespace.equals(namespaceOf(reader.getAttributeNamespace(i)))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluate the query
+     *
+     * @param xml XML to read
+     * @param maxValues number of values after which reading stops, 0 to read
+     *            all of them
+     * @return the values of the selected nodes, or <code>null</code> if the
+     *         XML has to be handled with its tree
+     * @throws XMLStreamException when the XML can't be parsed
+     */
+    List<String> read(Reader xml, int maxValues) throws XMLStreamException {
+        XMLStreamReader reader = FACTORY.get().createXMLStreamReader(xml);
+        try {
+            return read(reader, maxValues);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private List<String> read(XMLStreamReader reader, int maxValues) throws XMLStreamException {
+        final long selected = 1L << steps.length;
+        List<String> values = new ArrayList<>();
+        Deque<OpenValue> openValues = new ArrayDeque<>();
+        // steps whose context is the node at each depth, the document at 0
+        long[] contexts = new long[16];
+        // number of children matching each step, at each depth
+        int[][] positions = new int[16][];
+        contexts[0] = 1L;
+        int depth = 0;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    long parentContexts = contexts[depth];
+                    long elementContexts = 0;
+                    for (int i = 0; i < steps.length; i++) {
+                        if ((parentContexts & 1L << i) == 0) {
+                            continue;
+                        }
+                        Step step = steps[i];
+                        if (step.descendant) {
+                            elementContexts |= 1L << i;
+                        }
+                        if (step.kind != Kind.ELEMENT || !step.matches(reader)) {
+                            continue;
+                        }
+                        if (step.position > 0) {
+                            if (positions[depth] == null) {
+                                positions[depth] = new int[steps.length];
+                            }
+                            if (++positions[depth][i] != step.position) {
+                                continue;
+                            }
+                        }
+                        if (step.matchesAttributes(reader)) {
+                            elementContexts |= 1L << (i + 1);
+                        }
+                    }
+                    depth++;
+                    if (depth == contexts.length) {
+                        contexts = Arrays.copyOf(contexts, depth * 2);
+                        positions = Arrays.copyOf(positions, depth * 2);
+                    }
+                    contexts[depth] = elementContexts;
+                    if (positions[depth] != null) {
+                        Arrays.fill(positions[depth], 0);
+                    }
+                    if ((elementContexts & selected) != 0 && (maxValues == 0 || values.size() < maxValues)) {
+                        openValues.push(new OpenValue(values.size(), depth));
+                        values.add(null);
+                    }
+                    Step last = steps[steps.length - 1];
+                    if (last.kind == Kind.ATTRIBUTE && (elementContexts & 1L << (steps.length - 1)) != 0) {
+                        String value = attribute(reader, last.namespace, last.localName);
+                        if (value != null && (maxValues == 0 || values.size() < maxValues)) {
+                            values.add(value);
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (depth == 0) {
+                        break;
+                    }
+                    String text = reader.getText();
+                    for (OpenValue openValue : openValues) {
+                        openValue.value.append(text);
+                    }
+                    if (steps[steps.length - 1].kind == Kind.TEXT
+                            && (contexts[depth] & 1L << (steps.length - 1)) != 0
+                            && (maxValues == 0 || values.size() < maxValues)) {
+                        values.add(text);
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    OpenValue openValue = openValues.peek();
+                    if (openValue != null && openValue.depth == depth) {
+                        values.set(openValue.index, openValue.value.toString());
+                        openValues.pop();
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.DTD:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    return null;
+                default:
+                    break;
+            }
+            if (maxValues > 0 && values.size() == maxValues && openValues.isEmpty()) {
+                break;
+            }
+        }
+        return values;
+    }
+}
@@ -21,13 +21,17 @@ package org.apache.jmeter.util;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -49,6 +53,8 @@ import javax.xml.transform.stream.StreamResult;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.apache.xml.utils.PrefixResolver;
 import org.apache.xpath.XPathAPI;
 import org.apache.xpath.objects.XObject;
@@ -90,11 +96,28 @@ public class XPathUtil {
         XPATH_CACHE = Caffeine.newBuilder().maximumSize(cacheSize).build(new XPathQueryCacheLoader());
     }
 
+    /** Should XPath 2 queries be evaluated by streaming when they allow it */
+    private static final boolean STREAMING_ENABLED =
+            JMeterUtils.getPropDefault("xpath2query.streaming", true); // $NON-NLS-1$
+
+    /** Same keys as {@link #XPATH_CACHE}, empty for the queries which can't be streamed */
+    private static final LoadingCache<ImmutablePair<String, String>, Optional<XPathStreamingQuery>> STREAMING_CACHE =
+            Caffeine.newBuilder()
+                    .maximumSize(JMeterUtils.getPropDefault("xpath2query.parser.cache.size", 400))
+                    .build(key -> Optional.ofNullable(
+                            XPathStreamingQuery.compile(key.left, namespacesParse(key.right))));
+
     /**
      * 
      */
     private static final Processor PROCESSOR = new Processor(false);
 
+    /** Prefix of the keys of the responses parsed as DOM documents */
+    private static final String DOCUMENT_KEY_PREFIX = XPathUtil.class.getName() + "_DOM_"; // $NON-NLS-1$
+
+    /** Key of the responses parsed as Saxon nodes */
+    private static final String XDM_NODE_KEY = XPathUtil.class.getName() + "_XDM"; // $NON-NLS-1$
+
     private XPathUtil() {
         super();
     }
@@ -215,6 +238,80 @@ public class XPathUtil {
         return doc;
     }
 
+    /**
+     * Get the response of a sample as a document, which is parsed only once
+     * for all the elements using the same options on this sample.
+     *
+     * @param result - sample whose response data is parsed
+     * @param fromString - if true, the response data converted to a String is
+     *            parsed as UTF-8, otherwise the response data is parsed as is.
+     *            Both are the same document when the response is in UTF-8 or
+     *            ASCII
+     * @param validate - Validate Document (not Tidy)
+     * @param whitespace - Element Whitespace (not Tidy)
+     * @param namespace - Is Namespace aware. (not Tidy)
+     * @param tolerant - Is tolerant - i.e. use the Tidy parser
+     * @param quiet - set Tidy quiet
+     * @param showWarnings - set Tidy warnings
+     * @param reportErrors - throw TidyException if Tidy detects an error
+     * @param downloadDTDs - if true, try to download external DTDs
+     * @return document, not to be modified
+     * @throws ParserConfigurationException when no {@link DocumentBuilder} can be constructed for the wanted configuration
+     * @throws SAXException if parsing fails
+     * @throws IOException if an I/O error occurs while parsing
+     * @throws TidyException if a ParseError is detected and <code>report_errors</code> is <code>true</code>
+     * @see SampleResult#getParsedResponse(String)
+     * @since 5.1
+     */
+    public static Document getResponseDocument(SampleResult result, boolean fromString,
+            boolean validate, boolean whitespace, boolean namespace, boolean tolerant,
+            boolean quiet, boolean showWarnings, boolean reportErrors, boolean downloadDTDs)
+                    throws ParserConfigurationException, SAXException, IOException, TidyException {
+        // Options which don't change the parse must not change the key,
+        // so that extractors and assertions share the document
+        boolean convert = fromString && !isUtf8(result);
+        StringBuilder key = new StringBuilder(DOCUMENT_KEY_PREFIX);
+        for (boolean option : new boolean[] { convert, tolerant,
+                !tolerant && validate, !tolerant && whitespace, !tolerant && namespace, !tolerant && downloadDTDs,
+                tolerant && quiet, tolerant && showWarnings, tolerant && reportErrors }) {
+            key.append(option ? '1' : '0');
+        }
+        String cacheKey = key.toString();
+        Document document = (Document) result.getParsedResponse(cacheKey);
+        if (document == null) {
+            // This conversion ensures UTF-8 encoding as the encoding of responses is server specific
+            byte[] data = convert
+                    ? result.getResponseDataAsString().getBytes(StandardCharsets.UTF_8)
+                    : result.getResponseData();
+            document = makeDocument(new ByteArrayInputStream(data), validate, whitespace, namespace,
+                    tolerant, quiet, showWarnings, reportErrors, JOrphanUtils.isXML(data), downloadDTDs);
+            result.setParsedResponse(cacheKey, document);
+        }
+        return document;
+    }
+
+    /**
+     * @return true if the response data is already encoded as its conversion
+     *         to a String encoded in UTF-8 would be: the data is in UTF-8, or
+     *         it is ASCII in the default encoding of responses
+     */
+    private static boolean isUtf8(SampleResult result) {
+        String encoding = result.getDataEncodingWithDefault();
+        if (StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding)) {
+            return true;
+        }
+        if (!StandardCharsets.ISO_8859_1.name().equalsIgnoreCase(encoding)
+                && !StandardCharsets.US_ASCII.name().equalsIgnoreCase(encoding)) {
+            return false;
+        }
+        for (byte b : result.getResponseData()) {
+            if (b < 0) { // not ASCII
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Create a document using Tidy
      *
@@ -415,11 +512,118 @@ public class XPathUtil {
         }
     }
 
+    /**
+     * Put in matchStrings the values of the XPath 2 query evaluated on the
+     * response of a sample, by reading it with a StAX parser instead of
+     * building its tree, when the query is simple enough and the response has
+     * not already been parsed by {@link #getResponseXdmNode(SampleResult)}.
+     * Reading stops once the match to add is found.
+     *
+     * @param result sample whose response data is read
+     * @param xPathQuery XPath 2 query
+     * @param matchStrings list in which the values are added
+     * @param matchNumber number of the match to add, 0 for a random one, negative for all
+     * @param namespaces namespaces used by the query
+     * @return true if the values have been added, false if the query must be
+     *         evaluated with
+     *         {@link #putValuesForXPathInListUsingSaxon(XdmNode, String, List, boolean, int, String)}
+     * @since 5.1
+     */
+    public static boolean putValuesForXPathInListUsingStreaming(
+            SampleResult result, String xPathQuery,
+            List<String> matchStrings, int matchNumber, String namespaces) {
+        if (!STREAMING_ENABLED || StringUtils.isEmpty(xPathQuery)
+                || result.getParsedResponse(XDM_NODE_KEY) != null) {
+            return false;
+        }
+        XPathStreamingQuery query = STREAMING_CACHE.get(ImmutablePair.of(xPathQuery, namespaces)).orElse(null);
+        if (query == null) {
+            return false;
+        }
+        List<String> values;
+        try (Reader reader = new InputStreamReader(
+                new ByteArrayInputStream(result.getResponseData()), result.getDataEncodingWithDefault())) {
+            values = query.read(reader, Math.max(matchNumber, 0));
+        } catch (IOException | XMLStreamException e) {
+            // reported by the tree
+            log.debug("Could not stream '{}', the response will be parsed: {}", xPathQuery, e.toString());
+            return false;
+        }
+        if (values == null || matchNumber == 0 && values.isEmpty()) {
+            return false;
+        }
+        if (matchNumber < 0) {
+            matchStrings.addAll(values);
+        } else if (matchNumber == 0) {
+            matchStrings.add(values.get(JMeterUtils.getRandomInt(values.size())));
+        } else if (matchNumber <= values.size()) {
+            matchStrings.add(values.get(matchNumber - 1));
+        } else if (log.isWarnEnabled()) {
+            log.warn("Error : {}{}", JMeterUtils.getResString("xpath2_extractor_match_number_failure"), matchNumber);
+        }
+        return true;
+    }
+
     public static void putValuesForXPathInListUsingSaxon(
             String xmlFile, String xPathQuery, 
             List<String> matchStrings, boolean fragment, 
             int matchNumber, String namespaces)
             throws SaxonApiException, FactoryConfigurationError {
+        if (StringUtils.isEmpty(xPathQuery)) {
+            log.warn("Error : {}", JMeterUtils.getResString("xpath2_extractor_empty_query"));
+            return;
+        }
+        putValuesForXPathInListUsingSaxon(makeXdmNode(xmlFile), xPathQuery, matchStrings, fragment,
+                matchNumber, namespaces);
+    }
+
+    /**
+     * Get the response of a sample as a Saxon node, which is parsed only once
+     * for all the elements using Saxon on this sample.
+     *
+     * @param result sample whose response data is parsed
+     * @return the node, not to be modified
+     * @throws SaxonApiException if parsing fails
+     * @see SampleResult#getParsedResponse(String)
+     * @since 5.1
+     */
+    public static XdmNode getResponseXdmNode(SampleResult result) throws SaxonApiException {
+        XdmNode xdmNode = (XdmNode) result.getParsedResponse(XDM_NODE_KEY);
+        if (xdmNode == null) {
+            xdmNode = makeXdmNode(result.getResponseDataAsString());
+            result.setParsedResponse(XDM_NODE_KEY, xdmNode);
+        }
+        return xdmNode;
+    }
+
+    private static XdmNode makeXdmNode(String xmlFile) throws SaxonApiException {
+        try (StringReader reader = new StringReader(xmlFile)) {
+            // We could instanciate it once but might trigger issues in the future 
+            // Sharing of a DocumentBuilder across multiple threads is not recommended. 
+            // However, in the current implementation sharing a DocumentBuilder (once initialized) 
+            // will only cause problems if a SchemaValidator is used.
+            net.sf.saxon.s9api.DocumentBuilder builder = PROCESSOR.newDocumentBuilder();
+            return builder.build(new SAXSource(new InputSource(reader)));
+        }
+    }
+
+    /**
+     * Put in matchStrings the values of the XPath 2 query evaluated on a node
+     *
+     * @param xdmNode node on which the query is evaluated
+     * @param xPathQuery XPath 2 query
+     * @param matchStrings list in which the values are added
+     * @param fragment true to add fragments instead of text values
+     * @param matchNumber number of the match to add, 0 for a random one, negative for all
+     * @param namespaces namespaces used by the query
+     * @throws SaxonApiException if the query can't be evaluated
+     * @since 5.1
+     */
+    public static void putValuesForXPathInListUsingSaxon(
+            XdmNode xdmNode, String xPathQuery,
+            List<String> matchStrings, boolean fragment,
+            int matchNumber, String namespaces)
+            throws SaxonApiException {
 
         // generating the cache key
         final ImmutablePair<String, String> key = ImmutablePair.of(xPathQuery, namespaces);
@@ -434,54 +638,45 @@ public class XPathUtil {
             return;
         }
 
-        try (StringReader reader = new StringReader(xmlFile)) {
-            // We could instanciate it once but might trigger issues in the future 
-            // Sharing of a DocumentBuilder across multiple threads is not recommended. 
-            // However, in the current implementation sharing a DocumentBuilder (once initialized) 
-            // will only cause problems if a SchemaValidator is used.
-            net.sf.saxon.s9api.DocumentBuilder builder = PROCESSOR.newDocumentBuilder();
-            XdmNode xdmNode = builder.build(new SAXSource(new InputSource(reader)));
-            
-            if(xPathExecutable!=null) {
-                XPathSelector selector = null;
-                try {
-                    selector = xPathExecutable.load();
-                    selector.setContextItem(xdmNode);
-                    XdmValue nodes = selector.evaluate();
-                    int length = nodes.size();
-                    int indexToMatch = matchNumber;
-                    // In case we need to extract everything
-                    if(matchNumber < 0) {
-                        for(XdmItem item : nodes) {
-                            if(fragment) {
-                                matchStrings.add(item.toString());
-                            }
-                            else {
-                                matchStrings.add(item.getStringValue());
-                            }
+        if(xPathExecutable!=null) {
+            XPathSelector selector = null;
+            try {
+                selector = xPathExecutable.load();
+                selector.setContextItem(xdmNode);
+                XdmValue nodes = selector.evaluate();
+                int length = nodes.size();
+                int indexToMatch = matchNumber;
+                // In case we need to extract everything
+                if(matchNumber < 0) {
+                    for(XdmItem item : nodes) {
+                        if(fragment) {
+                            matchStrings.add(item.toString());
                         }
-                    } else {
-                        if(indexToMatch <= length) {
-                            if(matchNumber == 0 && length>0) {
-                                indexToMatch = JMeterUtils.getRandomInt(length)+1;
-                            } 
-                            XdmItem item = nodes.itemAt(indexToMatch-1);
-                            matchStrings.add(fragment ? item.toString() : item.getStringValue());
-                        } else {
-                            if(log.isWarnEnabled()) {
-                                log.warn("Error : {}{}", JMeterUtils.getResString("xpath2_extractor_match_number_failure"),indexToMatch);
-                            }
+                        else {
+                            matchStrings.add(item.getStringValue());
                         }
                     }
-                } finally {
-                    if(selector != null) {
-                        try {
-                            selector.getUnderlyingXPathContext().setContextItem(null);
-                        } catch (Exception e) { // NOSONAR Ignored on purpose
-                            // NOOP
+                } else {
+                    if(indexToMatch <= length) {
+                        if(matchNumber == 0 && length>0) {
+                            indexToMatch = JMeterUtils.getRandomInt(length)+1;
+                        } 
+                        XdmItem item = nodes.itemAt(indexToMatch-1);
+                        matchStrings.add(fragment ? item.toString() : item.getStringValue());
+                    } else {
+                        if(log.isWarnEnabled()) {
+                            log.warn("Error : {}{}", JMeterUtils.getResString("xpath2_extractor_match_number_failure"),indexToMatch);
                         }
                     }
                 }
+            } finally {
+                if(selector != null) {
+                    try {
+                        selector.getUnderlyingXPathContext().setContextItem(null);
+                    } catch (Exception e) { // NOSONAR Ignored on purpose
+                        // NOOP
+                    }
+                }
             }
         }
     }
@@ -20,6 +20,7 @@ package org.apache.jmeter.visualizers;
 
 import java.util.Map;
 
+import org.apache.jmeter.samplers.HistogramSampleResult;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jorphan.math.StatCalculatorLong;
 
@@ -187,7 +188,13 @@ public class SamplingStatCalculator {
         double throughput;
         boolean rbool;
         synchronized (calculator) {
-            calculator.addValue(res.getTime(), res.getSampleCount());
+            if (res instanceof HistogramSampleResult) {
+                // Keep the distribution of the aggregated samples
+                ((HistogramSampleResult) res).forEachValue(
+                        (value, count) -> calculator.addValue(value * count, count));
+            } else {
+                calculator.addValue(res.getTime(), res.getSampleCount());
+            }
             calculator.addBytes(res.getBytesAsLong());
             calculator.addSentBytes(res.getSentBytes());
             setStartTime(res);
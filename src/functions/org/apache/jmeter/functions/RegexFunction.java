@@ -24,12 +24,15 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.PatternSyntaxException;
 
 import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.JavaMatchResult;
 import org.apache.oro.text.MalformedCachePatternException;
 import org.apache.oro.text.regex.MatchResult;
 import org.apache.oro.text.regex.Pattern;
@@ -63,6 +66,12 @@ public class RegexFunction extends AbstractFunction {
     /** initialised to the regex \$(\d+)\$ */
     private final Pattern templatePattern;
 
+    /** initialised to the regex ^\$\d+\$ */
+    private final Pattern firstElementGroupPattern;
+
+    /** Value of jmeter.regex.engine for this function call, read on first execution */
+    private volatile Boolean javaRegex;
+
     // Number of parameters expected - used to reject invalid calls
     private static final int MIN_PARAMETER_COUNT = 2;
 
@@ -80,6 +89,15 @@ public class RegexFunction extends AbstractFunction {
     public RegexFunction() {
         templatePattern = JMeterUtils.getPatternCache().getPattern(TEMPLATE_PATTERN,
                 Perl5Compiler.READ_ONLY_MASK);
+        firstElementGroupPattern = JMeterUtils.getPatternCache().getPattern("^\\$\\d+\\$",  //$NON-NLS-1$
+                Perl5Compiler.READ_ONLY_MASK);
+    }
+
+    private boolean useJavaRegex() {
+        if (javaRegex == null) {
+            javaRegex = Boolean.valueOf(JMeterUtils.useJavaRegex());
+        }
+        return javaRegex.booleanValue();
     }
 
     /** {@inheritDoc} */
@@ -91,11 +109,16 @@ public class RegexFunction extends AbstractFunction {
         String between = ""; //$NON-NLS-1$ 
         String name = ""; //$NON-NLS-1$
         String inputVariable = ""; //$NON-NLS-1$
-        Pattern searchPattern;
+        Pattern searchPattern = null;
+        java.util.regex.Pattern javaSearchPattern = null;
         Object[] tmplt;
         try {
-            searchPattern = JMeterUtils.getPatternCache().getPattern(((CompoundVariable) values[0]).execute(),
-                    Perl5Compiler.READ_ONLY_MASK);
+            String regex = ((CompoundVariable) values[0]).execute();
+            if (useJavaRegex()) {
+                javaSearchPattern = JMeterUtils.compilePattern(regex);
+            } else {
+                searchPattern = JMeterUtils.getPatternCache().getPattern(regex, Perl5Compiler.READ_ONLY_MASK);
+            }
             tmplt = generateTemplate(((CompoundVariable) values[1]).execute());
 
             if (values.length > 2) {
@@ -123,7 +146,7 @@ public class RegexFunction extends AbstractFunction {
             if (values.length > 6) {
                 inputVariable = ((CompoundVariable) values[6]).execute();
             }
-        } catch (MalformedCachePatternException e) {
+        } catch (MalformedCachePatternException | PatternSyntaxException e) {
             log.error("Malformed cache pattern:"+values[0], e);
             throw new InvalidVariableException("Malformed cache pattern:"+values[0], e);
         }
@@ -153,13 +176,20 @@ public class RegexFunction extends AbstractFunction {
 
         List<MatchResult> collectAllMatches = new ArrayList<>();
         try {
-            PatternMatcher matcher = JMeterUtils.getMatcher();
-            PatternMatcherInput input = new PatternMatcherInput(textToMatch);
-            while (matcher.contains(input, searchPattern)) {
-                MatchResult match = matcher.getMatch();
-                if(match != null) {
-                    collectAllMatches.add(match);
-                } 
+            if (javaSearchPattern != null) {
+                Matcher matcher = javaSearchPattern.matcher(textToMatch);
+                while (matcher.find()) {
+                    collectAllMatches.add(new JavaMatchResult(matcher.toMatchResult()));
+                }
+            } else {
+                PatternMatcher matcher = JMeterUtils.getMatcher();
+                PatternMatcherInput input = new PatternMatcherInput(textToMatch);
+                while (matcher.contains(input, searchPattern)) {
+                    MatchResult match = matcher.getMatch();
+                    if(match != null) {
+                        collectAllMatches.add(match);
+                    } 
+                }
             }
         } finally {
             if (name.length() > 0){
@@ -279,9 +309,7 @@ public class RegexFunction extends AbstractFunction {
     }
 
     private boolean isFirstElementGroup(String rawData) {
-        Pattern pattern = JMeterUtils.getPatternCache().getPattern("^\\$\\d+\\$",  //$NON-NLS-1$
-                Perl5Compiler.READ_ONLY_MASK);
-        return JMeterUtils.getMatcher().contains(rawData, pattern);
+        return JMeterUtils.getMatcher().contains(rawData, firstElementGroupPattern);
     }
 
 }
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jorphan.math;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable histogram of non negative long values (usually response times in
+ * milliseconds).
+ * <p>
+ * Values below 256 are counted exactly, larger values are counted in
+ * log-linear buckets whose width is less than 1% of their lower bound. Count,
+ * min, max and mean are exact, percentiles are estimated within the bucket
+ * precision.
+ * </p>
+ * <p>
+ * Recording a value does not allocate as long as it fits in the buckets
+ * already allocated, the bucket array only grows when a value larger than all
+ * previous ones is recorded.
+ * </p>
+ * This class is not thread safe.
+ * @since 5.1
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 8;
+    /** Number of values counted exactly */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /** Number of buckets for each power of two above SUB_BUCKET_COUNT */
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+    private long[] counts = new long[SUB_BUCKET_COUNT];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+    private double sum;
+
+    /**
+     * Record a value
+     * @param value the value to record, negative values are counted as 0 in
+     *              the percentiles
+     */
+    public void add(long value) {
+        int index = indexOf(Math.max(0L, value));
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, index + HALF_SUB_BUCKET_COUNT);
+        }
+        counts[index]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Add all the values recorded by another histogram to this one
+     * @param other the histogram to merge, it is not modified
+     */
+    public void add(LatencyHistogram other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Remove all the recorded values, keeping the allocated buckets
+     */
+    public void reset() {
+        if (count == 0) {
+            return;
+        }
+        Arrays.fill(counts, 0L);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the minimal recorded value, or {@link Double#NaN} if no value
+     *         has been recorded
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * @return the maximal recorded value, or {@link Double#NaN} if no value
+     *         has been recorded
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the arithmetic mean of the recorded values, or
+     *         {@link Double#NaN} if no value has been recorded
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * Returns an estimate for the requested percentile of the recorded values.
+     *
+     * @param percentile
+     *            the requested percentile (scaled from 0 - 100)
+     * @return an estimate for the requested percentile, or {@link Double#NaN}
+     *         if no value has been recorded
+     */
+    public double getPercentile(double percentile) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * count);
+        if (rank >= count) {
+            return max;
+        }
+        rank = Math.max(1L, rank);
+        long cumulated = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulated += counts[i];
+            if (cumulated >= rank) {
+                double value = lowestValueAt(i) + (bucketWidthAt(i) - 1) / 2d;
+                return Math.min(max, Math.max(min, value));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Receives the values recorded by a histogram
+     */
+    @FunctionalInterface
+    public interface ValueConsumer {
+        /**
+         * @param value the value representing a bucket
+         * @param count the number of values recorded in the bucket
+         */
+        void accept(long value, long count);
+    }
+
+    /**
+     * Pass the recorded values to a consumer, by increasing value. Each bucket
+     * is represented by its middle value, within the recorded min and max.
+     *
+     * @param consumer receives each non empty bucket
+     */
+    public void forEachValue(ValueConsumer consumer) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long value = lowestValueAt(i) + (bucketWidthAt(i) - 1) / 2;
+                consumer.accept(Math.min(max, Math.max(min, value)), counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Encode the histogram as a string without comma, made of the count, min,
+     * max and sum of the values followed by the non empty buckets as
+     * <code>index:count</code> pairs, all separated by spaces. The histogram
+     * can be rebuilt exactly with {@link #decode(String)}.
+     *
+     * @return the encoded histogram
+     */
+    public String encode() {
+        if (count == 0) {
+            return "0"; // $NON-NLS-1$
+        }
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(count).append(' ').append(min).append(' ').append(max).append(' ').append((long) sum);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                sb.append(' ').append(i).append(':').append(counts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Rebuild a histogram encoded by {@link #encode()}
+     *
+     * @param encoded the encoded histogram
+     * @return the histogram
+     * @throws IllegalArgumentException if the string is not an encoded histogram
+     */
+    public static LatencyHistogram decode(String encoded) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        String[] parts = encoded.trim().split(" "); // $NON-NLS-1$
+        long total = Long.parseLong(parts[0]);
+        if (total == 0) {
+            return histogram;
+        }
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Not an encoded histogram: " + encoded);
+        }
+        long bucketsTotal = 0;
+        for (int i = 4; i < parts.length; i++) {
+            int colon = parts[i].indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Not an encoded histogram: " + encoded);
+            }
+            int index = Integer.parseInt(parts[i].substring(0, colon));
+            long bucketCount = Long.parseLong(parts[i].substring(colon + 1));
+            if (index < 0 || bucketCount <= 0) {
+                throw new IllegalArgumentException("Not an encoded histogram: " + encoded);
+            }
+            if (index >= histogram.counts.length) {
+                histogram.counts = Arrays.copyOf(histogram.counts, index + HALF_SUB_BUCKET_COUNT);
+            }
+            histogram.counts[index] += bucketCount;
+            bucketsTotal += bucketCount;
+        }
+        if (bucketsTotal != total) {
+            throw new IllegalArgumentException("Buckets do not match the count: " + encoded);
+        }
+        histogram.count = total;
+        histogram.min = Long.parseLong(parts[1]);
+        histogram.max = Long.parseLong(parts[2]);
+        histogram.sum = Long.parseLong(parts[3]);
+        return histogram;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT
+                + (int) ((value >>> shift) - HALF_SUB_BUCKET_COUNT);
+    }
+
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long subBucket = HALF_SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    private static long bucketWidthAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return 1L;
+        }
+        return 1L << ((index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1);
+    }
+}
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -473,6 +474,57 @@ public final class JOrphanUtils {
         return hb;
     }
 
+    /**
+     * Find the first occurrence of a byte sequence in a byte array, with the
+     * Boyer-Moore-Horspool algorithm, which skips up to the length of the
+     * searched sequence at each step.
+     *
+     * @param source array to search in
+     * @param target sequence to search for
+     * @param fromIndex index from which to search
+     * @return the index of the first occurrence from fromIndex, or -1 if the
+     *         sequence is not found
+     * @since 5.1
+     */
+    public static int indexOf(byte[] source, byte[] target, int fromIndex) {
+        int targetLength = target.length;
+        int from = Math.max(fromIndex, 0);
+        if (targetLength == 0) {
+            return Math.min(from, source.length); // same as String#indexOf
+        }
+        int last = targetLength - 1;
+        int end = source.length - targetLength;
+        if (targetLength < 4) { // the skip table costs more than it saves
+            byte first = target[0];
+            for (int i = from; i <= end; i++) {
+                if (source[i] == first && regionMatches(source, i + 1, target, 1, last)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        int[] skip = new int[256];
+        Arrays.fill(skip, targetLength);
+        for (int i = 0; i < last; i++) {
+            skip[target[i] & 0xff] = last - i;
+        }
+        for (int i = from; i <= end; i += skip[source[i + last] & 0xff]) {
+            if (source[i + last] == target[last] && regionMatches(source, i, target, 0, last)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(byte[] source, int offset, byte[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (source[offset + i] != target[targetOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private static byte toHexChar(byte in){
         if (in < 10) {
             return (byte) (in+'0');
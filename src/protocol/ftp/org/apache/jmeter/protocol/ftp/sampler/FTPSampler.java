@@ -18,7 +18,6 @@
 
 package org.apache.jmeter.protocol.ftp.sampler;
 
-import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -46,6 +45,10 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.util.IdleConnectionPool;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +56,7 @@ import org.slf4j.LoggerFactory;
  * A sampler which understands FTP file requests.
  *
  */
-public class FTPSampler extends AbstractSampler implements Interruptible {
+public class FTPSampler extends AbstractSampler implements Interruptible, ThreadListener, TestStateListener {
 
     private static final long serialVersionUID = 240L;
 
@@ -87,8 +90,30 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
     // Should the file data be saved in the response?
     public static final String SAVE_RESPONSE = "FTPSampler.saveresponse"; // $NON-NLS-1$
 
+    // Should the connection be kept open for the next samples?
+    public static final String KEEP_ALIVE = "FTPSampler.keepalive"; // $NON-NLS-1$
+
+    /** Size of the buffers of the control and data connections and of the downloads */
+    private static final int BUFFER_SIZE =
+            JMeterUtils.getPropDefault("ftp.buffer_size", 65536); // $NON-NLS-1$
+
+    /** Share the open connections between threads? */
+    private static final boolean SHARED_CONNECTIONS =
+            JMeterUtils.getPropDefault("ftp.connection.shared", false); // $NON-NLS-1$
+
+    private static final long MAX_IDLE_MILLIS =
+            JMeterUtils.getPropDefault("ftp.connection.max_idle", 60000L); // $NON-NLS-1$
+
+    private static final IdleConnectionPool<FTPClient> SHARED_CLIENTS =
+            new IdleConnectionPool<>(MAX_IDLE_MILLIS, FTPSampler::closeClient);
+
     private transient volatile FTPClient savedClient; // used for interrupting the sampler
 
+    /** Connections kept open by this thread */
+    private transient IdleConnectionPool<FTPClient> threadClients;
+
+    private transient byte[] buffer;
+
     public FTPSampler() {
         super();
     }
@@ -145,6 +170,10 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         return getPropertyAsBoolean(UPLOAD_FILE,false);
     }
 
+    public boolean isKeepAlive(){
+        return getPropertyAsBoolean(KEEP_ALIVE,false);
+    }
+
 
     /**
      * Returns a formatted string label describing this sampler Example output:
@@ -184,127 +213,204 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         } catch (MalformedURLException e1) {
             log.warn("Cannot set URL: "+e1.getLocalizedMessage());
         }
+        final boolean keepAlive = isKeepAlive();
+        final String connectionKey = keepAlive ? getConnectionKey() : null;
+        boolean reusable = false;
         InputStream input = null;
         FileInputStream fileIS = null;
         res.sampleStart();
-        FTPClient ftp = new FTPClient();
+        FTPClient ftp = keepAlive ? borrowClient(connectionKey) : null;
+        final boolean reused = ftp != null;
+        if (!reused) {
+            ftp = new FTPClient();
+            ftp.setBufferSize(BUFFER_SIZE);
+        }
         try {
             savedClient = ftp;
-            final int port = getPortAsInt();
-            if (port > 0){
-                ftp.connect(getServer(),port);
-            } else {
-                ftp.connect(getServer());
-            }
-            res.latencyEnd();
-            int reply = ftp.getReplyCode();
-            if (FTPReply.isPositiveCompletion(reply)) {
-                if (ftp.login( getUsername(), getPassword())){
-                    if (binaryTransfer) {
-                        ftp.setFileType(FTP.BINARY_FILE_TYPE);
+            if (reused || login(ftp, binaryTransfer, res)) {
+                res.connectEnd();
+                boolean ftpOK=false;
+                if (isUpload()) {
+                    String contents=getLocalFileContents();
+                    if (contents.length() > 0){
+                        byte[] bytes = contents.getBytes(); // TODO - charset?
+                        input = new ByteArrayInputStream(bytes);
+                        res.setSentBytes((long)bytes.length);
+                    } else {
+                        File infile = new File(local);
+                        res.setSentBytes(infile.length());
+                        // FTPClient buffers the data connection, no need to buffer the file as well
+                        fileIS = new FileInputStream(infile); // NOSONAR False positive, fileIS is closed in finally and not overwritten
+                        input = fileIS;
                     }
-                    ftp.enterLocalPassiveMode();// should probably come from the setup dialog
-                    boolean ftpOK=false;
-                    if (isUpload()) {
-                        String contents=getLocalFileContents();
-                        if (contents.length() > 0){
-                            byte[] bytes = contents.getBytes(); // TODO - charset?
-                            input = new ByteArrayInputStream(bytes);
-                            res.setSentBytes((long)bytes.length);
-                        } else {
-                            File infile = new File(local);
-                            res.setSentBytes(infile.length());
-                            fileIS = new FileInputStream(infile); // NOSONAR False positive, fileIS is closed in finally and not overwritten
-                            input = new BufferedInputStream(fileIS);
+                    ftpOK = ftp.storeFile(remote, input);
+                    res.latencyEnd();
+                } else {
+                    final boolean saveResponse = isSaveResponse();
+                    ByteArrayOutputStream baos=null; // No need to close this
+                    OutputStream target=null;
+                    OutputStream output = null;
+                    try {
+                        if (saveResponse){
+                            baos  = new ByteArrayOutputStream();
+                            target=baos;
                         }
-                        ftpOK = ftp.storeFile(remote, input);
-                    } else {
-                        final boolean saveResponse = isSaveResponse();
-                        ByteArrayOutputStream baos=null; // No need to close this
-                        OutputStream target=null; 
-                        OutputStream output = null;
-                        try {
-                            if (saveResponse){
-                                baos  = new ByteArrayOutputStream();
-                                target=baos;
-                            }
-                            if (local.length()>0){
-                                output=new FileOutputStream(local); // NOSONAR False positive, the output is closed in finally and not overwritten
-                                if (target==null) {
-                                    target=output;
-                                } else {
-                                    target = new TeeOutputStream(output,baos);
-                                }
-                            }
-                            if (target == null){
-                                target=new NullOutputStream();
+                        if (local.length()>0){
+                            output=new FileOutputStream(local); // NOSONAR False positive, the output is closed in finally and not overwritten
+                            if (target==null) {
+                                target=output;
+                            } else {
+                                target = new TeeOutputStream(output,baos);
                             }
-                            input = ftp.retrieveFileStream(remote);
-                            if (input == null){// Could not access file or other error
-                                res.setResponseCode(Integer.toString(ftp.getReplyCode()));
-                                res.setResponseMessage(ftp.getReplyString());
+                        }
+                        if (target == null){
+                            target=new NullOutputStream();
+                        }
+                        input = ftp.retrieveFileStream(remote);
+                        res.latencyEnd();
+                        if (input == null){// Could not access file or other error
+                            res.setResponseCode(Integer.toString(ftp.getReplyCode()));
+                            res.setResponseMessage(ftp.getReplyString());
+                        } else {
+                            long bytes = IOUtils.copyLarge(input, target, getBuffer());
+                            input.close();
+                            input = null;
+                            // Reads the end of transfer reply, so that the connection can be used again
+                            ftpOK = ftp.completePendingCommand() && bytes > 0;
+                            if (saveResponse) {
+                                saveResponse(res, binaryTransfer, baos);
                             } else {
-                                long bytes = IOUtils.copy(input,target);
-                                ftpOK = bytes > 0;
-                                if (saveResponse) {
-                                    saveResponse(res, binaryTransfer, baos);
-                                } else {
-                                    res.setBytes(bytes);
-                                }
+                                res.setBytes(bytes);
                             }
-                        } finally {
-                            IOUtils.closeQuietly(target);
-                            IOUtils.closeQuietly(output);
                         }
+                    } finally {
+                        IOUtils.closeQuietly(target);
+                        IOUtils.closeQuietly(output);
                     }
+                }
 
-                    if (ftpOK) {
-                        res.setResponseCodeOK();
-                        res.setResponseMessageOK();
-                        res.setSuccessful(true);
-                    } else {
-                        res.setResponseCode(Integer.toString(ftp.getReplyCode()));
-                        res.setResponseMessage(ftp.getReplyString());
-                    }
+                if (ftpOK) {
+                    res.setResponseCodeOK();
+                    res.setResponseMessageOK();
+                    res.setSuccessful(true);
+                    reusable = keepAlive;
                 } else {
                     res.setResponseCode(Integer.toString(ftp.getReplyCode()));
                     res.setResponseMessage(ftp.getReplyString());
                 }
-            } else {
-                res.setResponseCode("501");
-                String replyString = ftp.getReplyString();
-                if(StringUtils.isEmpty(replyString)) {
-                    res.setResponseMessage("Could not connect");
-                }
-                else {
-                    res.setResponseMessage(replyString);
-                }
             }
         } catch (IOException ex) {
             res.setResponseCode("000");
             res.setResponseMessage(ex.toString());
         } finally {
             savedClient = null;
-            if (ftp.isConnected()) {
-                try {
-                    ftp.logout();
-                } catch (IOException ignored) {
-                    // NOOP
-                }
-                try {
-                    ftp.disconnect();
-                } catch (IOException ignored) {
-                    // NOOP
-                }
-            }
             IOUtils.closeQuietly(input);
             IOUtils.closeQuietly(fileIS);
+            if (reusable && ftp.isConnected()) {
+                getClientPool().giveBack(connectionKey, ftp);
+            } else {
+                closeClient(ftp);
+            }
         }
 
         res.sampleEnd();
         return res;
     }
 
+    /**
+     * Connect and login
+     *
+     * @return <code>true</code> if logged in, otherwise the response code and
+     *         message of the result are set
+     */
+    private boolean login(FTPClient ftp, boolean binaryTransfer, SampleResult res) throws IOException {
+        final int port = getPortAsInt();
+        if (port > 0){
+            ftp.connect(getServer(),port);
+        } else {
+            ftp.connect(getServer());
+        }
+        int reply = ftp.getReplyCode();
+        if (!FTPReply.isPositiveCompletion(reply)) {
+            res.setResponseCode("501");
+            String replyString = ftp.getReplyString();
+            if(StringUtils.isEmpty(replyString)) {
+                res.setResponseMessage("Could not connect");
+            }
+            else {
+                res.setResponseMessage(replyString);
+            }
+            return false;
+        }
+        if (!ftp.login( getUsername(), getPassword())){
+            res.setResponseCode(Integer.toString(ftp.getReplyCode()));
+            res.setResponseMessage(ftp.getReplyString());
+            return false;
+        }
+        if (binaryTransfer) {
+            ftp.setFileType(FTP.BINARY_FILE_TYPE);
+        }
+        ftp.enterLocalPassiveMode();// should probably come from the setup dialog
+        return true;
+    }
+
+    /**
+     * @return an idle client still connected with the same settings, or
+     *         <code>null</code> if there is none
+     */
+    private FTPClient borrowClient(String connectionKey) {
+        IdleConnectionPool<FTPClient> pool = getClientPool();
+        FTPClient ftp;
+        while ((ftp = pool.borrow(connectionKey)) != null) {
+            try {
+                if (ftp.sendNoOp()) {
+                    return ftp;
+                }
+            } catch (IOException ex) {
+                log.debug("Idle connection to {} is no longer usable: {}", getServer(), ex.toString());
+            }
+            closeClient(ftp);
+        }
+        return null;
+    }
+
+    private IdleConnectionPool<FTPClient> getClientPool() {
+        if (SHARED_CONNECTIONS) {
+            return SHARED_CLIENTS;
+        }
+        if (threadClients == null) {
+            threadClients = new IdleConnectionPool<>(MAX_IDLE_MILLIS, FTPSampler::closeClient);
+        }
+        return threadClients;
+    }
+
+    private String getConnectionKey() {
+        return String.join("\n", // $NON-NLS-1$
+                getServer(), getPort(), getUsername(), getPassword(), Boolean.toString(isBinaryMode()));
+    }
+
+    private byte[] getBuffer() {
+        if (buffer == null) {
+            buffer = new byte[BUFFER_SIZE];
+        }
+        return buffer;
+    }
+
+    private static void closeClient(FTPClient ftp) {
+        if (ftp.isConnected()) {
+            try {
+                ftp.logout();
+            } catch (IOException ignored) {
+                // NOOP
+            }
+            try {
+                ftp.disconnect();
+            } catch (IOException ignored) {
+                // NOOP
+            }
+        }
+    }
+
     private void saveResponse(SampleResult res, boolean binaryTransfer, ByteArrayOutputStream baos) {
         res.setResponseData(baos.toByteArray());
         if (!binaryTransfer) {
@@ -332,6 +438,48 @@ public class FTPSampler extends AbstractSampler implements Interruptible {
         return client != null;
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections kept open by this thread
+     */
+    @Override
+    public void threadFinished() {
+        if (threadClients != null) {
+            threadClients.close();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted() {
+        // NOOP
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted(String host) {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections shared by the threads
+     */
+    @Override
+    public void testEnded() {
+        SHARED_CLIENTS.close();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -200,6 +200,9 @@ public abstract class HTTPSamplerBase extends AbstractSampler
     private static final int MAX_BUFFER_SIZE = 
             JMeterUtils.getPropDefault("httpsampler.max_buffer_size", 65 * 1024); // $NON-NLS-1$
 
+    private static final boolean COMPUTE_RESPONSE_MD5 =
+            JMeterUtils.getPropDefault("httpsampler.compute_response_md5", false); // $NON-NLS-1$
+
     private static final boolean IGNORE_FAILED_EMBEDDED_RESOURCES =
             JMeterUtils.getPropDefault("httpsampler.ignore_failed_embedded_resources", false); // $NON-NLS-1$ // default value: false
 
@@ -1811,6 +1814,10 @@ public abstract class HTTPSamplerBase extends AbstractSampler
      * <p>
      * For the MD5 case, the result byte count is set to the size of the original response.
      * <p>
+     * Otherwise, if the property <code>httpsampler.compute_response_md5</code> is set, the MD5 of
+     * the response is computed while it is read and kept in the sample result, so that MD5Hex
+     * Assertions don't need to digest it again.
+     * <p>
      * Closes the inputStream
      *
      * @param sampleResult sample to store information about the response into
@@ -1827,6 +1834,7 @@ public abstract class HTTPSamplerBase extends AbstractSampler
             int bufferSize = 32;// Enough for MD5
 
             MessageDigest md = null;
+            MessageDigest dataDigest = null; // MD5 of the stored response
             boolean knownResponseLength = length > 0;// may also happen if long value > int.max
             if (useMD5()) {
                 try {
@@ -1835,6 +1843,13 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                     log.error("Should not happen - could not find MD5 digest", e);
                 }
             } else {
+                if (COMPUTE_RESPONSE_MD5) {
+                    try {
+                        dataDigest = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+                    } catch (NoSuchAlgorithmException e) {
+                        log.error("Should not happen - could not find MD5 digest", e);
+                    }
+                }
                 if (!knownResponseLength) {
                     bufferSize = 4 * 1024;
                 } else {
@@ -1867,6 +1882,9 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                                 (totalBytes+bytesReadInBuffer<=MAX_BYTES_TO_STORE_PER_REQUEST) ||
                                 JMeterContextService.getContext().isRecording()) {
                             w.write(readBuffer, 0, bytesReadInBuffer);
+                            if (dataDigest != null) {
+                                dataDigest.update(readBuffer, 0, bytesReadInBuffer);
+                            }
                         } else {
                             log.debug("Big response, truncating it to {} bytes", MAX_BYTES_TO_STORE_PER_REQUEST);
                             w.write(readBuffer, 0, (int)(MAX_BYTES_TO_STORE_PER_REQUEST-totalBytes));
@@ -1885,7 +1903,14 @@ public abstract class HTTPSamplerBase extends AbstractSampler
             }
             
             if (md == null) {
-                return toByteArray(w);
+                byte[] responseData = toByteArray(w);
+                if (dataDigest != null && storeInBOS) {
+                    // Kept as long as the sample result holds the same data
+                    sampleResult.setResponseData(responseData);
+                    sampleResult.setParsedResponse(SampleResult.RESPONSE_DATA_MD5_HEX_KEY,
+                            JOrphanUtils.baToHexString(dataDigest.digest()));
+                }
+                return responseData;
             } else {
                 byte[] md5Result = md.digest();
                 sampleResult.setBytes(totalBytes);
@@ -18,12 +18,19 @@
 
 package org.apache.jmeter.protocol.jdbc;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -42,6 +49,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -108,6 +116,7 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
     static final String CALLABLE = "Callable Statement"; // $NON-NLS-1$
     static final String PREPARED_SELECT = "Prepared Select Statement"; // $NON-NLS-1$
     static final String PREPARED_UPDATE = "Prepared Update Statement"; // $NON-NLS-1$
+    static final String PREPARED_BATCH_UPDATE = "Prepared Batch Update Statement"; // $NON-NLS-1$
     static final String COMMIT   = "Commit"; // $NON-NLS-1$
     static final String ROLLBACK = "Rollback"; // $NON-NLS-1$
     static final String AUTOCOMMIT_FALSE = "AutoCommit(false)"; // $NON-NLS-1$
@@ -128,6 +137,9 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
     private String resultSetHandler = RS_STORE_AS_STRING; 
     private String resultVariable = ""; // $NON-NLS-1$
     private String queryTimeout = ""; // $NON-NLS-1$
+    private String resultSetMaxRows = ""; // $NON-NLS-1$
+    private String fetchSize = ""; // $NON-NLS-1$
+    private String batchSize = ""; // $NON-NLS-1$
 
     private static final int MAX_RETAIN_SIZE = JMeterUtils.getPropDefault("jdbcsampler.max_retain_result_size", 64 * 1024);
 
@@ -168,13 +180,15 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         if (SELECT.equals(currentQueryType)) {
             try (Statement stmt = conn.createStatement()) {
                 setQueryTimeout(stmt, getIntegerQueryTimeout());
+                setFetchSize(stmt, getIntegerFetchSize());
                 ResultSet rs = null;
+                ResultSetSummary summary = createResultSetSummary();
                 try {
                     rs = stmt.executeQuery(getQuery());
-                    sample.latencyEnd();
-                    return getStringFromResultSet(rs).getBytes(ENCODING);
+                    return getStringFromResultSet(rs, endLatencyOnFirstRow(sample), summary).getBytes(ENCODING);
                 } finally {
                     close(rs);
+                    setResponseMessage(sample, summary);
                 }
             }
         } else if (CALLABLE.equals(currentQueryType)) {
@@ -184,8 +198,13 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 // plus a number of update counts.
                 boolean hasResultSet = cstmt.execute();
                 sample.latencyEnd();
-                String sb = resultSetsToString(cstmt,hasResultSet, out);
-                return sb.getBytes(ENCODING);
+                ResultSetSummary summary = createResultSetSummary();
+                try {
+                    String sb = resultSetsToString(cstmt, hasResultSet, out, summary);
+                    return sb.getBytes(ENCODING);
+                } finally {
+                    setResponseMessage(sample, summary);
+                }
             }
         } else if (UPDATE.equals(currentQueryType)) {
             try (Statement stmt = conn.createStatement()) {
@@ -200,12 +219,13 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
             try (PreparedStatement pstmt = getPreparedStatement(conn)) {
                 setArguments(pstmt);
                 ResultSet rs = null;
+                ResultSetSummary summary = createResultSetSummary();
                 try {
                     rs = pstmt.executeQuery();
-                    sample.latencyEnd();
-                    return getStringFromResultSet(rs).getBytes(ENCODING);
+                    return getStringFromResultSet(rs, endLatencyOnFirstRow(sample), summary).getBytes(ENCODING);
                 } finally {
                     close(rs);
+                    setResponseMessage(sample, summary);
                 }
             }
         } else if (PREPARED_UPDATE.equals(currentQueryType)) {
@@ -213,9 +233,14 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 setArguments(pstmt);
                 pstmt.executeUpdate();
                 sample.latencyEnd();
-                String sb = resultSetsToString(pstmt,false,null);
+                String sb = resultSetsToString(pstmt, false, null, null);
                 return sb.getBytes(ENCODING);
             }
+        } else if (PREPARED_BATCH_UPDATE.equals(currentQueryType)) {
+            try (PreparedStatement pstmt = getPreparedStatement(conn)) {
+                String results = executeBatches(pstmt, sample);
+                return results.getBytes(ENCODING);
+            }
         } else if (ROLLBACK.equals(currentQueryType)){
             conn.rollback();
             sample.latencyEnd();
@@ -237,7 +262,38 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         }
     }
 
-    private String resultSetsToString(PreparedStatement pstmt, boolean result, int[] out) throws SQLException, UnsupportedEncodingException {
+    /**
+     * The latency of a Select ends when the query is executed, unless the
+     * rows are limited or fetched by chunks, in which case it ends when the
+     * first row is read.
+     *
+     * @param sample the sample of the Select
+     * @return the sample if its latency ends on the first row, else <code>null</code>
+     */
+    private SampleResult endLatencyOnFirstRow(SampleResult sample) {
+        if (getIntegerResultSetMaxRows() >= 0 || getIntegerFetchSize() > 0) {
+            return sample;
+        }
+        sample.latencyEnd();
+        return null;
+    }
+
+    /**
+     * @return the summary of the rows to read, if only some of them are kept
+     *         in the response, else <code>null</code>
+     */
+    private ResultSetSummary createResultSetSummary() {
+        return getIntegerResultSetMaxRows() >= 0 ? new ResultSetSummary() : null;
+    }
+
+    private static void setResponseMessage(SampleResult sample, ResultSetSummary summary) {
+        if (summary != null) {
+            sample.setResponseMessage(summary.toString());
+        }
+    }
+
+    private String resultSetsToString(PreparedStatement pstmt, boolean result, int[] out, ResultSetSummary summary)
+            throws SQLException, UnsupportedEncodingException {
         StringBuilder sb = new StringBuilder();
         int updateCount = 0;
         boolean currentResult = result;
@@ -249,7 +305,7 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                 ResultSet rs = null;
                 try {
                     rs = pstmt.getResultSet();
-                    sb.append(getStringFromResultSet(rs)).append("\n"); // $NON-NLS-1$
+                    sb.append(getStringFromResultSet(rs, null, summary)).append("\n"); // $NON-NLS-1$
                 } finally {
                     close(rs);
                 }
@@ -369,11 +425,84 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         return resultSet.last() ? resultSet.getRow() : 0;
     }
 
+    /**
+     * Execute the statement for each row of parameter values, in batches of
+     * {@link #getIntegerBatchSize()} rows. Each batch is timed in a sub result
+     * of the sample.
+     *
+     * @param pstmt {@link PreparedStatement} to execute
+     * @param sample {@link SampleResult} whose latency ends with the first batch
+     * @return the number of updated rows and of executed batches
+     * @throws SQLException if a database error occurs
+     * @throws IOException if the parameter values are not valid CSV
+     */
+    private String executeBatches(PreparedStatement pstmt, SampleResult sample) throws SQLException, IOException {
+        int size = getIntegerBatchSize();
+        long updates = 0;
+        int rows = 0;
+        int batches = 0;
+        int rowsInBatch = 0;
+        SampleResult batchResult = null;
+        try (BufferedReader reader = new BufferedReader(new StringReader(getQueryArguments()))) {
+            String[] arguments;
+            while ((arguments = CSVSaveService.csvReadFile(reader, COMMA_CHAR)).length > 0) {
+                if (arguments.length == 1 && arguments[0].isEmpty()) {
+                    continue; // blank line
+                }
+                if (batchResult == null) {
+                    batchResult = new SampleResult();
+                    batchResult.sampleStart();
+                }
+                setArguments(pstmt, arguments);
+                pstmt.addBatch();
+                rows++;
+                if (++rowsInBatch == size) {
+                    updates += executeBatch(pstmt, sample, batchResult, ++batches, rowsInBatch);
+                    batchResult = null;
+                    rowsInBatch = 0;
+                }
+            }
+        }
+        if (rowsInBatch > 0) {
+            updates += executeBatch(pstmt, sample, batchResult, ++batches, rowsInBatch);
+        }
+        if (batches == 0) {
+            sample.latencyEnd();
+        }
+        return updates + " updates, " + rows + " rows in " + batches + " batches";
+    }
+
+    private long executeBatch(PreparedStatement pstmt, SampleResult sample, SampleResult batchResult,
+            int batch, int rows) throws SQLException {
+        int[] counts = pstmt.executeBatch();
+        batchResult.sampleEnd();
+        if (batch == 1) {
+            sample.latencyEnd();
+        }
+        long updates = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                updates += count;
+            }
+        }
+        batchResult.setSuccessful(true);
+        batchResult.setResponseCodeOK();
+        batchResult.setResponseMessage(String.format(java.util.Locale.ENGLISH, "%d rows, %.3f ms per row", // $NON-NLS-1$
+                rows, (double) batchResult.getTime() / rows));
+        batchResult.setResponseData(Long.toString(updates) + " updates", ENCODING); // $NON-NLS-1$
+        batchResult.setDataType(SampleResult.TEXT);
+        sample.addRawSubResult(batchResult); // labelled after the sample
+        return updates;
+    }
+
     private int[] setArguments(PreparedStatement pstmt) throws SQLException, IOException {
         if (getQueryArguments().trim().length()==0) {
             return new int[]{};
         }
-        String[] arguments = CSVSaveService.csvSplitString(getQueryArguments(), COMMA_CHAR);
+        return setArguments(pstmt, CSVSaveService.csvSplitString(getQueryArguments(), COMMA_CHAR));
+    }
+
+    private int[] setArguments(PreparedStatement pstmt, String[] arguments) throws SQLException {
         String[] argumentsTypes = getQueryArgumentsTypes().split(COMMA);
         if (arguments.length != argumentsTypes.length) {
             throw new SQLException("number of arguments ("+arguments.length+") and number of types ("+argumentsTypes.length+") are not equal");
@@ -497,6 +626,7 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
             pstmt = conn.prepareStatement(getQuery()); // NOSONAR closed by caller
         }
         setQueryTimeout(pstmt, getIntegerQueryTimeout());
+        setFetchSize(pstmt, getIntegerFetchSize());
         return pstmt;
     }
     
@@ -511,16 +641,36 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         }
     }
 
+    /**
+     * @param stmt {@link Statement} Statement for which we want to set the fetch size
+     * @param fetchSize int number of rows to fetch at once, if &lt;= 0 setFetchSize will not be called
+     * @throws SQLException
+     */
+    private static void setFetchSize(Statement stmt, int fetchSize) throws SQLException {
+        if (fetchSize > 0) {
+            stmt.setFetchSize(fetchSize);
+        }
+    }
+
     /**
      * Gets a Data object from a ResultSet.
+     * <p>
+     * If the number of rows is limited, the rows past the limit are read one
+     * at a time to be counted and checksummed in the summary, but are neither
+     * kept in the returned String nor in the variables.
      *
      * @param rs
      *            ResultSet passed in from a database query
+     * @param sample
+     *            sample whose latency ends when the first row is read, may be <code>null</code>
+     * @param summary
+     *            summary of the read rows, <code>null</code> if the number of rows is not limited
      * @return a Data object
      * @throws java.sql.SQLException
      * @throws UnsupportedEncodingException
      */
-    private String getStringFromResultSet(ResultSet rs) throws SQLException, UnsupportedEncodingException {
+    private String getStringFromResultSet(ResultSet rs, SampleResult sample, ResultSetSummary summary)
+            throws SQLException, UnsupportedEncodingException {
         ResultSetMetaData meta = rs.getMetaData();
 
         StringBuilder sb = new StringBuilder();
@@ -544,8 +694,26 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
             results = new ArrayList<>();
             jmvars.putObject(currentResultVariable, results);
         }
+        int maxRows = getIntegerResultSetMaxRows();
+        StringBuilder skippedRow = null;
         int j = 0;
-        while (rs.next()) {
+        boolean hasRow = rs.next();
+        if (sample != null) {
+            sample.latencyEnd(); // time to first row
+        }
+        for (; hasRow; hasRow = rs.next()) {
+            if (maxRows >= 0 && j >= maxRows) {
+                if (skippedRow == null) {
+                    skippedRow = new StringBuilder();
+                }
+                skippedRow.setLength(0);
+                appendRow(rs, numColumns, skippedRow);
+                if (summary != null) {
+                    summary.addRow(skippedRow, 0);
+                }
+                continue;
+            }
+            int rowStart = sb.length();
             Map<String, Object> row = null;
             j++;
             for (int i = 1; i <= numColumns; i++) {
@@ -573,6 +741,9 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
                     }
                 }
             }
+            if (summary != null) {
+                summary.addRow(sb, rowStart);
+            }
         }
         // Remove any additional values from previous sample
         for (String varName : varNames) {
@@ -594,6 +765,62 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         return sb.toString();
     }
 
+    private static void appendRow(ResultSet rs, int numColumns, StringBuilder sb)
+            throws SQLException, UnsupportedEncodingException {
+        for (int i = 1; i <= numColumns; i++) {
+            Object o = rs.getObject(i);
+            if (o instanceof byte[]) {
+                o = new String((byte[]) o, ENCODING);
+            }
+            sb.append(o).append(i == numColumns ? '\n' : '\t');
+        }
+    }
+
+    /**
+     * Number and checksum of the rows read from the result sets of a sample,
+     * when only some of them are kept in the response.
+     */
+    private static final class ResultSetSummary {
+        private final CRC32 checksum = new CRC32();
+        // Same replacements as String#getBytes
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // Reused for all the rows, instead of encoding each row into a new array
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        private long rows;
+
+        /**
+         * @param sb    rendered rows
+         * @param start index of the row in sb
+         */
+        void addRow(StringBuilder sb, int start) {
+            rows++;
+            CharBuffer row = CharBuffer.wrap(sb, start, sb.length());
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(row, buffer, true);
+                updateChecksum();
+            } while (result.isOverflow());
+            do {
+                result = encoder.flush(buffer);
+                updateChecksum();
+            } while (result.isOverflow());
+        }
+
+        private void updateChecksum() {
+            buffer.flip();
+            checksum.update(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public String toString() {
+            return rows + " rows, CRC32 " + Long.toHexString(checksum.getValue()); // $NON-NLS-1$
+        }
+    }
+
     public static void close(Connection c) {
         try {
             if (c != null) {
@@ -641,6 +868,97 @@ public abstract class AbstractJDBCTestElement extends AbstractTestElement implem
         return timeout;
     }
 
+    /**
+     * @return the integer representation of resultSetMaxRows, <code>-1</code>
+     *         if the number of rows is not limited
+     */
+    public int getIntegerResultSetMaxRows() {
+        if (StringUtils.isBlank(resultSetMaxRows)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(resultSetMaxRows.trim());
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the maximum number of rows kept in the response and the
+     *         variables, all the rows being read
+     */
+    public String getResultSetMaxRows() {
+        return resultSetMaxRows;
+    }
+
+    /**
+     * @param resultSetMaxRows maximum number of rows kept in the response and the variables,
+     *                         empty or <code>-1</code> to keep all of them
+     */
+    public void setResultSetMaxRows(String resultSetMaxRows) {
+        this.resultSetMaxRows = resultSetMaxRows;
+    }
+
+    /**
+     * @return the integer representation of fetchSize, <code>0</code> to use
+     *         the default fetch size of the driver
+     */
+    public int getIntegerFetchSize() {
+        if (StringUtils.isBlank(fetchSize)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(fetchSize.trim());
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the number of rows to fetch from the database at once
+     */
+    public String getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of rows to fetch from the database at once,
+     *                  empty to use the default fetch size of the driver
+     */
+    public void setFetchSize(String fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return the integer representation of batchSize, <code>0</code> to
+     *         execute all the rows in one batch
+     */
+    public int getIntegerBatchSize() {
+        if (StringUtils.isBlank(batchSize)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(batchSize.trim());
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the number of rows of parameter values executed in each batch
+     */
+    public String getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize number of rows of parameter values executed in each batch,
+     *                  empty to execute all the rows in one batch
+     */
+    public void setBatchSize(String batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * @return the queryTimeout
      */
@@ -44,6 +44,9 @@ public abstract class JDBCTestElementBeanInfoSupport extends BeanInfoSupport {
                 "variableNames", // $NON-NLS-1$
                 "resultVariable", // $NON-NLS-1$
                 "queryTimeout", // $NON-NLS-1$
+                "resultSetMaxRows", // $NON-NLS-1$
+                "fetchSize", // $NON-NLS-1$
+                "batchSize", // $NON-NLS-1$
                 "resultSetHandler" // $NON-NLS-1$
                 });
 
@@ -81,6 +84,18 @@ public abstract class JDBCTestElementBeanInfoSupport extends BeanInfoSupport {
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, "");
         
+        p = property("resultSetMaxRows"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+        p = property("fetchSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
+        p = property("batchSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ""); // $NON-NLS-1$
+
         p = property("queryType"); // $NON-NLS-1$
         p.setValue(NOT_UNDEFINED, Boolean.TRUE);
         p.setValue(DEFAULT, AbstractJDBCTestElement.SELECT);
@@ -91,6 +106,7 @@ public abstract class JDBCTestElementBeanInfoSupport extends BeanInfoSupport {
                 AbstractJDBCTestElement.CALLABLE,
                 AbstractJDBCTestElement.PREPARED_SELECT,
                 AbstractJDBCTestElement.PREPARED_UPDATE,
+                AbstractJDBCTestElement.PREPARED_BATCH_UPDATE,
                 AbstractJDBCTestElement.COMMIT,
                 AbstractJDBCTestElement.ROLLBACK,
                 AbstractJDBCTestElement.AUTOCOMMIT_FALSE,
@@ -24,10 +24,16 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.DelegatingConnection;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.jmeter.config.ConfigElement;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testbeans.TestBeanHelper;
 import org.apache.jmeter.testelement.AbstractTestElement;
@@ -52,6 +58,7 @@ public class DataSourceElement extends AbstractTestElement
     private transient String checkQuery;
     private transient String initQuery;
     private transient String poolMax;
+    private transient String preparedStatementCacheSize;
     private transient String connectionAge;
     private transient String timeout;
     private transient String trimInterval;
@@ -65,11 +72,15 @@ public class DataSourceElement extends AbstractTestElement
      *  These are called from different threads, so access must be synchronized.
      *  The same instance is called in each case.
     */
-    private transient BasicDataSource dbcpDataSource;
+    private transient InstrumentedDataSource dbcpDataSource;
 
     // Keep a record of the pre-thread pools so that they can be disposed of at the end of a test
     private transient Set<BasicDataSource> perThreadPoolSet;
 
+    // Statements found in and missing from the prepared statement caches of the pools
+    private transient LongAdder statementCacheHits;
+    private transient LongAdder statementCacheMisses;
+
     public DataSourceElement() {
     }
 
@@ -77,6 +88,7 @@ public class DataSourceElement extends AbstractTestElement
     public void testEnded() {
         synchronized (this) {
             if (dbcpDataSource != null) {
+                ConnectionPoolRegistry.unregister(dbcpDataSource);
                 try {
                     dbcpDataSource.close();
                 } catch (SQLException ex) {
@@ -116,14 +128,18 @@ public class DataSourceElement extends AbstractTestElement
         } else {
             String maxPool = getPoolMax();
             perThreadPoolSet = Collections.synchronizedSet(new HashSet<BasicDataSource>());
+            statementCacheHits = new LongAdder();
+            statementCacheMisses = new LongAdder();
             if (maxPool.equals("0")){ // i.e. if we want per thread pooling
                 variables.putObject(poolName, new DataSourceComponentImpl()); // pool will be created later
             } else {
-                BasicDataSource src = initPool(maxPool);
+                InstrumentedDataSource src = initPool(maxPool);
                 synchronized(this){
                     dbcpDataSource = src;
                     variables.putObject(poolName, new DataSourceComponentImpl(dbcpDataSource));
                 }
+                // per-thread pools are too many to be worth publishing
+                ConnectionPoolRegistry.register(src);
             }
         }
     }
@@ -139,6 +155,8 @@ public class DataSourceElement extends AbstractTestElement
         synchronized (this) {
             el.dbcpDataSource = dbcpDataSource;
             el.perThreadPoolSet = perThreadPoolSet;            
+            el.statementCacheHits = statementCacheHits;
+            el.statementCacheMisses = statementCacheMisses;
         }
         return el;
     }
@@ -205,8 +223,8 @@ public class DataSourceElement extends AbstractTestElement
      * Set up the DataSource - maxPool is a parameter, so the same code can
      * also be used for setting up the per-thread pools.
     */
-    private BasicDataSource initPool(String maxPool) {
-        BasicDataSource dataSource = new BasicDataSource();
+    private InstrumentedDataSource initPool(String maxPool) {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(getDataSource());
 
         if (log.isDebugEnabled()) {
             StringBuilder sb = new StringBuilder(40);
@@ -236,6 +254,8 @@ public class DataSourceElement extends AbstractTestElement
         dataSource.setMaxWaitMillis(Long.parseLong(getTimeout()));
 
         dataSource.setDefaultAutoCommit(Boolean.valueOf(isAutocommit()));
+        // the statement caches prepare statements on the physical connections
+        dataSource.setAccessToUnderlyingConnectionAllowed(getIntegerPreparedStatementCacheSize() > 0);
 
         if (log.isDebugEnabled()) {
             StringBuilder sb = new StringBuilder(40);
@@ -292,6 +312,34 @@ public class DataSourceElement extends AbstractTestElement
         return dataSource;
     }
 
+    /**
+     * Pool publishing its gauges to the listeners through {@link ConnectionPoolRegistry}
+     */
+    private static final class InstrumentedDataSource extends BasicDataSource implements ConnectionPoolMetrics {
+        private final String poolName;
+
+        InstrumentedDataSource(String poolName) {
+            this.poolName = poolName;
+        }
+
+        @Override
+        public String getPoolName() {
+            return poolName;
+        }
+
+        @Override
+        public int getNumWaiters() {
+            GenericObjectPool<?> pool = getConnectionPool();
+            return pool == null ? 0 : pool.getNumWaiters();
+        }
+
+        @Override
+        public long getMeanBorrowWaitTime() {
+            GenericObjectPool<?> pool = getConnectionPool();
+            return pool == null ? 0 : pool.getMeanBorrowWaitTimeMillis();
+        }
+    }
+
     // used to hold per-thread singleton connection pools
     private static final ThreadLocal<Map<String, BasicDataSource>> perThreadPoolMap =
             ThreadLocal.withInitial(HashMap::new);
@@ -304,6 +352,10 @@ public class DataSourceElement extends AbstractTestElement
 
         private final BasicDataSource sharedDSC;
 
+        // key: physical connection, the caches of the connections closed by the pool are
+        // dropped when a new physical connection is seen
+        private final Map<Connection, PreparedStatementCache> statementCaches = new ConcurrentHashMap<>();
+
         DataSourceComponentImpl(){
             sharedDSC=null;
         }
@@ -322,6 +374,12 @@ public class DataSourceElement extends AbstractTestElement
                 .append(", driver:").append(dsc.getDriverClassName())
                 .append(", url:").append(dsc.getUrl())
                 .append(", user:").append(dsc.getUsername());
+            int cacheSize = getIntegerPreparedStatementCacheSize();
+            if (cacheSize > 0) {
+                builder.append(", statement cache size:").append(cacheSize)
+                    .append(", hits:").append(statementCacheHits.sum())
+                    .append(", misses:").append(statementCacheMisses.sum());
+            }
             return builder.toString();
         }
 
@@ -344,6 +402,21 @@ public class DataSourceElement extends AbstractTestElement
                             isolation, System.identityHashCode(dsc), ex);
                 }
             }
+            int cacheSize = getIntegerPreparedStatementCacheSize();
+            if (cacheSize > 0 && conn instanceof DelegatingConnection) {
+                Connection physicalConnection = ((DelegatingConnection<?>) conn).getInnermostDelegate();
+                if (physicalConnection != null) {
+                    // A physical connection is only used by one thread at a time
+                    PreparedStatementCache cache = statementCaches.get(physicalConnection);
+                    if (cache == null) {
+                        statementCaches.values().removeIf(PreparedStatementCache::isConnectionClosed);
+                        cache = new PreparedStatementCache(physicalConnection, cacheSize,
+                                statementCacheHits, statementCacheMisses);
+                        statementCaches.put(physicalConnection, cache);
+                    }
+                    return cache.wrap(conn);
+                }
+            }
             return conn;
         }
 
@@ -483,6 +556,35 @@ public class DataSourceElement extends AbstractTestElement
         this.poolMax = poolMax;
     }
 
+    /**
+     * @return Returns the maximum number of prepared statements cached per connection.
+     */
+    public String getPreparedStatementCacheSize() {
+        return preparedStatementCacheSize;
+    }
+
+    /**
+     * @param preparedStatementCacheSize
+     *            The maximum number of prepared statements cached per connection,
+     *            <code>0</code> or empty to disable the cache.
+     */
+    public void setPreparedStatementCacheSize(String preparedStatementCacheSize) {
+        this.preparedStatementCacheSize = preparedStatementCacheSize;
+    }
+
+    private int getIntegerPreparedStatementCacheSize() {
+        if (StringUtils.isBlank(preparedStatementCacheSize)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(preparedStatementCacheSize.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid prepared statement cache size '{}' in {}, cache is disabled",
+                    preparedStatementCacheSize, getName());
+            return 0;
+        }
+    }
+
     /**
      * @return Returns the timeout.
      */
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jdbc.config;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.dbcp2.DelegatingCallableStatement;
+import org.apache.commons.dbcp2.DelegatingConnection;
+import org.apache.commons.dbcp2.DelegatingPreparedStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * LRU cache of the prepared and callable statements of one physical
+ * connection of a pool.
+ * <p>
+ * Statements are prepared on the physical connection, so that they stay open
+ * when the connection returns to the pool, and are borrowed through the
+ * connection returned by {@link #wrap(Connection)}: closing them returns them
+ * to the cache. When the cache is full, the least recently used statement is
+ * closed.
+ * <p>
+ * Statements are cached by SQL only, so the fetch size, query timeout and
+ * maximum number of rows which a sampler may have set are reset to the
+ * values given by the driver each time a statement is borrowed.
+ * <p>
+ * A physical connection is only used by the thread which borrowed it from
+ * the pool, so the cache is not synchronized.
+ */
+final class PreparedStatementCache {
+    private static final Logger log = LoggerFactory.getLogger(PreparedStatementCache.class);
+
+    private static final String PREPARED_KEY = "P:"; // $NON-NLS-1$
+    private static final String CALLABLE_KEY = "C:"; // $NON-NLS-1$
+
+    private final Connection physicalConnection;
+    private final Map<String, CachedStatement> statements;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * @param physicalConnection connection on which statements are prepared
+     * @param maxSize maximum number of statements kept open
+     * @param hits counter of the statements found in the cache
+     * @param misses counter of the statements prepared on the connection
+     */
+    PreparedStatementCache(Connection physicalConnection, int maxSize, LongAdder hits, LongAdder misses) {
+        this.physicalConnection = physicalConnection;
+        this.statements = new LruMap(maxSize);
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @param pooledConnection connection borrowed from the pool, whose
+     *                         physical connection is the one of this cache
+     * @return connection preparing statements through this cache, closing it
+     *         closes the pooled connection
+     */
+    Connection wrap(Connection pooledConnection) {
+        return new CachingConnection(pooledConnection);
+    }
+
+    /**
+     * @return <code>true</code> if the physical connection has been closed,
+     *         for example when the pool evicted it, so this cache can be dropped
+     */
+    boolean isConnectionClosed() {
+        try {
+            return physicalConnection.isClosed();
+        } catch (SQLException e) {
+            log.debug("Error checking if connection is closed", e);
+            return true;
+        }
+    }
+
+    /**
+     * @return number of statements kept open
+     */
+    int size() {
+        return statements.size();
+    }
+
+    private PreparedStatement borrow(String sql, boolean callable) throws SQLException {
+        String key = (callable ? CALLABLE_KEY : PREPARED_KEY) + sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.statement.isClosed()) {
+            hits.increment();
+            cached.resetSettings();
+            return cached.statement;
+        }
+        misses.increment();
+        PreparedStatement statement = callable
+                ? physicalConnection.prepareCall(sql)
+                : physicalConnection.prepareStatement(sql);
+        statements.put(key, new CachedStatement(statement));
+        return statement;
+    }
+
+    private static void giveBack(PreparedStatement statement) throws SQLException {
+        if (!statement.isClosed()) {
+            statement.clearParameters();
+            statement.clearBatch();
+        }
+    }
+
+    /**
+     * Statement with the settings given by the driver when it was prepared
+     */
+    private static final class CachedStatement {
+        private final PreparedStatement statement;
+        private final int fetchSize;
+        private final int queryTimeout;
+        private final int maxRows;
+
+        CachedStatement(PreparedStatement statement) throws SQLException {
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.maxRows = statement.getMaxRows();
+        }
+
+        void resetSettings() throws SQLException {
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+        }
+    }
+
+    private static final class LruMap extends LinkedHashMap<String, CachedStatement> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruMap(int maxSize) {
+            super(16, 0.75f, true); // access order
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+            if (size() <= maxSize) {
+                return false;
+            }
+            try {
+                eldest.getValue().statement.close();
+            } catch (SQLException e) {
+                log.warn("Error closing cached statement {}", eldest.getKey(), e);
+            }
+            return true;
+        }
+    }
+
+    private final class CachingConnection extends DelegatingConnection<Connection> {
+        CachingConnection(Connection pooledConnection) {
+            super(pooledConnection);
+        }
+
+        @Override
+        public PreparedStatement prepareStatement(String sql) throws SQLException {
+            return new CachedPreparedStatement(this, borrow(sql, false));
+        }
+
+        @Override
+        public CallableStatement prepareCall(String sql) throws SQLException {
+            return new CachedCallableStatement(this, (CallableStatement) borrow(sql, true));
+        }
+    }
+
+    private static final class CachedPreparedStatement extends DelegatingPreparedStatement {
+        CachedPreparedStatement(DelegatingConnection<?> connection, PreparedStatement statement) {
+            super(connection, statement);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!isClosedInternal()) {
+                setClosedInternal(true);
+                giveBack((PreparedStatement) getDelegate());
+            }
+        }
+    }
+
+    private static final class CachedCallableStatement extends DelegatingCallableStatement {
+        CachedCallableStatement(DelegatingConnection<?> connection, CallableStatement statement) {
+            super(connection, statement);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!isClosedInternal()) {
+                setClosedInternal(true);
+                giveBack((PreparedStatement) getDelegate());
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jms.client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+import org.apache.jorphan.math.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded window of messages sent asynchronously by a {@link Publisher}.
+ * <p>
+ * A send only blocks when the window is full, until the provider has
+ * acknowledged one of the messages in flight. The time between each send and
+ * its acknowledgement is recorded in microseconds.
+ * <p>
+ * Messages are sent with the JMS 2.0 <code>CompletionListener</code> when
+ * the JMS API and the provider on the classpath support it, and synchronously
+ * otherwise, in which case the recorded times are the ones of the blocking
+ * sends.
+ *
+ * @since 5.1
+ */
+public class InFlightWindow {
+
+    private static final Logger log = LoggerFactory.getLogger(InFlightWindow.class);
+
+    /**
+     * Receives the outcome of a message sent asynchronously
+     */
+    @FunctionalInterface
+    public interface CompletionCallback {
+        /**
+         * @param failure the reason why the message was not sent, or
+         *                <code>null</code> if the provider acknowledged it
+         */
+        void completed(Exception failure);
+    }
+
+    /**
+     * Sends a message without waiting for its acknowledgement
+     */
+    @FunctionalInterface
+    public interface AsyncSender {
+        /**
+         * @param producer     the producer sending the message
+         * @param destination  the destination of the message, or
+         *                     <code>null</code> to use the one of the producer
+         * @param msg          the message to send
+         * @param deliveryMode the delivery mode
+         * @param priority     the priority
+         * @param expiration   the time to live
+         * @param callback     called once, possibly by another thread, when
+         *                     the message has been sent or has failed
+         * @throws JMSException if the message could not be handed over
+         */
+        void send(MessageProducer producer, Destination destination, Message msg,
+                int deliveryMode, int priority, long expiration,
+                CompletionCallback callback) throws JMSException;
+    }
+
+    /**
+     * Sends and recorded times of the messages acknowledged since the last
+     * call to {@link InFlightWindow#drain()}
+     */
+    public static final class Completions {
+        private final LatencyHistogram latencies;
+        private final int failures;
+        private final Exception firstFailure;
+
+        private Completions(LatencyHistogram latencies, int failures, Exception firstFailure) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.firstFailure = firstFailure;
+        }
+
+        /**
+         * @return the times in microseconds between the sends and the
+         *         acknowledgements of the successful messages
+         */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        /**
+         * @return the number of messages which were not sent
+         */
+        public int getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return the reason of the first failure, or <code>null</code>
+         */
+        public Exception getFirstFailure() {
+            return firstFailure;
+        }
+    }
+
+    private static final AsyncSender JMS20_SENDER = createJms20Sender();
+
+    private final int size;
+
+    private final Semaphore permits;
+
+    private volatile AsyncSender sender;
+
+    // guarded by this
+    private LatencyHistogram latencies = new LatencyHistogram();
+    private int failures;
+    private Exception firstFailure;
+
+    /**
+     * Create a window sending with the JMS 2.0 asynchronous send if available
+     *
+     * @param size the maximum number of messages in flight
+     */
+    public InFlightWindow(int size) {
+        this(size, JMS20_SENDER);
+    }
+
+    /**
+     * @param size   the maximum number of messages in flight
+     * @param sender the asynchronous send, or <code>null</code> to send
+     *               synchronously
+     */
+    public InFlightWindow(int size, AsyncSender sender) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + size);
+        }
+        this.size = size;
+        this.permits = new Semaphore(size);
+        this.sender = sender;
+    }
+
+    /**
+     * @return <code>true</code> if the JMS API on the classpath provides the
+     *         JMS 2.0 asynchronous send
+     */
+    public static boolean isAsyncSendAvailable() {
+        return JMS20_SENDER != null;
+    }
+
+    /**
+     * @return <code>true</code> if messages are sent asynchronously
+     */
+    public boolean isAsync() {
+        return sender != null;
+    }
+
+    /**
+     * @return the maximum number of messages in flight
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Send a message, waiting first for a slot of the window if it is full.
+     *
+     * @param producer     the producer sending the message
+     * @param destination  the destination of the message, or <code>null</code>
+     *                     to use the one of the producer
+     * @param msg          the message to send, which must not be accessed
+     *                     until {@link #awaitCompletions(long, TimeUnit)}
+     *                     returns
+     * @param deliveryMode the delivery mode
+     * @param priority     the priority
+     * @param expiration   the time to live
+     * @throws JMSException if the message could not be sent, or the thread
+     *                      was interrupted while waiting for a slot
+     */
+    public void send(MessageProducer producer, Destination destination, Message msg,
+            int deliveryMode, int priority, long expiration) throws JMSException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for a message in flight");
+        }
+        long start = System.nanoTime();
+        AsyncSender asyncSender = sender;
+        if (asyncSender != null) {
+            try {
+                asyncSender.send(producer, destination, msg, deliveryMode, priority, expiration,
+                        failure -> complete(start, failure));
+                return;
+            } catch (AbstractMethodError e) { // NOSONAR JMS 1.1 provider with the JMS 2.0 API
+                log.warn("JMS provider does not implement asynchronous send, sending synchronously");
+                sender = null;
+            } catch (JMSException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        try {
+            if (destination == null) {
+                producer.send(msg, deliveryMode, priority, expiration);
+            } else {
+                producer.send(destination, msg, deliveryMode, priority, expiration);
+            }
+        } catch (JMSException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        complete(start, null);
+    }
+
+    private void complete(long start, Exception failure) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        synchronized (this) {
+            if (failure == null) {
+                latencies.add(micros);
+            } else {
+                failures++;
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+            }
+        }
+        permits.release();
+    }
+
+    /**
+     * Wait until all the messages in flight are acknowledged or have failed
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of timeout
+     * @return <code>false</code> if some messages are still in flight after
+     *         the timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitCompletions(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(size, timeout, unit)) {
+            return false;
+        }
+        permits.release(size);
+        return true;
+    }
+
+    /**
+     * @return the number of messages in flight
+     */
+    public int getInFlight() {
+        return size - permits.availablePermits();
+    }
+
+    /**
+     * Get and reset the outcomes of the messages completed since the last
+     * call. Messages still in flight will be part of the next call.
+     *
+     * @return the completed messages
+     */
+    public synchronized Completions drain() {
+        Completions completions = new Completions(latencies, failures, firstFailure);
+        latencies = new LatencyHistogram();
+        failures = 0;
+        firstFailure = null;
+        return completions;
+    }
+
+    /**
+     * Look up <code>MessageProducer.send(..., CompletionListener)</code> of
+     * the JMS 2.0 API, which JMeter is not compiled against.
+     *
+     * @return the sender, or <code>null</code> if the JMS API on the
+     *         classpath is older than 2.0
+     */
+    private static AsyncSender createJms20Sender() {
+        final Class<?> listenerClass;
+        final Method sendToProducerDestination;
+        final Method sendToDestination;
+        try {
+            listenerClass = Class.forName("javax.jms.CompletionListener", // $NON-NLS-1$
+                    false, MessageProducer.class.getClassLoader());
+            sendToProducerDestination = MessageProducer.class.getMethod("send", // $NON-NLS-1$
+                    Message.class, int.class, int.class, long.class, listenerClass);
+            sendToDestination = MessageProducer.class.getMethod("send", // $NON-NLS-1$
+                    Destination.class, Message.class, int.class, int.class, long.class, listenerClass);
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            log.debug("JMS 2.0 asynchronous send is not available: {}", e.toString());
+            return null;
+        }
+        return (producer, destination, msg, deliveryMode, priority, expiration, callback) -> {
+            Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[] { listenerClass },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "onCompletion": // $NON-NLS-1$
+                            callback.completed(null);
+                            return null;
+                        case "onException": // $NON-NLS-1$
+                            callback.completed((Exception) args[1]);
+                            return null;
+                        case "equals": // $NON-NLS-1$
+                            return proxy == args[0];
+                        case "hashCode": // $NON-NLS-1$
+                            return System.identityHashCode(proxy);
+                        default:
+                            return "CompletionListener of " + msg; // $NON-NLS-1$
+                        }
+                    });
+            try {
+                if (destination == null) {
+                    sendToProducerDestination.invoke(producer, msg, deliveryMode, priority, expiration, listener);
+                } else {
+                    sendToDestination.invoke(producer, destination, msg, deliveryMode, priority, expiration, listener);
+                }
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof JMSException) {
+                    throw (JMSException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+}
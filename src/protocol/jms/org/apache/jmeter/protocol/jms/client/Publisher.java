@@ -54,6 +54,8 @@ public class Publisher implements Closeable {
     
     private final boolean staticDest;
 
+    private InFlightWindow inFlightWindow;
+
     /**
      * Create a publisher using either the jndi.properties file or the provided
      * parameters. Uses a static destination and persistent messages(for
@@ -189,15 +191,41 @@ public class Publisher implements Closeable {
             int deliveryMode, int priority, long expiration)
             throws JMSException, NamingException {
         Utils.addJMSProperties(msg, properties);
-        if (staticDest || destinationName == null) {
+        Destination dest = null;
+        if (!staticDest && destinationName != null) {
+            dest = Utils.lookupDestination(ctx, destinationName);
+        }
+        if (inFlightWindow != null) {
+            inFlightWindow.send(producer, dest, msg, deliveryMode, priority, expiration);
+        } else if (dest == null) {
             producer.send(msg, deliveryMode, priority, expiration);
         } else {
-            Destination dest = Utils.lookupDestination(ctx, destinationName);
             producer.send(dest, msg, deliveryMode, priority, expiration);
         }
         return msg;
     }
 
+    /**
+     * Send the next messages through a window of messages in flight, or
+     * synchronously.
+     *
+     * @param inFlightWindow the window, or <code>null</code> to wait for
+     *                       each message to be sent
+     * @since 5.1
+     */
+    public void setInFlightWindow(InFlightWindow inFlightWindow) {
+        this.inFlightWindow = inFlightWindow;
+    }
+
+    /**
+     * @return the window of messages in flight, or <code>null</code> if
+     *         messages are sent synchronously
+     * @since 5.1
+     */
+    public InFlightWindow getInFlightWindow() {
+        return inFlightWindow;
+    }
+
     /**
      * Close will close the session
      */
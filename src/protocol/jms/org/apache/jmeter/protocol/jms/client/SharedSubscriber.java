@@ -0,0 +1,460 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jms.client;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.naming.Context;
+import javax.naming.NamingException;
+
+import org.apache.jmeter.protocol.jms.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consumer of a destination shared by all the subscribers of a test with the
+ * same configuration.
+ * <p>
+ * One connection and a few sessions receive the messages with message
+ * listeners, and deal them out to the {@link Receiver}s of the subscribers,
+ * so that each message is received by one subscriber only. Receivers are
+ * bounded lock free queues: when the queues of all the subscribers are full,
+ * the session threads wait for a subscriber to poll a message, so that the
+ * provider stops delivering messages which have been acknowledged on
+ * reception but could not be sampled.
+ * <p>
+ * A topic subscription is consumed by a single session, as each session
+ * would receive its own copy of the messages.
+ *
+ * @since 5.1
+ */
+public final class SharedSubscriber implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedSubscriber.class);
+
+    /** Shared subscribers by configuration, guarded by itself */
+    private static final Map<String, SharedSubscriber> SUBSCRIBERS = new HashMap<>();
+
+    private static final Receiver[] NO_RECEIVERS = new Receiver[0];
+
+    /**
+     * A message and the time it was received by the shared consumer
+     */
+    public static final class ReceivedMessage {
+        private final Message message;
+        private final long receivedTime;
+
+        ReceivedMessage(Message message, long receivedTime) {
+            this.message = message;
+            this.receivedTime = receivedTime;
+        }
+
+        /**
+         * @return the message
+         */
+        public Message getMessage() {
+            return message;
+        }
+
+        /**
+         * @return the time in milliseconds since the epoch at which the
+         *         message was received
+         */
+        public long getReceivedTime() {
+            return receivedTime;
+        }
+    }
+
+    /**
+     * Queue of the messages dealt to one subscriber, which must only be
+     * polled by one thread
+     */
+    public static final class Receiver implements Closeable {
+        private final SharedSubscriber owner;
+        private final ConcurrentLinkedQueue<ReceivedMessage> messages = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile Thread waiter;
+
+        private Receiver(SharedSubscriber owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * @return false if the queue is full
+         */
+        private boolean tryOffer(ReceivedMessage message) {
+            int current;
+            do {
+                current = size.get();
+                if (current >= owner.queueSize) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            add(message);
+            return true;
+        }
+
+        /**
+         * Queue a message even if the queue is full
+         */
+        private void offer(ReceivedMessage message) {
+            size.incrementAndGet();
+            add(message);
+        }
+
+        private void add(ReceivedMessage message) {
+            messages.offer(message);
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Wait for the next message dealt to this receiver
+         *
+         * @param timeout the maximum time to wait in milliseconds, don't wait
+         *                if less than 10
+         * @return the message, or <code>null</code> if none has been received
+         *         within the timeout or the thread has been interrupted
+         * @throws JMSException if the shared connection has failed
+         */
+        public ReceivedMessage poll(long timeout) throws JMSException {
+            ReceivedMessage message = take();
+            if (message != null || timeout < 10) { // Allow for short/negative times
+                return message;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            waiter = Thread.currentThread();
+            try {
+                while (true) {
+                    message = take();
+                    if (message != null) {
+                        return message;
+                    }
+                    owner.checkFailure();
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                        return null;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+            } finally {
+                waiter = null;
+            }
+        }
+
+        private ReceivedMessage take() {
+            ReceivedMessage message = messages.poll();
+            if (message != null) {
+                size.decrementAndGet();
+                owner.spaceAvailable();
+            }
+            return message;
+        }
+
+        /**
+         * @return the number of messages waiting to be polled
+         */
+        public int size() {
+            return size.get();
+        }
+
+        /**
+         * Stop receiving messages, the messages not polled yet are dealt to
+         * the other receivers. The shared consumer is closed with its last
+         * receiver.
+         */
+        @Override
+        public void close() {
+            owner.release(this);
+        }
+    }
+
+    private final String key;
+
+    private final int queueSize;
+
+    /** Notified when a message is polled, while session threads wait for space */
+    private final Object spaceMonitor = new Object();
+
+    /** Number of session threads waiting for space, guarded by spaceMonitor */
+    private volatile int blockedSessions;
+
+    private final Connection connection;
+
+    private final List<Session> sessions = new ArrayList<>();
+
+    private final List<MessageConsumer> consumers = new ArrayList<>();
+
+    /** Copied on write, guarded by this */
+    private volatile Receiver[] receivers = NO_RECEIVERS;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile JMSException failure;
+
+    private SharedSubscriber(String key, int sessionCount, int queueSize, boolean useProps,
+            String initialContextFactory,
+            String providerUrl, String connfactory, String destinationName, String durableSubscriptionId,
+            String clientId, String jmsSelector, boolean useAuth, String securityPrincipal,
+            String securityCredentials) throws NamingException, JMSException {
+        this.key = key;
+        this.queueSize = Math.max(1, queueSize);
+        Connection conn = null;
+        boolean initSuccess = false;
+        try {
+            Context ctx = InitialContextFactory.getContext(useProps,
+                    initialContextFactory, providerUrl, useAuth, securityPrincipal, securityCredentials);
+            conn = Utils.getConnection(ctx, connfactory);
+            if (!isEmpty(clientId)) {
+                conn.setClientID(clientId);
+            }
+            conn.setExceptionListener(e -> {
+                log.error("Shared subscriber connection to {} failed", destinationName, e);
+                failure = e;
+            });
+            Destination dest = Utils.lookupDestination(ctx, destinationName);
+            int count = dest instanceof Topic ? 1 : Math.max(1, sessionCount);
+            for (int i = 0; i < count; i++) {
+                Session session = conn.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                sessions.add(session);
+                MessageConsumer consumer = createConsumer(session, dest, durableSubscriptionId, jmsSelector);
+                consumers.add(consumer);
+                consumer.setMessageListener(this);
+            }
+            conn.start();
+            log.debug("Shared subscriber to {} started with {} sessions", destinationName, count);
+            initSuccess = true;
+        } finally {
+            this.connection = conn;
+            if (!initSuccess) {
+                closeConsumers();
+            }
+        }
+    }
+
+    /**
+     * Register a receiver on the consumer shared by the subscribers with the
+     * same configuration, which is created if needed
+     *
+     * @param sessionCount          number of sessions receiving the messages of
+     *                              a queue
+     * @param queueSize             maximum number of messages waiting to be
+     *                              polled by each receiver
+     * @param useProps              use jndi.properties
+     * @param initialContextFactory the initial context factory
+     * @param providerUrl           the provider url
+     * @param connfactory           the connection factory JNDI name
+     * @param destinationName       the destination JNDI name
+     * @param durableSubscriptionId the durable subscription id, or empty
+     * @param clientId              the client id, or empty
+     * @param jmsSelector           the message selector, or empty
+     * @param useAuth               use the security principal and credentials
+     * @param securityPrincipal     the security principal
+     * @param securityCredentials   the security credentials
+     * @return a receiver of the messages of the shared consumer, which must be
+     *         closed
+     * @throws NamingException if the JNDI lookups fail
+     * @throws JMSException    if the consumer cannot be created
+     */
+    public static Receiver register(int sessionCount, int queueSize, boolean useProps,
+            String initialContextFactory, String providerUrl, String connfactory, String destinationName,
+            String durableSubscriptionId, String clientId, String jmsSelector, boolean useAuth,
+            String securityPrincipal, String securityCredentials) throws NamingException, JMSException {
+        String key = String.join("\n", // $NON-NLS-1$
+                Integer.toString(sessionCount), Integer.toString(queueSize), Boolean.toString(useProps),
+                initialContextFactory, providerUrl,
+                connfactory, destinationName, durableSubscriptionId, clientId, jmsSelector,
+                Boolean.toString(useAuth), securityPrincipal, securityCredentials);
+        synchronized (SUBSCRIBERS) {
+            SharedSubscriber subscriber = SUBSCRIBERS.get(key);
+            if (subscriber == null || subscriber.failure != null) {
+                subscriber = new SharedSubscriber(key, sessionCount, queueSize, useProps, initialContextFactory,
+                        providerUrl, connfactory, destinationName, durableSubscriptionId, clientId, jmsSelector,
+                        useAuth, securityPrincipal, securityCredentials);
+                SUBSCRIBERS.put(key, subscriber);
+            }
+            return subscriber.addReceiver();
+        }
+    }
+
+    /**
+     * @return the number of shared consumers currently open
+     */
+    static int getSubscriberCount() {
+        synchronized (SUBSCRIBERS) {
+            return SUBSCRIBERS.size();
+        }
+    }
+
+    private synchronized Receiver addReceiver() {
+        Receiver receiver = new Receiver(this);
+        Receiver[] current = receivers;
+        Receiver[] updated = new Receiver[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = receiver;
+        receivers = updated;
+        return receiver;
+    }
+
+    private void release(Receiver receiver) {
+        synchronized (SUBSCRIBERS) {
+            boolean last;
+            synchronized (this) {
+                List<Receiver> remaining = new ArrayList<>(receivers.length);
+                for (Receiver r : receivers) {
+                    if (r != receiver) {
+                        remaining.add(r);
+                    }
+                }
+                if (remaining.size() == receivers.length) {
+                    return; // already released
+                }
+                receivers = remaining.toArray(NO_RECEIVERS);
+                last = remaining.isEmpty();
+            }
+            if (last) {
+                if (SUBSCRIBERS.get(key) == this) {
+                    SUBSCRIBERS.remove(key);
+                }
+                closeConsumers();
+                return;
+            }
+        }
+        // The closing thread must not wait for the other receivers
+        ReceivedMessage message;
+        while ((message = receiver.messages.poll()) != null) {
+            Receiver[] current = receivers;
+            if (current.length == 0) {
+                log.warn("Message of a closed subscriber left after the last subscriber stopped, dropping it");
+                return;
+            }
+            current[(next.getAndIncrement() & Integer.MAX_VALUE) % current.length].offer(message);
+        }
+    }
+
+    private void checkFailure() throws JMSException {
+        JMSException e = failure;
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private void spaceAvailable() {
+        if (blockedSessions > 0) {
+            synchronized (spaceMonitor) {
+                spaceMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Deal the message to the next receiver whose queue is not full, waiting
+     * for one if needed.
+     * <br>
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessage(Message message) {
+        ReceivedMessage received = new ReceivedMessage(message, System.currentTimeMillis());
+        while (true) {
+            Receiver[] current = receivers;
+            if (current.length == 0) {
+                log.warn("Message received after the last subscriber stopped, dropping it");
+                return;
+            }
+            int start = next.getAndIncrement() & Integer.MAX_VALUE;
+            for (int i = 0; i < current.length; i++) {
+                if (current[(start + i) % current.length].tryOffer(received)) {
+                    return;
+                }
+            }
+            synchronized (spaceMonitor) {
+                blockedSessions++;
+                try {
+                    // bounded, as a message may be polled before this thread waits
+                    spaceMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while waiting for a subscriber to poll, queueing message anyway");
+                    current[start % current.length].offer(received);
+                    return;
+                } finally {
+                    blockedSessions--;
+                }
+            }
+        }
+    }
+
+    private void closeConsumers() {
+        try {
+            if (connection != null) {
+                connection.stop();
+            }
+        } catch (JMSException e) {
+            log.warn("Stopping connection throws exception, message: {}", e.getMessage(), e);
+        }
+        for (MessageConsumer consumer : consumers) {
+            Utils.close(consumer, log);
+        }
+        for (Session session : sessions) {
+            Utils.close(session, log);
+        }
+        Utils.close(connection, log);
+    }
+
+    private static MessageConsumer createConsumer(Session session,
+            Destination destination, String durableSubscriptionId,
+            String jmsSelector) throws JMSException {
+        if (isEmpty(durableSubscriptionId)) {
+            if (isEmpty(jmsSelector)) {
+                return session.createConsumer(destination);
+            } else {
+                return session.createConsumer(destination, jmsSelector);
+            }
+        } else {
+            if (isEmpty(jmsSelector)) {
+                return session.createDurableSubscriber((Topic) destination, durableSubscriptionId);
+            } else {
+                return session.createDurableSubscriber((Topic) destination, durableSubscriptionId, jmsSelector, false);
+            }
+        }
+    }
+
+    private static boolean isEmpty(String s1) {
+        return s1 == null || s1.trim().isEmpty();
+    }
+}
@@ -103,6 +103,9 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
 
     private final JLabeledTextField iterations = new JLabeledTextField(JMeterUtils.getResString("jms_itertions")); //$NON-NLS-1$
 
+    private final JLabeledTextField inFlightWindow =
+            new JLabeledTextField(JMeterUtils.getResString("jms_in_flight_window"), 6); //$NON-NLS-1$
+
     private final FilePanel messageFile = new FilePanel(JMeterUtils.getResString("jms_file")); //$NON-NLS-1$
 
     private final FilePanel randomFile = new FilePanel(JMeterUtils.getResString("jms_random_file"), true); //$NON-NLS-1$
@@ -185,6 +188,7 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
       sampler.setFileEncoding(fileEncoding.getText());
       sampler.setMessageChoice(msgChoice.getText());
       sampler.setIterations(iterations.getText());
+      sampler.setInFlightWindow(inFlightWindow.getText());
       sampler.setUseAuth(useAuth.isSelected());
       sampler.setUseNonPersistentDelivery(useNonPersistentDelivery.isSelected());
      
@@ -212,7 +216,7 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         mainPanel.add(createAuthPane());
         mainPanel.add(createPriorityAndExpiration());
         mainPanel.add(jmsErrorReconnectOnCodes);
-        mainPanel.add(iterations);
+        mainPanel.add(createIterationsPane());
 
         jmsPropertiesPanel = new JMSPropertiesPanel(); //$NON-NLS-1$
         mainPanel.add(jmsPropertiesPanel);
@@ -265,6 +269,7 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         updateConfig(USE_TEXT_RSC);
         msgChoice.setText(TEXT_MSG_RSC);
         iterations.setText("1"); // $NON-NLS-1$
+        inFlightWindow.setText(""); // $NON-NLS-1$
         useAuth.setSelected(false);
         jmsUser.setEnabled(false);
         jmsPwd.setEnabled(false);
@@ -295,6 +300,7 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         msgChoice.setText(sampler.getMessageChoice());
         fileEncoding.setText(sampler.getFileEncoding());
         iterations.setText(sampler.getIterations());
+        inFlightWindow.setText(sampler.getInFlightWindow());
         expiration.setText(sampler.getExpiration());
         jmsErrorReconnectOnCodes.setText(sampler.getReconnectionErrorCodes());
         priority.setText(sampler.getPriority());
@@ -404,6 +410,16 @@ public class JMSPublisherGui extends AbstractSamplerGui implements ChangeListene
         return pane;
     }
 
+    /**
+     * @return JPanel Panel for the number of messages and the in-flight window
+     */
+    private JPanel createIterationsPane() {
+        JPanel panel = new HorizontalPanel();
+        panel.add(iterations);
+        panel.add(inFlightWindow);
+        return panel;
+    }
+
     /**
      * @return JPanel Panel for priority and expiration
      */
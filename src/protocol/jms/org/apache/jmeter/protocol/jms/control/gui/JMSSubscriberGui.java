@@ -96,6 +96,12 @@ public class JMSSubscriberGui extends AbstractSamplerGui implements ChangeListen
     private final JLabeledTextField separator = 
         new JLabeledTextField(JMeterUtils.getResString("jms_separator")); //$NON-NLS-1$
 
+    private final JLabeledTextField sharedSessions =
+        new JLabeledTextField(JMeterUtils.getResString("jms_shared_sessions"), 6); //$NON-NLS-1$
+
+    private final JLabeledTextField timestampProperty =
+        new JLabeledTextField(JMeterUtils.getResString("jms_timestamp_property")); //$NON-NLS-1$
+
     //++ Do not change these strings; they are used in JMX files to record the button settings
     public static final String RECEIVE_RSC = "jms_subscriber_receive"; // $NON-NLS-1$
 
@@ -169,6 +175,8 @@ public class JMSSubscriberGui extends AbstractSamplerGui implements ChangeListen
         sampler.setPauseBetweenErrors(jmsErrorPauseBetween.getText());
         sampler.setDestinationStatic(destSetup.getText().equals(DEST_SETUP_STATIC));
         sampler.setSeparator(separator.getText());
+        sampler.setSharedSessions(sharedSessions.getText());
+        sampler.setTimestampProperty(timestampProperty.getText());
     }
 
     /**
@@ -207,6 +215,10 @@ public class JMSSubscriberGui extends AbstractSamplerGui implements ChangeListen
         choice.add(clientChoice);
         choice.add(stopBetweenSamples);
         mainPanel.add(choice);
+        JPanel shared = new HorizontalPanel();
+        shared.add(sharedSessions);
+        shared.add(timestampProperty);
+        mainPanel.add(shared);
         mainPanel.add(separator);
         
         mainPanel.add(jmsErrorReconnectOnCodes);
@@ -242,6 +254,8 @@ public class JMSSubscriberGui extends AbstractSamplerGui implements ChangeListen
         stopBetweenSamples.setSelected(sampler.isStopBetweenSamples());
         timeout.setText(sampler.getTimeout());
         separator.setText(sampler.getSeparator());
+        sharedSessions.setText(sampler.getSharedSessions());
+        timestampProperty.setText(sampler.getTimestampProperty());
         destSetup.setText(sampler.isDestinationStatic() ? DEST_SETUP_STATIC : DEST_SETUP_DYNAMIC);
         jmsErrorReconnectOnCodes.setText(sampler.getReconnectionErrorCodes());
         jmsErrorPauseBetween.setText(sampler.getPauseBetweenErrors());
@@ -263,6 +277,8 @@ public class JMSSubscriberGui extends AbstractSamplerGui implements ChangeListen
         samplesToAggregate.setText("1"); // $NON-NLS-1$
         timeout.setText(""); // $NON-NLS-1$
         separator.setText(""); // $NON-NLS-1$
+        sharedSessions.setText(""); // $NON-NLS-1$
+        timestampProperty.setText(""); // $NON-NLS-1$
         useAuth.setSelected(false);
         jmsUser.setEnabled(false);
         jmsPwd.setEnabled(false);
@@ -23,9 +23,12 @@ import java.io.StringWriter;
 import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -41,6 +44,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.protocol.jms.Utils;
 import org.apache.jmeter.protocol.jms.client.ClientPool;
+import org.apache.jmeter.protocol.jms.client.InFlightWindow;
 import org.apache.jmeter.protocol.jms.client.InitialContextFactory;
 import org.apache.jmeter.protocol.jms.client.Publisher;
 import org.apache.jmeter.protocol.jms.control.gui.JMSPublisherGui;
@@ -51,6 +55,7 @@ import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.math.LatencyHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -122,6 +127,8 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
 
     private static final String JMS_FILE_ENCODING = "jms.file_encoding"; // $NON-NLS-1$
 
+    private static final String IN_FLIGHT_WINDOW = "jms.in_flight_window"; // $NON-NLS-1$
+
     /** File extensions for text files **/
     private static final String[] TEXT_FILE_EXTS = { ".txt", ".obj" };
     /** File extensions for binary files **/
@@ -129,6 +136,10 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
 
     // --
 
+    /** Maximum time to wait for the acknowledgement of the messages in flight at the end of a sample */
+    private static final long COMPLETION_TIMEOUT =
+            JMeterUtils.getPropDefault("jms.publisher.completion_timeout", 60000L); // $NON-NLS-1$
+
     // Does not need to be synch. because it is only accessed from the sampler
     // thread
     // The ClientPool does access it in a different thread, but ClientPool is
@@ -217,7 +228,11 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
         StringBuilder buffer = new StringBuilder();
         StringBuilder propBuffer = new StringBuilder();
         int loop = getIterationCount();
+        InFlightWindow inFlightWindow = configureInFlightWindow();
+        // messages in flight must not be read until they are acknowledged
+        List<Message> sentMessages = inFlightWindow != null ? new ArrayList<>(loop) : null;
         result.sampleStart();
+        long start = System.nanoTime();
         String type = getMessageChoice();
 
         try {
@@ -245,17 +260,30 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
                 } else {
                     throw new JMSException(type + " is not recognised");
                 }
-                Utils.messageProperties(propBuffer, msg);
+                if (sentMessages != null) {
+                    sentMessages.add(msg);
+                } else {
+                    Utils.messageProperties(propBuffer, msg);
+                }
+            }
+            if (inFlightWindow != null) {
+                awaitCompletions(inFlightWindow, loop, start, result);
+                for (Message msg : sentMessages) {
+                    Utils.messageProperties(propBuffer, msg);
+                }
+            } else {
+                result.setResponseMessage(loop + " messages published");
             }
             result.setResponseCodeOK();
-            result.setResponseMessage(loop + " messages published");
             result.setSuccessful(true);
             result.setSamplerData(buffer.toString());
             result.setSampleCount(loop);
             result.setRequestHeaders(propBuffer.toString());
         } catch (JMSException e) {
+            discardInFlightWindow(inFlightWindow);
             handleError(result, e, true);
         } catch (Exception e) {
+            discardInFlightWindow(inFlightWindow);
             handleError(result, e, false);
         } finally {
             result.sampleEnd();
@@ -263,6 +291,100 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
         return result;
     }
 
+    /**
+     * Remove the window of a failed sample from the publisher, so that the
+     * late acknowledgements of its messages are not counted by the next
+     * samples.
+     *
+     * @param inFlightWindow the window of the sample, may be <code>null</code>
+     */
+    private void discardInFlightWindow(InFlightWindow inFlightWindow) {
+        if (inFlightWindow != null && publisher != null) {
+            publisher.setInFlightWindow(null);
+        }
+    }
+
+    /**
+     * @return the window of messages in flight of the publisher, visible for tests
+     */
+    InFlightWindow getPublisherInFlightWindow() {
+        return publisher == null ? null : publisher.getInFlightWindow();
+    }
+
+    /**
+     * Create, replace or remove the window of messages in flight of the
+     * publisher according to the configured size.
+     *
+     * @return the window, or <code>null</code> if messages are sent
+     *         synchronously
+     */
+    private InFlightWindow configureInFlightWindow() {
+        int size = getInFlightWindowSize();
+        InFlightWindow inFlightWindow = publisher.getInFlightWindow();
+        if (size <= 0) {
+            inFlightWindow = null;
+        } else if (inFlightWindow == null || inFlightWindow.getSize() != size) {
+            inFlightWindow = new InFlightWindow(size);
+            if (!inFlightWindow.isAsync()) {
+                log.info("JMS 2.0 API is not available, messages will be sent synchronously");
+            }
+        }
+        publisher.setInFlightWindow(inFlightWindow);
+        return inFlightWindow;
+    }
+
+    /**
+     * Wait for the acknowledgement of the messages in flight and report their
+     * acknowledgement times and the throughput of the sample.
+     *
+     * @param inFlightWindow the window of messages in flight
+     * @param loop           number of messages sent by the sample
+     * @param start          start of the sample, in nanoseconds
+     * @param result         the sample result to fill in
+     * @throws JMSException if some messages have not been sent
+     */
+    private void awaitCompletions(InFlightWindow inFlightWindow, int loop, long start, SampleResult result)
+            throws JMSException {
+        try {
+            if (!inFlightWindow.awaitCompletions(COMPLETION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                // late acknowledgements must not be counted by the next samples
+                publisher.setInFlightWindow(null);
+                throw new JMSException(inFlightWindow.getInFlight() + " of " + loop
+                        + " messages not acknowledged within " + COMPLETION_TIMEOUT + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            publisher.setInFlightWindow(null);
+            throw new JMSException("Interrupted while waiting for the acknowledgement of the messages");
+        }
+        long elapsed = System.nanoTime() - start;
+        InFlightWindow.Completions completions = inFlightWindow.drain();
+        Exception failure = completions.getFirstFailure();
+        if (failure != null) {
+            String errorCode = failure instanceof JMSException ? ((JMSException) failure).getErrorCode() : null;
+            JMSException e = new JMSException(completions.getFailures() + " of " + loop
+                    + " messages failed, first failure: " + failure, errorCode);
+            e.setLinkedException(failure);
+            throw e;
+        }
+        double throughput = elapsed > 0 ? loop * 1e9d / elapsed : 0d;
+        result.setResponseMessage(String.format(Locale.ROOT, "%d messages published, %.1f messages/s", // $NON-NLS-1$
+                loop, throughput));
+        LatencyHistogram latencies = completions.getLatencies();
+        result.setResponseData(String.format(Locale.ROOT,
+                "Messages: %d%n" // $NON-NLS-1$
+                + "Elapsed (ms): %d%n" // $NON-NLS-1$
+                + "Throughput (messages/s): %.1f%n" // $NON-NLS-1$
+                + "In-flight window: %d (%s send)%n" // $NON-NLS-1$
+                + "Acknowledgement time (us): min %.0f, mean %.1f, 50%% %.0f, 90%% %.0f, 99%% %.0f, max %.0f%n", // $NON-NLS-1$
+                loop, TimeUnit.NANOSECONDS.toMillis(elapsed), throughput,
+                inFlightWindow.getSize(), inFlightWindow.isAsync() ? "asynchronous" : "synchronous", // $NON-NLS-1$ $NON-NLS-2$
+                latencies.getMin(), latencies.getMean(), latencies.getPercentile(50),
+                latencies.getPercentile(90), latencies.getPercentile(99), latencies.getMax()),
+                StandardCharsets.UTF_8.name());
+        result.setDataType(SampleResult.TEXT);
+    }
+
     /**
      * Fills in result and decide wether to reconnect or not depending on
      * checkForReconnect and underlying {@link JMSException#getErrorCode()}
@@ -556,4 +678,33 @@ public class PublisherSampler extends BaseJMSSampler implements TestStateListene
     public void setFileEncoding(String fileEncoding) {
         setProperty(JMS_FILE_ENCODING, fileEncoding, RAW_DATA);
     }
+
+    /**
+     * @param size
+     *            maximum number of messages sent asynchronously and not yet
+     *            acknowledged, empty or <code>0</code> to send each message
+     *            synchronously
+     * @since 5.1
+     */
+    public void setInFlightWindow(String size) {
+        setProperty(IN_FLIGHT_WINDOW, size, ""); // $NON-NLS-1$
+    }
+
+    /**
+     * @return maximum number of messages in flight, empty or <code>0</code>
+     *         if messages are sent synchronously
+     * @since 5.1
+     */
+    public String getInFlightWindow() {
+        return getPropertyAsString(IN_FLIGHT_WINDOW);
+    }
+
+    /**
+     * @return maximum number of messages in flight, <code>0</code> if
+     *         messages are sent synchronously
+     * @since 5.1
+     */
+    public int getInFlightWindowSize() {
+        return getPropertyAsInt(IN_FLIGHT_WINDOW, 0);
+    }
 }
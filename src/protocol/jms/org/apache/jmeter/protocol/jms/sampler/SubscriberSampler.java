@@ -33,6 +33,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.protocol.jms.Utils;
 import org.apache.jmeter.protocol.jms.client.InitialContextFactory;
 import org.apache.jmeter.protocol.jms.client.ReceiveSubscriber;
+import org.apache.jmeter.protocol.jms.client.SharedSubscriber;
 import org.apache.jmeter.protocol.jms.control.gui.JMSSubscriberGui;
 import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
@@ -65,10 +66,17 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
     // This is the maximum time the sampler can be blocked.
     private static final long DEFAULT_WAIT = 500L;
 
+    /** Maximum number of messages waiting to be sampled by each thread of a shared consumer */
+    private static final int SHARED_QUEUE_SIZE =
+            JMeterUtils.getPropDefault("jms.subscriber.shared_queue_size", 100); // $NON-NLS-1$
+
     // No need to synch/ - only used by sampler
     // Note: not currently added to the ClientPool
     private transient ReceiveSubscriber SUBSCRIBER = null;
 
+    // Used instead of SUBSCRIBER when the consumer is shared
+    private transient SharedSubscriber.Receiver sharedReceiver = null;
+
     private transient volatile boolean interrupted = false;
 
     private transient long timeout;
@@ -96,12 +104,21 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
     private static final String SEPARATOR_DEFAULT = ""; // $NON-NLS-1$
     private static final String ERROR_PAUSE_BETWEEN = "jms_error_pause_between"; // $NON-NLS-1$
     private static final String ERROR_PAUSE_BETWEEN_DEFAULT = ""; // $NON-NLS-1$
+    private static final String SHARED_SESSIONS = "jms.shared_sessions"; // $NON-NLS-1$
+    private static final String SHARED_SESSIONS_DEFAULT = ""; // $NON-NLS-1$
+    private static final String TIMESTAMP_PROPERTY = "jms.timestamp_property"; // $NON-NLS-1$
+    private static final String TIMESTAMP_PROPERTY_DEFAULT = ""; // $NON-NLS-1$
+
+    /** Value of the timestamp property which uses the JMSTimestamp header */
+    public static final String JMS_TIMESTAMP = "JMSTimestamp"; // $NON-NLS-1$
 
     
     private transient boolean START_ON_SAMPLE = false;
 
     private transient String separator;
 
+    private transient String timestampProperty;
+
     public SubscriberSampler() {
         super();
     }
@@ -120,6 +137,23 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
         log.debug("SubscriberSampler.initListenerClient called");
     }
 
+    /**
+     * Register the sampler on the consumer shared by the samplers with the
+     * same configuration.
+     * @throws JMSException
+     * @throws NamingException
+     */
+    private void initSharedClient() throws JMSException, NamingException {
+        if (stopBetweenSamples) {
+            log.warn("{}: Stop between samples is ignored as the consumer is shared by the threads", getName());
+        }
+        sharedReceiver = SharedSubscriber.register(getSharedSessionsAsInt(), SHARED_QUEUE_SIZE,
+                getUseJNDIPropertiesAsBoolean(), getJNDIInitialContextFactory(), getProviderUrl(), getConnectionFactory(), getDestination(),
+                getDurableSubscriptionId(), getClientId(), getJmsSelector(), isUseAuth(), getUsername(),
+                getPassword());
+        log.debug("SubscriberSampler.initSharedClient called");
+    }
+
     /**
      * Create the ReceiveSubscriber client for the sampler.
      * @throws NamingException 
@@ -157,18 +191,22 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
             handleErrorAndAddTemporize(true);
             return result; 
         }
-        if (stopBetweenSamples){ // If so, we need to start collection here
+        if (stopBetweenSamples && SUBSCRIBER != null){ // If so, we need to start collection here
             try {
                 SUBSCRIBER.start();
             } catch (JMSException e) {
                 log.warn("Problem starting subscriber", e);
             }
         }
-        StringBuilder buffer = new StringBuilder();
+        ResponseBody body = new ResponseBody(getReadResponseAsBoolean());
         StringBuilder propBuffer = new StringBuilder();
         
         int loop = getIterationCount();
         int read = 0;
+        int timestamped = 0;
+        long minLatency = Long.MAX_VALUE;
+        long maxLatency = Long.MIN_VALUE;
+        long sumLatency = 0L;
         
         long until = 0L;
         long now = System.currentTimeMillis();
@@ -179,11 +217,27 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
                 && (until == 0 || now < until)
                 && read < loop) {
             Message msg;
+            long receivedTime;
             try {
-                msg = SUBSCRIBER.getMessage(calculateWait(until, now));
+                if (sharedReceiver != null) {
+                    SharedSubscriber.ReceivedMessage received = sharedReceiver.poll(calculateWait(until, now));
+                    msg = received == null ? null : received.getMessage();
+                    receivedTime = received == null ? 0L : received.getReceivedTime();
+                } else {
+                    msg = SUBSCRIBER.getMessage(calculateWait(until, now));
+                    receivedTime = System.currentTimeMillis();
+                }
                 if (msg != null){
                     read++;
-                    extractContent(buffer, propBuffer, msg, read == loop);
+                    extractContent(body, propBuffer, msg, read == loop);
+                    long sentTime = getSentTime(msg);
+                    if (sentTime > 0) {
+                        long latency = receivedTime - sentTime;
+                        timestamped++;
+                        sumLatency += latency;
+                        minLatency = Math.min(minLatency, latency);
+                        maxLatency = Math.max(maxLatency, latency);
+                    }
                 }
             } catch (JMSException e) {
                 String errorCode = Optional.ofNullable(e.getErrorCode()).orElse("");
@@ -195,9 +249,9 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
         }
         result.sampleEnd();
         if (getReadResponseAsBoolean()) {
-            result.setResponseData(buffer.toString().getBytes()); // TODO - charset?
+            result.setResponseData(body.getBytes()); // TODO - charset?
         } else {
-            result.setBytes((long)buffer.toString().length());
+            result.setBytes(body.length());
         }
         result.setResponseHeaders(propBuffer.toString());
         if (read == 0) {
@@ -210,11 +264,18 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
             result.setResponseCodeOK();
             result.setSuccessful(true);
         }
-        result.setResponseMessage(read + " message(s) received successfully of " + loop + " expected");
+        String message = read + " message(s) received successfully of " + loop + " expected";
+        if (timestamped > 0) {
+            // Not the latency of the sample, which must not exceed its elapsed time
+            long meanLatency = Math.round((double) sumLatency / timestamped);
+            message += ", end-to-end latency (ms) min " + minLatency
+                    + ", mean " + meanLatency + ", max " + maxLatency;
+        }
+        result.setResponseMessage(message);
         result.setSamplerData(loop + " messages expected");
         result.setSampleCount(read);
         
-        if (stopBetweenSamples){
+        if (stopBetweenSamples && SUBSCRIBER != null){
             try {
                 SUBSCRIBER.stop();
             } catch (JMSException e) {
@@ -257,6 +318,8 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
      */
     private void cleanup() {
         IOUtils.closeQuietly(SUBSCRIBER);
+        IOUtils.closeQuietly(sharedReceiver);
+        sharedReceiver = null;
     }
 
     /**
@@ -274,7 +337,75 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
         return wait > DEFAULT_WAIT ? DEFAULT_WAIT : wait;
     }
 
-    private void extractContent(StringBuilder buffer, StringBuilder propBuffer,
+    /**
+     * Get the time at which the message was sent by its producer, from the
+     * configured timestamp property.
+     *
+     * @param msg the received message
+     * @return the time in milliseconds since the epoch, or 0 if unknown
+     */
+    private long getSentTime(Message msg) {
+        if (StringUtils.isEmpty(timestampProperty)) {
+            return 0L;
+        }
+        try {
+            if (JMS_TIMESTAMP.equals(timestampProperty)) {
+                return msg.getJMSTimestamp();
+            }
+            if (msg.propertyExists(timestampProperty)) {
+                return msg.getLongProperty(timestampProperty);
+            }
+        } catch (JMSException | NumberFormatException e) {
+            log.debug("Could not read timestamp property {}: {}", timestampProperty, e.toString());
+        }
+        return 0L;
+    }
+
+    /**
+     * Content of the received messages, which is only kept if the response is
+     * stored. The content of a single message is not copied.
+     */
+    private static final class ResponseBody {
+        private final boolean keep;
+        private String first;
+        private StringBuilder buffer;
+        private long length;
+
+        ResponseBody(boolean keep) {
+            this.keep = keep;
+        }
+
+        ResponseBody append(Object content) {
+            String text = String.valueOf(content);
+            length += text.length();
+            if (!keep) {
+                return this;
+            }
+            if (first == null && buffer == null) {
+                first = text;
+            } else {
+                if (buffer == null) {
+                    buffer = new StringBuilder(first);
+                    first = null;
+                }
+                buffer.append(text);
+            }
+            return this;
+        }
+
+        long length() {
+            return length;
+        }
+
+        byte[] getBytes() {
+            if (first != null) {
+                return first.getBytes();
+            }
+            return buffer == null ? new byte[0] : buffer.toString().getBytes();
+        }
+    }
+
+    private void extractContent(ResponseBody buffer, StringBuilder propBuffer,
             Message msg, boolean isLast) {
         if (msg != null) {
             try {
@@ -289,7 +420,7 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
                     }
                 } else if (msg instanceof BytesMessage){
                     BytesMessage bytesMessage = (BytesMessage) msg;
-                    buffer.append(bytesMessage.getBodyLength() + " bytes received in BytesMessage");
+                    buffer.append(bytesMessage.getBodyLength()).append(" bytes received in BytesMessage");
                 } else if (msg instanceof MapMessage){
                     MapMessage mapm = (MapMessage) msg;
                     @SuppressWarnings("unchecked") // MapNames are Strings
@@ -333,6 +464,7 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
             useReceive = getClientChoice().equals(JMSSubscriberGui.RECEIVE_RSC);
             stopBetweenSamples = isStopBetweenSamples();
             setupSeparator();
+            timestampProperty = getTimestampProperty().trim();
             initClient();
         }
     }
@@ -340,6 +472,10 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
     private void initClient() {
         exceptionDuringInit = null;
         try {
+            if (getSharedSessionsAsInt() > 0) {
+                initSharedClient();
+                return;
+            }
             if(useReceive) {
                 initReceiveClient();
             } else {
@@ -372,7 +508,7 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
      */
     @Override
     public void threadFinished() {
-        if (SUBSCRIBER != null){ // Can be null if init fails
+        if (SUBSCRIBER != null || sharedReceiver != null){ // Can be null if init fails
             cleanup();
         }
     }
@@ -514,6 +650,56 @@ public class SubscriberSampler extends BaseJMSSampler implements Interruptible,
         return getPropertyAsLong(ERROR_PAUSE_BETWEEN, DEFAULT_WAIT);
     }
 
+    /**
+     * @param sessions
+     *            number of sessions of the consumer shared by the samplers
+     *            with the same configuration, empty or 0 for a consumer per
+     *            thread
+     * @since 5.1
+     */
+    public void setSharedSessions(String sessions) {
+        setProperty(SHARED_SESSIONS, sessions, SHARED_SESSIONS_DEFAULT);
+    }
+
+    /**
+     * @return number of sessions of the shared consumer, empty or 0 for a
+     *         consumer per thread
+     * @since 5.1
+     */
+    public String getSharedSessions() {
+        return getPropertyAsString(SHARED_SESSIONS, SHARED_SESSIONS_DEFAULT);
+    }
+
+    /**
+     * @return number of sessions of the shared consumer, 0 for a consumer per
+     *         thread
+     * @since 5.1
+     */
+    public int getSharedSessionsAsInt() {
+        return getPropertyAsInt(SHARED_SESSIONS, 0);
+    }
+
+    /**
+     * @param property
+     *            name of the message property holding the time at which the
+     *            message was sent, {@link #JMS_TIMESTAMP} for the
+     *            JMSTimestamp header, or empty to not compute the end-to-end
+     *            latency
+     * @since 5.1
+     */
+    public void setTimestampProperty(String property) {
+        setProperty(TIMESTAMP_PROPERTY, property, TIMESTAMP_PROPERTY_DEFAULT);
+    }
+
+    /**
+     * @return name of the message property holding the time at which the
+     *         message was sent, or empty
+     * @since 5.1
+     */
+    public String getTimestampProperty() {
+        return getPropertyAsString(TIMESTAMP_PROPERTY, TIMESTAMP_PROPERTY_DEFAULT);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -129,10 +129,14 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
 
     private JTextField connto = new JTextField(20);
 
+    private JTextField pagesize = new JTextField(20);
+
     private JCheckBox parseflag = new JCheckBox(JMeterUtils.getResString("ldap_parse_results")); // $NON-NLS-1$
 
     private JCheckBox secure = new JCheckBox(JMeterUtils.getResString("ldap_secure")); // $NON-NLS-1$
 
+    private JCheckBox connectionPool = new JCheckBox(JMeterUtils.getResString("ldap_connection_pool")); // $NON-NLS-1$
+
     private JRadioButton addTest = new JRadioButton(JMeterUtils.getResString("addtest")); // $NON-NLS-1$
 
     private JRadioButton modifyTest = new JRadioButton(JMeterUtils.getResString("modtest")); // $NON-NLS-1$
@@ -206,8 +210,10 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
         retobj.setSelected(element.getPropertyAsBoolean(LDAPExtSampler.RETOBJ));
         deref.setSelected(element.getPropertyAsBoolean(LDAPExtSampler.DEREF));
         connto.setText(element.getPropertyAsString(LDAPExtSampler.CONNTO));
+        pagesize.setText(element.getPropertyAsString(LDAPExtSampler.PAGE_SIZE));
         parseflag.setSelected(element.getPropertyAsBoolean(LDAPExtSampler.PARSEFLAG));
         secure.setSelected(element.getPropertyAsBoolean(LDAPExtSampler.SECURE));
+        connectionPool.setSelected(element.getPropertyAsBoolean(LDAPExtSampler.CONNECTION_POOL));
         userpw.setText(element.getPropertyAsString(LDAPExtSampler.USERPW));
         userdn.setText(element.getPropertyAsString(LDAPExtSampler.USERDN));
         comparedn.setText(element.getPropertyAsString(LDAPExtSampler.COMPAREDN));
@@ -281,8 +287,10 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
         element.setProperty(LDAPExtSampler.RETOBJ,Boolean.toString(retobj.isSelected()));
         element.setProperty(LDAPExtSampler.DEREF,Boolean.toString(deref.isSelected()));
         element.setProperty(LDAPExtSampler.CONNTO, connto.getText());
+        element.setProperty(LDAPExtSampler.PAGE_SIZE, pagesize.getText(), ""); // $NON-NLS-1$
         element.setProperty(LDAPExtSampler.PARSEFLAG,Boolean.toString(parseflag.isSelected()));
         element.setProperty(LDAPExtSampler.SECURE,Boolean.toString(secure.isSelected()));
+        element.setProperty(LDAPExtSampler.CONNECTION_POOL, connectionPool.isSelected(), false);
         element.setProperty(LDAPExtSampler.USERDN, userdn.getText());
         element.setProperty(LDAPExtSampler.USERPW, userpw.getText());
         element.setProperty(LDAPExtSampler.COMPAREDN, comparedn.getText());
@@ -353,10 +361,12 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
         modddn.setText(""); //$NON-NLS-1$
         newdn.setText(""); //$NON-NLS-1$
         connto.setText(""); //$NON-NLS-1$
+        pagesize.setText(""); //$NON-NLS-1$
         retobj.setSelected(false);
         deref.setSelected(false);
         parseflag.setSelected(false);
         secure.setSelected(false);
+        connectionPool.setSelected(false);
         addTest.setSelected(false);
         modifyTest.setSelected(false);
         deleteTest.setSelected(false);
@@ -439,6 +449,7 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
         scPanel.add(createLabelPanel("countlim", countlim));
         scPanel.add(createLabelPanel("timelim", timelim));
         scPanel.add(createLabelPanel("attrs", attribs));
+        scPanel.add(createLabelPanel("ldap_page_size", pagesize));
 
         scPanel.add(retobj);
         scPanel.add(deref);
@@ -581,6 +592,7 @@ public class LdapExtConfigGui extends AbstractConfigGui implements ItemListener
         }
         VerticalPanel mainPanel = new VerticalPanel();
         mainPanel.add(createTestPanel());
+        mainPanel.add(connectionPool);
         mainPanel.add(testPanel());
         add(mainPanel, BorderLayout.CENTER);
         // Take note of when buttons are changed so we can change panel
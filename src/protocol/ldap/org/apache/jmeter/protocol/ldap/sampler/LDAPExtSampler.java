@@ -28,9 +28,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
+import javax.naming.CommunicationException;
+import javax.naming.InterruptedNamingException;
 import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
+import javax.naming.ServiceUnavailableException;
 import javax.naming.directory.Attribute;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.BasicAttribute;
@@ -54,6 +58,7 @@ import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.PropertyIterator;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.util.IdleConnectionPool;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.util.XMLBuffer;
 import org.slf4j.Logger;
@@ -148,6 +153,10 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
 
     public static final String NEWDN = "newdn"; // $NON-NLS-1$
 
+    public static final String CONNECTION_POOL = "connection_pool"; // $NON-NLS-1$
+
+    public static final String PAGE_SIZE = "page_size"; // $NON-NLS-1$
+
     private static final String SEMI_COLON = ";"; // $NON-NLS-1$
 
 
@@ -157,6 +166,26 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
     private static final int MAX_SORTED_RESULTS =
         JMeterUtils.getPropDefault("ldapsampler.max_sorted_results", 1000); // $NON-NLS-1$
 
+    private static final int CONNECTION_POOL_SIZE =
+            JMeterUtils.getPropDefault("ldapsampler.connection.pool_size", 10); // $NON-NLS-1$
+
+    /**
+     * Idle bound contexts of the samplers using pooled connections, shared
+     * by all the threads
+     */
+    private static final IdleConnectionPool<DirContext> connectionPool = new IdleConnectionPool<>(
+            JMeterUtils.getPropDefault("ldapsampler.connection.max_idle", 60000L), // $NON-NLS-1$
+            CONNECTION_POOL_SIZE,
+            LdapExtClient::disconnect);
+
+    /**
+     * Permits to use pooled contexts, by connection key. A context is only
+     * created by a thread holding a permit when none is idle, so there are
+     * never more bound contexts than permits.
+     */
+    private static final ConcurrentHashMap<String, Semaphore> connectionPermits =
+            new ConcurrentHashMap<>();
+
     /***************************************************************************
      * !ToDo (Constructor description)
      **************************************************************************/
@@ -180,6 +209,26 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
     }
 
 
+    public boolean isConnectionPool() {
+        return getPropertyAsBoolean(CONNECTION_POOL);
+    }
+
+    public void setConnectionPool(boolean connectionPool) {
+        setProperty(CONNECTION_POOL, connectionPool, false);
+    }
+
+    public String getPageSize() {
+        return getPropertyAsString(PAGE_SIZE);
+    }
+
+    public int getPageSizeAsInt() {
+        return getPropertyAsInt(PAGE_SIZE);
+    }
+
+    public void setPageSize(String pageSize) {
+        setProperty(PAGE_SIZE, pageSize, ""); // $NON-NLS-1$
+    }
+
     public boolean isParseFlag() {
         return getPropertyAsBoolean(PARSEFLAG);
     }
@@ -613,7 +662,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
      **************************************************************************/
     private void addTest(DirContext dirContext, SampleResult res) throws NamingException {
         try {
-            res.sampleStart();
+            sampleStart(res);
             DirContext ctx = LdapExtClient.createTest(dirContext, getUserAttributes(), getBaseEntryDN());
             ctx.close(); // the createTest() method creates an extra context which needs to be closed
         } finally {
@@ -627,7 +676,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
      **************************************************************************/
     private void deleteTest(DirContext dirContext, SampleResult res) throws NamingException {
         try {
-            res.sampleStart();
+            sampleStart(res);
             LdapExtClient.deleteTest(dirContext, getPropertyAsString(DELETE));
         } finally {
             res.sampleEnd();
@@ -640,7 +689,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
      **************************************************************************/
     private void modifyTest(DirContext dirContext, SampleResult res) throws NamingException {
         try {
-            res.sampleStart();
+            sampleStart(res);
             LdapExtClient.modifyTest(dirContext, getUserModAttributes(), getBaseEntryDN());
         } finally {
             res.sampleEnd();
@@ -661,12 +710,109 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
         try {
             res.sampleStart();
             ctx = LdapExtClient.connect(getServername(), getPort(), getRootdn(), getUserDN(), getUserPw(),getConnTimeOut(),isSecure());
+            res.connectEnd();
         } finally {
             res.sampleEnd();
         }
         ldapContexts.put(getThreadName(), ctx);
     }
 
+    /***************************************************************************
+     * This will do the bind of a pooled connection, which is then available to
+     * the following operations of all the threads
+     *
+     **************************************************************************/
+    private void pooledBindOp(SampleResult res) throws NamingException {
+        String key = getConnectionKey();
+        Semaphore permits = acquireContextPermit(key);
+        try {
+            // Replace an idle context, so that the pool does not grow beyond its size
+            DirContext idle = connectionPool.borrow(key);
+            if (idle != null) {
+                LdapExtClient.disconnect(idle);
+            }
+            DirContext ctx;
+            try {
+                res.sampleStart();
+                ctx = LdapExtClient.connect(getServername(), getPort(), getRootdn(), getUserDN(), getUserPw(),getConnTimeOut(),isSecure());
+                res.connectEnd();
+            } finally {
+                res.sampleEnd();
+            }
+            connectionPool.giveBack(key, ctx);
+        } finally {
+            releaseContextPermit(permits);
+        }
+    }
+
+    /***************************************************************************
+     * This will borrow a pooled connection for an operation, binding a new one
+     * if none is idle. The sample starts before, so that the bind time and the
+     * wait for a free connection are the connect time of the sample. The
+     * permit taken must be released by {@link #releaseContextPermit(Semaphore)}
+     * once the context is given back or closed.
+     *
+     **************************************************************************/
+    private DirContext borrowContext(SampleResult res) throws NamingException {
+        res.sampleStart();
+        String key = getConnectionKey();
+        Semaphore permits = null;
+        try {
+            permits = acquireContextPermit(key);
+            DirContext ctx = connectionPool.borrow(key);
+            if (ctx == null) {
+                ctx = LdapExtClient.connect(getServername(), getPort(), getRootdn(), getUserDN(), getUserPw(),getConnTimeOut(),isSecure());
+            }
+            res.connectEnd();
+            return ctx;
+        } catch (NamingException e) {
+            releaseContextPermit(permits);
+            res.sampleEnd();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until less than <code>ldapsampler.connection.pool_size</code>
+     * contexts with these settings are in use
+     *
+     * @param key the connection settings
+     * @return the permits to give the permit back to, <code>null</code> if the
+     *         number of contexts is not limited
+     * @throws InterruptedNamingException when interrupted while waiting
+     */
+    private static Semaphore acquireContextPermit(String key) throws InterruptedNamingException {
+        if (CONNECTION_POOL_SIZE <= 0) {
+            return null;
+        }
+        Semaphore permits = connectionPermits.computeIfAbsent(key, k -> new Semaphore(CONNECTION_POOL_SIZE, true));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedNamingException("Interrupted while waiting for a pooled connection");
+        }
+        return permits;
+    }
+
+    private static void releaseContextPermit(Semaphore permits) {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private String getConnectionKey() {
+        return String.join("\n", // $NON-NLS-1$
+                getLabel(), Boolean.toString(isSecure()), getUserDN(), getUserPw(), getConnTimeOut());
+    }
+
+    // Pooled connections start the sample before borrowing the context
+    private static void sampleStart(SampleResult res) {
+        if (res.getStartTime() == 0) {
+            res.sampleStart();
+        }
+    }
+
     /***************************************************************************
      * This will do the bind and unbind for the User defined TestCase
      *
@@ -675,6 +821,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
         try {
             res.sampleStart();
             DirContext ctx = LdapExtClient.connect(getServername(), getPort(), getRootdn(), getUserDN(), getUserPw(),getConnTimeOut(),isSecure());
+            res.connectEnd();
             LdapExtClient.disconnect(ctx);
         } finally {
             res.sampleEnd();
@@ -687,7 +834,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
      **************************************************************************/
     private void renameTest(DirContext dirContext, SampleResult res) throws NamingException {
         try {
-            res.sampleStart();
+            sampleStart(res);
             LdapExtClient.moddnOp(dirContext, getPropertyAsString(MODDDN), getPropertyAsString(NEWDN));
         } finally {
             res.sampleEnd();
@@ -710,6 +857,103 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
         log.info("context and LdapExtClients removed");
     }
 
+    /***************************************************************************
+     * This will close an idle pooled connection
+     *
+     **************************************************************************/
+    private void pooledUnbindOp(SampleResult res) {
+        try {
+            res.sampleStart();
+            LdapExtClient.disconnect(connectionPool.borrow(getConnectionKey()));
+        } finally {
+            res.sampleEnd();
+        }
+    }
+
+    /***************************************************************************
+     * This will do the search test for the User defined TestCase, reading
+     * all the entries at once
+     *
+     **************************************************************************/
+    private void searchTest(DirContext dirContext, SampleResult res, XMLBuffer xmlBuffer,
+            String searchBase, String searchFilter, int scope) throws NamingException {
+        NamingEnumeration<SearchResult> srch=null;
+        try {
+            sampleStart(res);
+            srch = LdapExtClient.searchTest(
+                    dirContext, searchBase, searchFilter,
+                    scope, getCountlimAsLong(),
+                    getTimelimAsInt(),
+                    getRequestAttributes(getAttrs()),
+                    isRetobj(),
+                    isDeref());
+            res.latencyEnd();
+            if (isParseFlag()) {
+                try {
+                    xmlBuffer.openTag("searchresults"); // $NON-NLS-1$
+                    writeSearchResults(xmlBuffer, srch);
+                } finally {
+                    xmlBuffer.closeTag("searchresults"); // $NON-NLS-1$
+                }
+            } else {
+                xmlBuffer.tag("searchresults", // $NON-NLS-1$
+                        "hasElements="+srch.hasMoreElements()); // $NON-NLS-1$
+            }
+        } finally {
+            if (srch != null){
+                srch.close();
+            }
+            res.sampleEnd();
+        }
+    }
+
+    /***************************************************************************
+     * This will do the search test for the User defined TestCase one page of
+     * entries at a time, so that large searches run in constant memory. The
+     * entries are only counted, unless the results are parsed.
+     *
+     **************************************************************************/
+    private void pagedSearchTest(DirContext dirContext, SampleResult res, XMLBuffer xmlBuffer,
+            String searchBase, String searchFilter, int scope, int pageSize) throws NamingException {
+        final boolean parse = isParseFlag();
+        final long[] entries = new long[1];
+        int pages = 0;
+        try {
+            sampleStart(res);
+            if (parse) {
+                xmlBuffer.openTag("searchresults"); // $NON-NLS-1$
+            }
+            pages = LdapExtClient.pagedSearch(
+                    dirContext, searchBase, searchFilter,
+                    scope, getCountlimAsLong(),
+                    getTimelimAsInt(),
+                    getRequestAttributes(getAttrs()),
+                    isRetobj(),
+                    isDeref(),
+                    pageSize,
+                    page -> {
+                        if (entries[0] == 0) {
+                            res.latencyEnd();
+                        }
+                        if (parse) {
+                            entries[0] += writeSearchResults(xmlBuffer, page);
+                        } else {
+                            while (page.hasMore()) {
+                                page.next();
+                                entries[0]++;
+                            }
+                        }
+                    });
+        } finally {
+            res.sampleEnd();
+            if (parse) {
+                xmlBuffer.closeTag("searchresults"); // $NON-NLS-1$
+            }
+            xmlBuffer.tag("entries", Long.toString(entries[0])); // $NON-NLS-1$
+            xmlBuffer.tag("pages", Integer.toString(pages)); // $NON-NLS-1$
+        }
+    }
+
     @Override
     public SampleResult sample(Entry e) {
         XMLBuffer xmlBuffer = new XMLBuffer();
@@ -721,24 +965,40 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
         res.setContentType("text/xml");// $NON-NLS-1$
         boolean isSuccessful = true;
         res.setSampleLabel(getName());
-        DirContext dirContext = ldapContexts.get(getThreadName());
+        final String testType = getTest();
+        final boolean pooled = isConnectionPool();
+        DirContext dirContext = pooled ? null : ldapContexts.get(getThreadName());
+        DirContext borrowed = null;
+        Semaphore borrowedPermits = null;
 
         try {
             xmlBuffer.openTag("operation"); // $NON-NLS-1$
-            final String testType = getTest();
             xmlBuffer.tag("opertype", testType); // $NON-NLS-1$
             log.debug("performing test: " + testType);
+            if (pooled && !testType.equals(UNBIND) && !testType.equals(BIND) && !testType.equals(SBIND)) {
+                borrowed = borrowContext(res);
+                borrowedPermits = connectionPermits.get(getConnectionKey());
+                dirContext = borrowed;
+            }
             if (testType.equals(UNBIND)) {
                 res.setSamplerData("Unbind");
                 xmlBuffer.tag("baseobj",getRootdn()); // $NON-NLS-1$
                 xmlBuffer.tag("binddn",getUserDN()); // $NON-NLS-1$
-                unbindOp(dirContext, res);
+                if (pooled) {
+                    pooledUnbindOp(res);
+                } else {
+                    unbindOp(dirContext, res);
+                }
             } else if (testType.equals(BIND)) {
                 res.setSamplerData("Bind as "+getUserDN());
                 xmlBuffer.tag("baseobj",getRootdn()); // $NON-NLS-1$
                 xmlBuffer.tag("binddn",getUserDN()); // $NON-NLS-1$
                 xmlBuffer.tag("connectionTO",getConnTimeOut()); // $NON-NLS-1$
-                bindOp(res);
+                if (pooled) {
+                    pooledBindOp(res);
+                } else {
+                    bindOp(res);
+                }
             } else if (testType.equals(SBIND)) {
                 res.setSamplerData("SingleBind as "+getUserDN());
                 xmlBuffer.tag("baseobj",getRootdn()); // $NON-NLS-1$
@@ -752,7 +1012,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
                 xmlBuffer.tag("comparefilter",getPropertyAsString(COMPAREFILT)); // $NON-NLS-1$
                 NamingEnumeration<SearchResult> cmp=null;
                 try {
-                    res.sampleStart();
+                    sampleStart(res);
                     cmp = LdapExtClient.compare(dirContext, getPropertyAsString(COMPAREFILT),
                             getPropertyAsString(COMPAREDN));
                     if (!cmp.hasMore()) {
@@ -792,6 +1052,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
                 final String searchBase = getPropertyAsString(SEARCHBASE);
                 final String timeLimit = getTimelim();
                 final String countLimit = getCountlim();
+                final int pageSize = getPageSizeAsInt();
 
                 res.setSamplerData("Search with filter " + searchFilter);
                 xmlBuffer.tag("searchfilter", StringEscapeUtils.escapeXml10(searchFilter)); // $NON-NLS-1$
@@ -801,37 +1062,21 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
                 xmlBuffer.tag("countlimit",countLimit); // $NON-NLS-1$
                 xmlBuffer.tag("timelimit",timeLimit); // $NON-NLS-1$
 
-                NamingEnumeration<SearchResult> srch=null;
-                try {
-                    res.sampleStart();
-                    srch = LdapExtClient.searchTest(
-                            dirContext, searchBase, searchFilter,
-                            scope, getCountlimAsLong(),
-                            getTimelimAsInt(),
-                            getRequestAttributes(getAttrs()),
-                            isRetobj(),
-                            isDeref());
-                    if (isParseFlag()) {
-                        try {
-                            xmlBuffer.openTag("searchresults"); // $NON-NLS-1$
-                            writeSearchResults(xmlBuffer, srch);
-                        } finally {
-                            xmlBuffer.closeTag("searchresults"); // $NON-NLS-1$
-                        }
-                    } else {
-                        xmlBuffer.tag("searchresults", // $NON-NLS-1$
-                                "hasElements="+srch.hasMoreElements()); // $NON-NLS-1$
-                    }
-                } finally {
-                    if (srch != null){
-                        srch.close();
-                    }
-                    res.sampleEnd();
+                if (pageSize > 0) {
+                    xmlBuffer.tag("pagesize", getPageSize()); // $NON-NLS-1$
+                    pagedSearchTest(dirContext, res, xmlBuffer, searchBase, searchFilter, scope, pageSize);
+                } else {
+                    searchTest(dirContext, res, xmlBuffer, searchBase, searchFilter, scope);
                 }
 
             }
 
         } catch (NamingException ex) {
+            if (borrowed != null
+                    && (ex instanceof CommunicationException || ex instanceof ServiceUnavailableException)) {
+                LdapExtClient.disconnect(borrowed);
+                borrowed = null;
+            }
             // TODO: tidy this up
             String returnData = ex.toString();
             final int indexOfLDAPErrCode = returnData.indexOf("LDAP: error code");
@@ -845,6 +1090,11 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
             }
             isSuccessful = false;
         } finally {
+            if (borrowed != null) {
+                connectionPool.giveBack(getConnectionKey(), borrowed);
+            }
+            // after giving back the context, so that the next thread borrows it
+            releaseContextPermit(borrowedPermits);
             xmlBuffer.closeTag("operation"); // $NON-NLS-1$
             xmlBuffer.tag("responsecode",res.getResponseCode()); // $NON-NLS-1$
             xmlBuffer.tag("responsemessage",res.getResponseMessage()); // $NON-NLS-1$
@@ -861,7 +1111,7 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
      * unless the number of results exceeds {@link #MAX_SORTED_RESULTS} in which case just stream
      * the results out without sorting.
      */
-    private void writeSearchResults(final XMLBuffer xmlb, final NamingEnumeration<SearchResult> srch)
+    private int writeSearchResults(final XMLBuffer xmlb, final NamingEnumeration<SearchResult> srch)
             throws NamingException
     {
 
@@ -888,12 +1138,15 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
             }
         }
 
+        int count = sortedResults.size();
         while (srch.hasMore()) { // If there's anything left ...
             final SearchResult sr = srch.next();
 
             normaliseSearchDN(sr, searchBase, rootDn);
             writeSearchResult(sr, xmlb);
+            count++;
         }
+        return count;
     }
 
     private void writeSearchResult(final SearchResult sr, final XMLBuffer xmlb)
@@ -1055,6 +1308,8 @@ public class LDAPExtSampler extends AbstractSampler implements TestStateListener
             }
         }
         ldapContexts.clear();
+        connectionPool.close();
+        connectionPermits.clear();
     }
 
     /**
@@ -18,6 +18,7 @@
 
 package org.apache.jmeter.protocol.ldap.sampler;
 
+import java.io.IOException;
 import java.util.Hashtable;
 
 import javax.naming.Context;
@@ -25,10 +26,14 @@ import javax.naming.NamingEnumeration;
 import javax.naming.NamingException;
 import javax.naming.directory.Attributes;
 import javax.naming.directory.DirContext;
-import javax.naming.directory.InitialDirContext;
 import javax.naming.directory.ModificationItem;
 import javax.naming.directory.SearchControls;
 import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.InitialLdapContext;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
 
 import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
@@ -50,6 +55,21 @@ public class LdapExtClient {
 
     private static final String CONTEXT_IS_NULL = "Context is null";
 
+    /**
+     * Receives the pages of a paged search
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+        /**
+         * @param page
+         *            entries of the page, to be read before the next page is
+         *            requested
+         * @throws NamingException
+         *             when reading the entries fails
+         */
+        void handlePage(NamingEnumeration<SearchResult> page) throws NamingException;
+    }
+
     /**
      * Constructor for the LdapClient object
      */
@@ -105,7 +125,7 @@ public class LdapExtClient {
         env.put("java.naming.batchsize", "0"); // $NON-NLS-1$  // $NON-NLS-2$
         env.put(Context.SECURITY_CREDENTIALS, password);
         env.put(Context.SECURITY_PRINCIPAL, username);
-        dirContext = new InitialDirContext(env);
+        dirContext = new InitialLdapContext(env, null);
         return dirContext;
     }
 
@@ -181,6 +201,92 @@ public class LdapExtClient {
         return dirContext.search(searchBase, searchFilter, searchcontrols);
     }
 
+    /***************************************************************************
+     * Filter the data in the ldap directory for the given search base, asking
+     * the server for pages of entries with the paged results control (RFC
+     * 2696), so that only one page of entries is held in memory at a time
+     *
+     * @param dirContext
+     *            context to perform the search on, which must be an
+     *            {@link LdapContext}
+     * @param searchBase
+     *            base where the search should start
+     * @param searchFilter
+     *            filter this value from the base
+     * @param scope
+     *            scope for search, see
+     *            {@link #searchTest(DirContext, String, String, int, long, int, String[], boolean, boolean)}
+     * @param countlim
+     *            max number of results to get, <code>0</code> for all entries
+     * @param timelim
+     *            max time to wait for entries (in milliseconds), <code>0</code>
+     *            for unlimited time
+     * @param attrs
+     *            list of attributes to return. If <code>null</code> all
+     *            attributes will be returned. If empty, none will be returned
+     * @param retobj
+     *            flag whether the objects should be returned
+     * @param deref
+     *            flag whether objects should be dereferenced
+     * @param pageSize
+     *            number of entries per page
+     * @param handler
+     *            reads the entries of each page
+     * @return number of pages read
+     * @throws NamingException
+     *             when searching fails or the server does not support paged
+     *             results
+     **************************************************************************/
+    public static int pagedSearch(DirContext dirContext, String searchBase, String searchFilter, int scope, long countlim,
+            int timelim, String[] attrs, boolean retobj, boolean deref, int pageSize, PageHandler handler)
+            throws NamingException {
+        if (dirContext == null) {
+            throw new NamingException(CONTEXT_IS_NULL);
+        }
+        if (!(dirContext instanceof LdapContext)) {
+            throw new NamingException("Paged search needs an LDAP context");
+        }
+        LdapContext ldapContext = (LdapContext) dirContext;
+        SearchControls searchcontrols = new SearchControls(scope, countlim,
+                timelim, attrs, retobj, deref);
+        int pages = 0;
+        byte[] cookie = null;
+        try {
+            do {
+                ldapContext.setRequestControls(new Control[] {
+                        new PagedResultsControl(pageSize, cookie, Control.CRITICAL) });
+                NamingEnumeration<SearchResult> page = ldapContext.search(searchBase, searchFilter, searchcontrols);
+                try {
+                    pages++;
+                    handler.handlePage(page);
+                } finally {
+                    page.close();
+                }
+                cookie = getCookie(ldapContext.getResponseControls());
+            } while (cookie != null && cookie.length > 0);
+        } catch (IOException e) {
+            NamingException ne = new NamingException("Cannot encode paged results control");
+            ne.setRootCause(e);
+            throw ne;
+        } finally {
+            // The context may be used again for other operations
+            ldapContext.setRequestControls(null);
+        }
+        log.debug("Paged search read {} pages of {} entries", pages, pageSize);
+        return pages;
+    }
+
+    private static byte[] getCookie(Control[] controls) {
+        if (controls != null) {
+            for (Control control : controls) {
+                if (control instanceof PagedResultsResponseControl) {
+                    return ((PagedResultsResponseControl) control).getCookie();
+                }
+            }
+        }
+        return null;
+    }
+
     /***************************************************************************
      * Filter the data in the ldap directory
      *
@@ -27,6 +27,7 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.mail.Address;
 import javax.mail.BodyPart;
@@ -51,9 +52,12 @@ import org.apache.jmeter.samplers.Interruptible;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.testelement.property.IntegerProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.util.IdleConnectionPool;
 import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -61,7 +65,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Sampler that can read from POP3 and IMAP mail servers
  */
-public class MailReaderSampler extends AbstractSampler implements Interruptible {
+public class MailReaderSampler extends AbstractSampler implements Interruptible, ThreadListener, TestStateListener {
     private static final Logger log = LoggerFactory.getLogger(MailReaderSampler.class);
 
     private static final long serialVersionUID = 240L;
@@ -82,6 +86,7 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
     private static final String STORE_MIME_MESSAGE = "storeMimeMessage"; // $NON-NLS-1$
     private static final String HEADER_ONLY = "headerOnly"; // $NON-NLS-1$
     private static final boolean HEADER_ONLY_DEFAULT = false;
+    private static final String KEEP_ALIVE = "keepAlive"; // $NON-NLS-1$
     //-
 
     private static final String RFC_822_DEFAULT_ENCODING = "iso-8859-1"; // RFC 822 uses ascii per default
@@ -95,6 +100,22 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
 
     private static final String TRUE = "true";  // $NON-NLS-1$
 
+    /** Share the open connections between threads? */
+    private static final boolean SHARED_CONNECTIONS =
+            JMeterUtils.getPropDefault("mailreader.connection.shared", false); // $NON-NLS-1$
+
+    private static final long MAX_IDLE_MILLIS =
+            JMeterUtils.getPropDefault("mailreader.connection.max_idle", 60000L); // $NON-NLS-1$
+
+    private static final IdleConnectionPool<Store> SHARED_STORES =
+            new IdleConnectionPool<>(MAX_IDLE_MILLIS, MailReaderSampler::closeStore);
+
+    /** Connections kept open by this thread */
+    private transient IdleConnectionPool<Store> threadStores;
+
+    /** Custom properties of the connections, read on first use */
+    private transient String customPropertiesKey;
+
     public boolean isUseLocalTrustStore() {
         return getPropertyAsBoolean(SecuritySettingsPanel.USE_LOCAL_TRUSTSTORE);
     }
@@ -153,64 +174,16 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
         /*
          * Perform the sampling
          */
+        final boolean keepAlive = isKeepAlive();
+        final String connectionKey = keepAlive ? getConnectionKey() : null;
+        boolean reusable = false;
         parent.sampleStart(); // Start timing
+        Store store = keepAlive ? borrowStore(connectionKey) : null;
         try {
-            // Create empty properties
-            Properties props = new Properties();
-
-            if (isUseStartTLS()) {
-                props.setProperty(mailProp(serverProtocol, "starttls.enable"), TRUE);  // $NON-NLS-1$
-                if (isEnforceStartTLS()){
-                    // Requires JavaMail 1.4.2+
-                    props.setProperty(mailProp(serverProtocol, "starttls.require"), TRUE);  // $NON-NLS-1$
-                }
+            if (store == null) {
+                store = connect(serverProtocol);
             }
-
-            if (isTrustAllCerts()) {
-                if (isUseSSL()) {
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                } else if (isUseStartTLS()) {
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
-                    props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                }
-            } else if (isUseLocalTrustStore()){
-                File truststore = new File(getTrustStoreToUse());
-                log.info("load local truststore - try to load truststore from: "+truststore.getAbsolutePath());
-                if(!truststore.exists()){
-                    log.info("load local truststore -Failed to load truststore from: "+truststore.getAbsolutePath());
-                    truststore = new File(FileServer.getFileServer().getBaseDir(), getTrustStoreToUse());
-                    log.info("load local truststore -Attempting to read truststore from:  "+truststore.getAbsolutePath());
-                    if (!truststore.exists()){
-                        log.info(
-                                "load local truststore -Failed to load truststore from: "
-                                        + truststore.getAbsolutePath()
-                                        + ". Local truststore not available, aborting execution.");
-                        throw new IOException(
-                                "Local truststore file not found. Also not available under : "
-                                        + truststore.getAbsolutePath());
-                    }
-                }
-                if (isUseSSL()) {
-                    // Requires JavaMail 1.4.2+
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory"),   // $NON-NLS-1$ 
-                            new LocalTrustStoreSSLSocketFactory(truststore));
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                } else if (isUseStartTLS()) {
-                    // Requires JavaMail 1.4.2+
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory"),  // $NON-NLS-1$
-                            new LocalTrustStoreSSLSocketFactory(truststore));
-                    props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
-                }
-            }
-            addCustomProperties(props);
-
-            // Get session
-            Session session = Session.getInstance(props, null);
-
-            // Get the store
-            Store store = session.getStore(serverProtocol);
-            store.connect(getServer(), getPortAsInt(), getUserName(), getPassword());
+            parent.connectEnd();
 
             // Get folder
             Folder folder = store.getFolder(getFolder());
@@ -255,7 +228,10 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
 
                 if (isStoreMimeMessage()) {
                     // Don't save headers - they are already in the raw message
-                    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+                    // Size the buffer from the message to avoid growing it while writing
+                    int size = message.getSize();
+                    ByteArrayOutputStream bout = size > 0
+                            ? new ByteArrayOutputStream(size + 1024) : new ByteArrayOutputStream();
                     message.writeTo(bout);
                     child.setResponseData(bout.toByteArray()); // Save raw message
                     child.setDataType(SampleResult.TEXT);
@@ -291,7 +267,7 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
 
             // Close connection
             folder.close(true);
-            store.close();
+            reusable = keepAlive;
 
             parent.setResponseCodeOK();
             parent.setResponseMessageOK();
@@ -306,6 +282,13 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
             parent.setResponseMessage(ex.toString() + "\n" + samplerString); // $NON-NLS-1$
         } finally {
             busy = false;
+            if (store != null) {
+                if (reusable) {
+                    getStorePool().giveBack(connectionKey, store);
+                } else {
+                    closeStore(store);
+                }
+            }
         }
 
         if (parent.getEndTime()==0){// not been set by any child samples
@@ -315,6 +298,163 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
         return parent;
     }
 
+    private Store connect(String serverProtocol) throws MessagingException, IOException {
+        // Create empty properties
+        Properties props = new Properties();
+
+        if (isUseStartTLS()) {
+            props.setProperty(mailProp(serverProtocol, "starttls.enable"), TRUE);  // $NON-NLS-1$
+            if (isEnforceStartTLS()){
+                // Requires JavaMail 1.4.2+
+                props.setProperty(mailProp(serverProtocol, "starttls.require"), TRUE);  // $NON-NLS-1$
+            }
+        }
+
+        if (isTrustAllCerts()) {
+            if (isUseSSL()) {
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            } else if (isUseStartTLS()) {
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.class"), TRUST_ALL_SOCKET_FACTORY);  // $NON-NLS-1$
+                props.setProperty(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            }
+        } else if (isUseLocalTrustStore()){
+            File truststore = new File(getTrustStoreToUse());
+            log.info("load local truststore - try to load truststore from: "+truststore.getAbsolutePath());
+            if(!truststore.exists()){
+                log.info("load local truststore -Failed to load truststore from: "+truststore.getAbsolutePath());
+                truststore = new File(FileServer.getFileServer().getBaseDir(), getTrustStoreToUse());
+                log.info("load local truststore -Attempting to read truststore from:  "+truststore.getAbsolutePath());
+                if (!truststore.exists()){
+                    log.info(
+                            "load local truststore -Failed to load truststore from: "
+                                    + truststore.getAbsolutePath()
+                                    + ". Local truststore not available, aborting execution.");
+                    throw new IOException(
+                            "Local truststore file not found. Also not available under : "
+                                    + truststore.getAbsolutePath());
+                }
+            }
+            if (isUseSSL()) {
+                // Requires JavaMail 1.4.2+
+                props.put(mailProp(serverProtocol, "ssl.socketFactory"),   // $NON-NLS-1$ 
+                        new LocalTrustStoreSSLSocketFactory(truststore));
+                props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            } else if (isUseStartTLS()) {
+                // Requires JavaMail 1.4.2+
+                props.put(mailProp(serverProtocol, "ssl.socketFactory"),  // $NON-NLS-1$
+                        new LocalTrustStoreSSLSocketFactory(truststore));
+                props.put(mailProp(serverProtocol, "ssl.socketFactory.fallback"), FALSE);  // $NON-NLS-1$
+            }
+        }
+        addCustomProperties(props);
+
+        // Get session
+        Session session = Session.getInstance(props, null);
+
+        // Get the store
+        Store store = session.getStore(serverProtocol);
+        store.connect(getServer(), getPortAsInt(), getUserName(), getPassword());
+        return store;
+    }
+
+    /**
+     * @return an idle store still connected with the same settings, or
+     *         <code>null</code> if there is none
+     */
+    private Store borrowStore(String connectionKey) {
+        IdleConnectionPool<Store> pool = getStorePool();
+        Store store;
+        while ((store = pool.borrow(connectionKey)) != null) {
+            if (store.isConnected()) { // sends a NOOP command
+                return store;
+            }
+            closeStore(store);
+        }
+        return null;
+    }
+
+    private IdleConnectionPool<Store> getStorePool() {
+        if (SHARED_CONNECTIONS) {
+            return SHARED_STORES;
+        }
+        if (threadStores == null) {
+            threadStores = new IdleConnectionPool<>(MAX_IDLE_MILLIS, MailReaderSampler::closeStore);
+        }
+        return threadStores;
+    }
+
+    /**
+     * @return key of the idle connections which can be reused by this
+     *         sampler, visible for tests
+     */
+    String getConnectionKey() {
+        return String.join("\n", // $NON-NLS-1$
+                getServerType(), getServer(), getPort(), getUserName(), getPassword(),
+                Boolean.toString(isUseSSL()), Boolean.toString(isUseStartTLS()),
+                Boolean.toString(isEnforceStartTLS()), Boolean.toString(isTrustAllCerts()),
+                Boolean.toString(isUseLocalTrustStore()), getTrustStoreToUse(), getCustomPropertiesKey());
+    }
+
+    private String getCustomPropertiesKey() {
+        if (customPropertiesKey == null) {
+            Properties props = new Properties();
+            addCustomProperties(props);
+            customPropertiesKey = new TreeMap<>(props).toString();
+        }
+        return customPropertiesKey;
+    }
+
+    private static void closeStore(Store store) {
+        try {
+            store.close();
+        } catch (MessagingException ex) {
+            log.debug("Error closing store", ex);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections kept open by this thread
+     */
+    @Override
+    public void threadFinished() {
+        if (threadStores != null) {
+            threadStores.close();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted() {
+        // NOOP
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted(String host) {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections shared by the threads
+     */
+    @Override
+    public void testEnded() {
+        SHARED_STORES.close();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
     protected void addCustomProperties(Properties props) {
         Properties jMeterProperties = JMeterUtils.getJMeterProperties();
         @SuppressWarnings("unchecked")
@@ -614,6 +754,23 @@ public class MailReaderSampler extends AbstractSampler implements Interruptible
         setProperty(HEADER_ONLY, selected, HEADER_ONLY_DEFAULT);
     }
 
+    /**
+     * @return Whether or not to keep the connection to the server open for
+     *         the next samples
+     */
+    public boolean isKeepAlive() {
+        return getPropertyAsBoolean(KEEP_ALIVE, false);
+    }
+
+    /**
+     * @param keepAlive
+     *            Whether or not to keep the connection to the server open for
+     *            the next samples
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        setProperty(KEEP_ALIVE, keepAlive, false);
+    }
+
     /**
      * Build a property name of the form "mail.pop3s.starttls.require"
      *
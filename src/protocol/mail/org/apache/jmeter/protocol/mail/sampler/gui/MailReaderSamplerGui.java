@@ -74,6 +74,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
 
     private JCheckBox headerOnlyBox;
 
+    private JCheckBox keepAliveBox;
+
     // Labels - don't make these static, else language change will not work
 
     private final String serverTypeLabel = JMeterUtils.getResString("mail_reader_server_type");// $NON-NLS-1$
@@ -98,6 +100,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
 
     private final String headerOnlyLabel = JMeterUtils.getResString("mail_reader_header_only");// $NON-NLS-1$
 
+    private final String keepAliveLabel = JMeterUtils.getResString("mail_reader_keep_alive");// $NON-NLS-1$
+
     private static final String INBOX = "INBOX"; // $NON-NLS-1$
     
     private SecuritySettingsPanel securitySettingsPanel;
@@ -134,6 +138,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         headerOnlyBox.setSelected(mrs.getHeaderOnly());
         deleteBox.setSelected(mrs.getDeleteMessages());
         storeMimeMessageBox.setSelected(mrs.isStoreMimeMessage());
+        keepAliveBox.setSelected(mrs.isKeepAlive());
         securitySettingsPanel.configure(element);
         super.configure(element);
     }
@@ -172,6 +177,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         mrs.setHeaderOnly(headerOnlyBox.isSelected());
         mrs.setDeleteMessages(deleteBox.isSelected());
         mrs.setStoreMimeMessage(storeMimeMessageBox.isSelected());
+        mrs.setKeepAlive(keepAliveBox.isSelected());
         
         securitySettingsPanel.modifyTestElement(te);
     }
@@ -235,6 +241,8 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         deleteBox = new JCheckBox(deleteLabel);
 
         storeMimeMessageBox = new JCheckBox(storeMime);
+
+        keepAliveBox = new JCheckBox(keepAliveLabel);
         
         securitySettingsPanel = new SecuritySettingsPanel();
         
@@ -245,6 +253,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         settings.add(headerOnlyBox);
         settings.add(deleteBox);
         settings.add(storeMimeMessageBox);
+        settings.add(keepAliveBox);
         settings.add(securitySettingsPanel);
 
         add(makeTitlePanel(), BorderLayout.NORTH);
@@ -295,6 +304,7 @@ public class MailReaderSamplerGui extends AbstractSamplerGui implements ActionLi
         headerOnlyBox.setSelected(false);
         deleteBox.setSelected(false);
         storeMimeMessageBox.setSelected(false);
+        keepAliveBox.setSelected(false);
         folderBox.setText(INBOX);
         serverTypeBox.setText(MailReaderSampler.DEFAULT_PROTOCOL);
         passwordBox.setText("");// $NON-NLS-1$
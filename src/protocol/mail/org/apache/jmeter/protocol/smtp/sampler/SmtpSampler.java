@@ -36,6 +36,7 @@ import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import javax.mail.Part;
+import javax.mail.Transport;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.ContentType;
 import javax.mail.internet.InternetAddress;
@@ -51,7 +52,11 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
+import org.apache.jmeter.testelement.ThreadListener;
 import org.apache.jmeter.testelement.property.CollectionProperty;
+import org.apache.jmeter.util.IdleConnectionPool;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,7 +68,7 @@ import org.slf4j.LoggerFactory;
  * values from/to the sampler, not from/to the message-object. Therefore, all
  * these methods are also present in class SendMailCommand.
  */
-public class SmtpSampler extends AbstractSampler {
+public class SmtpSampler extends AbstractSampler implements ThreadListener, TestStateListener {
 
     private static final long serialVersionUID = 1L;
 
@@ -98,11 +103,24 @@ public class SmtpSampler extends AbstractSampler {
     public static final String USE_EML              = "SMTPSampler.use_eml"; // $NON-NLS-1$
     public static final String EML_MESSAGE_TO_SEND  = "SMTPSampler.emlMessageToSend"; // $NON-NLS-1$
     public static final String ENABLE_DEBUG         = "SMTPSampler.enableDebug"; // $NON-NLS-1$
+    public static final String KEEP_ALIVE           = "SMTPSampler.keepAlive"; // $NON-NLS-1$
 
     // Used to separate attachment file names in JMX fields - do not change!
     public static final String FILENAME_SEPARATOR = ";";
     //-JMX file attribute names
 
+    /** Share the open connections between threads? */
+    private static final boolean SHARED_CONNECTIONS =
+            JMeterUtils.getPropDefault("smtp.connection.shared", false); // $NON-NLS-1$
+
+    private static final long MAX_IDLE_MILLIS =
+            JMeterUtils.getPropDefault("smtp.connection.max_idle", 60000L); // $NON-NLS-1$
+
+    private static final IdleConnectionPool<Transport> SHARED_TRANSPORTS =
+            new IdleConnectionPool<>(MAX_IDLE_MILLIS, SmtpSampler::closeTransport);
+
+    /** Connections kept open by this thread */
+    private transient IdleConnectionPool<Transport> threadTransports;
 
     public SmtpSampler() {
         super();
@@ -166,8 +184,15 @@ public class SmtpSampler extends AbstractSampler {
 
     private boolean executeMessage(SampleResult result, SendMailCommand sendMailCmd, Message message) {
         boolean didSampleSucceed = false;
+        final boolean keepAlive = getPropertyAsBoolean(KEEP_ALIVE);
+        final String connectionKey = keepAlive ? sendMailCmd.getConnectionKey() : null;
+        Transport tr = keepAlive ? borrowTransport(connectionKey) : null;
         try {
-            sendMailCmd.execute(message);
+            if (tr == null) {
+                tr = sendMailCmd.connect();
+            }
+            result.connectEnd();
+            sendMailCmd.send(tr, message);
             result.setResponseCodeOK();
             result.setResponseMessage(
                     "Message successfully sent!\n");
@@ -182,10 +207,52 @@ public class SmtpSampler extends AbstractSampler {
             log.warn("", ex);
             result.setResponseCode("500");
             result.setResponseMessage(ex.getMessage());
+        } finally {
+            if (tr != null) {
+                if (didSampleSucceed && keepAlive) {
+                    getTransportPool().giveBack(connectionKey, tr);
+                } else {
+                    closeTransport(tr);
+                }
+            }
         }
         return didSampleSucceed;
     }
 
+    /**
+     * @return an idle transport still connected with the same settings, or
+     *         <code>null</code> if there is none
+     */
+    private Transport borrowTransport(String connectionKey) {
+        IdleConnectionPool<Transport> pool = getTransportPool();
+        Transport tr;
+        while ((tr = pool.borrow(connectionKey)) != null) {
+            if (tr.isConnected()) { // sends a NOOP command
+                return tr;
+            }
+            closeTransport(tr);
+        }
+        return null;
+    }
+
+    private IdleConnectionPool<Transport> getTransportPool() {
+        if (SHARED_CONNECTIONS) {
+            return SHARED_TRANSPORTS;
+        }
+        if (threadTransports == null) {
+            threadTransports = new IdleConnectionPool<>(MAX_IDLE_MILLIS, SmtpSampler::closeTransport);
+        }
+        return threadTransports;
+    }
+
+    private static void closeTransport(Transport tr) {
+        try {
+            tr.close();
+        } catch (Exception e) { // NOSONAR
+            // NOOP
+        }
+    }
+
     private long calculateMessageSize(Message message) throws IOException, MessagingException {
         if (getPropertyAsBoolean(MESSAGE_SIZE_STATS)) {
             // calculate message size
@@ -376,6 +443,48 @@ public class SmtpSampler extends AbstractSampler {
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void threadStarted() {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections kept open by this thread
+     */
+    @Override
+    public void threadFinished() {
+        if (threadTransports != null) {
+            threadTransports.close();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted() {
+        // NOOP
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testStarted(String host) {
+        // NOOP
+    }
+
+    /**
+     * Closes the connections shared by the threads
+     */
+    @Override
+    public void testEnded() {
+        SHARED_TRANSPORTS.close();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void testEnded(String host) {
+        testEnded();
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -97,6 +97,7 @@ public class SmtpPanel extends JPanel {
     private JCheckBox cbIncludeTimestamp;
     private JCheckBox cbMessageSizeStats;
     private JCheckBox cbEnableDebug;
+    private JCheckBox cbKeepAlive;
     private JCheckBox cbUseEmlMessage;
 
     private JPanel headerFieldsPanel;
@@ -392,6 +393,14 @@ public class SmtpPanel extends JPanel {
         cbEnableDebug.setSelected(selected);
     }
 
+    public boolean isKeepAlive() {
+        return cbKeepAlive.isSelected();
+    }
+
+    public void setKeepAlive(boolean selected){
+        cbKeepAlive.setSelected(selected);
+    }
+
     /**
      * Returns if an .eml-message is sent instead of the content of message-text
      * area
@@ -571,6 +580,7 @@ public class SmtpPanel extends JPanel {
         cbIncludeTimestamp = new JCheckBox(JMeterUtils.getResString("smtp_timestamp")); // $NON-NLS-1$
         cbMessageSizeStats = new JCheckBox(JMeterUtils.getResString("smtp_messagesize")); // $NON-NLS-1$
         cbEnableDebug = new JCheckBox(JMeterUtils.getResString("smtp_enabledebug")); // $NON-NLS-1$
+        cbKeepAlive = new JCheckBox(JMeterUtils.getResString("smtp_keepalive")); // $NON-NLS-1$
         cbUseEmlMessage = new JCheckBox(JMeterUtils.getResString("smtp_eml")); // $NON-NLS-1$
 
         attachmentFileChooser = new JFileChooser();
@@ -883,6 +893,10 @@ public class SmtpPanel extends JPanel {
         gridBagConstraints.gridy = 0;
         panelAdditionalSettings.add(cbEnableDebug, gridBagConstraints);
 
+        gridBagConstraints.gridx = 2;
+        gridBagConstraints.gridy = 0;
+        panelAdditionalSettings.add(cbKeepAlive, gridBagConstraints);
+
         gridBagConstraintsMain.gridx = 0;
         gridBagConstraintsMain.gridy = 7;
         add(panelAdditionalSettings, gridBagConstraintsMain);
@@ -975,6 +989,7 @@ public class SmtpPanel extends JPanel {
         cbIncludeTimestamp.setSelected(false);
         cbMessageSizeStats.setSelected(false);
         cbEnableDebug.setSelected(false);
+        cbKeepAlive.setSelected(false);
         cbUseEmlMessage.setSelected(false);
         cbUseAuth.setSelected(false);
         taMessage.setText("");
@@ -102,6 +102,7 @@ public class SmtpSamplerGui extends AbstractSamplerGui {
 
         smtpPanel.setMessageSizeStatistic(element.getPropertyAsBoolean(SmtpSampler.MESSAGE_SIZE_STATS));
         smtpPanel.setEnableDebug(element.getPropertyAsBoolean(SmtpSampler.ENABLE_DEBUG));
+        smtpPanel.setKeepAlive(element.getPropertyAsBoolean(SmtpSampler.KEEP_ALIVE));
 
         super.configure(element);
     }
@@ -155,6 +156,7 @@ public class SmtpSamplerGui extends AbstractSamplerGui {
 
         te.setProperty(SmtpSampler.MESSAGE_SIZE_STATS, Boolean.toString(smtpPanel.isMessageSizeStatistics()));
         te.setProperty(SmtpSampler.ENABLE_DEBUG, Boolean.toString(smtpPanel.isEnableDebug()));
+        te.setProperty(SmtpSampler.KEEP_ALIVE, smtpPanel.isKeepAlive(), false);
 
         te.setProperty(smtpPanel.getHeaderFields());
     }
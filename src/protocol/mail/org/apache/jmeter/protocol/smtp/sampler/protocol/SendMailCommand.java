@@ -311,25 +311,8 @@ public class SendMailCommand {
 
         Transport tr = null;
         try {
-            tr = session.getTransport(getProtocol());
-            SynchronousTransportListener listener = null;
-
-            if (synchronousMode) {
-                listener = new SynchronousTransportListener();
-                tr.addTransportListener(listener);
-            }
-    
-            if (useAuthentication) {
-                tr.connect(smtpServer, username, password);
-            } else {
-                tr.connect();
-            }
-
-            tr.sendMessage(message, message.getAllRecipients());
-
-            if (listener != null /*synchronousMode==true*/) {
-                listener.attend(); // listener cannot be null here
-            }
+            tr = connect();
+            send(tr, message);
         } finally {
             if(tr != null) {
                 try {
@@ -340,10 +323,76 @@ public class SendMailCommand {
             }
             logger.debug("transport closed");
         }
+    }
+
+    /**
+     * Connects to the mailserver, so that a transport can send several
+     * messages with {@link #send(Transport, Message)}.
+     *
+     * @return the connected transport, which must be closed
+     * @throws MessagingException
+     *             when problems connecting to the mailserver arise
+     */
+    public Transport connect() throws MessagingException {
+        Transport tr = session.getTransport(getProtocol());
+        if (useAuthentication) {
+            tr.connect(smtpServer, username, password);
+        } else {
+            tr.connect();
+        }
+        return tr;
+    }
+
+    /**
+     * Sends message with a connected transport, waiting for delivery if using
+     * synchronous mode.
+     *
+     * @param tr
+     *            Transport returned by connect(), possibly by another command
+     *            with the same connection settings
+     * @param message
+     *            Message previously prepared by prepareMessage()
+     * @throws MessagingException
+     *             when problems sending the mail arise
+     * @throws InterruptedException
+     *             when interrupted while waiting for delivery in synchronous
+     *             mode
+     */
+    public void send(Transport tr, Message message) throws MessagingException, InterruptedException {
+        SynchronousTransportListener listener = null;
+        if (synchronousMode) {
+            listener = new SynchronousTransportListener();
+            tr.addTransportListener(listener);
+        }
+        try {
+            tr.sendMessage(message, message.getAllRecipients());
+
+            if (listener != null /*synchronousMode==true*/) {
+                listener.attend(); // listener cannot be null here
+            }
+        } finally {
+            if (listener != null) {
+                tr.removeTransportListener(listener);
+            }
+        }
 
         logger.debug("message sent");
     }
 
+    /**
+     * Returns the settings of the connections to the mailserver: transports
+     * connected with the same settings can send the messages of one another.
+     *
+     * @return the connection settings
+     */
+    public String getConnectionKey() {
+        return String.join("\n", // $NON-NLS-1$
+                getProtocol(), smtpServer, getPort(), Boolean.toString(useAuthentication), username, password,
+                Boolean.toString(useStartTLS), Boolean.toString(enforceStartTLS), Boolean.toString(trustAllCerts),
+                Boolean.toString(useLocalTrustStore), trustStoreToUse, tlsProtocols,
+                getTimeout(), getConnectionTimeout(), Boolean.toString(enableDebug));
+    }
+
     /**
      * Processes prepareMessage() and execute()
      *
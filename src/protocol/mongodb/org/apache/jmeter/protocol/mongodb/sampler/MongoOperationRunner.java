@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.mongodb.sampler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.samplers.SampleResult;
+
+import com.mongodb.AggregationOutput;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+
+/**
+ * Runs the native operations of {@link MongoOperationSampler} on a
+ * collection. Write operations sent in several requests are timed in sub
+ * results of the sample.
+ *
+ * @since 5.1
+ */
+public class MongoOperationRunner {
+
+    public static final String FIND = "find"; // $NON-NLS-1$
+    public static final String INSERT = "insert"; // $NON-NLS-1$
+    public static final String UPDATE = "update"; // $NON-NLS-1$
+    public static final String AGGREGATE = "aggregate"; // $NON-NLS-1$
+    public static final String BULK_WRITE = "bulkWrite"; // $NON-NLS-1$
+
+    private static final String INSERT_ONE = "insertOne"; // $NON-NLS-1$
+    private static final String UPDATE_ONE = "updateOne"; // $NON-NLS-1$
+    private static final String UPDATE_MANY = "updateMany"; // $NON-NLS-1$
+    private static final String REPLACE_ONE = "replaceOne"; // $NON-NLS-1$
+    private static final String DELETE_ONE = "deleteOne"; // $NON-NLS-1$
+    private static final String DELETE_MANY = "deleteMany"; // $NON-NLS-1$
+
+    /**
+     * One request of a bulk write: a batch of inserts, or one update or
+     * delete
+     */
+    static final class WriteStep {
+        private final String model;
+        private final List<DBObject> documents;
+        private final DBObject filter;
+        private final DBObject update;
+        private final boolean upsert;
+
+        private WriteStep(List<DBObject> documents) {
+            this(INSERT_ONE, documents, null, null, false);
+        }
+
+        private WriteStep(String model, List<DBObject> documents, DBObject filter, DBObject update,
+                boolean upsert) {
+            this.model = model;
+            this.documents = documents;
+            this.filter = filter;
+            this.update = update;
+            this.upsert = upsert;
+        }
+
+        /**
+         * @return the write model name, e.g. <code>updateOne</code>
+         */
+        String getModel() {
+            return model;
+        }
+
+        /**
+         * @return the documents inserted by this step, empty for updates and
+         *         deletes
+         */
+        List<DBObject> getDocuments() {
+            return documents;
+        }
+
+        DBObject getFilter() {
+            return filter;
+        }
+
+        DBObject getUpdate() {
+            return update;
+        }
+
+        boolean isUpsert() {
+            return upsert;
+        }
+    }
+
+    private final DBCollection collection;
+
+    private final int batchSize;
+
+    private final int limit;
+
+    /**
+     * @param collection the collection to run the operations on
+     * @param batchSize  number of documents per request of the cursors and
+     *                   of the inserts, <code>0</code> for the defaults
+     * @param limit      maximum number of documents read, <code>0</code> for
+     *                   no limit
+     */
+    public MongoOperationRunner(DBCollection collection, int batchSize, int limit) {
+        this.collection = collection;
+        this.batchSize = batchSize;
+        this.limit = limit;
+    }
+
+    /**
+     * Stream the documents matching a filter. The latency of the sample ends
+     * with the first batch of documents.
+     *
+     * @param filter     the filter, or <code>null</code> to read all the
+     *                   documents
+     * @param projection the fields to read, or <code>null</code> for all
+     * @param sort       the sort order, or <code>null</code>
+     * @param res        the sample result
+     * @param out        receives the documents, one per line, or
+     *                   <code>null</code> to only count them
+     * @return the summary of the operation
+     */
+    public String find(DBObject filter, DBObject projection, DBObject sort, SampleResult res,
+            StringBuilder out) {
+        DBCursor cursor = collection.find(filter, projection);
+        try {
+            if (sort != null) {
+                cursor.sort(sort);
+            }
+            if (limit > 0) {
+                cursor.limit(limit);
+            }
+            if (batchSize > 0) {
+                cursor.batchSize(batchSize);
+            }
+            long count = read(cursor, res, out);
+            return count + " documents read in " + (cursor.numGetMores() + 1) + " batches";
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Run an aggregation pipeline. The driver returns the results inline, so
+     * the limit only applies to the documents read from them.
+     *
+     * @param pipeline the stages of the pipeline
+     * @param res      the sample result
+     * @param out      receives the documents, one per line, or
+     *                 <code>null</code> to only count them
+     * @return the summary of the operation
+     */
+    public String aggregate(List<DBObject> pipeline, SampleResult res, StringBuilder out) {
+        if (pipeline.isEmpty()) {
+            throw new IllegalArgumentException("The aggregation pipeline has no stage");
+        }
+        AggregationOutput output = collection.aggregate(pipeline.get(0),
+                pipeline.subList(1, pipeline.size()).toArray(new DBObject[pipeline.size() - 1]));
+        long count = read(output.results().iterator(), res, out);
+        return count + " documents read";
+    }
+
+    /**
+     * Insert documents, in batches of at most batch size documents timed in
+     * sub results
+     *
+     * @param documents the documents to insert
+     * @param res       the sample result
+     * @return the summary of the operation
+     */
+    public String insert(List<DBObject> documents, SampleResult res) {
+        List<WriteStep> steps = new ArrayList<>();
+        int size = batchSize > 0 ? batchSize : Math.max(1, documents.size());
+        for (int i = 0; i < documents.size(); i += size) {
+            steps.add(new WriteStep(documents.subList(i, Math.min(documents.size(), i + size))));
+        }
+        return write(steps, res);
+    }
+
+    /**
+     * Update the documents matching a filter
+     *
+     * @param filter the filter
+     * @param update the update, or the replacement document
+     * @param upsert insert a document if none matches
+     * @param multi  update all the matching documents, not only the first one
+     * @param res    the sample result
+     * @return the summary of the operation
+     */
+    public String update(DBObject filter, DBObject update, boolean upsert, boolean multi, SampleResult res) {
+        int n = collection.update(filter, update, upsert, multi).getN();
+        res.latencyEnd();
+        return n + " documents updated";
+    }
+
+    /**
+     * Run write models, consecutive inserts being sent in batches of at most
+     * batch size documents. Each request is timed in a sub result.
+     *
+     * @param models the write models, see {@link #plan(List, int)}
+     * @param res    the sample result
+     * @return the summary of the operation
+     */
+    public String bulkWrite(List<DBObject> models, SampleResult res) {
+        return write(plan(models, batchSize), res);
+    }
+
+    private String write(List<WriteStep> steps, SampleResult res) {
+        long inserted = 0;
+        long updated = 0;
+        long deleted = 0;
+        boolean first = true;
+        for (WriteStep step : steps) {
+            SampleResult stepResult = new SampleResult();
+            stepResult.sampleStart();
+            String message;
+            switch (step.getModel()) {
+                case INSERT_ONE:
+                    collection.insert(step.getDocuments());
+                    inserted += step.getDocuments().size();
+                    message = step.getDocuments().size() + " documents inserted";
+                    break;
+                case DELETE_ONE:
+                    int removed = collection.findAndRemove(step.getFilter()) == null ? 0 : 1;
+                    deleted += removed;
+                    message = removed + " documents deleted";
+                    break;
+                case DELETE_MANY:
+                    int n = collection.remove(step.getFilter()).getN();
+                    deleted += n;
+                    message = n + " documents deleted";
+                    break;
+                default: // updates
+                    int matched = collection.update(step.getFilter(), step.getUpdate(), step.isUpsert(),
+                            UPDATE_MANY.equals(step.getModel())).getN();
+                    updated += matched;
+                    message = matched + " documents updated";
+                    break;
+            }
+            stepResult.sampleEnd();
+            if (first) {
+                res.latencyEnd();
+                first = false;
+            }
+            stepResult.setSuccessful(true);
+            stepResult.setResponseCodeOK();
+            stepResult.setResponseMessage(step.getModel() + ": " + message); // $NON-NLS-1$
+            stepResult.setResponseData(message, null);
+            stepResult.setDataType(SampleResult.TEXT);
+            res.addRawSubResult(stepResult); // labelled after the sample
+        }
+        if (steps.isEmpty()) {
+            res.latencyEnd();
+        }
+        return inserted + " inserted, " + updated + " updated, " + deleted + " deleted in "
+                + steps.size() + " requests";
+    }
+
+    private long read(Iterator<DBObject> documents, SampleResult res, StringBuilder out) {
+        long count = 0;
+        while ((limit <= 0 || count < limit) && documents.hasNext()) {
+            DBObject document = documents.next();
+            if (count++ == 0) {
+                res.latencyEnd();
+            }
+            if (out != null) {
+                out.append(document).append('\n');
+            }
+        }
+        if (count == 0) {
+            res.latencyEnd();
+        }
+        return count;
+    }
+
+    /**
+     * Group write models in the requests sent to the server. The models use
+     * the syntax of the <code>bulkWrite</code> method of the mongo shell:
+     * <code>{insertOne: {document: {...}}}</code>,
+     * <code>{updateOne|updateMany: {filter: {...}, update: {...}, upsert: true}}</code>,
+     * <code>{replaceOne: {filter: {...}, replacement: {...}}}</code> and
+     * <code>{deleteOne|deleteMany: {filter: {...}}}</code>.
+     *
+     * @param models    the write models
+     * @param batchSize maximum number of consecutive inserts sent in one
+     *                  request, <code>0</code> for no limit
+     * @return the requests
+     * @throws IllegalArgumentException if a model is not valid
+     */
+    static List<WriteStep> plan(List<DBObject> models, int batchSize) {
+        List<WriteStep> steps = new ArrayList<>();
+        List<DBObject> inserts = new ArrayList<>();
+        for (DBObject model : models) {
+            if (model.keySet().size() != 1) {
+                throw new IllegalArgumentException("A write model must have one operation: " + model);
+            }
+            String name = model.keySet().iterator().next();
+            DBObject arguments = toDocument(model.get(name), name);
+            if (INSERT_ONE.equals(name)) {
+                inserts.add(toDocument(arguments.get("document"), name + ".document")); // $NON-NLS-1$
+                if (inserts.size() == batchSize) {
+                    steps.add(new WriteStep(inserts));
+                    inserts = new ArrayList<>();
+                }
+                continue;
+            }
+            if (!inserts.isEmpty()) {
+                steps.add(new WriteStep(inserts));
+                inserts = new ArrayList<>();
+            }
+            DBObject filter = toDocument(arguments.get("filter"), name + ".filter"); // $NON-NLS-1$
+            boolean upsert = Boolean.TRUE.equals(arguments.get("upsert")); // $NON-NLS-1$
+            switch (name) {
+                case UPDATE_ONE:
+                case UPDATE_MANY:
+                    steps.add(new WriteStep(name, Collections.emptyList(), filter,
+                            toDocument(arguments.get("update"), name + ".update"), upsert)); // $NON-NLS-1$
+                    break;
+                case REPLACE_ONE:
+                    steps.add(new WriteStep(name, Collections.emptyList(), filter,
+                            toDocument(arguments.get("replacement"), name + ".replacement"), upsert)); // $NON-NLS-1$
+                    break;
+                case DELETE_ONE:
+                case DELETE_MANY:
+                    steps.add(new WriteStep(name, Collections.emptyList(), filter, null, false));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown write model: " + name);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            steps.add(new WriteStep(inserts));
+        }
+        return steps;
+    }
+
+    /**
+     * Parse a JSON template whose JMeter variables and functions have been
+     * replaced
+     *
+     * @param json a document, or an array of documents
+     * @return the documents, empty if the template is blank
+     * @throws IllegalArgumentException if the template is not a document or
+     *                                  an array of documents
+     */
+    public static List<DBObject> parseDocuments(String json) {
+        if (StringUtils.isBlank(json)) {
+            return Collections.emptyList();
+        }
+        Object parsed = JSON.parse(json);
+        List<DBObject> documents = new ArrayList<>();
+        if (parsed instanceof List) {
+            for (Object element : (List<?>) parsed) {
+                documents.add(toDocument(element, "array element")); // $NON-NLS-1$
+            }
+        } else {
+            documents.add(toDocument(parsed, "template")); // $NON-NLS-1$
+        }
+        return documents;
+    }
+
+    /**
+     * Parse a JSON template whose JMeter variables and functions have been
+     * replaced
+     *
+     * @param json a document
+     * @return the document, or <code>null</code> if the template is blank
+     * @throws IllegalArgumentException if the template is not a document
+     */
+    public static DBObject parseDocument(String json) {
+        if (StringUtils.isBlank(json)) {
+            return null;
+        }
+        return toDocument(JSON.parse(json), "template"); // $NON-NLS-1$
+    }
+
+    private static DBObject toDocument(Object value, String name) {
+        if (value == null) {
+            if (name.endsWith(".filter")) { // $NON-NLS-1$
+                return new BasicDBObject();
+            }
+            throw new IllegalArgumentException("Missing document: " + name);
+        }
+        if (!(value instanceof DBObject) || value instanceof List) {
+            throw new IllegalArgumentException("Not a document: " + name + " = " + value);
+        }
+        return (DBObject) value;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.mongodb.sampler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.jmeter.protocol.mongodb.config.MongoSourceElement;
+import org.apache.jmeter.protocol.mongodb.mongo.MongoDB;
+import org.apache.jmeter.samplers.AbstractSampler;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testbeans.TestBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Runs a native find, insert, update, aggregate or bulk write operation on a
+ * collection, using the connection of a {@link MongoSourceElement}. The
+ * documents are JSON templates in which JMeter variables and functions are
+ * replaced before each sample.
+ * <p>
+ * The connect time of the sample is the time to get the database, the
+ * latency the time to the first batch of documents read, or to the first
+ * write request.
+ *
+ * @since 5.1
+ */
+public class MongoOperationSampler
+    extends AbstractSampler
+        implements TestBean {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(MongoOperationSampler.class);
+
+    private String source;
+    private String database;
+    private String username;
+    private String password;
+    private String collection;
+    private String operation;
+    private String query;
+    private String projection;
+    private String sort;
+    private String update;
+    private boolean upsert;
+    private boolean multi;
+    private int batchSize;
+    private int limit;
+    private boolean storeDocuments;
+
+    @Override
+    public SampleResult sample(Entry e) {
+        SampleResult res = new SampleResult();
+        res.setSampleLabel(getName());
+        res.setSamplerData(getSamplerData());
+        res.setDataType(SampleResult.TEXT);
+        res.setContentType("text/plain"); // $NON-NLS-1$
+        Templates templates;
+        try {
+            // Parsing the templates is not part of the operation timed
+            templates = new Templates(getOperation(), getQuery(), getProjection(), getSort(), getUpdate());
+        } catch (RuntimeException ex) { // NOSONAR JSONParseException is a runtime exception
+            res.sampleStart();
+            res.sampleEnd();
+            setError(res, ex);
+            return res;
+        }
+        res.sampleStart();
+        try {
+            MongoDB mongoDB = MongoSourceElement.getMongoDB(getSource());
+            DB db = mongoDB.getDB(getDatabase(), getUsername(), getPassword());
+            DBCollection coll = db.getCollection(getCollection());
+            res.connectEnd();
+            MongoOperationRunner runner = new MongoOperationRunner(coll, getBatchSize(), getLimit());
+            StringBuilder documents = getStoreDocuments() ? new StringBuilder() : null;
+            String summary;
+            switch (getOperation()) {
+                case MongoOperationRunner.FIND:
+                    summary = runner.find(templates.query, templates.projection, templates.sort, res, documents);
+                    break;
+                case MongoOperationRunner.AGGREGATE:
+                    summary = runner.aggregate(templates.documents, res, documents);
+                    break;
+                case MongoOperationRunner.INSERT:
+                    summary = runner.insert(templates.documents, res);
+                    break;
+                case MongoOperationRunner.UPDATE:
+                    summary = runner.update(templates.query, templates.update, getUpsert(), getMulti(), res);
+                    break;
+                default: // BULK_WRITE, other operations were rejected by Templates
+                    summary = runner.bulkWrite(templates.documents, res);
+                    break;
+            }
+            res.sampleEnd();
+            res.setResponseCodeOK();
+            res.setSuccessful(true);
+            res.setResponseMessage(summary);
+            if (documents != null) {
+                res.setResponseData(documents.toString().getBytes(StandardCharsets.UTF_8));
+                res.setDataEncoding(StandardCharsets.UTF_8.name());
+            } else {
+                res.setResponseData(summary, null);
+            }
+        } catch (Exception ex) { // NOSONAR MongoException is a runtime exception
+            if (res.getEndTime() == 0) {
+                res.sampleEnd();
+            }
+            setError(res, ex);
+        }
+        return res;
+    }
+
+    private void setError(SampleResult res, Exception ex) {
+        log.debug("Error running {} on {}", getOperation(), getCollection(), ex);
+        res.setResponseCode("500"); // $NON-NLS-1$
+        res.setSuccessful(false);
+        res.setResponseMessage(ex.toString());
+        res.setResponseData(String.valueOf(ex.getMessage()), null);
+    }
+
+    /**
+     * Documents of an operation, parsed from its JSON templates.
+     * Visible for tests.
+     */
+    static final class Templates {
+        final DBObject query;
+        final DBObject projection;
+        final DBObject sort;
+        final DBObject update;
+        final List<DBObject> documents;
+
+        Templates(String operation, String query, String projection, String sort, String update) {
+            switch (operation) {
+                case MongoOperationRunner.FIND:
+                    this.query = MongoOperationRunner.parseDocument(query);
+                    this.projection = MongoOperationRunner.parseDocument(projection);
+                    this.sort = MongoOperationRunner.parseDocument(sort);
+                    this.update = null;
+                    this.documents = null;
+                    break;
+                case MongoOperationRunner.UPDATE:
+                    this.query = MongoOperationRunner.parseDocument(query);
+                    this.projection = null;
+                    this.sort = null;
+                    this.update = MongoOperationRunner.parseDocument(update);
+                    this.documents = null;
+                    break;
+                case MongoOperationRunner.AGGREGATE:
+                case MongoOperationRunner.INSERT:
+                case MongoOperationRunner.BULK_WRITE:
+                    this.query = null;
+                    this.projection = null;
+                    this.sort = null;
+                    this.update = null;
+                    this.documents = MongoOperationRunner.parseDocuments(query);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation: " + operation);
+            }
+        }
+    }
+
+    private String getSamplerData() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getDatabase()).append('.').append(getCollection()).append('.').append(getOperation())
+            .append('\n').append(getQuery());
+        if (MongoOperationRunner.UPDATE.equals(getOperation())) {
+            sb.append('\n').append(getUpdate());
+        }
+        return sb.toString();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public void setDatabase(String database) {
+        this.database = database;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * @return the filter of find and update, the documents of insert, the
+     *         pipeline of aggregate or the write models of bulkWrite
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public String getProjection() {
+        return projection;
+    }
+
+    public void setProjection(String projection) {
+        this.projection = projection;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public String getUpdate() {
+        return update;
+    }
+
+    public void setUpdate(String update) {
+        this.update = update;
+    }
+
+    public boolean getUpsert() {
+        return upsert;
+    }
+
+    public void setUpsert(boolean upsert) {
+        this.upsert = upsert;
+    }
+
+    public boolean getMulti() {
+        return multi;
+    }
+
+    public void setMulti(boolean multi) {
+        this.multi = multi;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean getStoreDocuments() {
+        return storeDocuments;
+    }
+
+    public void setStoreDocuments(boolean storeDocuments) {
+        this.storeDocuments = storeDocuments;
+    }
+}
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jmeter.config.Argument;
@@ -37,7 +38,9 @@ import org.apache.jmeter.samplers.Entry;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.util.IdleConnectionPool;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.exec.SystemCommand;
 import org.slf4j.Logger;
@@ -46,10 +49,18 @@ import org.slf4j.LoggerFactory;
 /**
  * A sampler for executing a System function. 
  */
-public class SystemSampler extends AbstractSampler {
+public class SystemSampler extends AbstractSampler implements TestStateListener {
 
     private static final int POLL_INTERVAL = JMeterUtils.getPropDefault("os_sampler.poll_for_timeout", SystemCommand.POLL_INTERVAL);
 
+    /**
+     * Idle worker processes, shared by all the threads
+     */
+    private static final IdleConnectionPool<WorkerProcess> workers = new IdleConnectionPool<>(
+            JMeterUtils.getPropDefault("os_sampler.worker.max_idle", 60000L), // $NON-NLS-1$
+            JMeterUtils.getPropDefault("os_sampler.worker.pool_size", 0), // $NON-NLS-1$
+            WorkerProcess::close);
+
     private static final long serialVersionUID = 1;
     
     // + JMX names, do not change their values
@@ -73,6 +84,10 @@ public class SystemSampler extends AbstractSampler {
 
     private static final String TIMEOUT = "SystemSampler.timeout";
 
+    private static final String WORKER_PROTOCOL = "SystemSampler.workerProtocol";
+
+    private static final String WORKER_REQUEST = "SystemSampler.workerRequest";
+
     // - JMX names
 
     /**
@@ -145,6 +160,10 @@ public class SystemSampler extends AbstractSampler {
                     " with environment: "+env);
         }
 
+        if (!StringUtils.isEmpty(getWorkerProtocol())) {
+            return sampleWorker(results, cmds, cmdLine.toString(), directory, env);
+        }
+
         results.setSamplerData("Working Directory: "+directory.getAbsolutePath()+
                 "\nEnvironment: "+env+
                 "\nExecuting: " + cmdLine.toString());
@@ -188,6 +207,86 @@ public class SystemSampler extends AbstractSampler {
         return results;
     }
     
+    /**
+     * Send the request to a worker process kept alive between samples,
+     * spawning it if no worker with the same command is idle. The connect time
+     * of the sample is the time to spawn the worker, 0 when a worker is
+     * reused.
+     */
+    private SampleResult sampleWorker(SampleResult results, List<String> cmds, String cmdLine,
+            File directory, Map<String, String> env) {
+        String request = getWorkerRequest();
+        results.setSamplerData("Working Directory: "+directory.getAbsolutePath()+
+                "\nEnvironment: "+env+
+                "\nWorker: " + cmdLine+
+                "\nRequest: " + request);
+        String key = String.join("\n", // $NON-NLS-1$
+                getWorkerProtocol(), directory.getAbsolutePath(), new TreeMap<>(env).toString(), getStderr(), cmdLine);
+        byte[] requestBytes = request.getBytes(); // default charset is deliberate here
+        if (WorkerProcess.LINE.equals(getWorkerProtocol()) && WorkerProcess.containsNewLine(requestBytes)) {
+            results.setSuccessful(false);
+            results.setResponseCode("500"); //$NON-NLS-1$
+            results.setResponseMessage("The request contains a new line, use the length protocol to send it");
+            return results;
+        }
+        WorkerProcess worker = null;
+        try {
+            results.sampleStart();
+            worker = workers.borrow(key);
+            while (worker != null && !worker.isAlive()) {
+                worker.close();
+                worker = workers.borrow(key);
+            }
+            if (worker == null) {
+                worker = WorkerProcess.start(cmds, directory, env, getStderr(), getWorkerProtocol());
+            }
+            results.connectEnd();
+            byte[] response = worker.request(requestBytes, getTimeout(), results);
+            results.sampleEnd();
+            if (!worker.hasTimedOut()) {
+                workers.giveBack(key, worker);
+                worker = null;
+            }
+            results.setResponseCode(Integer.toString(DEFAULT_RETURN_CODE));
+            results.setResponseMessage("OK");
+            results.setSuccessful(true);
+            results.setResponseData(response);
+        } catch (IOException ioe) {
+            if (results.getEndTime() == 0) {
+                results.sampleEnd();
+            }
+            results.setSuccessful(false);
+            results.setResponseCode("500"); //$NON-NLS-1$
+            results.setResponseMessage("Exception occurred whilst sending request to worker: " + ioe);
+        } finally {
+            if (worker != null) {
+                worker.close();
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void testStarted() {
+        testStarted(""); // $NON-NLS-1$
+    }
+
+    @Override
+    public void testStarted(String host) {
+        // ignored
+    }
+
+    @Override
+    public void testEnded() {
+        testEnded(""); // $NON-NLS-1$
+    }
+
+    // Ensure the workers exit
+    @Override
+    public void testEnded(String host) {
+        workers.close();
+    }
+
     /**
      * @see org.apache.jmeter.samplers.AbstractSampler#applies(org.apache.jmeter.config.ConfigTestElement)
      */
@@ -329,4 +428,28 @@ public class SystemSampler extends AbstractSampler {
     public void setTimout(long timeoutMs) {
         setProperty(TIMEOUT, timeoutMs, 0L);
     }
+
+    /**
+     * @return {@link WorkerProcess#LINE} or {@link WorkerProcess#LENGTH} to
+     *         send requests to a worker process kept alive between samples,
+     *         empty to run the command for each sample
+     */
+    public String getWorkerProtocol() {
+        return getPropertyAsString(WORKER_PROTOCOL, "");
+    }
+
+    public void setWorkerProtocol(String protocol) {
+        setProperty(WORKER_PROTOCOL, protocol, "");
+    }
+
+    /**
+     * @return the request sent to the worker process
+     */
+    public String getWorkerRequest() {
+        return getPropertyAsString(WORKER_REQUEST, "");
+    }
+
+    public void setWorkerRequest(String request) {
+        setProperty(WORKER_REQUEST, request, "");
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.system;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-running process answering requests sent to its standard input with
+ * responses written to its standard output, so that a process is not spawned
+ * for each sample.
+ * <p>
+ * With the {@link #LINE} protocol a request is written followed by a new
+ * line, and the response is the next line read. With the {@link #LENGTH}
+ * protocol requests and responses are preceded by their length in bytes, as
+ * a 4 bytes big-endian integer.
+ * <p>
+ * A worker is used by one thread at a time.
+ *
+ * @since 5.1
+ */
+public class WorkerProcess implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerProcess.class);
+
+    /** Requests and responses are lines */
+    public static final String LINE = "line"; // $NON-NLS-1$
+
+    /** Requests and responses are preceded by their length */
+    public static final String LENGTH = "length"; // $NON-NLS-1$
+
+    // Destroys the workers which do not answer in time
+    private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+
+    private final Process process;
+
+    private final boolean lengthPrefixed;
+
+    private final DataOutputStream toWorker;
+
+    private final DataInputStream fromWorker;
+
+    private volatile boolean timedOut;
+
+    private WorkerProcess(Process process, boolean lengthPrefixed) {
+        this.process = process;
+        this.lengthPrefixed = lengthPrefixed;
+        this.toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        this.fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "WorkerProcess watchdog"); // $NON-NLS-1$
+            t.setDaemon(true);
+            return t;
+        });
+        // Most requests are answered in time, don't keep their cancelled
+        // timeouts in the queue until they expire
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    /**
+     * Visible for tests
+     *
+     * @return the number of timeouts waiting to expire
+     */
+    static int getPendingTimeouts() {
+        return WATCHDOG.getQueue().size();
+    }
+
+    /**
+     * Spawn a worker
+     *
+     * @param arguments command and arguments of the worker
+     * @param directory working directory of the worker
+     * @param env       environment variables appended to the environment
+     * @param stderr    file to which the error output of the worker is
+     *                  appended, if empty it goes to the error output of JMeter
+     * @param protocol  {@link #LINE} or {@link #LENGTH}
+     * @return the started worker
+     * @throws IOException when the worker cannot be started
+     */
+    public static WorkerProcess start(List<String> arguments, File directory, Map<String, String> env,
+            String stderr, String protocol) throws IOException {
+        if (!LINE.equals(protocol) && !LENGTH.equals(protocol)) {
+            throw new IllegalArgumentException("Unknown worker protocol: " + protocol);
+        }
+        ProcessBuilder procBuild = new ProcessBuilder(arguments);
+        procBuild.environment().putAll(env);
+        procBuild.directory(directory);
+        if (StringUtils.isBlank(stderr)) {
+            procBuild.redirectError(ProcessBuilder.Redirect.INHERIT);
+        } else {
+            procBuild.redirectError(ProcessBuilder.Redirect.appendTo(new File(stderr)));
+        }
+        log.debug("Starting worker {}", arguments);
+        return new WorkerProcess(procBuild.start(), LENGTH.equals(protocol));
+    }
+
+    /**
+     * Send a request and wait for the response. The latency of the sample
+     * ends when the response starts to be read.
+     *
+     * @param request       the request, which must not contain a new line
+     *                      with the line protocol
+     * @param timeoutMillis time to wait for the response, 0 or less for no
+     *                      limit. A worker which does not answer in time is
+     *                      destroyed, see {@link #hasTimedOut()}.
+     * @param res           the sample, whose latency is set
+     * @return the response
+     * @throws IOException when the worker has exited, or did not answer in time
+     * @throws IllegalArgumentException when the request contains a new line
+     *                      with the line protocol
+     */
+    public byte[] request(byte[] request, long timeoutMillis, SampleResult res) throws IOException {
+        if (!lengthPrefixed && containsNewLine(request)) {
+            throw new IllegalArgumentException("The line protocol cannot send a request containing a new line");
+        }
+        ScheduledFuture<?> watchdog = null;
+        if (timeoutMillis > 0) {
+            watchdog = WATCHDOG.schedule(() -> {
+                timedOut = true;
+                process.destroyForcibly();
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            if (lengthPrefixed) {
+                toWorker.writeInt(request.length);
+                toWorker.write(request);
+            } else {
+                toWorker.write(request);
+                toWorker.write('\n');
+            }
+            toWorker.flush();
+            return lengthPrefixed ? readLengthPrefixed(res) : readLine(res);
+        } catch (IOException e) {
+            if (timedOut) {
+                InterruptedIOException timeout = new InterruptedIOException(
+                        "Worker did not answer in " + timeoutMillis + " milliseconds");
+                timeout.initCause(e);
+                throw timeout;
+            }
+            throw e;
+        } finally {
+            // The watchdog may have started after the response was read
+            if (watchdog != null && !watchdog.cancel(false)) {
+                timedOut = true;
+            }
+        }
+    }
+
+    /**
+     * @param request the request
+     * @return <code>true</code> if the request cannot be sent with the
+     *         {@link #LINE} protocol
+     */
+    public static boolean containsNewLine(byte[] request) {
+        for (byte b : request) {
+            if (b == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] readLengthPrefixed(SampleResult res) throws IOException {
+        int length = fromWorker.readInt();
+        res.latencyEnd();
+        if (length < 0) {
+            throw new IOException("Invalid response length: " + length);
+        }
+        byte[] response = new byte[length];
+        fromWorker.readFully(response);
+        return response;
+    }
+
+    private byte[] readLine(SampleResult res) throws IOException {
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        int b = fromWorker.read();
+        res.latencyEnd();
+        while (b != '\n') {
+            if (b < 0) {
+                throw new EOFException("Worker exited before the end of the response");
+            }
+            response.write(b);
+            b = fromWorker.read();
+        }
+        byte[] line = response.toByteArray();
+        if (line.length > 0 && line[line.length - 1] == '\r') {
+            byte[] withoutCr = new byte[line.length - 1];
+            System.arraycopy(line, 0, withoutCr, 0, withoutCr.length);
+            return withoutCr;
+        }
+        return line;
+    }
+
+    /**
+     * @return <code>true</code> if the watchdog destroyed the worker, or is
+     *         destroying it, as it did not answer in time. The worker must
+     *         then be closed, even if its response was read.
+     */
+    public boolean hasTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return <code>true</code> if the worker has not exited
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Close the standard input of the worker, which should make it exit, then
+     * destroy it
+     */
+    @Override
+    public void close() {
+        try {
+            toWorker.close();
+        } catch (IOException e) {
+            log.debug("Error closing the input of the worker", e);
+        }
+        try {
+            if (!process.waitFor(100, TimeUnit.MILLISECONDS)) {
+                process.destroy();
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.jmeter.protocol.system.gui;
 import java.awt.BorderLayout;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
+import java.util.Arrays;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -35,9 +36,11 @@ import org.apache.jmeter.config.gui.ArgumentsPanel;
 import org.apache.jmeter.gui.util.FilePanelEntry;
 import org.apache.jmeter.gui.util.VerticalPanel;
 import org.apache.jmeter.protocol.system.SystemSampler;
+import org.apache.jmeter.protocol.system.WorkerProcess;
 import org.apache.jmeter.samplers.gui.AbstractSamplerGui;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.gui.JLabeledChoice;
 import org.apache.jorphan.gui.JLabeledTextField;
 import org.apache.jorphan.gui.ObjectTableModel;
 import org.apache.jorphan.reflect.Functor;
@@ -54,7 +57,13 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
      * 
      */
     private static final long serialVersionUID = -2413845772703695934L;
-    
+
+    // Worker protocols, in the order of the process mode choices
+    private static final String[] WORKER_PROTOCOLS = {
+            "", // $NON-NLS-1$
+            WorkerProcess.LINE,
+            WorkerProcess.LENGTH };
+
     private JCheckBox checkReturnCode;
     private JLabeledTextField desiredReturnCode;
     private final FilePanelEntry stdin = new FilePanelEntry(JMeterUtils.getResString("system_sampler_stdin")); // $NON-NLS-1$
@@ -63,6 +72,8 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
     private final FilePanelEntry directory = new FilePanelEntry(JMeterUtils.getResString("directory_field_title"), true); // $NON-NLS-1$
     private final FilePanelEntry command = new FilePanelEntry(JMeterUtils.getResString("command_field_title")); // $NON-NLS-1$
     private JLabeledTextField timeout;
+    private JLabeledChoice workerProtocol;
+    private JLabeledTextField workerRequest;
     private ArgumentsPanel argsPanel;
     private ArgumentsPanel envPanel;
     
@@ -97,7 +108,10 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         JPanel streamsCodePane = new JPanel(new BorderLayout());
         streamsCodePane.add(makeStreamsPanel(), BorderLayout.NORTH);
         streamsCodePane.add(makeReturnCodePanel(), BorderLayout.CENTER);
-        streamsCodePane.add(makeTimeoutPanel(), BorderLayout.SOUTH);
+        JPanel timeoutWorkerPane = new JPanel(new BorderLayout());
+        timeoutWorkerPane.add(makeTimeoutPanel(), BorderLayout.NORTH);
+        timeoutWorkerPane.add(makeWorkerPanel(), BorderLayout.SOUTH);
+        streamsCodePane.add(timeoutWorkerPane, BorderLayout.SOUTH);
         add(streamsCodePane, BorderLayout.SOUTH);
     }
 
@@ -137,6 +151,8 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
                 log.error("Error parsing timeout field value:"+timeout.getText(), e);
             }
         } 
+        systemSampler.setWorkerProtocol(WORKER_PROTOCOLS[Math.max(0, workerProtocol.getSelectedIndex())]);
+        systemSampler.setWorkerRequest(workerRequest.getText());
     }
 
     /* Overrides AbstractJMeterGuiComponent.configure(TestElement) */
@@ -156,6 +172,9 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         stderr.setFilename(systemSampler.getStderr());
         timeout.setText(systemSampler.getTimeout() == 0L ? "":  // $NON-NLS-1$
             Long.toString(systemSampler.getTimeout())); // not sure if replace 0L to empty string is the good way.
+        workerProtocol.setSelectedIndex(Math.max(0,
+                Arrays.asList(WORKER_PROTOCOLS).indexOf(systemSampler.getWorkerProtocol())));
+        workerRequest.setText(systemSampler.getWorkerRequest());
     }
 
     /**
@@ -193,6 +212,27 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         return panel;
     }
     
+    /**
+     * @return JPanel worker process config
+     */
+    private JPanel makeWorkerPanel() {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
+        panel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createEtchedBorder(),
+                JMeterUtils.getResString("system_sampler_worker_box_title"))); // $NON-NLS-1$
+        workerProtocol = new JLabeledChoice(JMeterUtils.getResString("system_sampler_worker_protocol"), // $NON-NLS-1$
+                new String[] {
+                        JMeterUtils.getResString("system_sampler_worker_none"), // $NON-NLS-1$
+                        JMeterUtils.getResString("system_sampler_worker_line"), // $NON-NLS-1$
+                        JMeterUtils.getResString("system_sampler_worker_length") }); // $NON-NLS-1$
+        workerRequest = new JLabeledTextField(JMeterUtils.getResString("system_sampler_worker_request")); // $NON-NLS-1$
+        panel.add(workerProtocol);
+        panel.add(Box.createHorizontalStrut(5));
+        panel.add(workerRequest);
+        return panel;
+    }
+
     /**
      * @return JPanel Command + directory
      */
@@ -270,6 +310,8 @@ public class SystemSamplerGui extends AbstractSamplerGui implements ItemListener
         stdout.clearGui();
         stderr.clearGui();
         timeout.setText(""); // $NON-NLS-1$
+        workerProtocol.setSelectedIndex(0);
+        workerRequest.setText(""); // $NON-NLS-1$
     }
 
     @Override
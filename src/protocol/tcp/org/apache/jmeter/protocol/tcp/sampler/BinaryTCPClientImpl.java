@@ -50,6 +50,9 @@ public class BinaryTCPClientImpl extends AbstractTCPClient {
 
     private static final int EOM_INT = JMeterUtils.getPropDefault("tcp.BinaryTCPClient.eomByte", 1000); // $NON_NLS-1$
 
+    // read buffer, reused as the client is used by a single thread
+    private final byte[] buffer = new byte[4096];
+
     public BinaryTCPClientImpl() {
         super();
         setEolByte(EOM_INT);
@@ -128,7 +131,6 @@ public class BinaryTCPClientImpl extends AbstractTCPClient {
     public String read(InputStream is, SampleResult sampleResult) throws ReadException {
         ByteArrayOutputStream w = new ByteArrayOutputStream();
         try {
-            byte[] buffer = new byte[4096];
             int x = 0;
             boolean first = true;
             while ((x = is.read(buffer)) > -1) {
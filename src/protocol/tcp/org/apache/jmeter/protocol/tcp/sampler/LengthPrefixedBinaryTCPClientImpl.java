@@ -109,6 +109,13 @@ public class LengthPrefixedBinaryTCPClientImpl extends TCPClientDecorator {
         }
     }
 
+    /**
+     * @return length in bytes of the length prefix of the messages
+     */
+    protected int getLengthPrefixLength() {
+        return lengthPrefixLen;
+    }
+
     /**
      * Not useful, as the byte is never used.
      * <p>
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.IOException;
+
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * {@link TCPClient} which manages its own connections, shared by the threads
+ * of the test, instead of reading and writing the socket of the thread.
+ * <p>
+ * {@link TCPSampler} calls {@link #exchange(String, int, int, int, boolean, String, SampleResult)}
+ * instead of opening a socket when its protocol handler implements this interface.
+ *
+ * @since 5.1
+ */
+public interface MultiplexedTCPClient extends TCPClient {
+
+    /**
+     * Sends a request on a connection shared with the other threads and waits
+     * for its response.
+     *
+     * @param server         name or address of the server
+     * @param port           port of the server
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     * @param timeout        response timeout in milliseconds, 0 for none
+     * @param noDelay        whether to set TCP_NODELAY on new connections
+     * @param request        request, encoded as for {@link TCPClient#write(java.io.OutputStream, String)}
+     * @param sampleResult   {@link SampleResult} whose connect time and latency are set
+     * @return response, encoded as by {@link TCPClient#read(java.io.InputStream, SampleResult)}
+     * @throws IOException   when connecting or sending fails
+     * @throws ReadException when no response is received
+     */
+    String exchange(String server, int port, int connectTimeout, int timeout, boolean noDelay,
+            String request, SampleResult sampleResult) throws IOException, ReadException;
+
+    /**
+     * Stops waiting for the response of the current exchange of the thread.
+     *
+     * @return true if an exchange was waiting for its response
+     */
+    boolean interrupt();
+}
@@ -0,0 +1,431 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jorphan.util.JOrphanUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non blocking connections carrying length-prefixed messages, shared by all
+ * the threads of a test.
+ * <p>
+ * Requests are pipelined: a thread writes its request without waiting for
+ * the responses of the other threads, and responses are matched to requests
+ * in the order in which the requests were written, so the server must answer
+ * the requests of a connection in order.
+ * <p>
+ * A single selector thread reads all the connections into direct buffers
+ * reused for the life of the connection. Writes are done by the sampling
+ * thread while the socket accepts them, and by the selector thread
+ * otherwise.
+ */
+final class NioConnectionPool implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(NioConnectionPool.class);
+
+    private static final Object LOCK = new Object();
+
+    // guarded by LOCK
+    private static NioConnectionPool instance;
+    private static int users;
+
+    private final int connectionsPerServer;
+    private final int bufferSize;
+    private final int lengthPrefixLength;
+    private final int maxResponseSize;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<String, NioConnection[]> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private volatile boolean running = true;
+
+    // Visible for tests, samplers share the pool given by acquire
+    NioConnectionPool(int connectionsPerServer, int bufferSize, int lengthPrefixLength, int maxResponseSize)
+            throws IOException {
+        this.connectionsPerServer = connectionsPerServer;
+        this.bufferSize = bufferSize;
+        this.lengthPrefixLength = lengthPrefixLength;
+        this.maxResponseSize = maxResponseSize;
+        this.selector = Selector.open();
+        Thread thread = new Thread(this, "TCP NIO selector"); // $NON-NLS-1$
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the pool of the running test, creating it for its first user.
+     *
+     * @param connectionsPerServer number of connections opened to each server
+     * @param bufferSize size in bytes of the buffers of each connection
+     * @param lengthPrefixLength length in bytes of the length prefix of the messages
+     * @param maxResponseSize maximum length in bytes of a response, a longer
+     *                        length prefix fails its connection
+     * @return pool to give back with {@link #release(NioConnectionPool)}
+     * @throws IOException when the selector cannot be opened
+     */
+    static NioConnectionPool acquire(int connectionsPerServer, int bufferSize, int lengthPrefixLength,
+            int maxResponseSize) throws IOException {
+        synchronized (LOCK) {
+            if (instance == null) {
+                instance = new NioConnectionPool(connectionsPerServer, bufferSize, lengthPrefixLength,
+                        maxResponseSize);
+            }
+            users++;
+            return instance;
+        }
+    }
+
+    /**
+     * Gives back a pool, which closes its connections once all its users
+     * gave it back.
+     *
+     * @param pool pool returned by {@link #acquire(int, int, int, int)}
+     */
+    static void release(NioConnectionPool pool) {
+        synchronized (LOCK) {
+            if (pool != instance) {
+                return;
+            }
+            users--;
+            if (users == 0) {
+                instance = null;
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * @param host name or address of the server
+     * @param port port of the server
+     * @param connectTimeout connect timeout in milliseconds, 0 for none
+     * @param noDelay whether to set TCP_NODELAY on a new connection
+     * @return one of the connections to the server, connected if needed
+     * @throws IOException when connecting fails
+     */
+    NioConnection getConnection(String host, int port, int connectTimeout, boolean noDelay) throws IOException {
+        NioConnection[] slots = connections.computeIfAbsent(host + ':' + port,
+                k -> new NioConnection[connectionsPerServer]);
+        int index = Math.floorMod(nextConnection.getAndIncrement(), slots.length);
+        synchronized (slots) {
+            NioConnection connection = slots[index];
+            if (connection == null || connection.isClosed()) {
+                connection = connect(new InetSocketAddress(host, port), connectTimeout, noDelay);
+                slots[index] = connection;
+            }
+            return connection;
+        }
+    }
+
+    private NioConnection connect(InetSocketAddress address, int connectTimeout, boolean noDelay)
+            throws IOException {
+        if (!running) {
+            throw new IOException("Connection pool is closed");
+        }
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, noDelay);
+            channel.socket().connect(address, connectTimeout);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            JOrphanUtils.closeQuietly(channel);
+            throw e;
+        }
+        log.debug("Connected {}", channel);
+        NioConnection connection = new NioConnection(channel);
+        execute(connection::register);
+        return connection;
+    }
+
+    /**
+     * Runs a task on the selector thread, which owns the selection keys
+     */
+    private void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    // Visible for tests
+    void close() {
+        running = false;
+        for (NioConnection[] slots : connections.values()) {
+            synchronized (slots) {
+                for (NioConnection connection : slots) {
+                    if (connection != null) {
+                        connection.fail(new IOException("Connection pool is closed"));
+                    }
+                }
+            }
+        }
+        connections.clear();
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        connection.fail(e);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            log.error("TCP NIO selector stopped", e);
+        } finally {
+            JOrphanUtils.closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Request waiting for its response
+     */
+    static final class Exchange extends CompletableFuture<byte[]> {
+        private volatile long firstByteNanos;
+
+        /**
+         * @return {@link System#nanoTime()} when the length prefix of the
+         *         response was read, 0 until then
+         */
+        long getFirstByteNanos() {
+            return firstByteNanos;
+        }
+    }
+
+    final class NioConnection {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer;
+        // bytes not yet accepted by the socket are between position and limit
+        private final ByteBuffer writeBuffer;
+        private final byte[] prefix = new byte[lengthPrefixLength];
+        // guarded by this
+        private final Deque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private boolean writeInterest;
+        private IOException failure;
+        // in the order of the requests written
+        private final Queue<Exchange> pendingExchanges = new ConcurrentLinkedQueue<>();
+        // accessed by the selector thread only
+        private SelectionKey key;
+        private byte[] body;
+        private int bodyPosition;
+
+        NioConnection(SocketChannel channel) {
+            this.channel = channel;
+            this.readBuffer = ByteBuffer.allocateDirect(bufferSize);
+            this.writeBuffer = ByteBuffer.allocateDirect(bufferSize);
+            writeBuffer.flip();
+        }
+
+        synchronized boolean isClosed() {
+            return failure != null;
+        }
+
+        /**
+         * Writes a request, or queues what the socket does not accept yet.
+         *
+         * @param message request without its length prefix
+         * @return exchange completed by the response
+         * @throws IOException when the connection is closed or writing fails
+         */
+        Exchange send(byte[] message) throws IOException {
+            byte[] frame = new byte[lengthPrefixLength + message.length];
+            System.arraycopy(TCPClientDecorator.intToByteArray(message.length, lengthPrefixLength), 0,
+                    frame, 0, lengthPrefixLength);
+            System.arraycopy(message, 0, frame, lengthPrefixLength, message.length);
+            Exchange exchange = new Exchange();
+            try {
+                synchronized (this) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    pendingExchanges.add(exchange);
+                    pendingWrites.add(ByteBuffer.wrap(frame));
+                    if (!writePending() && !writeInterest) {
+                        writeInterest = true;
+                        execute(() -> setInterest(SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+                    }
+                }
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+            return exchange;
+        }
+
+        /**
+         * Copies the queued requests into the direct write buffer and writes
+         * them until the socket stops accepting bytes.
+         *
+         * @return true if everything was written
+         */
+        private boolean writePending() throws IOException { // NOSONAR called with the lock held
+            while (true) {
+                if (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                    if (writeBuffer.hasRemaining()) {
+                        return false;
+                    }
+                }
+                ByteBuffer next = pendingWrites.peek();
+                if (next == null) {
+                    return true;
+                }
+                writeBuffer.clear();
+                int count = Math.min(writeBuffer.remaining(), next.remaining());
+                writeBuffer.put(next.array(), next.arrayOffset() + next.position(), count);
+                writeBuffer.flip();
+                next.position(next.position() + count);
+                if (!next.hasRemaining()) {
+                    pendingWrites.poll();
+                }
+            }
+        }
+
+        private void register() {
+            try {
+                key = channel.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void setInterest(int ops) {
+            if (key != null && key.isValid()) {
+                key.interestOps(ops);
+            }
+        }
+
+        private void flush() throws IOException {
+            synchronized (this) {
+                if (writePending()) {
+                    writeInterest = false;
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        private void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                throw new EOFException("Connection closed by the server");
+            }
+            readBuffer.flip();
+            while (decode()) {
+                // next response
+            }
+            readBuffer.compact();
+        }
+
+        /**
+         * @return true if a complete response was read from the buffer
+         */
+        private boolean decode() throws IOException {
+            if (body == null) {
+                if (readBuffer.remaining() < prefix.length) {
+                    return false;
+                }
+                readBuffer.get(prefix);
+                int length = TCPClientDecorator.byteArrayToInt(prefix);
+                if (length < 0) {
+                    throw new IOException("Invalid length prefix: " + length);
+                }
+                if (length > maxResponseSize) {
+                    // don't trust the prefix to allocate the body
+                    throw new IOException("Length prefix " + length
+                            + " exceeds the maximum response size " + maxResponseSize);
+                }
+                Exchange head = pendingExchanges.peek();
+                if (head != null) {
+                    head.firstByteNanos = System.nanoTime();
+                }
+                body = new byte[length];
+                bodyPosition = 0;
+            }
+            int count = Math.min(readBuffer.remaining(), body.length - bodyPosition);
+            readBuffer.get(body, bodyPosition, count);
+            bodyPosition += count;
+            if (bodyPosition < body.length) {
+                return false;
+            }
+            Exchange exchange = pendingExchanges.poll();
+            if (exchange == null) {
+                log.warn("Ignoring response of {} bytes without request from {}", body.length, channel);
+            } else {
+                exchange.complete(body);
+            }
+            body = null;
+            return true;
+        }
+
+        /**
+         * Closes the connection and fails the requests waiting for a response
+         *
+         * @param cause reason of the failure
+         */
+        void fail(Exception cause) {
+            IOException exception = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            synchronized (this) {
+                if (failure == null) {
+                    failure = exception;
+                    log.debug("Closing {}", channel, cause);
+                }
+                pendingWrites.clear();
+            }
+            JOrphanUtils.closeQuietly(channel);
+            Exchange exchange;
+            while ((exchange = pendingExchanges.poll()) != null) {
+                exchange.completeExceptionally(exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * Length-prefixed binary client whose connections are shared by all the
+ * threads of the test and pipelined: the threads write their requests on a
+ * few non blocking connections per server, and the responses are matched to
+ * the requests in the order in which they were written.
+ * <p>
+ * A thread waiting for a response does not hold a socket, so the number of
+ * concurrent sessions is not limited by the number of connections the
+ * injector or the server can open. The number of connections per server is
+ * defined by the property "tcp.nio.connections_per_server". A response
+ * longer than the property "tcp.nio.max_response_size" fails its connection.
+ * <p>
+ * The server must answer the requests of a connection in order.
+ *
+ * @since 5.1
+ */
+public class NioLengthPrefixedBinaryTCPClientImpl extends LengthPrefixedBinaryTCPClientImpl
+        implements MultiplexedTCPClient {
+
+    private static final int CONNECTIONS_PER_SERVER =
+            Math.max(1, JMeterUtils.getPropDefault("tcp.nio.connections_per_server", 1)); // $NON-NLS-1$
+
+    private static final int BUFFER_SIZE =
+            Math.max(64, JMeterUtils.getPropDefault("tcp.nio.buffer_size", 65536)); // $NON-NLS-1$
+
+    private static final int MAX_RESPONSE_SIZE =
+            Math.max(0, JMeterUtils.getPropDefault("tcp.nio.max_response_size", 10485760)); // $NON-NLS-1$
+
+    private NioConnectionPool pool;
+
+    private volatile NioConnectionPool.Exchange currentExchange;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String exchange(String server, int port, int connectTimeout, int timeout, boolean noDelay,
+            String request, SampleResult sampleResult) throws IOException, ReadException {
+        NioConnectionPool.NioConnection connection;
+        try {
+            if (pool == null) {
+                pool = NioConnectionPool.acquire(CONNECTIONS_PER_SERVER, BUFFER_SIZE, getLengthPrefixLength(),
+                        MAX_RESPONSE_SIZE);
+            }
+            connection = pool.getConnection(server, port, connectTimeout, noDelay);
+        } finally {
+            sampleResult.connectEnd();
+        }
+        NioConnectionPool.Exchange exchange = connection.send(BinaryTCPClientImpl.hexStringToByteArray(request));
+        currentExchange = exchange;
+        try {
+            byte[] response = timeout > 0 ? exchange.get(timeout, TimeUnit.MILLISECONDS) : exchange.get();
+            sampleResult.latencyEnd();
+            // the response was complete after its first bytes were read
+            long transfer = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - exchange.getFirstByteNanos());
+            sampleResult.setLatency(Math.max(0, sampleResult.getLatency() - transfer));
+            return JOrphanUtils.baToHexString(response);
+        } catch (TimeoutException e) {
+            throw new ReadException("No response within " + timeout + " ms", e, "");
+        } catch (ExecutionException e) {
+            throw new ReadException("Connection failed while waiting for the response", e.getCause(), "");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } finally {
+            currentExchange = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean interrupt() {
+        NioConnectionPool.Exchange exchange = currentExchange;
+        return exchange != null && exchange.cancel(false);
+    }
+
+    /**
+     * Gives back the shared connections, which are closed once every thread
+     * has given them back.
+     */
+    @Override
+    public void teardownTest() {
+        super.teardownTest();
+        if (pool != null) {
+            NioConnectionPool.release(pool);
+            pool = null;
+        }
+    }
+}
@@ -52,6 +52,9 @@ public class TCPClientImpl extends AbstractTCPClient {
     private static final String CHARSET = JMeterUtils.getPropDefault("tcp.charset", Charset.defaultCharset().name()); // $NON-NLS-1$
     // default is not in range of a byte
 
+    // read buffer, reused as the client is used by a single thread
+    private final byte[] buffer = new byte[4096];
+
     public TCPClientImpl() {
         super();
         setEolByte(EOL_INT);
@@ -108,7 +111,6 @@ public class TCPClientImpl extends AbstractTCPClient {
     public String read(InputStream is, SampleResult sampleResult) throws ReadException{
         ByteArrayOutputStream w = new ByteArrayOutputStream();
         try {
-            byte[] buffer = new byte[4096];
             int x;
             boolean first = true;
             while ((x = is.read(buffer)) > -1) {
@@ -379,28 +379,36 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         res.setSamplerData(sb.toString()); 
         res.sampleStart();
         try {
-            Socket sock;
-            try {
-                sock = getSocket(socketKey);
-            } finally {
-                res.connectEnd();
-            }
-            if (sock == null) {
-                res.setResponseCode("500"); //$NON-NLS-1$
-                res.setResponseMessage(getError());
-            } else if (protocolHandler == null){
-                res.setResponseCode("500"); //$NON-NLS-1$
-                res.setResponseMessage("Protocol handler not found");
-            } else {
-                currentSocket = sock;
-                InputStream is = sock.getInputStream();
-                OutputStream os = sock.getOutputStream();
+            if (protocolHandler instanceof MultiplexedTCPClient) {
                 String req = getRequestData();
-                // TODO handle filenames
                 res.setSamplerData(req);
-                protocolHandler.write(os, req);
-                String in = protocolHandler.read(is, res);
+                String in = ((MultiplexedTCPClient) protocolHandler).exchange(getServer(), getPort(),
+                        getConnectTimeout(), getTimeout(), getNoDelay(), req, res);
                 isSuccessful = setupSampleResult(res, in, null, protocolHandler);
+            } else {
+                Socket sock;
+                try {
+                    sock = getSocket(socketKey);
+                } finally {
+                    res.connectEnd();
+                }
+                if (sock == null) {
+                    res.setResponseCode("500"); //$NON-NLS-1$
+                    res.setResponseMessage(getError());
+                } else if (protocolHandler == null){
+                    res.setResponseCode("500"); //$NON-NLS-1$
+                    res.setResponseMessage("Protocol handler not found");
+                } else {
+                    currentSocket = sock;
+                    InputStream is = sock.getInputStream();
+                    OutputStream os = sock.getOutputStream();
+                    String req = getRequestData();
+                    // TODO handle filenames
+                    res.setSamplerData(req);
+                    protocolHandler.write(os, req);
+                    String in = protocolHandler.read(is, res);
+                    isSuccessful = setupSampleResult(res, in, null, protocolHandler);
+                }
             }
         } catch (ReadException ex) {
             log.error("", ex);
@@ -495,6 +503,11 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
         if (protocolHandler != null){
             protocolHandler.setupTest();
         }
+        if (protocolHandler instanceof MultiplexedTCPClient
+                && (!isReUseConnection() || isCloseConnection() || getPropertyAsString(SO_LINGER, "").length() > 0)) {
+            log.warn("{} uses connections shared by all the threads, its Re-use connection, Close connection"
+                    + " and SO_LINGER options are ignored", getName()); //$NON-NLS-1$
+        }
     }
 
     /**
@@ -554,6 +567,9 @@ public class TCPSampler extends AbstractSampler implements ThreadListener, Inter
 
     @Override
     public boolean interrupt() {
+        if (protocolHandler instanceof MultiplexedTCPClient) {
+            return ((MultiplexedTCPClient) protocolHandler).interrupt();
+        }
         Optional<Socket> sock = Optional.ofNullable(currentSocket); // fetch in case gets nulled later
         if (sock.isPresent()) {
             try {
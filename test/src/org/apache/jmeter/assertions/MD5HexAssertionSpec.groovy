@@ -72,6 +72,27 @@ class MD5HexAssertionSpec extends JMeterSpec {
                     .toUpperCase(Locale.ENGLISH) == "D41D8CD98F00B204E9800998ECF8427E"
     }
 
+    def "the MD5 of the response data is computed once"() {
+        given:
+            sut.setAllowedMD5Hex("f0e166dc34d14d6c228ffac576c9a43c")
+            def response = sampleResult("anything")
+        when:
+            def result = sut.getResult(response)
+        then:
+            !result.isFailure()
+            response.getParsedResponse(SampleResult.RESPONSE_DATA_MD5_HEX_KEY) == "f0e166dc34d14d6c228ffac576c9a43c"
+        when: "the digest was computed by the sampler"
+            response.setParsedResponse(SampleResult.RESPONSE_DATA_MD5_HEX_KEY, "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa")
+            result = sut.getResult(response)
+        then:
+            result.isFailure()
+        when: "the response data changes"
+            response.setResponseData("anything".getBytes(StandardCharsets.UTF_8))
+            result = sut.getResult(response)
+        then:
+            !result.isFailure()
+    }
+
     def sampleResult(String data) {
         SampleResult response = new SampleResult()
         response.setResponseData(data.getBytes(StandardCharsets.UTF_8))
@@ -28,15 +28,20 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
 import org.junit.Before;
 import org.junit.Test;
 
-public class ResponseAssertionTest {
+// JMeterSerialTest as the regular expression engine is set by a property
+public class ResponseAssertionTest extends JMeterTestCase implements JMeterSerialTest {
 
     public ResponseAssertionTest() {
     }
@@ -108,6 +113,33 @@ public class ResponseAssertionTest {
         assertEquals("Custom failure message", result.getFailureMessage());
     }
     
+    @Test
+    public void testJavaRegexEngine() throws Exception {
+        JMeterUtils.setProperty("jmeter.regex.engine", "java");
+        try {
+            assertion = new ResponseAssertion();
+            assertion.setTestFieldResponseData();
+            assertion.setToContainsType();
+            // Named groups are not supported by ORO
+            assertion.addTestString("(?<first>line) \\d");
+            result = assertion.getResult(sample);
+            assertPassed();
+
+            assertion.setToMatchType();
+            assertion.clearTestStrings();
+            assertion.addTestString("(?s)response (?<word>Data).*EOF");
+            result = assertion.getResult(sample);
+            assertPassed();
+
+            assertion.clearTestStrings();
+            assertion.addTestString("(?<word>Data).*");
+            result = assertion.getResult(sample);
+            assertFailed();
+        } finally {
+            JMeterUtils.setProperty("jmeter.regex.engine", "oro");
+        }
+    }
+
     @Test
     public void testMalformedCachePatternException() throws Exception{
         assertion.unsetNotType();
@@ -309,6 +341,42 @@ public class ResponseAssertionTest {
 
     }
 
+    @Test
+    public void testResponseAssertionResponseDataBytes() throws Exception {
+        String data = "<p>caf\u00e9 (na\u00efve) \u20ac</p>";
+        assertion.setTestFieldResponseData();
+        for (String encoding : new String[] { "UTF-8", "ISO-8859-1", "UTF-16", "windows-1252" }) {
+            sample.setResponseData(data, encoding);
+            sample.setDataEncoding(encoding);
+            String decoded = sample.getResponseDataAsString();
+            for (String pattern : new String[] { "caf\u00e9", "caf\u00e9 (na", "\u20ac</p>", "caf.", "^<p>",
+                    "caf\u00e9 \\(na\u00efve\\)", "cafe", "\u00efve) \u20ac", decoded, data, "" }) {
+                assertion.clearTestStrings();
+                assertion.addTestString(pattern);
+                assertion.setToSubstringType();
+                assertByteSearch(decoded.contains(pattern), encoding, pattern);
+                assertion.setToEqualsType();
+                assertByteSearch(decoded.equals(pattern), encoding, pattern);
+                if (pattern.contains("(") != pattern.contains(")")) {
+                    continue; // not a valid regular expression
+                }
+                assertion.setToContainsType();
+                assertByteSearch(Pattern.compile(pattern).matcher(decoded).find(), encoding, pattern);
+                assertion.setToMatchType();
+                assertByteSearch(Pattern.compile(pattern).matcher(decoded).matches(), encoding, pattern);
+            }
+        }
+    }
+
+    private void assertByteSearch(boolean expected, String encoding, String pattern) throws Exception {
+        result = assertion.getResult(sample);
+        if (expected) {
+            assertNull(encoding + ": " + pattern, result.getFailureMessage());
+        } else {
+            assertTrue(encoding + ": " + pattern, result.isFailure());
+        }
+    }
+
 //TODO - need a lot more tests
     
     private void assertPassed() throws Exception{
@@ -22,7 +22,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.services.FileServer;
@@ -247,4 +256,138 @@ public class TestCVSDataSet extends JMeterTestCase implements JMeterSerialTest {
         csv1.iterationStart(null);
         assertEquals("a4",threadVars.get("a"));
     }
+
+    @Test
+    public void testPreloadHeaderQuotes() {
+        CSVDataSet csv = new CSVDataSet();
+        csv.setFilename(findTestPath("testfiles/testquoted.csv"));
+        csv.setDelimiter("|");
+        csv.setQuotedData(true);
+        csv.setRecycle(false);
+        csv.setStopThread(true);
+        csv.setPreload(true);
+        for (int i = 1; i <= 3; i++) {
+            csv.iterationStart(null);
+            assertEquals("a" + i, threadVars.get("A"));
+            assertEquals("d" + i, threadVars.get("D|1"));
+        }
+        try {
+            csv.iterationStart(null);
+            fail("Expected JMeterStopThreadException");
+        } catch (JMeterStopThreadException expected) {
+        }
+    }
+
+    @Test
+    public void testPreloadSkipsInvalidRow() throws Exception {
+        File file = File.createTempFile("preload", ".csv");
+        try {
+            Files.write(file.toPath(), "a1,b1\na2,\"b2\"x,c2\na3,b3\n".getBytes(StandardCharsets.UTF_8));
+            CSVDataSet csv = new CSVDataSet();
+            csv.setFilename(file.getAbsolutePath());
+            csv.setVariableNames("a,b");
+            csv.setDelimiter(",");
+            csv.setQuotedData(true);
+            csv.setRecycle(false);
+            csv.setStopThread(true);
+            csv.setPreload(true);
+            csv.iterationStart(null);
+            assertEquals("a1", threadVars.get("a"));
+            // The invalid row does not end the rows
+            csv.iterationStart(null);
+            assertEquals("a3", threadVars.get("a"));
+            assertEquals("b3", threadVars.get("b"));
+            try {
+                csv.iterationStart(null);
+                fail("Expected JMeterStopThreadException");
+            } catch (JMeterStopThreadException expected) {
+            }
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testPreloadRecycleAndShareMode() {
+        new CSVDataSetBeanInfo(); // needs to be initialised
+        CSVDataSet csv0 = initCSV();
+        csv0.setPreload(true);
+        CSVDataSet csv1 = initCSV();
+        csv1.setPreload(true);
+        csv1.setShareMode("abc");
+        csv1.iterationStart(null);
+        assertEquals("a1", threadVars.get("a"));
+        csv1.iterationStart(null);
+        assertEquals("a2", threadVars.get("a"));
+        csv0.iterationStart(null);
+        assertEquals("a1", threadVars.get("a"));
+        // Rows and recycling are the same as without preload
+        CSVDataSet preloaded = initCSV();
+        preloaded.setPreload(true);
+        preloaded.setShareMode("preloaded");
+        CSVDataSet streamed = initCSV();
+        streamed.setShareMode("streamed");
+        for (int i = 0; i < 10; i++) {
+            preloaded.iterationStart(null);
+            String expected = threadVars.get("a") + threadVars.get("b") + threadVars.get("c");
+            streamed.iterationStart(null);
+            assertEquals(expected, threadVars.get("a") + threadVars.get("b") + threadVars.get("c"));
+        }
+    }
+
+    @Test
+    public void testPreloadConcurrentRows() throws Exception {
+        int rows = 20_000;
+        int threads = 8;
+        File file = File.createTempFile("preload", ".csv");
+        try {
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                for (int i = 0; i < rows; i++) {
+                    writer.write(i + ",value" + i + "\n");
+                }
+            }
+            CSVDataSet csv = new CSVDataSet();
+            csv.setFilename(file.getAbsolutePath());
+            csv.setVariableNames("id,value");
+            csv.setDelimiter(",");
+            csv.setRecycle(false);
+            csv.setPreload(true);
+            Set<String> ids = ConcurrentHashMap.newKeySet();
+            AtomicInteger duplicates = new AtomicInteger();
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // Each thread uses its own clone, as JMeter threads do
+                CSVDataSet clone = (CSVDataSet) csv.clone();
+                clone.setFilename(csv.getFilename());
+                clone.setVariableNames(csv.getVariableNames());
+                clone.setDelimiter(csv.getDelimiter());
+                clone.setRecycle(false);
+                clone.setPreload(true);
+                workers.add(new Thread(() -> {
+                    JMeterVariables vars = new JMeterVariables();
+                    JMeterContextService.getContext().setVariables(vars);
+                    while (true) {
+                        clone.iterationStart(null);
+                        String id = vars.get("id");
+                        if ("<EOF>".equals(id)) {
+                            return;
+                        }
+                        assertEquals("value" + id, vars.get("value"));
+                        if (!ids.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            workers.forEach(Thread::start);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            assertEquals(0, duplicates.get());
+            assertEquals(rows, ids.size());
+        } finally {
+            FileServer.getFileServer().closeFiles();
+            Files.deleteIfExists(file.toPath());
+        }
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.apache.jorphan.util.JMeterStopThreadException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDataPoolConfig extends JMeterTestCase implements JMeterSerialTest {
+
+    private static final int ROWS = 100;
+
+    private File file;
+
+    private JMeterVariables threadVars;
+
+    private DataPoolConfig config;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("datapool", ".csv");
+        StringBuilder content = new StringBuilder("id,name\r\n");
+        for (int i = 0; i < ROWS; i++) {
+            content.append(i).append(",name").append(i).append("\r\n");
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        threadVars = new JMeterVariables();
+        JMeterContextService.getContext().setVariables(threadVars);
+        config = new DataPoolConfig();
+        config.setName("pool");
+        config.setFilename(file.getAbsolutePath());
+        config.setFileEncoding("UTF-8");
+        config.setVariableNames("");
+        config.setDelimiter(",");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        config.testEnded();
+        JMeterContextService.getContext().setThreadGroup(null);
+        JMeterContextService.clearTotalThreads();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void testSequentialWithHeader() {
+        config.setAccessMode("accessMode.sequential");
+        for (int i = 0; i < ROWS * 2; i++) {
+            config.iterationStart(null);
+            assertEquals(Integer.toString(i % ROWS), threadVars.get("id"));
+            assertEquals("name" + (i % ROWS), threadVars.get("name"));
+        }
+    }
+
+    @Test
+    public void testVariableNamesIgnoreFirstLine() {
+        config.setVariableNames("a,b");
+        config.setIgnoreFirstLine(true);
+        config.iterationStart(null);
+        assertEquals("0", threadVars.get("a"));
+        assertEquals("name0", threadVars.get("b"));
+    }
+
+    @Test
+    public void testUniqueWithoutRecycle() {
+        config.setAccessMode("accessMode.unique");
+        config.setRandomSeed("42");
+        config.setRecycle(false);
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < ROWS; i++) {
+            config.iterationStart(null);
+            assertTrue("Duplicate row " + threadVars.get("id"), ids.add(threadVars.get("id")));
+        }
+        config.iterationStart(null);
+        assertEquals("<EOF>", threadVars.get("id"));
+    }
+
+    @Test
+    public void testStopThreadOnEOF() {
+        config.setRecycle(false);
+        config.setStopThread(true);
+        for (int i = 0; i < ROWS; i++) {
+            config.iterationStart(null);
+        }
+        try {
+            config.iterationStart(null);
+            fail("Expected JMeterStopThreadException");
+        } catch (JMeterStopThreadException expected) {
+            // OK
+        }
+    }
+
+    @Test
+    public void testRandom() {
+        config.setAccessMode("accessMode.random");
+        for (int i = 0; i < ROWS; i++) {
+            config.iterationStart(null);
+            int id = Integer.parseInt(threadVars.get("id"));
+            assertTrue(id >= 0 && id < ROWS);
+            assertEquals("name" + id, threadVars.get("name"));
+        }
+    }
+
+    @Test
+    public void testRandomWithSeed() {
+        config.setAccessMode("accessMode.random");
+        config.setRandomSeed("42");
+        List<String> first = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            config.iterationStart(null);
+            first.add(threadVars.get("id"));
+        }
+        config.testEnded();
+        List<String> second = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            config.iterationStart(null);
+            second.add(threadVars.get("id"));
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testPartitionedAcrossThreadGroups() throws Exception {
+        JMeterContextService.addTotalThreads(8);
+        ThreadGroup groupA = new ThreadGroup();
+        groupA.setNumThreads(4);
+        ThreadGroup groupB = new ThreadGroup();
+        groupB.setNumThreads(4);
+        config.setAccessMode("accessMode.partitioned");
+        // Thread number 2 of both groups must not read the same rows
+        assertEquals("25", readFirstRow(groupA, 2));
+        assertEquals("75", readFirstRow(groupB, 2));
+        assertEquals("0", readFirstRow(groupA, 0));
+        assertEquals("50", readFirstRow(groupB, 0));
+    }
+
+    private String readFirstRow(ThreadGroup group, int threadNum) throws InterruptedException {
+        String[] id = new String[1];
+        Thread thread = new Thread(() -> {
+            JMeterContext context = JMeterContextService.getContext();
+            JMeterVariables vars = new JMeterVariables();
+            context.setVariables(vars);
+            context.setThreadGroup(group);
+            context.setThreadNum(threadNum);
+            config.iterationStart(null);
+            id[0] = vars.get("id");
+        });
+        thread.start();
+        thread.join();
+        return id[0];
+    }
+
+    @Test
+    public void testPartitioned() {
+        ThreadGroup group = new ThreadGroup();
+        group.setNumThreads(4);
+        JMeterContextService.getContext().setThreadGroup(group);
+        JMeterContextService.getContext().setThreadNum(2);
+        config.setAccessMode("accessMode.partitioned");
+        for (int i = 0; i < ROWS / 2; i++) {
+            config.iterationStart(null);
+            // third quarter of the rows, recycled
+            assertEquals(Integer.toString(50 + i % 25), threadVars.get("id"));
+        }
+    }
+
+    @Test
+    public void testPermuteIsBijection() {
+        for (long count : new long[] { 1, 2, 3, 17, 1000, 4096 }) {
+            Set<Long> values = new HashSet<>();
+            for (long n = 0; n < count; n++) {
+                long p = DataPoolConfig.permute(n, count, 12345L);
+                assertTrue(p >= 0 && p < count);
+                values.add(p);
+            }
+            assertEquals(count, values.size());
+        }
+    }
+
+    @Test
+    public void testLastLineWithoutLineFeed() throws IOException {
+        Files.write(file.toPath(), "a;b\n1;2\n3;4".getBytes(StandardCharsets.UTF_8));
+        config.setDelimiter(";");
+        config.iterationStart(null);
+        config.iterationStart(null);
+        assertEquals("3", threadVars.get("a"));
+        assertEquals("4", threadVars.get("b"));
+        config.iterationStart(null);
+        assertEquals("1", threadVars.get("a"));
+    }
+}
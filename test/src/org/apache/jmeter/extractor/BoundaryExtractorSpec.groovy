@@ -336,6 +336,28 @@ class BoundaryExtractorSpec extends Specification {
             vars.get("${VAR_NAME}_1") == null
     }
 
+    def "extract from response data in #encoding with boundaries '#lb' and '#rb' returns #expected"() {
+        given:
+            sut.setMatchNumber(-1)
+            sut.setLeftBoundary(lb)
+            sut.setRightBoundary(rb)
+            prevResult.setResponseData("<p>caf\u00e9</p><p>na\u00efve \u20ac</p><p>", encoding)
+        when:
+            sut.process()
+        then:
+            getAllVars() == expected
+        where:
+            encoding     | lb     | rb       || expected
+            "UTF-8"      | "<p>"  | "</p>"   || ["caf\u00e9", "na\u00efve \u20ac"]
+            "UTF-8"      | "na"   | " "      || ["\u00efve"]
+            "UTF-8"      | " "    | "</p>"   || ["\u20ac"]
+            "UTF-8"      | "\u00e9" | "\u20ac" || ["</p><p>na\u00efve "]
+            "ISO-8859-1" | "<p>"  | "</p>"   || ["caf\u00e9", "na\u00efve ?"]
+            "ISO-8859-1" | "<p>"  | "\u20ac" || []
+            "UTF-16"     | "<p>"  | "</p>"   || ["caf\u00e9", "na\u00efve \u20ac"]
+            "UTF-16"     | "p>n"  | " "      || ["a\u00efve"]
+    }
+
     def "previous extractions are cleared"() {
         given:
             sut.setMatchNumber(-1)
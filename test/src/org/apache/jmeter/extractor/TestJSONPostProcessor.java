@@ -22,11 +22,15 @@ import static org.junit.Assert.assertThat;
 
 import java.nio.charset.StandardCharsets;
 
+import org.apache.jmeter.extractor.json.jsonpath.JSONManager;
 import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
+import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Test;
@@ -34,7 +38,8 @@ import org.junit.Test;
 import net.minidev.json.parser.JSONParser;
 import net.minidev.json.parser.ParseException;
 
-public class TestJSONPostProcessor {
+// JMeterSerialTest as the streaming of responses is set by a property
+public class TestJSONPostProcessor extends JMeterTestCase implements JMeterSerialTest {
 
     private static final String VAR_NAME = "varName";
 
@@ -229,6 +234,62 @@ public class TestJSONPostProcessor {
         Assert.assertEquals("3", vars.get(VAR_NAME + "_matchNr"));
     }
 
+    @Test
+    public void testResponseParsedOnce() {
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        context.setVariables(vars);
+        SampleResult sampleResult = new SampleResult();
+        sampleResult.setResponseData("{\"a\":1,\"b\":[2,3]}", null);
+        context.setPreviousResult(sampleResult);
+        JSONPostProcessor first = setupProcessor(context, "1");
+        first.setDefaultValues("NONE;NONE");
+        first.setJsonPathExpressions("$.a;$.b[1]");
+        first.setRefNames("a;b");
+        first.process();
+        Object document = JSONManager.getResponseDocument(sampleResult);
+        JSONPostProcessor second = setupProcessor(context, "1");
+        second.setDefaultValues("NONE");
+        second.setJsonPathExpressions("$.b[0]");
+        second.setRefNames("c");
+        second.process();
+        Assert.assertEquals("1", vars.get("a"));
+        Assert.assertEquals("3", vars.get("b"));
+        Assert.assertEquals("2", vars.get("c"));
+        Assert.assertSame(document, JSONManager.getResponseDocument(sampleResult));
+        sampleResult.cleanAfterSample();
+        Assert.assertNotSame(document, JSONManager.getResponseDocument(sampleResult));
+    }
+
+    @Test
+    public void testStreamingReadOnFirstUse() {
+        JMeterContext context = JMeterContextService.getContext();
+        JMeterVariables vars = new JMeterVariables();
+        context.setVariables(vars);
+        SampleResult sampleResult = new SampleResult();
+        // malformed after the match
+        sampleResult.setResponseData("{\"a\":1,\"b\": not JSON", null);
+        context.setPreviousResult(sampleResult);
+        JSONPostProcessor streaming = setupProcessor(context, "1");
+        streaming.setDefaultValues("NONE");
+        streaming.setJsonPathExpressions("$.a");
+        streaming.process();
+        Assert.assertEquals("1", vars.get(VAR_NAME));
+        JMeterUtils.setProperty("jmeter.jsonpath.streaming", "false");
+        try {
+            // the property is kept for the life of the element
+            streaming.process();
+            Assert.assertEquals("1", vars.get(VAR_NAME));
+            JSONPostProcessor parsing = setupProcessor(context, "1");
+            parsing.setDefaultValues("NONE");
+            parsing.setJsonPathExpressions("$.a");
+            parsing.process();
+            Assert.assertEquals("NONE", vars.get(VAR_NAME));
+        } finally {
+            JMeterUtils.setProperty("jmeter.jsonpath.streaming", "true");
+        }
+    }
+
     private JSONPostProcessor setupProcessor(JMeterContext context,
     String matchNumbers) {
         return setupProcessor(context, matchNumbers, true);
@@ -28,15 +28,19 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.URL;
 
+import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
 import org.hamcrest.CoreMatchers;
 import org.junit.Before;
 import org.junit.Test;
 
-public class TestRegexExtractor {
+// JMeterSerialTest as the regular expression engine is set by a property
+public class TestRegexExtractor extends JMeterTestCase implements JMeterSerialTest {
     
         private RegexExtractor extractor;
 
@@ -101,6 +105,31 @@ public class TestRegexExtractor {
             assertThat(vars.get("varname_matchNr"), CoreMatchers.is("2"));
         }
 
+        @Test
+        public void testJavaRegexEngine() throws Exception {
+            JMeterUtils.setProperty("jmeter.regex.engine", "java");
+            try {
+                extractor = new RegexExtractor();
+                extractor.setThreadContext(jmctx);
+                extractor.setRefName("regVal");
+                // Named groups are not supported by ORO
+                extractor.setRegex("<value field=\"(?<name>pinposition\\d+)\">(?<value>\\d+)</value>");
+                extractor.setTemplate("$2$");
+                extractor.setMatchNumber(2);
+                extractor.process();
+                assertEquals("5", vars.get("regVal"));
+                assertEquals("pinposition2", vars.get("regVal_g1"));
+                assertEquals("2", vars.get("regVal_g"));
+
+                extractor.setMatchNumber(-1);
+                extractor.process();
+                assertEquals("3", vars.get("regVal_matchNr"));
+                assertEquals("6", vars.get("regVal_3"));
+            } finally {
+                JMeterUtils.setProperty("jmeter.regex.engine", "oro");
+            }
+        }
+
         @Test
         public void testEmptyDefaultVariable() throws Exception {
             extractor.setRegex("<value name=\"positioncount\">(.+?)</value>");
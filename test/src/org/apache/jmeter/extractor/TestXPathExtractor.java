@@ -20,19 +20,24 @@ package org.apache.jmeter.extractor;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.UnsupportedEncodingException;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.assertions.XPathAssertion;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.XPathUtil;
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.w3c.dom.Document;
 
 public class TestXPathExtractor {
         private XPathExtractor extractor;
@@ -309,4 +314,21 @@ public class TestXPathExtractor {
             assertEquals("Default", vars.get(VAL_NAME));
             assertEquals("0", vars.get(VAL_NAME_NR));
         }
+
+        @Test
+        public void testDocumentSharedWithAssertion() throws Exception {
+            extractor.setXPathQuery("/book/page");
+            extractor.process();
+            assertEquals("one", vars.get(VAL_NAME));
+            XPathAssertion assertion = new XPathAssertion();
+            assertion.setXPathString("/book/preface");
+            assertFalse(assertion.getResult(result).isFailure());
+            // The assertion gets the document parsed by the extractor
+            Document document = XPathUtil.getResponseDocument(result, true, false, false,
+                    extractor.useNameSpace(), extractor.isTolerant(), extractor.isQuiet(),
+                    extractor.showWarnings(), extractor.reportErrors(), extractor.isDownloadDTDs());
+            assertSame(document, XPathUtil.getResponseDocument(result, false, assertion.isValidating(),
+                    assertion.isWhitespace(), assertion.isNamespace(), assertion.isTolerant(), assertion.isQuiet(),
+                    assertion.showWarnings(), assertion.reportErrors(), assertion.isDownloadDTDs()));
+        }
 }
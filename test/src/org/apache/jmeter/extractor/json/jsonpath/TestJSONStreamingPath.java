@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.extractor.json.jsonpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestJSONStreamingPath {
+
+    private static final String STORE = "{ \"store\": {\n"
+            + "    \"book\": [ \n"
+            + "      { \"category\": \"reference\", \"author\": \"Nigel Rees\",\n"
+            + "        \"title\": \"Sayings of the \\\"Century\\\"\", \"price\": 8.95, \"tags\": []\n"
+            + "      },\n"
+            + "      { \"category\": \"fiction\", \"author\": \"Evelyn Waugh\",\n"
+            + "        \"title\": \"Sword of Honour\", \"price\": 12.99, \"isbn\": null,\n"
+            + "        \"meta\": {\"pages\": 320, \"available\": true}\n"
+            + "      },\n"
+            + "      { \"category\": \"fiction\", \"author\": \"Herman Melville\",\n"
+            + "        \"title\": \"Moby Dick\", \"isbn\": \"0-553-21311-3\", \"price\": 8,\n"
+            + "        \"meta\": {\"pages\": 635, \"available\": false}\n"
+            + "      },\n"
+            + "      \"not a book\"\n"
+            + "    ],\n"
+            + "    \"bicycle\": {\"color\": \"red\", \"price\": 19.95, \"sizes\": [1, 2.50, -3e2]}\n"
+            + "  },\n"
+            + "  \"expensive\": 10, \"empty\": {}, \"nothing\": null, \"yes\": true\n"
+            + "}";
+
+    private static final List<String> STREAMABLE = Arrays.asList(
+            "$", "$.store", "$.expensive", "$.nothing", "$.yes", "$.empty", "$.missing",
+            "$.store.bicycle", "$.store.bicycle.color", "$['store']['bicycle'][\"price\"]",
+            "$.store.bicycle.sizes", "$.store.bicycle.sizes[1]", "$.store.bicycle.sizes[2]",
+            "$.store.bicycle.sizes[*]", "$.store.bicycle.sizes.*", "$.store.bicycle[0]",
+            "$.store.book[0].title", "$.store.book[1]", "$.store.book[3]", "$.store.book[7]",
+            "$.store.book[*].author", "$.store.book[*].isbn", "$.store.book.*.meta.pages",
+            "$.store.book[*].tags", "$.store.book.author", "$.store.book[*]",
+            "$.store.book[?(@.price < 10)].title", "$.store.book[?(@.price >= 8.95)].author",
+            "$.store.book[?(@.price == 8)].title", "$.store.book[?(@.price > 100)]",
+            "$.store.book[?(@.category == 'fiction')].author",
+            "$.store.book[?(@.category < \"g\")].author",
+            "$.store.book[?(@.isbn)].title", "$.store.book[?(@.meta.available == true)].title",
+            "$.store.book[?(@.meta.available != false)].title", "$.store.book[?(@.meta.pages > 500)]",
+            "$.store.book[?(@.isbn == null)].title", "$.store.book[?(@.isbn != null)].title");
+
+    private static List<Object> tree(String json, String path) {
+        return new JSONManager().extractWithJsonPath(JSONManager.parse(json), path);
+    }
+
+    private static List<Object> stream(String json, String path) {
+        JSONStreamingPath streamingPath = JSONStreamingPath.compile(path);
+        assertNotNull("Should be streamable: " + path, streamingPath);
+        List<Object> results = streamingPath.read(json);
+        assertNotNull("Should be streamed: " + path, results);
+        return new ArrayList<>(results);
+    }
+
+    @Test
+    public void testSameResultsAsTree() {
+        for (String path : STREAMABLE) {
+            assertEquals(path, tree(STORE, path), stream(STORE, path));
+        }
+    }
+
+    @Test
+    public void testUnsupportedExpressions() {
+        for (String path : Arrays.asList("$..author", "$.store.book[-1]", "$.store.book[0,1]",
+                "$.store.book[1:2]", "$.store.book.length()", "$.store.book[?(@.price < $.expensive)]",
+                "$.store.book[?(@.price < 10 && @.category == 'fiction')]", "$['store','x']",
+                "store.book", "$.store.book[?(@.author =~ /.*REES/i)]", "$.store.book[")) {
+            assertNull(path, JSONStreamingPath.compile(path));
+        }
+    }
+
+    @Test
+    public void testFallbackToTree() throws Exception {
+        for (String path : Arrays.asList("$.store.*", "$.store[*]", "$.store[?(@.color)]",
+                "$.store.book[?(@.title > 10)]", "$.store.book[?(@.price == '8')]")) {
+            JSONStreamingPath streamingPath = JSONStreamingPath.compile(path);
+            assertNotNull(path, streamingPath);
+            assertNull(path, streamingPath.read(STORE));
+        }
+        // not strict JSON
+        assertNull(JSONStreamingPath.compile("$.a").read("{a: 1}"));
+        assertNull(JSONStreamingPath.compile("$.a").read("{\"a\": 'b'}"));
+        assertNull(JSONStreamingPath.compile("$[*].a").read("[{\"a\": 1, \"a\": 2}]"));
+        assertNull(JSONStreamingPath.compile("$.b").read("{\"a\": 1} {}"));
+        assertNull(JSONStreamingPath.compile("$.a").read("{\"b\": [1, 2"));
+        // the tree is used by the manager
+        assertEquals(tree("{a: 1}", "$.a"), new JSONManager().extractWithJsonPath("{a: 1}", "$.a"));
+    }
+
+    @Test
+    public void testDefinitePathStopsAtMatch() {
+        assertEquals(Arrays.asList("1"), stream("{\"a\": 1, \"b\": this is not read", "$.a"));
+        assertEquals(Arrays.asList("y"), stream("[\"x\", \"y\", not read", "$[1]"));
+    }
+
+    @Test
+    public void testLargeResponse() {
+        StringBuilder json = new StringBuilder("{\"status\": \"OK\", \"items\": [");
+        for (int i = 0; i < 10_000; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\": ").append(i)
+                    .append(", \"name\": \"item ").append(i)
+                    .append("\", \"values\": [1, 2, 3], \"active\": ").append(i % 2 == 0)
+                    .append('}');
+        }
+        String response = json.append("]}").toString();
+        for (String path : Arrays.asList("$.status", "$.items[9999].name", "$.items[?(@.id == 5000)].name")) {
+            assertEquals(tree(response, path), stream(response, path));
+        }
+    }
+}
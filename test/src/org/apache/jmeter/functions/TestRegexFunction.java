@@ -30,10 +30,13 @@ import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
 import org.junit.Before;
 import org.junit.Test;
 
-public class TestRegexFunction extends JMeterTestCase {
+// JMeterSerialTest as the regular expression engine is set by a property
+public class TestRegexFunction extends JMeterTestCase implements JMeterSerialTest {
         private static final String INPUT_VARIABLE_NAME = "INVAR";
 
         private RegexFunction variable;
@@ -77,6 +80,24 @@ public class TestRegexFunction extends JMeterTestCase {
             assertEquals("5", match);
         }
 
+        @Test
+        public void testJavaRegexEngine() throws Exception {
+            JMeterUtils.setProperty("jmeter.regex.engine", "java");
+            try {
+                variable = new RegexFunction();
+                params = new LinkedList<>();
+                // Named groups are not supported by ORO
+                params.add(new CompoundVariable("<value field=\"(?<name>pinposition\\d+)\">(?<value>\\d+)</value>"));
+                params.add(new CompoundVariable("$1$=$2$")); // template
+                params.add(new CompoundVariable("ALL")); // match number
+                params.add(new CompoundVariable(",")); // ALL separator
+                variable.setParameters(params);
+                assertEquals("pinposition1=1,pinposition2=5,pinposition3=6", variable.execute(result, null));
+            } finally {
+                JMeterUtils.setProperty("jmeter.regex.engine", "oro");
+            }
+        }
+
         // Test with output variable name
         @Test
         public void testVariableExtraction1a() throws Exception {
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.ftp.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFTPSampler extends JMeterTestCase {
+
+    private File home;
+    private FtpServer server;
+    private int port;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        home = Files.createTempDirectory("ftp").toFile();
+        Files.write(new File(home, "file.txt").toPath(), "content".getBytes(StandardCharsets.US_ASCII));
+
+        UserManager userManager = new PropertiesUserManagerFactory().createUserManager();
+        BaseUser user = new BaseUser();
+        user.setName("user");
+        user.setPassword("password");
+        user.setHomeDirectory(home.getAbsolutePath());
+        userManager.save(user);
+
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        serverFactory.setUserManager(userManager);
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setPort(0);
+        // closes the connections idle for more than 1 second
+        listenerFactory.setIdleTimeout(1);
+        serverFactory.addListener("default", listenerFactory.createListener());
+        serverFactory.getFtplets().put("counter", new DefaultFtplet() {
+            @Override
+            public FtpletResult onConnect(FtpSession session) throws FtpException, IOException {
+                connections.incrementAndGet();
+                return super.onConnect(session);
+            }
+        });
+        server = serverFactory.createServer();
+        server.start();
+        port = serverFactory.getListener("default").getPort();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop();
+        FileUtils.deleteDirectory(home);
+    }
+
+    private FTPSampler createSampler() {
+        FTPSampler sampler = new FTPSampler();
+        sampler.setName("ftp");
+        sampler.setServer("localhost");
+        sampler.setPort(Integer.toString(port));
+        sampler.setProperty(ConfigTestElement.USERNAME, "user");
+        sampler.setProperty(ConfigTestElement.PASSWORD, "password");
+        sampler.setProperty(FTPSampler.REMOTE_FILENAME, "file.txt");
+        sampler.setProperty(FTPSampler.BINARY_MODE, true);
+        sampler.setProperty(FTPSampler.SAVE_RESPONSE, true);
+        sampler.setProperty(FTPSampler.KEEP_ALIVE, true);
+        return sampler;
+    }
+
+    private static void assertDownloaded(SampleResult result) {
+        assertTrue(result.getResponseMessage(), result.isSuccessful());
+        assertEquals("content", result.getResponseDataAsString());
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        FTPSampler sampler = createSampler();
+        try {
+            assertDownloaded(sampler.sample(null));
+            assertDownloaded(sampler.sample(null));
+            assertDownloaded(sampler.sample(null));
+            assertEquals(1, connections.get());
+        } finally {
+            sampler.threadFinished();
+        }
+    }
+
+    @Test
+    public void testConnectionClosedByServerIsEvicted() throws Exception {
+        FTPSampler sampler = createSampler();
+        try {
+            assertDownloaded(sampler.sample(null));
+            // let the server close the idle connection
+            Thread.sleep(2500);
+            assertDownloaded(sampler.sample(null));
+            // the NOOP failed, so a new connection was opened
+            assertEquals(2, connections.get());
+        } finally {
+            sampler.threadFinished();
+        }
+    }
+}
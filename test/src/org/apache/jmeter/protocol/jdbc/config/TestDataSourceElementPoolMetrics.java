@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jdbc.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.Test;
+
+public class TestDataSourceElementPoolMetrics extends JMeterTestCase implements JMeterSerialTest {
+
+    private static DataSourceElement createDataSource(String poolName, String poolMax) {
+        DataSourceElement dataSource = new DataSourceElement();
+        dataSource.setProperty("dataSource", poolName);
+        dataSource.setProperty("driver", "org.hsqldb.jdbc.JDBCDriver");
+        dataSource.setProperty("dbUrl", "jdbc:hsqldb:mem:poolmetrics");
+        dataSource.setProperty("username", "SA");
+        dataSource.setProperty("password", "");
+        dataSource.setProperty("checkQuery", "");
+        dataSource.setProperty("initQuery", "");
+        dataSource.setProperty("poolMax", poolMax);
+        dataSource.setProperty("timeout", "10000");
+        dataSource.setProperty("trimInterval", "60000");
+        dataSource.setProperty("connectionAge", "5000");
+        dataSource.setProperty("transactionIsolation", "DEFAULT");
+        dataSource.setProperty("keepAlive", false);
+        dataSource.setProperty("autocommit", true);
+        dataSource.setProperty("preparedStatementCacheSize", "0");
+        return dataSource;
+    }
+
+    private static ConnectionPoolMetrics findPool(String poolName) {
+        return ConnectionPoolRegistry.getPools().stream()
+                .filter(pool -> pool.getPoolName().equals(poolName))
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Test
+    public void testSharedPoolIsPublished() throws Exception {
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+        DataSourceElement dataSource = createDataSource("sharedPool", "2");
+        dataSource.testStarted();
+        try {
+            ConnectionPoolMetrics pool = findPool("sharedPool");
+            assertEquals(2, pool.getMaxTotal());
+            try (Connection conn = DataSourceElement.getConnection("sharedPool")) {
+                assertEquals(1, pool.getNumActive());
+                assertEquals(1, pool.getNumIdle());
+                assertEquals(0, pool.getNumWaiters());
+                String summary = ConnectionPoolRegistry.appendSummary(new StringBuilder()).toString();
+                assertTrue(summary, summary.contains(" Pool sharedPool: 1/2 active, 1 idle, 0 waiting"));
+            }
+            assertEquals(0, pool.getNumActive());
+        } finally {
+            dataSource.testEnded();
+        }
+        assertNull(findPool("sharedPool"));
+    }
+
+    @Test
+    public void testPerThreadPoolsAreNotPublished() throws Exception {
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+        DataSourceElement dataSource = createDataSource("perThreadPool", "0");
+        dataSource.testStarted();
+        try (Connection conn = DataSourceElement.getConnection("perThreadPool")) {
+            assertFalse(conn.isClosed());
+            assertNull(findPool("perThreadPool"));
+        } finally {
+            dataSource.testEnded();
+        }
+    }
+}
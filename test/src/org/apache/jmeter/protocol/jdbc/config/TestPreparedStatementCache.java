@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jdbc.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.protocol.jdbc.sampler.JDBCSampler;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestPreparedStatementCache extends JMeterTestCase implements JMeterSerialTest {
+
+    private static final String POOL = "cachePool";
+
+    private DataSourceElement dataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+        dataSource = new DataSourceElement();
+        dataSource.setProperty("dataSource", POOL);
+        dataSource.setProperty("driver", "org.hsqldb.jdbc.JDBCDriver");
+        dataSource.setProperty("dbUrl", "jdbc:hsqldb:mem:statementcache");
+        dataSource.setProperty("username", "SA");
+        dataSource.setProperty("password", "");
+        dataSource.setProperty("checkQuery", "");
+        dataSource.setProperty("initQuery", "");
+        dataSource.setProperty("poolMax", "1");
+        dataSource.setProperty("timeout", "10000");
+        dataSource.setProperty("trimInterval", "60000");
+        dataSource.setProperty("connectionAge", "5000");
+        dataSource.setProperty("transactionIsolation", "DEFAULT");
+        dataSource.setProperty("keepAlive", false);
+        dataSource.setProperty("autocommit", true);
+        dataSource.setProperty("preparedStatementCacheSize", "2");
+        dataSource.testStarted();
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE item IF EXISTS");
+            stmt.execute("CREATE TABLE item (id INTEGER PRIMARY KEY, name VARCHAR(20))");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.testEnded();
+    }
+
+    private static PreparedStatement innermost(PreparedStatement statement) {
+        return (PreparedStatement) ((org.apache.commons.dbcp2.DelegatingStatement) statement).getInnermostDelegate();
+    }
+
+    @Test
+    public void testStatementsAreReusedAcrossBorrows() throws Exception {
+        PreparedStatement first;
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+            first = innermost(pstmt);
+            pstmt.setInt(1, 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertFalse(rs.next());
+            }
+        }
+        assertFalse("Statement should stay open in the cache", first.isClosed());
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+            assertSame(first, innermost(pstmt));
+            assertTrue(DataSourceElement.getConnectionInfo(POOL).endsWith("statement cache size:2, hits:1, misses:1"));
+            // least recently used statements are closed
+            conn.prepareStatement("SELECT id FROM item").close();
+            conn.prepareStatement("SELECT COUNT(*) FROM item").close();
+        }
+        assertTrue(first.isClosed());
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM item WHERE id = ?")) {
+            assertNotSame(first, innermost(pstmt));
+        }
+        assertTrue(DataSourceElement.getConnectionInfo(POOL).endsWith("hits:1, misses:4"));
+    }
+
+    @Test
+    public void testSettingsAreResetOnBorrow() throws Exception {
+        int fetchSize;
+        int queryTimeout;
+        int maxRows;
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM item")) {
+            fetchSize = pstmt.getFetchSize();
+            queryTimeout = pstmt.getQueryTimeout();
+            maxRows = pstmt.getMaxRows();
+            pstmt.setFetchSize(fetchSize + 50);
+            pstmt.setQueryTimeout(queryTimeout + 7);
+            pstmt.setMaxRows(maxRows + 3);
+        }
+        try (Connection conn = DataSourceElement.getConnection(POOL);
+                PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM item")) {
+            assertTrue(DataSourceElement.getConnectionInfo(POOL).endsWith("hits:1, misses:1"));
+            assertEquals(fetchSize, pstmt.getFetchSize());
+            assertEquals(queryTimeout, pstmt.getQueryTimeout());
+            assertEquals(maxRows, pstmt.getMaxRows());
+        }
+    }
+
+    @Test
+    public void testBatchUpdate() throws Exception {
+        JDBCSampler sampler = new JDBCSampler();
+        sampler.setName("insert");
+        sampler.setDataSource(POOL);
+        sampler.setQueryType("Prepared Batch Update Statement");
+        sampler.setQuery("INSERT INTO item (id, name) VALUES (?, ?)");
+        sampler.setQueryArguments("1,one\n2,\"two, deux\"\n\n3,three\n4,four\n5,five\n");
+        sampler.setQueryArgumentsTypes("INTEGER,VARCHAR");
+        sampler.setBatchSize("2");
+        SampleResult result = sampler.sample(null);
+        assertTrue(result.getResponseDataAsString(), result.isSuccessful());
+        assertEquals("5 updates, 5 rows in 3 batches", result.getResponseDataAsString());
+        SampleResult[] batches = result.getSubResults();
+        assertEquals(3, batches.length);
+        assertEquals("insert-0", batches[0].getSampleLabel());
+        assertEquals("2 updates", batches[0].getResponseDataAsString());
+        assertTrue(batches[2].getResponseMessage(), batches[2].getResponseMessage().startsWith("1 rows, "));
+
+        sampler.setQueryType("Prepared Select Statement");
+        sampler.setQuery("SELECT name FROM item WHERE id = ?");
+        sampler.setQueryArguments("2");
+        sampler.setQueryArgumentsTypes("INTEGER");
+        result = sampler.sample(null);
+        assertEquals("NAME\ntwo, deux\n", result.getResponseDataAsString());
+        sampler.sample(null);
+        String info = DataSourceElement.getConnectionInfo(POOL);
+        assertTrue(info, info.endsWith("hits:1, misses:2"));
+    }
+}
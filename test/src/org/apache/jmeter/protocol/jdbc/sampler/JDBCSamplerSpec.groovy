@@ -21,6 +21,8 @@ import org.apache.jmeter.config.ConfigTestElement
 import org.apache.jmeter.junit.spock.JMeterSpec
 import org.apache.jmeter.samplers.SampleResult
 import org.apache.jmeter.testelement.property.JMeterProperty
+import org.apache.jmeter.threads.JMeterContextService
+import org.apache.jmeter.threads.JMeterVariables
 import spock.lang.Unroll
 
 import java.sql.Connection
@@ -28,6 +30,7 @@ import java.sql.ResultSet
 import java.sql.ResultSetMetaData
 import java.sql.SQLException
 import java.sql.Statement
+import java.util.zip.CRC32
 
 @Unroll
 class JDBCSamplerSpec extends JMeterSpec {
@@ -79,6 +82,117 @@ class JDBCSamplerSpec extends JMeterSpec {
             response == [] as byte[]
     }
 
+    def "execute with SELECT query ends latency before reading rows"() {
+        given:
+            def conn = Mock(Connection)
+            def sample = Mock(SampleResult)
+            def stmt = Mock(Statement)
+            def rs = Mock(ResultSet)
+            def meta = Mock(ResultSetMetaData)
+            sut.setQuery("SELECT")
+            conn.createStatement() >> stmt
+            rs.getMetaData() >> meta
+        when:
+            sut.execute(conn, sample)
+        then:
+            1 * stmt.executeQuery(_ as String) >> rs
+        then:
+            1 * sample.latencyEnd()
+        then:
+            1 * rs.next() >> false
+    }
+
+    def "execute with SELECT query and fetch size ends latency on first row"() {
+        given:
+            def conn = Mock(Connection)
+            def sample = Mock(SampleResult)
+            def stmt = Mock(Statement)
+            def rs = Mock(ResultSet)
+            def meta = Mock(ResultSetMetaData)
+            sut.setQuery("SELECT")
+            sut.setFetchSize("10")
+            conn.createStatement() >> stmt
+            rs.getMetaData() >> meta
+        when:
+            sut.execute(conn, sample)
+        then:
+            1 * stmt.executeQuery(_ as String) >> rs
+        then:
+            1 * rs.next() >> false
+        then:
+            1 * sample.latencyEnd()
+    }
+
+    def "execute with SELECT query keeping #maxRows rows of 5"() {
+        given:
+            def vars = new JMeterVariables()
+            JMeterContextService.getContext().setVariables(vars)
+            def conn = Mock(Connection)
+            def sample = new SampleResult()
+            def stmt = Mock(Statement)
+            def rs = Mock(ResultSet)
+            def meta = Mock(ResultSetMetaData)
+            def values = (1..5).toList()
+            sut.setQuery("SELECT")
+            sut.setVariableNames("id")
+            sut.setResultSetMaxRows(maxRows)
+            sut.setFetchSize("100")
+            rs.getMetaData() >> meta
+            meta.getColumnCount() >> 1
+            meta.getColumnLabel(1) >> "ID"
+            rs.next() >>> values.collect { true } + false
+            rs.getObject(1) >>> values
+        when:
+            def response = new String(sut.execute(conn, sample), "UTF-8")
+        then:
+            1 * conn.createStatement() >> stmt
+            1 * stmt.setFetchSize(100)
+            1 * stmt.executeQuery(_ as String) >> rs
+            response == "ID\n" + expectedRows.collect { it + "\n" }.join("")
+            vars.get("id_#") == expectedRows.size().toString()
+            vars.get("id_1") == expectedRows[0]
+            vars.get("id_3") == expectedRows[2]
+            sample.getResponseMessage() == expectedMessage
+        where:
+            maxRows | expectedRows                  | expectedMessage
+            ""      | ["1", "2", "3", "4", "5"]     | ""
+            "-1"    | ["1", "2", "3", "4", "5"]     | ""
+            "2"     | ["1", "2"]                    | "5 rows, CRC32 " + crc32("1\n2\n3\n4\n5\n")
+            "0"     | []                            | "5 rows, CRC32 " + crc32("1\n2\n3\n4\n5\n")
+    }
+
+    def "checksum of skipped rows longer than the encoding buffer"() {
+        given:
+            def vars = new JMeterVariables()
+            JMeterContextService.getContext().setVariables(vars)
+            def conn = Mock(Connection)
+            def sample = new SampleResult()
+            def stmt = Mock(Statement)
+            def rs = Mock(ResultSet)
+            def meta = Mock(ResultSetMetaData)
+            // multi-byte and surrogate pairs across the buffer boundaries
+            def values = ["\u00e9t\u00e9 " * 300, "\ud83d\ude00" * 700, "a\ud800b", ""]
+            sut.setQuery("SELECT")
+            sut.setResultSetMaxRows("1")
+            rs.getMetaData() >> meta
+            meta.getColumnCount() >> 1
+            meta.getColumnLabel(1) >> "V"
+            rs.next() >>> values.collect { true } + false
+            rs.getObject(1) >>> values
+        when:
+            sut.execute(conn, sample)
+        then:
+            1 * conn.createStatement() >> stmt
+            1 * stmt.executeQuery(_ as String) >> rs
+            sample.getResponseMessage() == "4 rows, CRC32 " + crc32(values.collect { it + "\n" }.join(""))
+    }
+
+    def crc32(String rows) {
+        def crc = new CRC32()
+        rows.split("(?<=\n)").each { crc.update(it.getBytes("UTF-8")) }
+        return Long.toHexString(crc.getValue())
+    }
+
     def "Catches SQLException during Connection closing"() {
         given:
             def mockConnection = Mock(Connection)
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jms.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class InFlightWindowTest {
+
+    private final ScheduledExecutorService provider = Executors.newScheduledThreadPool(4);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        provider.shutdownNow();
+    }
+
+    /**
+     * @param failEvery fail one message out of failEvery, or never if 0
+     * @return sender acknowledging messages 2 ms after they are sent
+     */
+    private InFlightWindow.AsyncSender delayedSender(int failEvery) {
+        AtomicInteger sent = new AtomicInteger();
+        return (producer, destination, msg, deliveryMode, priority, expiration, callback) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            boolean fail = failEvery > 0 && sent.incrementAndGet() % failEvery == 0;
+            provider.schedule(() -> {
+                inFlight.decrementAndGet();
+                callback.completed(fail ? new JMSException("rejected", "42") : null);
+            }, 2, TimeUnit.MILLISECONDS);
+        };
+    }
+
+    private static MessageProducer countingProducer(AtomicInteger sent) {
+        return (MessageProducer) Proxy.newProxyInstance(InFlightWindowTest.class.getClassLoader(),
+                new Class<?>[] { MessageProducer.class }, (proxy, method, args) -> {
+                    if ("send".equals(method.getName())) {
+                        sent.incrementAndGet();
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void testWindowBoundsMessagesInFlight() throws Exception {
+        InFlightWindow window = new InFlightWindow(5, delayedSender(0));
+        assertTrue(window.isAsync());
+        for (int i = 0; i < 100; i++) {
+            window.send(null, null, null, 0, 4, 0);
+        }
+        assertTrue(window.awaitCompletions(10, TimeUnit.SECONDS));
+        assertEquals(0, window.getInFlight());
+        assertEquals(5, maxInFlight.get());
+        InFlightWindow.Completions completions = window.drain();
+        assertEquals(100, completions.getLatencies().getCount());
+        assertTrue(completions.getLatencies().getMin() >= 2000);
+        assertEquals(0, completions.getFailures());
+        assertNull(completions.getFirstFailure());
+        assertEquals(0, window.drain().getLatencies().getCount());
+    }
+
+    @Test
+    public void testFailedMessages() throws Exception {
+        InFlightWindow window = new InFlightWindow(3, delayedSender(4));
+        for (int i = 0; i < 20; i++) {
+            window.send(null, null, null, 0, 4, 0);
+        }
+        assertTrue(window.awaitCompletions(10, TimeUnit.SECONDS));
+        InFlightWindow.Completions completions = window.drain();
+        assertEquals(15, completions.getLatencies().getCount());
+        assertEquals(5, completions.getFailures());
+        assertEquals("42", ((JMSException) completions.getFirstFailure()).getErrorCode());
+    }
+
+    @Test
+    public void testTimeoutWithMessagesInFlight() throws Exception {
+        InFlightWindow window = new InFlightWindow(2, (producer, destination, msg, deliveryMode, priority,
+                expiration, callback) -> {
+            // never acknowledged
+        });
+        window.send(null, null, null, 0, 4, 0);
+        assertFalse(window.awaitCompletions(10, TimeUnit.MILLISECONDS));
+        assertEquals(1, window.getInFlight());
+    }
+
+    @Test
+    public void testFailedHandOverReleasesSlot() throws Exception {
+        JMSException rejected = new JMSException("closed");
+        InFlightWindow window = new InFlightWindow(1, (producer, destination, msg, deliveryMode, priority,
+                expiration, callback) -> {
+            throw rejected;
+        });
+        for (int i = 0; i < 2; i++) {
+            try {
+                window.send(null, null, null, 0, 4, 0);
+            } catch (JMSException e) {
+                assertSame(rejected, e);
+            }
+        }
+        assertEquals(0, window.getInFlight());
+    }
+
+    @Test
+    public void testSynchronousSend() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        InFlightWindow window = new InFlightWindow(10, null);
+        assertFalse(window.isAsync());
+        MessageProducer producer = countingProducer(sent);
+        for (int i = 0; i < 7; i++) {
+            window.send(producer, null, (Message) null, 0, 4, 0);
+        }
+        assertEquals(7, sent.get());
+        assertTrue(window.awaitCompletions(0, TimeUnit.MILLISECONDS));
+        assertEquals(7, window.drain().getLatencies().getCount());
+    }
+
+    @Test
+    public void testProviderWithoutAsyncSend() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        InFlightWindow window = new InFlightWindow(10, (producer, destination, msg, deliveryMode, priority,
+                expiration, callback) -> {
+            throw new AbstractMethodError();
+        });
+        MessageProducer producer = countingProducer(sent);
+        window.send(producer, null, null, 0, 4, 0);
+        window.send(producer, null, null, 0, 4, 0);
+        assertFalse(window.isAsync());
+        assertEquals(2, sent.get());
+        assertEquals(2, window.drain().getLatencies().getCount());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jms.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.After;
+import org.junit.Test;
+
+public class SharedSubscriberTest implements JMeterSerialTest {
+
+    private static final String BROKER_URL = "vm://shared?broker.persistent=false&broker.useJmx=false";
+
+    @After
+    public void tearDown() {
+        InitialContextFactory.close();
+    }
+
+    static void send(String brokerUrl, String queue, int count) throws JMSException {
+        Connection connection = new ActiveMQConnectionFactory(brokerUrl).createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(queue));
+            for (int i = 0; i < count; i++) {
+                producer.send(session.createTextMessage("message " + i));
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static SharedSubscriber.Receiver register(int sessions, String queue) throws Exception {
+        return register(sessions, 100, queue);
+    }
+
+    private static SharedSubscriber.Receiver register(int sessions, int queueSize, String queue) throws Exception {
+        return SharedSubscriber.register(sessions, queueSize, false,
+                "org.apache.activemq.jndi.ActiveMQInitialContextFactory", BROKER_URL, "ConnectionFactory",
+                "dynamicQueues/" + queue, "", "", "", false, "", "");
+    }
+
+    @Test
+    public void testMessagesAreDealtToReceivers() throws Exception {
+        SharedSubscriber.Receiver[] receivers = {
+                register(2, "deal"), register(2, "deal"), register(2, "deal") };
+        try {
+            assertEquals(1, SharedSubscriber.getSubscriberCount());
+            send(BROKER_URL, "deal", 30);
+            Set<String> texts = new HashSet<>();
+            for (SharedSubscriber.Receiver receiver : receivers) {
+                for (int i = 0; i < 10; i++) {
+                    SharedSubscriber.ReceivedMessage received = receiver.poll(5000);
+                    assertNotNull(received);
+                    assertTrue(received.getReceivedTime() > 0);
+                    texts.add(((TextMessage) received.getMessage()).getText());
+                }
+                assertNull(receiver.poll(0));
+            }
+            assertEquals(30, texts.size());
+        } finally {
+            for (SharedSubscriber.Receiver receiver : receivers) {
+                receiver.close();
+            }
+        }
+        assertEquals(0, SharedSubscriber.getSubscriberCount());
+    }
+
+    @Test
+    public void testMessagesOfClosedReceiverAreDealtToOthers() throws Exception {
+        SharedSubscriber.Receiver first = register(1, "redeal");
+        SharedSubscriber.Receiver second = register(1, "redeal");
+        try {
+            send(BROKER_URL, "redeal", 10);
+            long end = System.currentTimeMillis() + 5000;
+            while (first.size() + second.size() < 10 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertEquals(5, first.size());
+            first.close();
+            first.close(); // no op
+            assertEquals(10, second.size());
+        } finally {
+            second.close();
+        }
+        assertEquals(0, SharedSubscriber.getSubscriberCount());
+    }
+
+    @Test
+    public void testSessionsWaitWhenQueuesAreFull() throws Exception {
+        SharedSubscriber.Receiver first = register(1, 3, "bounded");
+        SharedSubscriber.Receiver second = register(1, 3, "bounded");
+        try {
+            send(BROKER_URL, "bounded", 20);
+            long end = System.currentTimeMillis() + 5000;
+            while (first.size() + second.size() < 6 && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100);
+            assertEquals(3, first.size());
+            assertEquals(3, second.size());
+            // the session delivers the next messages as they are polled
+            Set<String> texts = new HashSet<>();
+            for (int i = 0; i < 17; i++) {
+                SharedSubscriber.ReceivedMessage received = first.poll(5000);
+                assertNotNull("Message " + i, received);
+                texts.add(((TextMessage) received.getMessage()).getText());
+                assertTrue(first.size() <= 3);
+            }
+            assertEquals(3, second.size());
+            for (int i = 0; i < 3; i++) {
+                assertTrue(texts.add(((TextMessage) second.poll(5000).getMessage()).getText()));
+            }
+            assertEquals(20, texts.size());
+        } finally {
+            first.close();
+            second.close();
+        }
+        assertEquals(0, SharedSubscriber.getSubscriberCount());
+    }
+
+    @Test
+    public void testPollTimeout() throws Exception {
+        try (SharedSubscriber.Receiver receiver = register(1, "empty")) {
+            long start = System.currentTimeMillis();
+            assertNull(receiver.poll(50));
+            assertTrue(System.currentTimeMillis() - start >= 50);
+        }
+    }
+}
@@ -18,11 +18,16 @@
 package org.apache.jmeter.protocol.jms.sampler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Locale;
 
 import org.apache.jmeter.protocol.jms.control.gui.JMSPublisherGui;
+import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.junit.After;
 import org.junit.Before;
@@ -57,4 +62,64 @@ public class PublisherSamplerTest {
         String val2 = "2nd call";
         assertSame(val2, noopCache.get(key, k -> val2));
     }
+
+    private static PublisherSampler createSampler(String queue) {
+        PublisherSampler sampler = new PublisherSampler();
+        sampler.setName("publisher");
+        sampler.setUseJNDIProperties("false");
+        sampler.setJNDIIntialContextFactory("org.apache.activemq.jndi.ActiveMQInitialContextFactory");
+        sampler.setProviderUrl("vm://publisher?broker.persistent=false&broker.useJmx=false");
+        sampler.setConnectionFactory("ConnectionFactory");
+        sampler.setDestination("dynamicQueues/" + queue);
+        sampler.setDestinationStatic(true);
+        sampler.setConfigChoice(JMSPublisherGui.USE_TEXT_RSC);
+        sampler.setUseNonPersistentDelivery(true);
+        return sampler;
+    }
+
+    @Test
+    public void failedSampleDiscardsInFlightWindow() {
+        PublisherSampler sampler = createSampler("failing");
+        sampler.setMessageChoice(JMSPublisherGui.TEXT_MSG_RSC);
+        sampler.setTextMessage("hello");
+        sampler.setIterations("3");
+        sampler.setInFlightWindow("5");
+        try {
+            SampleResult result = sampler.sample();
+            assertTrue(result.getResponseDataAsString(), result.isSuccessful());
+            assertNotNull(sampler.getPublisherInFlightWindow());
+
+            // the object can't be rendered, so the sample fails after its window is set
+            sampler.setMessageChoice(JMSPublisherGui.OBJECT_MSG_RSC);
+            sampler.setTextMessage("not an object");
+            result = sampler.sample();
+            assertFalse(result.isSuccessful());
+            assertNull(sampler.getPublisherInFlightWindow());
+        } finally {
+            sampler.testEnded();
+        }
+    }
+
+    @Test
+    public void publishThroughInFlightWindow() {
+        PublisherSampler sampler = createSampler("publisher");
+        sampler.setMessageChoice(JMSPublisherGui.TEXT_MSG_RSC);
+        sampler.setTextMessage("hello");
+        sampler.setIterations("20");
+        sampler.setInFlightWindow("5");
+        try {
+            SampleResult result = sampler.sample();
+            assertTrue(result.getResponseDataAsString(), result.isSuccessful());
+            assertEquals(20, result.getSampleCount());
+            assertTrue(result.getResponseMessage(), result.getResponseMessage().startsWith("20 messages published, "));
+            assertTrue(result.getResponseDataAsString(),
+                    result.getResponseDataAsString().contains("In-flight window: 5 (synchronous send)"));
+
+            sampler.setInFlightWindow("");
+            result = sampler.sample();
+            assertEquals("20 messages published", result.getResponseMessage());
+        } finally {
+            sampler.testEnded();
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.jms.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.jms.Connection;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.jmeter.protocol.jms.control.gui.JMSSubscriberGui;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.Test;
+
+public class SubscriberSamplerTest implements JMeterSerialTest {
+
+    private static final String BROKER_URL = "vm://subscriber?broker.persistent=false&broker.useJmx=false";
+
+    private static SubscriberSampler createSampler(String readResponse) {
+        SubscriberSampler sampler = new SubscriberSampler();
+        sampler.setName("subscriber");
+        sampler.setUseJNDIProperties("false");
+        sampler.setJNDIIntialContextFactory("org.apache.activemq.jndi.ActiveMQInitialContextFactory");
+        sampler.setProviderUrl(BROKER_URL);
+        sampler.setConnectionFactory("ConnectionFactory");
+        sampler.setDestination("dynamicQueues/subscriber");
+        sampler.setDestinationStatic(true);
+        sampler.setClientChoice(JMSSubscriberGui.ON_MESSAGE_RSC);
+        sampler.setIterations("2");
+        sampler.setTimeout("5000");
+        sampler.setReadResponse(readResponse);
+        sampler.setSharedSessions("2");
+        sampler.setTimestampProperty("sentAt");
+        return sampler;
+    }
+
+    @Test
+    public void testSharedConsumerAndEndToEndLatency() throws Exception {
+        SubscriberSampler first = createSampler("true");
+        SubscriberSampler second = createSampler("false");
+        first.threadStarted();
+        second.threadStarted();
+        // keeps the broker running until the samplers have received the messages
+        Connection connection = new ActiveMQConnectionFactory(BROKER_URL).createConnection();
+        try {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue("subscriber"));
+            for (int i = 0; i < 4; i++) {
+                TextMessage message = session.createTextMessage("msg" + i);
+                message.setLongProperty("sentAt", System.currentTimeMillis() - 1000);
+                producer.send(message);
+            }
+            SampleResult result = first.sample();
+            assertTrue(result.getResponseMessage(), result.isSuccessful());
+            assertEquals(2, result.getSampleCount());
+            assertTrue(result.getResponseMessage(), result.getResponseMessage().startsWith(
+                    "2 message(s) received successfully of 2 expected, end-to-end latency (ms) min "));
+            Matcher minLatency = Pattern.compile("min (\\d+),").matcher(result.getResponseMessage());
+            assertTrue(result.getResponseMessage(), minLatency.find());
+            assertTrue(minLatency.group(1), Long.parseLong(minLatency.group(1)) >= 1000);
+            assertTrue(Long.toString(result.getLatency()), result.getLatency() <= result.getTime());
+            assertEquals(8, result.getResponseData().length);
+
+            result = second.sample();
+            assertTrue(result.getResponseMessage(), result.isSuccessful());
+            assertEquals(0, result.getResponseData().length);
+            assertEquals(8, result.getBytesAsLong());
+        } finally {
+            first.threadFinished();
+            second.threadFinished();
+            first.testEnded();
+            connection.close();
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.jmeter.protocol.mail.sampler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import java.io.File;
 import java.io.IOException;
@@ -55,4 +56,27 @@ public class TestMailReaderSampler {
         assertEquals(1, properties.size());
         assertEquals("mail.prop2.value", properties.getProperty("mail.prop2.name"));
     }
+
+    private static MailReaderSampler createSampler() {
+        MailReaderSampler sampler = new MailReaderSampler();
+        sampler.setServerType("pop3");
+        sampler.setServer("localhost");
+        return sampler;
+    }
+
+    @Test
+    public void testConnectionKeyIncludesCustomProperties() {
+        createJMeterEnv();
+        Properties jMeterProperties = JMeterUtils.getJMeterProperties();
+        jMeterProperties.put("mail.pop3.timeout", "1000");
+        MailReaderSampler sampler = createSampler();
+        String key = sampler.getConnectionKey();
+        assertEquals(key, createSampler().getConnectionKey());
+
+        jMeterProperties.put("mail.pop3.timeout", "2000");
+        assertNotEquals(key, createSampler().getConnectionKey());
+        // read once for the life of the element
+        assertEquals(key, sampler.getConnectionKey());
+        jMeterProperties.remove("mail.pop3.timeout");
+    }
 }
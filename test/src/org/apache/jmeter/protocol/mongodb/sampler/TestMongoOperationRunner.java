@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.mongodb.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import com.mongodb.DBObject;
+
+public class TestMongoOperationRunner {
+
+    @Test
+    public void testParseDocuments() {
+        assertTrue(MongoOperationRunner.parseDocuments(" ").isEmpty());
+        List<DBObject> documents = MongoOperationRunner.parseDocuments(
+                "[{\"_id\": {\"$oid\": \"5bd8a1c2e4b0a1b2c3d4e5f6\"}, \"n\": 1}, {\"n\": 2}]");
+        assertEquals(2, documents.size());
+        assertEquals(new ObjectId("5bd8a1c2e4b0a1b2c3d4e5f6"), documents.get(0).get("_id"));
+        assertEquals(2, documents.get(1).get("n"));
+        assertEquals(1, MongoOperationRunner.parseDocuments("{\"n\": 1}").size());
+    }
+
+    @Test
+    public void testParseDocument() {
+        assertNull(MongoOperationRunner.parseDocument(""));
+        assertEquals("abc", MongoOperationRunner.parseDocument("{\"name\": \"abc\"}").get("name"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseDocumentOfArray() {
+        MongoOperationRunner.parseDocument("[{\"n\": 1}]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseDocumentsOfValues() {
+        MongoOperationRunner.parseDocuments("[1, 2]");
+    }
+
+    @Test
+    public void testTemplatesParsedBeforeSampleStarts() {
+        MongoOperationSampler sampler = new MongoOperationSampler();
+        sampler.setSource("mongo");
+        sampler.setOperation(MongoOperationRunner.FIND);
+        sampler.setQuery("{\"n\": ");
+        SampleResult result = sampler.sample(null);
+        assertFalse(result.isSuccessful());
+        // Parsing failed before the source "mongo", which is not defined, was looked up
+        assertTrue(result.getResponseMessage(), result.getResponseMessage().contains("JSONParseException"));
+        assertEquals(0, result.getConnectTime());
+    }
+
+    @Test
+    public void testPlanBatchesConsecutiveInserts() {
+        List<DBObject> models = MongoOperationRunner.parseDocuments("["
+                + "{\"insertOne\": {\"document\": {\"n\": 1}}},"
+                + "{\"insertOne\": {\"document\": {\"n\": 2}}},"
+                + "{\"insertOne\": {\"document\": {\"n\": 3}}},"
+                + "{\"updateMany\": {\"filter\": {\"n\": 1}, \"update\": {\"$inc\": {\"n\": 1}}, \"upsert\": true}},"
+                + "{\"insertOne\": {\"document\": {\"n\": 4}}},"
+                + "{\"replaceOne\": {\"filter\": {\"n\": 4}, \"replacement\": {\"n\": 5}}},"
+                + "{\"deleteOne\": {\"filter\": {\"n\": 5}}},"
+                + "{\"deleteMany\": {}}"
+                + "]");
+        List<MongoOperationRunner.WriteStep> steps = MongoOperationRunner.plan(models, 2);
+        assertEquals(7, steps.size());
+        assertEquals("insertOne", steps.get(0).getModel());
+        assertEquals(2, steps.get(0).getDocuments().size());
+        assertEquals(1, steps.get(1).getDocuments().size());
+        assertEquals(3, steps.get(1).getDocuments().get(0).get("n"));
+        assertEquals("updateMany", steps.get(2).getModel());
+        assertTrue(steps.get(2).isUpsert());
+        assertEquals(1, steps.get(2).getFilter().get("n"));
+        assertEquals("insertOne", steps.get(3).getModel());
+        assertEquals(5, steps.get(4).getUpdate().get("n"));
+        assertEquals("deleteOne", steps.get(5).getModel());
+        assertEquals("deleteMany", steps.get(6).getModel());
+        assertTrue(steps.get(6).getFilter().keySet().isEmpty());
+    }
+
+    @Test
+    public void testPlanWithoutBatchSize() {
+        List<DBObject> models = MongoOperationRunner.parseDocuments("["
+                + "{\"insertOne\": {\"document\": {\"n\": 1}}},"
+                + "{\"insertOne\": {\"document\": {\"n\": 2}}}"
+                + "]");
+        List<MongoOperationRunner.WriteStep> steps = MongoOperationRunner.plan(models, 0);
+        assertEquals(1, steps.size());
+        assertEquals(2, steps.get(0).getDocuments().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlanUnknownModel() {
+        MongoOperationRunner.plan(MongoOperationRunner.parseDocuments("[{\"dropAll\": {}}]"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlanUpdateWithoutUpdate() {
+        MongoOperationRunner.plan(MongoOperationRunner.parseDocuments("[{\"updateOne\": {\"filter\": {}}}]"), 0);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.system;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestWorkerProcess {
+
+    private final File directory = new File(System.getProperty("java.io.tmpdir"));
+
+    @Before
+    public void setUp() {
+        assumeFalse("Needs cat and sleep", SystemUtils.IS_OS_WINDOWS);
+    }
+
+    private WorkerProcess start(String protocol, String... arguments) throws Exception {
+        return WorkerProcess.start(Arrays.asList(arguments), directory, Collections.emptyMap(), "", protocol);
+    }
+
+    @Test
+    public void testLineProtocol() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LINE, "cat")) {
+            SampleResult res = new SampleResult();
+            res.sampleStart();
+            assertEquals("first", new String(worker.request("first".getBytes(StandardCharsets.UTF_8), 5000, res),
+                    StandardCharsets.UTF_8));
+            assertEquals("second", new String(worker.request("second\r".getBytes(StandardCharsets.UTF_8), 0, res),
+                    StandardCharsets.UTF_8));
+            assertTrue(worker.isAlive());
+        }
+    }
+
+    @Test
+    public void testLineProtocolRejectsNewLine() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LINE, "cat")) {
+            SampleResult res = new SampleResult();
+            res.sampleStart();
+            try {
+                worker.request("multi\nline".getBytes(StandardCharsets.UTF_8), 5000, res);
+                fail("A request with a new line would be read as two requests");
+            } catch (IllegalArgumentException expected) {
+                // the request is not sent
+            }
+            assertEquals("next", new String(worker.request("next".getBytes(StandardCharsets.UTF_8), 5000, res),
+                    StandardCharsets.UTF_8));
+            assertFalse(worker.hasTimedOut());
+        }
+    }
+
+    @Test
+    public void testLengthProtocol() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LENGTH, "cat")) {
+            SampleResult res = new SampleResult();
+            res.sampleStart();
+            byte[] request = "multi\nline".getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(request, worker.request(request, 5000, res));
+            assertArrayEquals(new byte[0], worker.request(new byte[0], 5000, res));
+        }
+    }
+
+    @Test
+    public void testAnsweredRequestsLeaveNoTimeout() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LINE, "cat")) {
+            SampleResult res = new SampleResult();
+            res.sampleStart();
+            int pending = WorkerProcess.getPendingTimeouts();
+            for (int i = 0; i < 100; i++) {
+                worker.request("request".getBytes(StandardCharsets.UTF_8), 60000, res);
+            }
+            assertEquals(pending, WorkerProcess.getPendingTimeouts());
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LINE, "sleep", "10")) {
+            try {
+                worker.request("ignored".getBytes(StandardCharsets.UTF_8), 100, new SampleResult());
+                fail("The worker does not answer");
+            } catch (InterruptedIOException expected) {
+                // the worker was destroyed
+            }
+            assertTrue(worker.hasTimedOut());
+        }
+    }
+
+    @Test
+    public void testWorkerExited() throws Exception {
+        try (WorkerProcess worker = start(WorkerProcess.LINE, "true")) {
+            try {
+                worker.request("ignored".getBytes(StandardCharsets.UTF_8), 5000, new SampleResult());
+                fail("The worker has exited");
+            } catch (IOException expected) {
+                // the request cannot be written or the response cannot be read
+            }
+            worker.close();
+            assertFalse(worker.isAlive());
+        }
+    }
+}
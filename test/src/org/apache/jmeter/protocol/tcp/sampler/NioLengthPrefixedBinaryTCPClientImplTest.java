@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.protocol.tcp.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioLengthPrefixedBinaryTCPClientImplTest {
+
+    private ServerSocket serverSocket;
+    private final Set<Socket> accepted = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Server answering each message with the same message, after waiting
+     * for the number of milliseconds given by its first byte, or closing
+     * the connection if the first byte is negative
+     */
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    accepted.add(socket);
+                    Thread echo = new Thread(() -> echo(socket));
+                    echo.setDaemon(true);
+                    echo.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    private static void echo(Socket socket) {
+        try (DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
+            while (true) {
+                byte[] message = new byte[in.readShort()];
+                in.readFully(message);
+                if (message.length > 0 && message[0] < 0) {
+                    return;
+                }
+                if (message.length > 0 && message[0] > 0) {
+                    Thread.sleep(message[0]);
+                }
+                out.writeShort(message.length);
+                out.write(message);
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // connection closed
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverSocket.close();
+        for (Socket socket : accepted) {
+            socket.close();
+        }
+    }
+
+    private String exchange(NioLengthPrefixedBinaryTCPClientImpl client, String request, int timeout)
+            throws Exception {
+        return client.exchange("localhost", serverSocket.getLocalPort(), 1000, timeout, true,
+                request, new SampleResult());
+    }
+
+    @Test
+    public void testPipelinedExchangesOfManyThreads() throws Exception {
+        int threads = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(executor.submit(() -> {
+                    NioLengthPrefixedBinaryTCPClientImpl client = new NioLengthPrefixedBinaryTCPClientImpl();
+                    try {
+                        for (int i = 0; i < 50; i++) {
+                            // a few slow responses delay the following ones
+                            String request = JOrphanUtils.baToHexString(new byte[] {
+                                    (byte) (i % 10 == 0 ? 5 : 0), (byte) thread, (byte) i });
+                            assertEquals(request, exchange(client, request, 5000));
+                        }
+                    } finally {
+                        client.teardownTest();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("All threads share one connection", 1, accepted.size());
+    }
+
+    @Test
+    public void testLargeMessages() throws Exception {
+        NioLengthPrefixedBinaryTCPClientImpl client = new NioLengthPrefixedBinaryTCPClientImpl();
+        try {
+            byte[] message = new byte[30000];
+            for (int i = 1; i < message.length; i++) {
+                message[i] = (byte) i;
+            }
+            String request = JOrphanUtils.baToHexString(message);
+            assertEquals(request, exchange(client, request, 5000));
+            assertEquals("", exchange(client, "", 5000));
+        } finally {
+            client.teardownTest();
+        }
+    }
+
+    @Test
+    public void testTimeoutKeepsResponsesInOrder() throws Exception {
+        NioLengthPrefixedBinaryTCPClientImpl client = new NioLengthPrefixedBinaryTCPClientImpl();
+        try {
+            try {
+                exchange(client, "6401", 10); // answered after 100 ms
+                fail("Expected ReadException");
+            } catch (ReadException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().startsWith("No response within 10 ms"));
+            }
+            // the late response is not taken for the response of the next request
+            assertEquals("0002", exchange(client, "0002", 5000));
+        } finally {
+            client.teardownTest();
+        }
+    }
+
+    @Test
+    public void testConnectionClosedByServer() throws Exception {
+        NioLengthPrefixedBinaryTCPClientImpl client = new NioLengthPrefixedBinaryTCPClientImpl();
+        try {
+            assertEquals("0001", exchange(client, "0001", 5000));
+            try {
+                exchange(client, "FF02", 5000);
+                fail("Expected ReadException");
+            } catch (ReadException expected) {
+                assertTrue(expected.getCause() instanceof IOException);
+            }
+            // a new connection is opened
+            assertEquals("0003", exchange(client, "0003", 5000));
+        } finally {
+            client.teardownTest();
+        }
+    }
+
+    @Test
+    public void testResponseLongerThanMaximumFailsConnection() throws Exception {
+        // Not the shared pool, which may have been created with other settings
+        NioConnectionPool pool = new NioConnectionPool(1, 1024, 2, 100);
+        try {
+            NioConnectionPool.NioConnection connection = pool.getConnection("localhost", serverSocket.getLocalPort(),
+                    1000, true);
+            assertEquals(99, connection.send(new byte[99]).get(5, TimeUnit.SECONDS).length);
+            try {
+                connection.send(new byte[101]).get(5, TimeUnit.SECONDS);
+                fail("Expected ExecutionException");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause().getMessage(),
+                        expected.getCause().getMessage().contains("exceeds the maximum response size 100"));
+            }
+            assertTrue(connection.isClosed());
+        } finally {
+            pool.close();
+        }
+    }
+}
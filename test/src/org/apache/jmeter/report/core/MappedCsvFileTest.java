@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.report.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.save.CSVSaveService;
+import org.junit.Test;
+
+public class MappedCsvFileTest extends JMeterTestCase {
+
+    private static final String CONTENT = "time,label,success\r\n"
+            + "1,\"a,b\",true\n"
+            + "22,\"multi\nline \"\"quoted\"\"\",false\r"
+            + "333,été,TRUE\r\n"
+            + "\n"
+            + "4444,,\n"
+            + "-5,\"\",true";
+
+    private static List<String[]> readAll(MappedCsvFile csvFile) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        CsvRowBlock block;
+        while ((block = csvFile.nextBlock()) != null) {
+            assertNull(block.getError());
+            for (int i = 0; i < block.size(); i++) {
+                rows.add(block.getStrings(i));
+            }
+        }
+        return rows;
+    }
+
+    private static List<String[]> readWithCsvSaveService(String content) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(content))) {
+            reader.readLine();
+            String[] parts;
+            while ((parts = CSVSaveService.csvReadFile(reader, ',')).length != 0) {
+                rows.add(parts);
+            }
+        }
+        return rows;
+    }
+
+    private static File writeTempFile(String content) throws IOException {
+        File file = File.createTempFile("mappedcsv", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testSameRowsAsCsvSaveServiceWithAnyChunkSize() throws Exception {
+        File file = writeTempFile(CONTENT);
+        List<String[]> expected = readWithCsvSaveService(CONTENT);
+        for (int chunkSize = 1; chunkSize < CONTENT.length() + 2; chunkSize++) {
+            try (MappedCsvFile csvFile = new MappedCsvFile(file, StandardCharsets.UTF_8, chunkSize)) {
+                assertEquals("time,label,success", csvFile.readLine());
+                if (chunkSize % 2 == 0) {
+                    BitSet labelOnly = new BitSet();
+                    labelOnly.set(1);
+                    csvFile.setDecodedColumns(labelOnly);
+                }
+                List<String[]> rows = readAll(csvFile);
+                assertEquals("chunk size " + chunkSize, expected.size(), rows.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertArrayEquals("chunk size " + chunkSize + ", row " + i, expected.get(i), rows.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRewind() throws Exception {
+        File file = writeTempFile("1,2\n3,4\n");
+        try (MappedCsvFile csvFile = new MappedCsvFile(file, StandardCharsets.UTF_8, 3)) {
+            assertEquals("1,2", csvFile.readLine());
+            csvFile.rewind();
+            List<String[]> rows = readAll(csvFile);
+            assertEquals(2, rows.size());
+            assertArrayEquals(new String[] { "1", "2" }, rows.get(0));
+        }
+    }
+
+    @Test
+    public void testPrimitives() throws Exception {
+        CsvRowBlock block = CsvRowBlock.parse(
+                ByteBuffer.wrap("-42,TRUE,\"true\",x1,12345678901234567890\n".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', null);
+        assertEquals(1, block.size());
+        assertEquals(5, block.getColumnCount(0));
+        assertEquals(-42L, block.getLong(0, 0));
+        assertTrue(block.getBoolean(0, 1));
+        assertTrue(block.getBoolean(0, 2));
+        assertFalse(block.getBoolean(0, 3));
+        try {
+            block.getLong(0, 3);
+            org.junit.Assert.fail("Expected NumberFormatException");
+        } catch (NumberFormatException expected) {
+            // not a number
+        }
+        try {
+            block.getLong(0, 4);
+            org.junit.Assert.fail("Expected NumberFormatException");
+        } catch (NumberFormatException expected) {
+            // too many digits
+        }
+    }
+
+    @Test
+    public void testSyntaxErrorKeepsPreviousRows() throws Exception {
+        CsvRowBlock block = CsvRowBlock.parse(
+                ByteBuffer.wrap("1,2\n3,a\"b\n5,6\n".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', null);
+        assertEquals(1, block.size());
+        assertNotNull(block.getError());
+    }
+
+    @Test
+    public void testCopyRow() throws Exception {
+        BitSet firstColumn = new BitSet();
+        firstColumn.set(0);
+        CsvRowBlock block = CsvRowBlock.parse(
+                ByteBuffer.wrap("1,\"a\"\"b\",true\n22,c,false\n".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', firstColumn);
+        CsvRowBlock copy = block.copyRow(1);
+        assertEquals(1, copy.size());
+        assertArrayEquals(new String[] { "22", "c", "false" }, copy.getStrings(0));
+        assertEquals(22L, copy.getLong(0, 0));
+        assertFalse(copy.getBoolean(0, 2));
+        assertArrayEquals(new String[] { "1", "a\"b", "true" }, block.copyRow(0).getStrings(0));
+    }
+
+    @Test
+    public void testSupportedEncodings() {
+        assertTrue(MappedCsvFile.isSupported(StandardCharsets.UTF_8, ','));
+        assertTrue(MappedCsvFile.isSupported(StandardCharsets.ISO_8859_1, '\t'));
+        assertFalse(MappedCsvFile.isSupported(StandardCharsets.UTF_16, ','));
+        assertFalse(MappedCsvFile.isSupported(StandardCharsets.UTF_8, '§'));
+    }
+
+    @Test
+    public void testLazySampleFromBlock() throws Exception {
+        SampleMetadata metadata = new SampleMetadata(',', CSVSaveService.TIME_STAMP,
+                CSVSaveService.CSV_ELAPSED, CSVSaveService.LABEL, CSVSaveService.SUCCESSFUL);
+        CsvRowBlock block = CsvRowBlock.parse(
+                ByteBuffer.wrap("1500000000000,12,\"a \"\"b\"\"\",true\n".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8, ',', null);
+        Sample sample = new Sample(0, metadata, block, 0);
+        assertEquals(1, block.size()); // the sample holds a copy of the row
+        assertEquals(1500000000000L, sample.getTimestamp());
+        assertEquals(12L, sample.getElapsedTime());
+        assertEquals("a \"b\"", sample.getName());
+        assertTrue(sample.getSuccess());
+        assertEquals("1500000000000,12,a \"b\",true", sample.toString());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.visualizers.SamplingStatCalculator;
+import org.apache.jmeter.visualizers.Visualizer;
+import org.junit.Test;
+
+public class TestHistogramSampleSender extends JMeterTestCase {
+
+    private static class CollectingListener implements RemoteSampleListener {
+        private final List<SampleEvent> events = Collections.synchronizedList(new ArrayList<>());
+        private boolean ended;
+
+        @Override
+        public void testStarted() {
+            // NOOP
+        }
+
+        @Override
+        public void testStarted(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded() {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded(String host) {
+            ended = true;
+        }
+
+        @Override
+        public void processBatch(List<SampleEvent> samples) {
+            events.addAll(samples);
+        }
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            processBatch(Collections.singletonList(e));
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // NOOP
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // NOOP
+        }
+    }
+
+    private static SampleResult createResult(String label, long elapsed, boolean success) {
+        SampleResult result = new SampleResult(1_500_000_000_000L, elapsed);
+        result.setSampleLabel(label);
+        result.setThreadName("Thread Group 1-1");
+        result.setSuccessful(success);
+        result.setResponseCode(success ? "200" : "500");
+        result.setLatency(elapsed / 2);
+        result.setBytes(1000L);
+        return result;
+    }
+
+    @Test
+    public void testAdd() throws Exception {
+        HistogramSampleResult first = new HistogramSampleResult(createResult("a", 0, true));
+        for (int i = 1; i <= 100; i++) {
+            first.add(createResult("a", i, true));
+            first.add(createResult("a", 1000 + i, i % 10 != 0));
+        }
+        assertEquals(200, first.getSampleCount());
+        assertEquals(10, first.getErrorCount());
+        assertFalse(first.isSuccessful());
+        assertEquals(190, first.getSuccessTimes().getCount());
+        assertEquals(10, first.getFailureTimes().getCount());
+        assertEquals(Long.valueOf(10), first.getErrorsByCode().get("500"));
+        assertEquals(5050 + 100_000 + 5050, first.getTime());
+        assertEquals(1, first.getTimes().getMin(), 0.0);
+        assertEquals(1100, first.getTimes().getMax(), 0.0);
+
+        // The histograms survive the serialization done by RMI
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(first);
+        }
+        HistogramSampleResult copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (HistogramSampleResult) in.readObject();
+        }
+        assertEquals(200, copy.getTimes().getCount());
+        assertEquals(first.getTimes().getPercentile(90), copy.getTimes().getPercentile(90), 0.0);
+    }
+
+    @Test
+    public void testForEachSample() {
+        HistogramSampleResult aggregate = new HistogramSampleResult(createResult("a", 0, true));
+        aggregate.add(createResult("a", 10, true));
+        aggregate.add(createResult("a", 30, true));
+        aggregate.add(createResult("a", 500, false));
+        List<SampleResult> samples = new ArrayList<>();
+        aggregate.forEachSample(samples::add);
+        assertEquals(3, samples.size());
+        long errors = samples.stream().filter(s -> !s.isSuccessful()).count();
+        assertEquals(1, errors);
+        SampleResult failure = samples.get(2);
+        assertFalse(failure.isSuccessful());
+        assertEquals("500", failure.getResponseCode());
+        assertEquals(500, failure.getTime());
+        assertEquals("a", failure.getSampleLabel());
+        assertEquals(10, samples.get(0).getTime());
+        assertEquals(90, samples.get(0).getLatency());
+        assertEquals(1000, samples.get(0).getBytesAsLong());
+    }
+
+    @Test
+    public void testSuccessOnlyKeepsSuccessesOfFailedAggregate() {
+        HistogramSampleResult aggregate = new HistogramSampleResult(createResult("a", 0, true));
+        aggregate.add(createResult("a", 10, true));
+        aggregate.add(createResult("a", 30, true));
+        aggregate.add(createResult("a", 500, false));
+        assertFalse(aggregate.isSuccessful());
+        List<SampleResult> displayed = new ArrayList<>();
+        ResultCollector collector = new ResultCollector();
+        collector.setSuccessOnlyLogging(true);
+        collector.setListener(new Visualizer() {
+            @Override
+            public void add(SampleResult sample) {
+                displayed.add(sample);
+            }
+
+            @Override
+            public boolean isStats() {
+                return false;
+            }
+        });
+        collector.sampleOccurred(new SampleEvent(aggregate, "Thread Group 1"));
+        assertEquals(1, displayed.size());
+        assertTrue(displayed.get(0) instanceof HistogramSampleResult);
+        assertTrue(displayed.get(0).isSuccessful());
+        assertEquals(2, displayed.get(0).getSampleCount());
+        assertEquals(40, displayed.get(0).getTime());
+    }
+
+    @Test
+    public void testSenderKeepsPercentiles() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        HistogramSampleSender sender = new HistogramSampleSender(listener);
+        // Done by RMI on the server
+        sender.readResolve();
+        for (int i = 1; i <= 1000; i++) {
+            sender.sampleOccurred(new SampleEvent(createResult("a", i, true), "Thread Group 1"));
+            sender.sampleOccurred(new SampleEvent(createResult("b", 5, i % 100 != 0), "Thread Group 1"));
+        }
+        sender.testEnded("injector-1");
+        assertTrue(listener.ended);
+        assertEquals(2, listener.events.size());
+
+        SamplingStatCalculator statsA = new SamplingStatCalculator("a");
+        SamplingStatCalculator statsB = new SamplingStatCalculator("b");
+        for (SampleEvent event : listener.events) {
+            SampleResult result = event.getResult();
+            assertTrue(result instanceof HistogramSampleResult);
+            ("a".equals(result.getSampleLabel()) ? statsA : statsB).addSample(result);
+        }
+        assertEquals(1000, statsA.getCount());
+        assertEquals(500.5, statsA.getMean(), 500.5 / 128);
+        assertEquals(900, statsA.getPercentPoint(0.9).doubleValue(), 900d / 128);
+        assertEquals(1, statsA.getMin().longValue());
+        assertEquals(1000, statsA.getMax().longValue());
+        assertEquals(1000, statsB.getCount());
+        assertEquals(10, statsB.getErrorCount());
+        assertEquals(5, statsB.getPercentPoint(0.99).longValue());
+    }
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -337,6 +338,37 @@ public class TestSampleResult implements JMeterSerialTest {
             assertEquals("text",res.getDataType());
         }
 
+        @Test
+        public void testMarkFile() {
+            SampleResult res = new SampleResult();
+            assertFalse(res.markFile("a.jtl"));
+            assertTrue(res.markFile("a.jtl"));
+            assertFalse(res.markFile("b.jtl"));
+            assertFalse(res.markFile("c.jtl"));
+            assertTrue(res.markFile("b.jtl"));
+            assertTrue(res.markFile("a.jtl"));
+            assertTrue(res.markFile("c.jtl"));
+        }
+
+        @Test
+        public void testParsedResponse() {
+            SampleResult res = new SampleResult();
+            SampleResult child = new SampleResult();
+            res.addRawSubResult(child);
+            Object parsed = new Object();
+            assertNull(res.getParsedResponse("key"));
+            res.setParsedResponse("key", parsed);
+            child.setParsedResponse("key", parsed);
+            assertSame(parsed, res.getParsedResponse("key"));
+            assertNull(res.getParsedResponse("other"));
+            res.cleanAfterSample();
+            assertNull(res.getParsedResponse("key"));
+            assertNull(child.getParsedResponse("key"));
+            res.setParsedResponse("key", parsed);
+            res.setResponseData(new byte[0]);
+            assertNull(res.getParsedResponse("key"));
+        }
+
         // sleep and return how long we actually slept
         // may be rather longer if the system is busy
         private long sleep(long ms) throws InterruptedException {
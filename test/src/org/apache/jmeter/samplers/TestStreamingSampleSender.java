@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.samplers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestStreamingSampleSender extends JMeterTestCase implements JMeterSerialTest {
+
+    @BeforeClass
+    public static void setUpReceiver() {
+        JMeterUtils.setProperty("client.streaming.host", "127.0.0.1");
+        JMeterUtils.setProperty("server.rmi.ssl.disable", "true");
+    }
+
+    @AfterClass
+    public static void tearDownReceiver() {
+        JMeterUtils.getJMeterProperties().remove("server.rmi.ssl.disable");
+    }
+
+    @Test
+    public void testRefusedWithRmiSsl() {
+        JMeterUtils.setProperty("server.rmi.ssl.disable", "false");
+        try {
+            new StreamingSampleSender(new CollectingListener());
+            fail("Streaming mode must be refused while RMI uses SSL");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("server.rmi.ssl.disable"));
+        } finally {
+            JMeterUtils.setProperty("server.rmi.ssl.disable", "true");
+        }
+    }
+
+    /**
+     * Local listener, as the {@link RemoteSampleListenerImpl} the client
+     * registers
+     */
+    private static class CollectingListener implements RemoteSampleListener {
+        private final List<SampleEvent> events = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile int countAtTestEnd = -1;
+
+        @Override
+        public void testStarted() {
+            // NOOP
+        }
+
+        @Override
+        public void testStarted(String host) {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded() {
+            // NOOP
+        }
+
+        @Override
+        public void testEnded(String host) {
+            countAtTestEnd = count.get();
+        }
+
+        @Override
+        public void processBatch(List<SampleEvent> samples) {
+            count.addAndGet(samples.size());
+            events.addAll(samples);
+        }
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            processBatch(Collections.singletonList(e));
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // NOOP
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // NOOP
+        }
+    }
+
+    private static SampleEvent createEvent(int i) throws IOException {
+        SampleResult result = new SampleResult(1_500_000_000_000L + i, 100 + i % 50);
+        result.setSampleLabel("Label " + i % 10);
+        result.setThreadName("Thread Group 1-" + i % 4);
+        result.setSuccessful(i % 7 != 0);
+        result.setResponseCode(i % 7 != 0 ? "200" : "500");
+        result.setResponseMessage(i % 7 != 0 ? "OK" : "Internal Server Error");
+        result.setDataType(SampleResult.TEXT);
+        result.setContentType("text/html; charset=UTF-8");
+        result.setLatency(20 + i % 10);
+        result.setConnectTime(3);
+        result.setBytes(1024L + i);
+        result.setSentBytes(200);
+        result.setHeadersSize(150);
+        result.setBodySize(874L + i);
+        result.setGroupThreads(4);
+        result.setAllThreads(8);
+        result.setURL(new URL("http://example.invalid/page?id=" + i));
+        return new SampleEvent(result, "Thread Group 1", "injector-1", new String[0], false);
+    }
+
+    private static SampleEvent roundTrip(SampleEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new SampleEventCodec.Encoder(new DataOutputStream(bytes)).write(event);
+        return new SampleEventCodec.Decoder(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+                .read();
+    }
+
+    @Test
+    public void testCodecRoundTrip() throws Exception {
+        SampleEvent event = createEvent(7);
+        SampleResult result = event.getResult();
+        result.setIdleTime(5);
+        result.setResponseData("\u00dcn\u00efcode body", "UTF-8");
+        result.setSamplerData("GET http://example.invalid/");
+        result.setRequestHeaders("Accept: */*");
+        result.setResponseHeaders("HTTP/1.1 500\nServer: test");
+        AssertionResult assertion = new AssertionResult("Response Assertion");
+        assertion.setFailure(true);
+        assertion.setFailureMessage("Test failed: code expected to equal 200");
+        result.addAssertionResult(assertion);
+        SampleResult subResult = new SampleResult(1_500_000_000_010L, 20);
+        subResult.setSampleLabel("Sub");
+        subResult.setSuccessful(true);
+        result.storeSubResult(subResult, false);
+
+        SampleEvent decodedEvent = roundTrip(event);
+        SampleResult decoded = decodedEvent.getResult();
+        assertEquals("Thread Group 1", decodedEvent.getThreadGroup());
+        assertEquals("injector-1", decodedEvent.getHostname());
+        assertEquals(result.getTimeStamp(), decoded.getTimeStamp());
+        assertEquals(result.getStartTime(), decoded.getStartTime());
+        assertEquals(result.getEndTime(), decoded.getEndTime());
+        assertEquals(result.getIdleTime(), decoded.getIdleTime());
+        assertEquals(result.getTime(), decoded.getTime());
+        assertEquals(result.getLatency(), decoded.getLatency());
+        assertEquals(result.getConnectTime(), decoded.getConnectTime());
+        assertEquals(result.getSampleLabel(), decoded.getSampleLabel());
+        assertEquals(result.getThreadName(), decoded.getThreadName());
+        assertFalse(decoded.isSuccessful());
+        assertEquals("500", decoded.getResponseCode());
+        assertEquals(result.getResponseMessage(), decoded.getResponseMessage());
+        assertEquals(result.getContentType(), decoded.getContentType());
+        assertEquals("UTF-8", decoded.getDataEncodingNoDefault());
+        assertArrayEquals(result.getResponseData(), decoded.getResponseData());
+        assertEquals(result.getSamplerData(), decoded.getSamplerData());
+        assertEquals(result.getURL(), decoded.getURL());
+        assertEquals(result.getRequestHeaders(), decoded.getRequestHeaders());
+        assertEquals(result.getResponseHeaders(), decoded.getResponseHeaders());
+        assertEquals(result.getBytesAsLong(), decoded.getBytesAsLong());
+        assertEquals(result.getSentBytes(), decoded.getSentBytes());
+        assertEquals(result.getHeadersSize(), decoded.getHeadersSize());
+        assertEquals(result.getBodySizeAsLong(), decoded.getBodySizeAsLong());
+        assertEquals(result.getGroupThreads(), decoded.getGroupThreads());
+        assertEquals(result.getAllThreads(), decoded.getAllThreads());
+        assertEquals(1, decoded.getAssertionResults().length);
+        assertEquals("Test failed: code expected to equal 200",
+                decoded.getFirstAssertionFailureMessage());
+        assertEquals(1, decoded.getSubResults().length);
+        assertEquals("Sub", decoded.getSubResults()[0].getSampleLabel());
+        assertEquals(20, decoded.getSubResults()[0].getTime());
+        assertEquals(decoded, decoded.getSubResults()[0].getParent());
+    }
+
+    @Test
+    public void testRepeatedStringsAreReferenced() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SampleEventCodec.Encoder encoder = new SampleEventCodec.Encoder(new DataOutputStream(bytes));
+        encoder.write(createEvent(10));
+        int firstSize = bytes.size();
+        encoder.write(createEvent(20));
+        assertTrue("Second event should be smaller: " + (bytes.size() - firstSize) + " vs " + firstSize,
+                bytes.size() - firstSize < firstSize * 2 / 3);
+
+        SampleEventCodec.Decoder decoder = new SampleEventCodec.Decoder(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals("Label 0", decoder.read().getResult().getSampleLabel());
+        SampleResult second = decoder.read().getResult();
+        assertEquals("Label 0", second.getSampleLabel());
+        assertEquals(1_500_000_000_020L, second.getTimeStamp());
+    }
+
+    private static void stream(CollectingListener listener, int samples, boolean compress) throws Exception {
+        JMeterUtils.setProperty("streaming.compress", Boolean.toString(compress));
+        StreamingSampleSender sender = new StreamingSampleSender(listener);
+        // Done by RMI on the server
+        sender.readResolve();
+        for (int i = 0; i < samples; i++) {
+            sender.sampleOccurred(createEvent(i));
+        }
+        sender.testEnded("injector-1");
+    }
+
+    @Test
+    public void testStreamSamples() throws Exception {
+        for (boolean compress : new boolean[] { true, false }) {
+            CollectingListener listener = new CollectingListener();
+            stream(listener, 5000, compress);
+            // All samples are fired before test ends
+            assertEquals(5000, listener.countAtTestEnd);
+            for (int i = 0; i < 5000; i++) {
+                SampleResult result = listener.events.get(i).getResult();
+                assertEquals("http://example.invalid/page?id=" + i, result.getUrlAsString());
+                assertEquals(i % 7 != 0, result.isSuccessful());
+            }
+        }
+    }
+
+    @Test
+    public void testFallbackToRmi() throws Exception {
+        CollectingListener listener = new CollectingListener();
+        StreamingSampleSender sender = new StreamingSampleSender(listener);
+        sender.readResolve();
+        for (int i = 0; i < 100; i++) {
+            sender.sampleOccurred(createEvent(i));
+        }
+        // Break the stream as a network failure would
+        Field workerField = StreamingSampleSender.class.getDeclaredField("worker");
+        workerField.setAccessible(true);
+        Object worker = workerField.get(sender);
+        Field channelField = worker.getClass().getDeclaredField("channel");
+        channelField.setAccessible(true);
+        ((SocketChannel) channelField.get(worker)).close();
+        for (int i = 100; i < 200; i++) {
+            sender.sampleOccurred(createEvent(i));
+        }
+        sender.testEnded("injector-1");
+        assertEquals(200, listener.countAtTestEnd);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("http://example.invalid/page?id=" + i, listener.events.get(i).getResult().getUrlAsString());
+        }
+    }
+}
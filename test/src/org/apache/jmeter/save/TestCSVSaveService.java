@@ -22,15 +22,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.visualizers.Visualizer;
 import org.junit.Test;
 
 public class TestCSVSaveService extends JMeterTestCase {
@@ -187,4 +194,35 @@ public class TestCSVSaveService extends JMeterTestCase {
         
         assertEquals("Result text has changed", RESULT, CSVSaveService.resultToDelimitedString(new SampleEvent(result,"")));
     }
+
+    @Test
+    public void testProcessSamplesErrorsOnly() throws Exception {
+        StringBuilder content = new StringBuilder(CSVSaveService.printableFieldNamesToString()).append('\n');
+        for (int i = 0; i < 4; i++) {
+            SampleResult result = new SampleResult();
+            result.setSaveConfig(new SampleSaveConfiguration());
+            result.setStampAndTime(i, 2);
+            result.setSampleLabel("label " + i);
+            result.setSuccessful(i % 2 == 0);
+            content.append(CSVSaveService.resultToDelimitedString(new SampleEvent(result, ""))).append('\n');
+        }
+        File file = File.createTempFile("errorsonly", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        ResultCollector collector = new ResultCollector();
+        collector.setErrorLogging(true);
+        final List<String> labels = new ArrayList<>();
+        CSVSaveService.processSamples(file.getAbsolutePath(), new Visualizer() {
+            @Override
+            public void add(SampleResult sample) {
+                labels.add(sample.getSampleLabel());
+            }
+
+            @Override
+            public boolean isStats() {
+                return false;
+            }
+        }, collector);
+        assertEquals("[label 1, label 3]", labels.toString());
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.save;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.processor.AbstractSampleConsumer;
+import org.apache.jmeter.report.processor.CsvFileSampleSource;
+import org.apache.jmeter.report.processor.SampleContext;
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.samplers.HistogramSampleResult;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.visualizers.Visualizer;
+import org.junit.Test;
+
+public class TestHistogramSaveService extends JMeterTestCase {
+
+    private static SampleResult createResult(String label, long elapsed, boolean success, String code) {
+        SampleResult result = new SampleResult(1_500_000_000_000L + elapsed, elapsed);
+        result.setSampleLabel(label);
+        result.setThreadName("Thread Group 1-1");
+        result.setSuccessful(success);
+        result.setResponseCode(code);
+        result.setLatency(elapsed / 2);
+        result.setBytes(1000L);
+        return result;
+    }
+
+    private static HistogramSampleResult createAggregate(String label) {
+        HistogramSampleResult aggregate = new HistogramSampleResult(createResult(label, 0, true, "200"));
+        for (int i = 1; i <= 100; i++) {
+            aggregate.add(createResult(label, i, true, "200"));
+        }
+        aggregate.add(createResult(label, 2000, false, "500"));
+        aggregate.add(createResult(label, 3000, false, "Non HTTP response code: java.net.SocketException"));
+        return aggregate;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        HistogramSampleResult aggregate = createAggregate("a, \"quoted\" label");
+        String line = HistogramSaveService.resultToDelimitedString(aggregate);
+        HistogramSampleResult copy = HistogramSaveService.fieldsToResult(CSVSaveService.csvSplitString(line, ','));
+        assertEquals(aggregate.getSampleLabel(), copy.getSampleLabel());
+        assertEquals(aggregate.getThreadName(), copy.getThreadName());
+        assertEquals(aggregate.getStartTime(), copy.getStartTime());
+        assertEquals(aggregate.getEndTime(), copy.getEndTime());
+        assertEquals(102, copy.getSampleCount());
+        assertEquals(2, copy.getErrorCount());
+        assertFalse(copy.isSuccessful());
+        assertEquals(aggregate.getTime(), copy.getTime());
+        assertEquals(aggregate.getLatency(), copy.getLatency());
+        assertEquals(aggregate.getBytesAsLong(), copy.getBytesAsLong());
+        assertEquals(aggregate.getErrorsByCode(), copy.getErrorsByCode());
+        assertEquals("200", copy.getSuccessCode());
+        assertEquals(aggregate.getTimes().getPercentile(90), copy.getTimes().getPercentile(90), 0.0);
+        assertEquals(line, HistogramSaveService.resultToDelimitedString(copy));
+    }
+
+    @Test
+    public void testFilter() {
+        HistogramSampleResult aggregate = createAggregate("a");
+        HistogramSampleResult successes = aggregate.filter(true);
+        assertEquals(100, successes.getSampleCount());
+        assertEquals(0, successes.getErrorCount());
+        assertTrue(successes.isSuccessful());
+        assertEquals(5050, successes.getTime());
+        assertEquals(Math.round(aggregate.getBytesAsLong() * 100d / 102), successes.getBytesAsLong());
+        HistogramSampleResult failures = aggregate.filter(false);
+        assertEquals(2, failures.getSampleCount());
+        assertEquals(2, failures.getErrorCount());
+        assertEquals(5000, failures.getTime());
+        assertEquals(aggregate.getErrorsByCode(), failures.getErrorsByCode());
+    }
+
+    @Test
+    public void testInvalidLine() throws Exception {
+        File file = File.createTempFile("results", HistogramSaveService.FILE_SUFFIX);
+        try {
+            Files.write(file.toPath(), "1,2,a\n".getBytes(StandardCharsets.UTF_8));
+            HistogramSaveService.processHistogramResults(file, result -> fail("Should not be read"));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("line 1"));
+        } finally {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    @Test
+    public void testResultCollectorSavesAggregates() throws Exception {
+        File file = File.createTempFile("results", ".csv");
+        File histograms = new File(HistogramSaveService.getHistogramFileName(file.getPath()));
+        try {
+            Files.delete(file.toPath());
+            ResultCollector collector = new ResultCollector();
+            collector.setFilename(file.getPath());
+            SampleSaveConfiguration saveConfig = new SampleSaveConfiguration();
+            saveConfig.setAsXml(false);
+            saveConfig.setFieldNames(true);
+            collector.setSaveConfig(saveConfig);
+            collector.testStarted();
+            collector.sampleOccurred(new SampleEvent(createAggregate("a"), "Thread Group 1"));
+            collector.sampleOccurred(new SampleEvent(createAggregate("b"), "Thread Group 1"));
+            collector.testEnded();
+
+            // No synthetic rows in the result file, only its header
+            assertEquals(1, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+            List<HistogramSampleResult> saved = new ArrayList<>();
+            assertEquals(2, HistogramSaveService.processHistogramResults(histograms, saved::add));
+            assertEquals("a", saved.get(0).getSampleLabel());
+            assertEquals(102, saved.get(0).getSampleCount());
+
+            List<SampleResult> loaded = new ArrayList<>();
+            ResultCollector reader = new ResultCollector();
+            reader.setFilename(file.getPath());
+            reader.setErrorLogging(true);
+            reader.setListener(new Visualizer() {
+                @Override
+                public void add(SampleResult sample) {
+                    loaded.add(sample);
+                }
+
+                @Override
+                public boolean isStats() {
+                    return false;
+                }
+            });
+            reader.loadExistingFile();
+            assertEquals(2, loaded.size());
+            assertEquals(2, loaded.get(0).getSampleCount());
+            assertFalse(loaded.get(0).isSuccessful());
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(histograms.toPath());
+        }
+    }
+
+    @Test
+    public void testReportSourceExpandsAggregates() throws Exception {
+        File dir = Files.createTempDirectory("report").toFile();
+        File file = new File(dir, "results.csv");
+        File histograms = new File(HistogramSaveService.getHistogramFileName(file.getPath()));
+        try {
+            Files.write(file.toPath(), Collections.singletonList(
+                    "timeStamp,elapsed,label,responseCode,success,bytes"), StandardCharsets.UTF_8);
+            Files.write(histograms.toPath(), Collections.singletonList(
+                    HistogramSaveService.resultToDelimitedString(createAggregate("a"))), StandardCharsets.UTF_8);
+            List<Sample> samples = new ArrayList<>();
+            CsvFileSampleSource source = new CsvFileSampleSource(file, ',');
+            source.addSampleConsumer(new AbstractSampleConsumer() {
+                @Override
+                public void startConsuming() {
+                    // NOOP
+                }
+
+                @Override
+                public void consume(Sample sample, int channel) {
+                    samples.add(sample);
+                }
+
+                @Override
+                public void stopConsuming() {
+                    // NOOP
+                }
+            });
+            SampleContext context = new SampleContext();
+            context.setWorkingDirectory(dir);
+            source.setSampleContext(context);
+            source.run();
+            assertEquals(102, samples.size());
+            assertEquals(2, samples.stream().filter(s -> !s.getSuccess()).count());
+            assertEquals(5050, samples.stream().filter(Sample::getSuccess).mapToLong(Sample::getElapsedTime).sum());
+            assertEquals("a", samples.get(0).getName());
+            assertEquals(101, samples.get(101).getSampleRow());
+        } finally {
+            Files.deleteIfExists(file.toPath());
+            Files.deleteIfExists(histograms.toPath());
+            Files.deleteIfExists(dir.toPath());
+        }
+    }
+}
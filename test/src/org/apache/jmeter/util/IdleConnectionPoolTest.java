@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class IdleConnectionPoolTest {
+
+    private final List<String> closed = new ArrayList<>();
+
+    @Test
+    public void testBorrowMostRecentlyUsed() {
+        IdleConnectionPool<String> pool = new IdleConnectionPool<>(0, closed::add);
+        assertNull(pool.borrow("a"));
+        pool.giveBack("a", "first");
+        pool.giveBack("a", "second");
+        pool.giveBack("b", "other");
+        assertEquals(3, pool.getIdleCount());
+        assertEquals("second", pool.borrow("a"));
+        assertEquals("first", pool.borrow("a"));
+        assertNull(pool.borrow("a"));
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(closed.isEmpty());
+    }
+
+    @Test
+    public void testIdleConnectionsAreClosed() throws Exception {
+        IdleConnectionPool<String> pool = new IdleConnectionPool<>(20, closed::add);
+        pool.giveBack("a", "stale");
+        Thread.sleep(50);
+        pool.giveBack("a", "fresh");
+        assertEquals("fresh", pool.borrow("a"));
+        assertNull(pool.borrow("a"));
+        assertEquals(1, closed.size());
+        assertEquals("stale", closed.get(0));
+    }
+
+    @Test
+    public void testMaxIdlePerKey() {
+        IdleConnectionPool<String> pool = new IdleConnectionPool<>(0, 2, closed::add);
+        pool.giveBack("a", "first");
+        pool.giveBack("a", "second");
+        pool.giveBack("a", "third");
+        pool.giveBack("b", "other");
+        assertEquals(3, pool.getIdleCount());
+        assertEquals(1, closed.size());
+        assertEquals("first", closed.get(0));
+        assertEquals("third", pool.borrow("a"));
+        assertEquals("second", pool.borrow("a"));
+        assertNull(pool.borrow("a"));
+    }
+
+    @Test
+    public void testClose() {
+        IdleConnectionPool<String> pool = new IdleConnectionPool<>(0, c -> {
+            closed.add(c);
+            throw new IllegalStateException("ignored");
+        });
+        pool.giveBack("a", "first");
+        pool.giveBack("b", "second");
+        pool.close();
+        assertEquals(2, closed.size());
+        assertEquals(0, pool.getIdleCount());
+        assertNull(pool.borrow("a"));
+    }
+}
@@ -23,7 +23,13 @@
 package org.apache.jmeter.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.util.regex.Matcher;
+
+import org.apache.oro.text.regex.MatchResult;
+import org.apache.oro.text.regex.Perl5Matcher;
 import org.junit.Test;
 
 public class TestJMeterUtils {
@@ -43,4 +49,36 @@ public class TestJMeterUtils {
     public void testGesResStringDefaultWithNonExistantKey() throws Exception {
         assertEquals("[res_key=noValidKey]", JMeterUtils.getResString("noValidKey"));
     }
+
+    @Test
+    public void testCompilePatternIsCached() throws Exception {
+        assertSame(JMeterUtils.compilePattern("a(b+)c"), JMeterUtils.compilePattern("a(b+)c"));
+        assertEquals(java.util.regex.Pattern.CASE_INSENSITIVE,
+                JMeterUtils.compilePattern("a(b+)c", java.util.regex.Pattern.CASE_INSENSITIVE).flags());
+    }
+
+    @Test
+    public void testJavaMatchResultLikeOro() throws Exception {
+        String regex = "name=\"(\\w+)\"( id=(\\d+))?";
+        String input = "<input name=\"user\"> <input name=\"token\" id=\"1\">";
+        Perl5Matcher oroMatcher = JMeterUtils.getMatcher();
+        oroMatcher.contains(input, JMeterUtils.getPattern(regex));
+        MatchResult oro = oroMatcher.getMatch();
+        Matcher javaMatcher = JMeterUtils.compilePattern(regex).matcher(input);
+        javaMatcher.find();
+        MatchResult java = new JavaMatchResult(javaMatcher.toMatchResult());
+        assertEquals(oro.groups(), java.groups());
+        assertEquals(oro.length(), java.length());
+        assertEquals(oro.toString(), java.toString());
+        for (int i = 0; i < oro.groups(); i++) {
+            assertEquals(oro.group(i), java.group(i));
+            assertEquals(oro.begin(i), java.begin(i));
+            assertEquals(oro.end(i), java.end(i));
+            assertEquals(oro.beginOffset(i), java.beginOffset(i));
+            assertEquals(oro.endOffset(i), java.endOffset(i));
+        }
+        assertEquals("user", java.group(1));
+        assertNull(java.group(3));
+        assertNull(java.group(10));
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.Test;
+
+public class TestXPathStreamingQuery extends JMeterTestCase {
+
+    private static final String NAMESPACES = "soap=http://schemas.xmlsoap.org/soap/envelope/\n"
+            + "m=urn:example:books";
+
+    private static final String XML = "<?xml version=\"1.0\"?>\n"
+            + "<!-- prolog -->\n"
+            + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">\n"
+            + "  <soap:Header/>\n"
+            + "  <soap:Body>\n"
+            + "    <m:books xmlns:m=\"urn:example:books\" count=\"3\">\n"
+            + "      <m:book id=\"1\" lang=\"en\"><title>Sayings &amp; <![CDATA[<Century>]]></title><price>8.95</price></m:book>\n"
+            + "      <m:book id=\"2\"><title>Sword<!-- x --> of Honour</title><price>12.99</price>\n"
+            + "        <m:book id=\"2.1\"><title>Nested</title></m:book></m:book>\n"
+            + "      <m:book id=\"3\" lang=\"fr\"><title>Moby &#x44;ick</title><price>8</price></m:book>\n"
+            + "      <book id=\"4\"><title>No namespace</title></book>\n"
+            + "    </m:books>\n"
+            + "  </soap:Body>\n"
+            + "</soap:Envelope>\n";
+
+    private static final List<String> STREAMABLE = Arrays.asList(
+            "/soap:Envelope", "/soap:Envelope/soap:Body/m:books/m:book/title",
+            "//m:book/title", "//title", "//m:book", "//m:book/@id", "//@id", "//m:books/@count",
+            "//m:book[2]/title", "//m:book[1]/title", "//m:book[3]", "//m:book[@lang]/title",
+            "//m:book[@lang='fr']/title", "//m:book[@id = \"2.1\"]/title", "//book/title", "//book[1]",
+            "//m:book/*", "/*/*", "//m:book/title/text()", "//m:book//text()", "//title/text()",
+            "/soap:Envelope//m:book/price", "//price[1]", "//m:missing", "/m:books", "//*[@id]/@id");
+
+    private static List<String> saxon(String xml, String query) throws Exception {
+        List<String> values = new ArrayList<>();
+        XPathUtil.putValuesForXPathInListUsingSaxon(xml, query, values, false, -1, NAMESPACES);
+        return values;
+    }
+
+    private static List<String> stream(String xml, String query, int maxValues) throws Exception {
+        XPathStreamingQuery streamingQuery = XPathStreamingQuery.compile(query, XPathUtil.namespacesParse(NAMESPACES));
+        assertNotNull("Should be streamable: " + query, streamingQuery);
+        List<String> values = streamingQuery.read(new StringReader(xml), maxValues);
+        assertNotNull("Should be streamed: " + query, values);
+        return values;
+    }
+
+    @Test
+    public void testSameValuesAsSaxon() throws Exception {
+        for (String query : STREAMABLE) {
+            assertEquals(query, saxon(XML, query), stream(XML, query, 0));
+        }
+    }
+
+    @Test
+    public void testUnsupportedQueries() {
+        for (String query : Arrays.asList("//m:book[last()]", "count(//m:book)", "//m:book/..",
+                "//m:book[@id > 1]", "//m:book[price < 10]", "descendant::m:book", "m:book",
+                "//m:book | //book", "//m:book/@*", "//x:book", "//m:book[1][@lang]", "//text()/x",
+                "//@id/x", "/", "//m:book[0]", "//m:book[@id='1' or @id='2']")) {
+            assertNull(query, XPathStreamingQuery.compile(query, XPathUtil.namespacesParse(NAMESPACES)));
+        }
+    }
+
+    @Test
+    public void testStopsAtMatch() throws Exception {
+        assertEquals(Arrays.asList("a", "b"),
+                stream("<r><v>a</v><v>b</v><v>c</v><not closed", "//v", 2));
+        // the value of the first match is complete once its element ends
+        assertEquals(Arrays.asList("abc", "b"),
+                stream("<r><v>a<v>b</v>c</v><v>d</v><not closed", "//v", 2));
+    }
+
+    @Test
+    public void testSampleResult() throws Exception {
+        SampleResult result = new SampleResult();
+        result.setResponseData(XML, "UTF-8");
+        List<String> values = new ArrayList<>();
+        assertTrue(XPathUtil.putValuesForXPathInListUsingStreaming(result, "//m:book/title", values, 2, NAMESPACES));
+        assertEquals(Arrays.asList("Sword of Honour"), values);
+        values.clear();
+        assertTrue(XPathUtil.putValuesForXPathInListUsingStreaming(result, "//m:book/title", values, -1, NAMESPACES));
+        assertEquals(saxon(XML, "//m:book/title"), values);
+        // not supported
+        assertFalse(XPathUtil.putValuesForXPathInListUsingStreaming(result, "count(//m:book)", values, -1, NAMESPACES));
+        // DTD
+        result.setResponseData("<!DOCTYPE r [<!ENTITY e \"x\">]><r>&e;</r>", "UTF-8");
+        assertFalse(XPathUtil.putValuesForXPathInListUsingStreaming(result, "/r", values, -1, NAMESPACES));
+        // not well formed
+        result.setResponseData("<r><v></r>", "UTF-8");
+        assertFalse(XPathUtil.putValuesForXPathInListUsingStreaming(result, "/r/v", values, -1, NAMESPACES));
+        // already parsed
+        result.setResponseData(XML, "UTF-8");
+        XPathUtil.getResponseXdmNode(result);
+        assertFalse(XPathUtil.putValuesForXPathInListUsingStreaming(result, "//m:book/title", values, -1, NAMESPACES));
+        assertEquals(saxon(XML, "//m:book/title"), values);
+    }
+}
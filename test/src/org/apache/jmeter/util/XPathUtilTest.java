@@ -19,6 +19,8 @@
 package org.apache.jmeter.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 import java.io.PrintStream;
@@ -27,12 +29,15 @@ import java.util.List;
 
 import javax.xml.stream.FactoryConfigurationError;
 
+import org.apache.jmeter.samplers.SampleResult;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 
 import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XdmNode;
 
 public class XPathUtilTest {
     private static final Logger log = LoggerFactory.getLogger(XPathUtil.class);
@@ -87,6 +92,35 @@ public class XPathUtilTest {
         assertEquals(0,matchStrings.size());
     }
 
+    @Test
+    public void testResponseParsedOnce() throws Exception {
+        SampleResult result = new SampleResult();
+        result.setResponseData(xmlDoc, "UTF-8");
+        Document document = XPathUtil.getResponseDocument(result, true, false, false, false, false,
+                true, false, false, false);
+        assertSame(document, XPathUtil.getResponseDocument(result, true, false, false, false, false,
+                true, false, false, false));
+        // The UTF-8 response is parsed as is, Tidy options are not used by the DOM parser
+        assertSame(document, XPathUtil.getResponseDocument(result, false, false, false, false, false,
+                false, true, false, false));
+        assertNotSame(document, XPathUtil.getResponseDocument(result, false, false, true, false, false,
+                true, false, false, false));
+        SampleResult latin1 = new SampleResult();
+        latin1.setResponseData("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a>\u00E9t\u00E9</a>", "ISO-8859-1");
+        Document converted = XPathUtil.getResponseDocument(latin1, true, false, false, false, false,
+                true, false, false, false);
+        assertNotSame(converted, XPathUtil.getResponseDocument(latin1, false, false, false, false, false,
+                true, false, false, false));
+        XdmNode node = XPathUtil.getResponseXdmNode(result);
+        assertSame(node, XPathUtil.getResponseXdmNode(result));
+        List<String> matchStrings = new ArrayList<>();
+        XPathUtil.putValuesForXPathInListUsingSaxon(node, "//Employees/Employee/role", matchStrings,
+                false, 3, "");
+        assertEquals("Manager", matchStrings.get(0));
+        result.cleanAfterSample();
+        assertNotSame(node, XPathUtil.getResponseXdmNode(result));
+    }
+
     @Test
     public void testnamespacesParse() {
         String namespaces = "donald=duck";
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.test.JMeterSerialTest;
+import org.junit.Test;
+
+public class BackendListenerTest extends JMeterTestCase implements JMeterSerialTest {
+
+    private static final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private static volatile BackendQueueMetrics queueMetrics;
+
+    public static class RecordingClient extends AbstractBackendListenerClient {
+        @Override
+        public void setupTest(BackendListenerContext context) throws Exception {
+            super.setupTest(context);
+            queueMetrics = context.getQueueMetrics();
+        }
+
+        @Override
+        public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
+            for (SampleResult result : sampleResults) {
+                received.add(result.getSampleLabel());
+            }
+        }
+    }
+
+    @Test
+    public void testSamplesAreHandledInOrder() {
+        received.clear();
+        BackendListener listener = new BackendListener();
+        listener.setName("testSamplesAreHandledInOrder");
+        listener.setClassname(RecordingClient.class.getName());
+        listener.setQueueSize("10");
+        listener.testStarted();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            SampleResult result = new SampleResult();
+            result.setSampleLabel("label" + i);
+            expected.add(result.getSampleLabel());
+            listener.sampleOccurred(new SampleEvent(result, "tg"));
+        }
+        listener.testEnded();
+        assertEquals(expected, received);
+        assertNotNull(queueMetrics);
+        assertEquals(1, queueMetrics.getWorkers());
+        assertEquals(0, queueMetrics.getQueueDepth());
+        assertEquals(0, queueMetrics.getDroppedSamples());
+    }
+
+    /** Records the worker thread which handled each sample, by label */
+    public static class ConcurrentRecordingClient extends RecordingClient {
+        private static final Map<String, List<String>> threadsByLabel = new ConcurrentHashMap<>();
+        private static final Map<String, List<Long>> sequencesByLabel = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean supportsConcurrentCalls() {
+            return true;
+        }
+
+        @Override
+        public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
+            for (SampleResult result : sampleResults) {
+                String label = result.getSampleLabel();
+                threadsByLabel.computeIfAbsent(label, k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(Thread.currentThread().getName());
+                sequencesByLabel.computeIfAbsent(label, k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(Long.valueOf(result.getStartTime()));
+            }
+        }
+    }
+
+    @Test
+    public void testSamplesArePartitionedByLabel() {
+        ConcurrentRecordingClient.threadsByLabel.clear();
+        ConcurrentRecordingClient.sequencesByLabel.clear();
+        JMeterUtils.setProperty("backend_workers", "4");
+        try {
+            BackendListener listener = new BackendListener();
+            listener.setName("testSamplesArePartitionedByLabel");
+            listener.setClassname(ConcurrentRecordingClient.class.getName());
+            listener.setQueueSize("10");
+            listener.testStarted();
+            for (int i = 0; i < 2000; i++) {
+                SampleResult result = new SampleResult(i, 0);
+                result.setSampleLabel("label" + i % 20);
+                listener.sampleOccurred(new SampleEvent(result, "tg"));
+            }
+            listener.testEnded();
+            assertEquals(4, queueMetrics.getWorkers());
+        } finally {
+            JMeterUtils.setProperty("backend_workers", "1");
+        }
+        assertEquals(20, ConcurrentRecordingClient.sequencesByLabel.size());
+        Set<String> workers = new HashSet<>();
+        for (Map.Entry<String, List<Long>> entry : ConcurrentRecordingClient.sequencesByLabel.entrySet()) {
+            String label = entry.getKey();
+            List<Long> sequences = entry.getValue();
+            assertEquals(label, 100, sequences.size());
+            List<Long> sorted = new ArrayList<>(sequences);
+            Collections.sort(sorted);
+            assertEquals("Samples of " + label + " are handled in order", sorted, sequences);
+            Set<String> threads = new HashSet<>(ConcurrentRecordingClient.threadsByLabel.get(label));
+            assertEquals("Samples of " + label + " are handled by a single worker", 1, threads.size());
+            workers.addAll(threads);
+        }
+        assertTrue("Labels are spread over several workers: " + workers, workers.size() > 1);
+    }
+
+    @Test
+    public void testRemoveFinalSampleResult() throws Exception {
+        Field field = BackendListener.class.getDeclaredField("FINAL_SAMPLE_RESULT");
+        field.setAccessible(true);
+        SampleResult finalSampleResult = (SampleResult) field.get(null);
+        SampleResult first = new SampleResult();
+        SampleResult last = new SampleResult();
+        List<SampleResult> results = new ArrayList<>(Arrays.asList(first, last));
+        assertFalse(BackendListener.removeFinalSampleResult(results));
+        assertEquals(2, results.size());
+        results.add(1, finalSampleResult);
+        assertTrue(BackendListener.removeFinalSampleResult(results));
+        assertEquals(Collections.singletonList(first), results);
+    }
+}
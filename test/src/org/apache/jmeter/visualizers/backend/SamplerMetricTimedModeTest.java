@@ -85,6 +85,63 @@ public class SamplerMetricTimedModeTest {
         assertEquals("After reset received bytes", 0, metric.getReceivedBytes(), 0.0);
     }
 
+    @Test
+    public void checkConcurrentAdd() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        int threadCount = 4;
+        int samplesPerThread = 10_000;
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < samplesPerThread; j++) {
+                    metric.add(createSampleResult(j % 10 != 0));
+                }
+            });
+            threads[i].start();
+        }
+        int collectedTotal = 0;
+        while (threads[0].isAlive()) {
+            // Collect while samples are being added, nothing must be lost
+            metric.collect();
+            collectedTotal += metric.getTotal();
+            metric.resetForTimeInterval();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        collectedTotal += metric.getTotal();
+        assertEquals(threadCount * samplesPerThread, collectedTotal);
+    }
+
+    @Test
+    public void checkRecordersOfFinishedThreadsAreRetired() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        metric.add(createSampleResult(true));
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread(() -> metric.add(createSampleResult(false)));
+            thread.start();
+            thread.join();
+        }
+        assertEquals(11, metric.getRecorderCount());
+        metric.collect();
+        assertEquals("Samples of finished threads are kept", 11, metric.getTotal());
+        assertEquals(10, metric.getFailures());
+        assertEquals("Only the recorder of the live thread is kept", 1, metric.getRecorderCount());
+    }
+
+    @Test
+    public void checkCollectFreezesStatistics() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        metric.add(createSampleResult(true));
+        metric.collect();
+        metric.add(createSampleResult(false));
+        assertEquals("Sample added after collect is reported in next interval", 1, metric.getTotal());
+        assertEquals(0, metric.getFailures());
+        metric.resetForTimeInterval();
+        assertEquals(1, metric.getFailures());
+        assertEquals(DEFAULT_ELAPSED_TIME, metric.getKoPercentile(90), 0.001);
+    }
+
     private SampleResult createSampleResult(boolean success) {
         SampleResult result = new SampleResult();
         result.setSuccessful(success);
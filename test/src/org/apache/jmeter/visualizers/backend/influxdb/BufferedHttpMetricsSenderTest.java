@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend.influxdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class BufferedHttpMetricsSenderTest extends JMeterTestCase {
+
+    /** Stand-in for InfluxDB write endpoint */
+    private HttpServer server;
+    private final List<String> receivedLines = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger failuresToSend = new AtomicInteger();
+    private volatile int failureCode = 503;
+    private final AtomicInteger requests = new AtomicInteger();
+    private String url;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/write", this::handleWrite);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/write?db=jmeter";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void handleWrite(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (InputStream body = exchange.getRequestBody()) {
+            if (failuresToSend.getAndUpdate(i -> i > 0 ? i - 1 : 0) > 0) {
+                IOUtils.toByteArray(body);
+                exchange.sendResponseHeaders(failureCode, -1);
+                return;
+            }
+            assertEquals("gzip", exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            String content = new String(IOUtils.toByteArray(new GZIPInputStream(body)), StandardCharsets.UTF_8);
+            receivedLines.addAll(Arrays.asList(content.split("\n")));
+            exchange.sendResponseHeaders(204, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void waitForLines(int expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (receivedLines.size() < expected && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testBatchEncoding() {
+        BufferedHttpMetricsSender.Batch batch = new BufferedHttpMetricsSender.Batch();
+        batch.append("jmeter,label=été😀")
+            .append((byte) ' ')
+            .append(0L)
+            .append((byte) ' ')
+            .append(-42L)
+            .append((byte) ' ')
+            .append(Long.MAX_VALUE);
+        String expected = "jmeter,label=été😀 0 -42 " + Long.MAX_VALUE;
+        assertEquals(expected, new String(batch.getData(), 0, batch.getLength(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSendGzippedLineProtocol() throws Exception {
+        BufferedHttpMetricsSender sender = new BufferedHttpMetricsSender();
+        sender.setup(url);
+        sender.addMetric("jmeter", ",application=test", "count=1");
+        sender.addMetric("jmeter", ",application=test", "count=2");
+        sender.writeAndSendMetrics();
+        waitForLines(2);
+        sender.destroy();
+        assertEquals(2, receivedLines.size());
+        assertTrue(receivedLines.get(0), receivedLines.get(0).matches("jmeter,application=test count=1 \\d+000000"));
+        assertEquals(2, sender.getSentMetrics());
+        assertEquals(0, sender.getDroppedMetrics());
+    }
+
+    @Test
+    public void testRetryWithoutLoss() throws Exception {
+        failuresToSend.set(3);
+        BufferedHttpMetricsSender sender = new BufferedHttpMetricsSender(1024 * 1024, 10);
+        sender.setup(url);
+        int metrics = 0;
+        for (int interval = 0; interval < 5; interval++) {
+            for (int i = 0; i < 1000; i++) {
+                sender.addMetric("jmeter", ",interval=" + interval, "count=" + i);
+                metrics++;
+            }
+            sender.writeAndSendMetrics();
+        }
+        waitForLines(metrics);
+        sender.destroy();
+        assertEquals(metrics, receivedLines.size());
+        assertEquals(metrics, sender.getSentMetrics());
+        assertEquals(0, sender.getDroppedMetrics());
+    }
+
+    @Test
+    public void testRetryBufferDropsOldestBatches() throws Exception {
+        failuresToSend.set(Integer.MAX_VALUE);
+        BufferedHttpMetricsSender sender = new BufferedHttpMetricsSender(200, 10);
+        sender.setup(url);
+        for (int interval = 0; interval < 10; interval++) {
+            sender.addMetric("jmeter", ",interval=" + interval, "count=1");
+            sender.writeAndSendMetrics();
+        }
+        long end = System.currentTimeMillis() + 10000;
+        while (sender.getDroppedMetrics() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        failuresToSend.set(0);
+        sender.addMetric("jmeter", ",interval=last", "count=1");
+        sender.writeAndSendMetrics();
+        sender.destroy();
+        assertTrue("Oldest metrics must be dropped", sender.getDroppedMetrics() > 0);
+        assertEquals(11, sender.getDroppedMetrics() + sender.getSentMetrics());
+        assertTrue(receivedLines.toString(), receivedLines.get(receivedLines.size() - 1).contains("interval=last"));
+    }
+
+    @Test
+    public void testNewBatchesDoNotCutBackoffShort() throws Exception {
+        failuresToSend.set(Integer.MAX_VALUE);
+        BufferedHttpMetricsSender sender = new BufferedHttpMetricsSender(1024 * 1024, 2000);
+        sender.setup(url);
+        sender.addMetric("jmeter", ",interval=0", "count=1");
+        sender.writeAndSendMetrics();
+        long end = System.currentTimeMillis() + 10000;
+        while (requests.get() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        for (int interval = 1; interval <= 20; interval++) {
+            sender.addMetric("jmeter", ",interval=" + interval, "count=1");
+            sender.writeAndSendMetrics();
+            Thread.sleep(25);
+        }
+        assertEquals("No retry before the backoff delay", 1, requests.get());
+        sender.destroy();
+    }
+
+    @Test
+    public void testRejectedBatchIsNotRetried() throws Exception {
+        failureCode = 400;
+        failuresToSend.set(1);
+        BufferedHttpMetricsSender sender = new BufferedHttpMetricsSender(1024, 10);
+        sender.setup(url);
+        sender.addMetric("jmeter", ",bad=true", "count=1");
+        sender.writeAndSendMetrics();
+        sender.addMetric("jmeter", ",bad=false", "count=1");
+        sender.writeAndSendMetrics();
+        waitForLines(1);
+        sender.destroy();
+        assertEquals(1, sender.getDroppedMetrics());
+        assertEquals(Collections.singletonList("bad=false"),
+                Collections.singletonList(receivedLines.get(0).replaceAll("jmeter,(\\S+) .*", "$1")));
+    }
+}
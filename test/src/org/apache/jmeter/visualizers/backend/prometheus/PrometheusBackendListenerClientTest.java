@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jmeter.visualizers.backend.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.ConnectionPoolMetrics;
+import org.apache.jmeter.samplers.ConnectionPoolRegistry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PrometheusBackendListenerClientTest extends JMeterTestCase {
+
+    private PrometheusBackendListenerClient client;
+    private BackendListenerContext context;
+
+    @Before
+    public void setUp() throws Exception {
+        client = new PrometheusBackendListenerClient();
+        Arguments arguments = client.getDefaultParameters();
+        arguments.removeArgument("prometheusHost");
+        arguments.addArgument("prometheusHost", "127.0.0.1");
+        arguments.removeArgument("prometheusPort");
+        arguments.addArgument("prometheusPort", "0");
+        arguments.removeArgument("buckets");
+        arguments.addArgument("buckets", "100;1000");
+        arguments.removeArgument("samplersRegex");
+        arguments.addArgument("samplersRegex", "^Home|Login");
+        context = new BackendListenerContext(arguments);
+        client.setupTest(context);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.teardownTest(context);
+    }
+
+    private static SampleResult createResult(String label, long time, boolean success, String code) {
+        SampleResult result = SampleResult.createTestSample(time);
+        result.setSampleLabel(label);
+        result.setSuccessful(success);
+        result.setResponseCode(code);
+        result.setBytes(100L);
+        result.setSentBytes(10L);
+        return result;
+    }
+
+    private String scrape(String accept) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + client.getAddress().getPort() + "/metrics");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (accept != null) {
+            connection.setRequestProperty("Accept", accept);
+        }
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            String contentType = connection.getContentType();
+            String body = IOUtils.toString(in, StandardCharsets.UTF_8);
+            return contentType + "\n" + body;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testParseBuckets() {
+        assertArrayEquals(new long[] { 10, 20, 30 },
+                PrometheusBackendListenerClient.parseBuckets("10; 20;;a;30"));
+    }
+
+    @Test
+    public void testScrapeTextFormat() throws IOException {
+        client.handleSampleResults(Arrays.asList(
+                createResult("Home", 50, true, "200"),
+                createResult("Home", 500, false, "500"),
+                createResult("Home", 5000, false, "500"),
+                createResult("Login \"admin\"", 100, true, "200"),
+                createResult("Ignored", 100, true, "200")), context);
+
+        String response = scrape(null);
+        assertTrue(response, response.startsWith("text/plain; version=0.0.4"));
+        assertTrue(response, response.contains("# TYPE jmeter_samples_total counter\n"));
+        assertTrue(response, response.contains("jmeter_samples_total{label=\"Home\",status=\"ok\"} 1\n"));
+        assertTrue(response, response.contains("jmeter_samples_total{label=\"Home\",status=\"ko\"} 2\n"));
+        assertTrue(response, response.contains("jmeter_errors_total{label=\"Home\",code=\"500\"} 2\n"));
+        assertTrue(response, response.contains("jmeter_received_bytes_total{label=\"Home\"} 300\n"));
+        assertTrue(response, response.contains("jmeter_sent_bytes_total{label=\"Home\"} 30\n"));
+        assertTrue(response, response.contains("jmeter_response_time_milliseconds_bucket{label=\"Home\",le=\"100\"} 1\n"));
+        assertTrue(response, response.contains("jmeter_response_time_milliseconds_bucket{label=\"Home\",le=\"1000\"} 2\n"));
+        assertTrue(response, response.contains("jmeter_response_time_milliseconds_bucket{label=\"Home\",le=\"+Inf\"} 3\n"));
+        assertTrue(response, response.contains("jmeter_response_time_milliseconds_count{label=\"Home\"} 3\n"));
+        assertTrue(response, response.contains("jmeter_response_time_milliseconds_sum{label=\"Home\"} 5550\n"));
+        // Label values are escaped, bound of the bucket is inclusive
+        assertTrue(response, response.contains(
+                "jmeter_response_time_milliseconds_bucket{label=\"Login \\\"admin\\\"\",le=\"100\"} 1\n"));
+        assertFalse(response, response.contains("Ignored"));
+        assertFalse(response, response.contains("# EOF"));
+    }
+
+    @Test
+    public void testScrapeOpenMetricsFormat() throws IOException {
+        client.handleSampleResults(Arrays.asList(createResult("Home", 50, true, "200")), context);
+
+        String response = scrape("application/openmetrics-text; version=1.0.0,text/plain;q=0.5");
+        assertTrue(response, response.startsWith("application/openmetrics-text; version=1.0.0"));
+        assertTrue(response, response.contains("# TYPE jmeter_samples counter\n"));
+        assertTrue(response, response.contains("jmeter_samples_total{label=\"Home\",status=\"ok\"} 1\n"));
+        assertTrue(response, response.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void testScrapeConnectionPools() throws IOException {
+        ConnectionPoolMetrics pool = new ConnectionPoolMetrics() {
+            @Override
+            public String getPoolName() {
+                return "db";
+            }
+            @Override
+            public int getNumActive() {
+                return 10;
+            }
+            @Override
+            public int getNumIdle() {
+                return 0;
+            }
+            @Override
+            public int getNumWaiters() {
+                return 4;
+            }
+            @Override
+            public int getMaxTotal() {
+                return 10;
+            }
+            @Override
+            public long getMeanBorrowWaitTime() {
+                return 25;
+            }
+        };
+        ConnectionPoolRegistry.register(pool);
+        try {
+            String response = scrape(null);
+            assertTrue(response, response.contains("# TYPE jmeter_pool_active_connections gauge\n"));
+            assertTrue(response, response.contains("jmeter_pool_active_connections{pool=\"db\"} 10\n"));
+            assertTrue(response, response.contains("jmeter_pool_waiting_threads{pool=\"db\"} 4\n"));
+            assertTrue(response, response.contains("jmeter_pool_borrow_wait_milliseconds{pool=\"db\"} 25\n"));
+            assertEquals(" Pool db: 10/10 active, 0 idle, 4 waiting",
+                    ConnectionPoolRegistry.appendSummary(new StringBuilder()).toString());
+        } finally {
+            ConnectionPoolRegistry.unregister(pool);
+        }
+        assertFalse(scrape(null).contains("jmeter_pool_"));
+    }
+}
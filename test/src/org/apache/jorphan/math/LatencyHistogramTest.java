@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.jorphan.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void checkEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(Double.NaN, histogram.getMin(), 0.0);
+        assertEquals(Double.NaN, histogram.getMax(), 0.0);
+        assertEquals(Double.NaN, histogram.getMean(), 0.0);
+        assertEquals(Double.NaN, histogram.getPercentile(90), 0.0);
+    }
+
+    @Test
+    public void checkBucketBoundaries() {
+        long previous = -1;
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            long lowest = LatencyHistogram.lowestValueAt(index);
+            assertTrue("value " + value, lowest <= value);
+            assertTrue("value " + value, value - lowest <= value / 128);
+            if (lowest != previous) {
+                assertEquals("buckets must be contiguous at " + value, value, lowest);
+                previous = lowest;
+            }
+        }
+        assertTrue(LatencyHistogram.indexOf(Long.MAX_VALUE) < 8000);
+    }
+
+    @Test
+    public void checkStatistics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.add(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(1, histogram.getMin(), 0.0);
+        assertEquals(100, histogram.getMax(), 0.0);
+        assertEquals(50.5, histogram.getMean(), 0.0);
+        assertEquals(90, histogram.getPercentile(90), 0.0);
+        assertEquals(100, histogram.getPercentile(100), 0.0);
+    }
+
+    @Test
+    public void checkLargeValuesPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.add(i * 1000L);
+        }
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 128d);
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 128d);
+        assertEquals(1_000_000, histogram.getMax(), 0.0);
+    }
+
+    @Test
+    public void checkMergeAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.add(10);
+        second.add(100_000);
+        second.add(20);
+        first.add(second);
+        assertEquals(3, first.getCount());
+        assertEquals(10, first.getMin(), 0.0);
+        assertEquals(100_000, first.getMax(), 0.0);
+        assertEquals(20, first.getPercentile(50), 0.0);
+        first.reset();
+        assertEquals(0, first.getCount());
+        assertEquals(Double.NaN, first.getMax(), 0.0);
+        first.add(5);
+        assertEquals(5, first.getPercentile(99), 0.0);
+    }
+
+    @Test
+    public void checkForEachValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.add(10);
+        histogram.add(10);
+        histogram.add(1_000_000);
+        List<Long> values = new ArrayList<>();
+        long[] total = new long[1];
+        histogram.forEachValue((value, count) -> {
+            values.add(value);
+            total[0] += count;
+        });
+        assertEquals(3, total[0]);
+        assertEquals(Arrays.asList(10L, 1_000_000L), values);
+    }
+
+    @Test
+    public void checkEncodeDecode() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, LatencyHistogram.decode(histogram.encode()).getCount());
+        for (int i = 1; i <= 1000; i++) {
+            histogram.add(i * 37L);
+        }
+        LatencyHistogram copy = LatencyHistogram.decode(histogram.encode());
+        assertEquals(histogram.getCount(), copy.getCount());
+        assertEquals(histogram.getMin(), copy.getMin(), 0.0);
+        assertEquals(histogram.getMax(), copy.getMax(), 0.0);
+        assertEquals(histogram.getSum(), copy.getSum(), 0.0);
+        for (int p = 0; p <= 100; p += 5) {
+            assertEquals(histogram.getPercentile(p), copy.getPercentile(p), 0.0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkDecodeRejectsWrongCount() {
+        LatencyHistogram.decode("3 10 20 40 10:1 20:1");
+    }
+}
@@ -334,4 +334,20 @@ public class TestJorphanUtils {
                 JOrphanUtils.replaceAllWithRegex("TO1232a123ti${var2}","123", "${var}", true));
 
     }
+
+    @Test
+    public void testIndexOfBytes() {
+        byte[] source = "abcabdabcabcabd".getBytes(StandardCharsets.US_ASCII);
+        for (String target : new String[] { "", "a", "ab", "abd", "cab", "abcabd", "bcabcabd",
+                "abcabdabcabcabd", "abcabdabcabcabdx", "abe", "dabcabcx", "d" }) {
+            for (int from = -1; from <= source.length + 1; from++) {
+                String sourceString = new String(source, StandardCharsets.US_ASCII);
+                assertEquals(target + " from " + from, sourceString.indexOf(target, from),
+                        JOrphanUtils.indexOf(source, target.getBytes(StandardCharsets.US_ASCII), from));
+            }
+        }
+        byte[] utf8 = "\u00e9t\u00e9 \u00e0 \u20ac20".getBytes(StandardCharsets.UTF_8);
+        assertEquals(9, JOrphanUtils.indexOf(utf8, "\u20ac20".getBytes(StandardCharsets.UTF_8), 0));
+        assertEquals(3, JOrphanUtils.indexOf(utf8, "\u00e9 \u00e0 ".getBytes(StandardCharsets.UTF_8), 1));
+    }
 }